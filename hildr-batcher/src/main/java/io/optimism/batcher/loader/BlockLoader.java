@@ -27,9 +27,11 @@ import io.optimism.type.L2BlockRef;
 import io.optimism.type.OpEthSyncStatusRes;
 import io.optimism.type.RollupConfigRes;
 import io.optimism.type.RollupConfigResult;
+import io.optimism.utilities.rpc.BatchRpcClient;
 import io.optimism.utilities.rpc.Web3jProvider;
 import java.io.Closeable;
 import java.math.BigInteger;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.StructuredTaskScope;
@@ -62,8 +64,12 @@ public class BlockLoader implements Closeable {
 
     static final String OP_SYNC_STATUS = "optimism_syncStatus";
 
+    private static final BigInteger LOAD_BATCH_SIZE = BigInteger.valueOf(64L);
+
     private final Web3j l2Client;
 
+    private final BatchRpcClient batchClient;
+
     private final Web3j rollupClient;
 
     private final Web3jService rollupService;
@@ -84,6 +90,7 @@ public class BlockLoader implements Closeable {
      */
     public BlockLoader(LoaderConfig config, @Nonnull Consumer<EthBlock.Block> blockConsumer) {
         this.l2Client = Web3jProvider.createClient(config.l2RpcUrl());
+        this.batchClient = new BatchRpcClient(this.l2Client);
         Tuple2<Web3j, Web3jService> tuple = Web3jProvider.create(config.rollupUrl());
         this.rollupClient = tuple.component1();
         this.rollupService = tuple.component2();
@@ -127,12 +134,16 @@ public class BlockLoader implements Closeable {
         Tuple2<BlockId, BlockId> blockNumbers = this.calculateL2BlockRangeToStore();
         final BigInteger start = blockNumbers.component1().number();
         final BigInteger end = blockNumbers.component2().number();
-        var stopBlock = end.add(BigInteger.ONE);
         EthBlock.Block lastBlock = null;
-        for (BigInteger i = start.add(BigInteger.ONE); i.compareTo(stopBlock) < 0; i = i.add(BigInteger.ONE)) {
-            EthBlock.Block block = this.loadBlockToChannel(i);
-            this.latestLoadedBlock = BlockId.from(block);
-            lastBlock = block;
+        for (BigInteger from = start.add(BigInteger.ONE);
+                from.compareTo(end) <= 0;
+                from = from.add(LOAD_BATCH_SIZE)) {
+            var to = end.min(from.add(LOAD_BATCH_SIZE).subtract(BigInteger.ONE));
+            for (EthBlock.Block block : this.getBlocks(from, to)) {
+                this.loadBlockToChannel(block);
+                this.latestLoadedBlock = BlockId.from(block);
+                lastBlock = block;
+            }
         }
         if (lastBlock == null) {
             throw new BlockLoaderException("get latest block failed");
@@ -200,11 +211,9 @@ public class BlockLoader implements Closeable {
                 sequenceNumber);
     }
 
-    private EthBlock.Block loadBlockToChannel(BigInteger number) {
+    private void loadBlockToChannel(EthBlock.Block block) {
         try {
-            var block = this.getBlock(number);
             blockConsumer.accept(block);
-            return block;
         } catch (ReorgException e) {
             this.latestLoadedBlock = null;
             throw e;
@@ -242,21 +251,32 @@ public class BlockLoader implements Closeable {
     }
 
     EthBlock.Block getBlock(BigInteger blockNumber) {
-        final Request<?, EthBlock> ethBlockRequest =
-                l2Client.ethGetBlockByNumber(DefaultBlockParameter.valueOf(blockNumber), true);
-        EthBlock.Block block;
+        return this.getBlocks(blockNumber, blockNumber).get(0);
+    }
+
+    List<EthBlock.Block> getBlocks(BigInteger from, BigInteger to) {
+        final List<Request<?, EthBlock>> requests = new ArrayList<>();
+        for (BigInteger i = from; i.compareTo(to) <= 0; i = i.add(BigInteger.ONE)) {
+            requests.add(l2Client.ethGetBlockByNumber(DefaultBlockParameter.valueOf(i), true));
+        }
+        List<EthBlock> responses;
         try (var scope = new StructuredTaskScope.ShutdownOnFailure()) {
-            var blockFuture = scope.fork(ethBlockRequest::send);
+            var blocksFuture = scope.fork(() -> this.batchClient.sendAll(requests));
             scope.join();
             scope.throwIfFailed();
-            block = blockFuture.get().getBlock();
-            if (block == null) {
-                throw new Web3jCallException("failed to get block by number:" + blockNumber);
-            }
+            responses = blocksFuture.get();
         } catch (ExecutionException | InterruptedException e) {
             Thread.currentThread().interrupt();
-            throw new SyncStatusException("failed to get block by number", e);
+            throw new SyncStatusException("failed to get blocks by number", e);
+        }
+        final List<EthBlock.Block> blocks = new ArrayList<>(responses.size());
+        for (int i = 0; i < responses.size(); i++) {
+            EthBlock.Block block = responses.get(i).getBlock();
+            if (block == null) {
+                throw new Web3jCallException("failed to get block by number:" + from.add(BigInteger.valueOf(i)));
+            }
+            blocks.add(block);
         }
-        return block;
+        return blocks;
     }
 }
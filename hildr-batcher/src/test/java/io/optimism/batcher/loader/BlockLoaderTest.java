@@ -35,6 +35,7 @@ import io.optimism.type.RollupConfigResult;
 import io.optimism.utilities.rpc.Web3jProvider;
 import java.io.IOException;
 import java.math.BigInteger;
+import java.util.Collections;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Consumer;
 import org.apache.commons.lang3.StringUtils;
@@ -119,7 +120,7 @@ class BlockLoaderTest {
         var mockedBlock = new EthBlock.Block();
         mockedBlock.setHash("testHash");
         mockedBlock.setNumber("0x123");
-        doReturn(mockedBlock).when(loader).getBlock(any());
+        doReturn(Collections.nCopies(20, mockedBlock)).when(loader).getBlocks(any(), any());
         doReturn(new Tuple2<>(
                         new BlockId("", BlockLoaderTest.blockNumber.subtract(BigInteger.valueOf(100L))),
                         new BlockId("", BlockLoaderTest.blockNumber.subtract(BigInteger.valueOf(80L)))))
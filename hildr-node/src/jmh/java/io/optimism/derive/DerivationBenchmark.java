@@ -0,0 +1,167 @@
+/*
+ * Copyright 2023 281165273grape@gmail.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package io.optimism.derive;
+
+import io.optimism.common.BlockInfo;
+import io.optimism.common.Epoch;
+import io.optimism.config.Config;
+import io.optimism.config.Config.ChainConfig;
+import io.optimism.derive.stages.Batches;
+import io.optimism.derive.stages.Channels.Channel;
+import io.optimism.l1.L1Info;
+import io.optimism.l1.L1Info.L1BlockInfo;
+import io.optimism.utilities.derive.stages.Batch;
+import java.math.BigInteger;
+import java.util.List;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Per block cost of the derivation bookkeeping: validating the next batch against the safe head and
+ * the L1 epochs, and recording a new L1 block in the derivation state.
+ *
+ * @author grapebaba
+ * @since 0.2.0
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DerivationBenchmark {
+
+    private static final int EPOCHS = 256;
+
+    private static final long FIRST_EPOCH = 9_000_000L;
+
+    private static final long FIRST_TIMESTAMP = 1_690_000_000L;
+
+    private TreeMap<BigInteger, Batch> pendingBatches;
+
+    private Batches<NoChannels> batches;
+
+    private Batch nextBatch;
+
+    private io.optimism.derive.State state;
+
+    private long nextL1Block;
+
+    private long seqWindowSize;
+
+    /** Sets up a state holding a window of L1 epochs and a safe head in the first epoch. */
+    @Setup
+    public void setUp() {
+        Config config = new Config(
+                null, null, null, null, null, null, 9545, false, null, ChainConfig.optimismGoerli());
+        Epoch safeEpoch = epoch(FIRST_EPOCH);
+        BlockInfo safeHead = new BlockInfo(
+                hash(1L), BigInteger.valueOf(100L), hash(0L), BigInteger.valueOf(FIRST_TIMESTAMP));
+        this.state = io.optimism.derive.State.create(safeHead, safeEpoch, config);
+        for (long i = 0; i < EPOCHS; i++) {
+            this.state = this.state.updateL1Info(l1Info(FIRST_EPOCH + i));
+        }
+        this.nextL1Block = FIRST_EPOCH + EPOCHS;
+        this.seqWindowSize = config.chainConfig().seqWindowSize().longValue();
+
+        this.pendingBatches = new TreeMap<>();
+        this.batches = new Batches<>(
+                this.pendingBatches, new NoChannels(), new AtomicReference<>(this.state), config);
+        this.nextBatch = new Batch(
+                safeHead.hash(),
+                safeEpoch.number(),
+                safeEpoch.hash(),
+                safeHead.timestamp().add(config.chainConfig().blockTime()),
+                List.of(),
+                BigInteger.valueOf(FIRST_EPOCH + 1));
+    }
+
+    /**
+     * Accepts the batch of the next L2 block.
+     *
+     * @return the accepted batch
+     */
+    @Benchmark
+    public Batch acceptNextBatch() {
+        this.pendingBatches.put(this.nextBatch.timestamp(), this.nextBatch);
+        return this.batches.next();
+    }
+
+    /**
+     * Records a new L1 block, pruning the oldest epoch.
+     *
+     * @return the derivation state
+     */
+    @Benchmark
+    public io.optimism.derive.State updateL1Info() {
+        final long number = this.nextL1Block++;
+        // keep the safe epoch a sequence window ahead of the oldest epoch, so every update prunes one
+        this.state = this.state
+                .updateSafeHead(this.state.getSafeHead(), epoch(number - EPOCHS + 1 + this.seqWindowSize))
+                .updateL1Info(l1Info(number));
+        return this.state;
+    }
+
+    private static Epoch epoch(long number) {
+        return new Epoch(BigInteger.valueOf(number), hash(number), BigInteger.valueOf(timestamp(number)));
+    }
+
+    private static L1Info l1Info(long number) {
+        return new L1Info(
+                new L1BlockInfo(
+                        BigInteger.valueOf(number),
+                        hash(number),
+                        BigInteger.valueOf(timestamp(number)),
+                        BigInteger.ONE,
+                        hash(0L)),
+                null,
+                List.of(),
+                List.of(),
+                false);
+    }
+
+    private static long timestamp(long number) {
+        return FIRST_TIMESTAMP + (number - FIRST_EPOCH) * 12L;
+    }
+
+    private static String hash(long number) {
+        return String.format("0x%064x", number);
+    }
+
+    /** A channel stage that never yields a channel, so only the pending batches are validated. */
+    private static final class NoChannels implements PurgeableIterator<Channel> {
+
+        @Override
+        public void purge() {}
+
+        @Override
+        public Channel next() {
+            return null;
+        }
+    }
+}
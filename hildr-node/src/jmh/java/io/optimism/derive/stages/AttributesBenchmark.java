@@ -0,0 +1,292 @@
+/*
+ * Copyright 2023 281165273grape@gmail.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package io.optimism.derive.stages;
+
+import io.optimism.common.BlockInfo;
+import io.optimism.common.Epoch;
+import io.optimism.config.Config;
+import io.optimism.config.Config.ChainConfig;
+import io.optimism.config.Config.SystemAccounts;
+import io.optimism.config.Config.SystemConfig;
+import io.optimism.derive.PurgeableIterator;
+import io.optimism.derive.stages.Attributes.AttributesDeposited;
+import io.optimism.derive.stages.Attributes.DepositedTransaction;
+import io.optimism.derive.stages.Attributes.UserDeposited;
+import io.optimism.engine.ExecutionPayload.PayloadAttributes;
+import io.optimism.l1.L1Info;
+import io.optimism.l1.L1Info.L1BlockInfo;
+import io.optimism.utilities.derive.stages.Batch;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import org.apache.commons.lang3.ArrayUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.web3j.abi.TypeEncoder;
+import org.web3j.abi.datatypes.Uint;
+import org.web3j.abi.datatypes.generated.Bytes32;
+import org.web3j.crypto.Hash;
+import org.web3j.rlp.RlpEncoder;
+import org.web3j.rlp.RlpList;
+import org.web3j.rlp.RlpString;
+import org.web3j.rlp.RlpType;
+import org.web3j.utils.Numeric;
+
+/**
+ * Deriving payload attributes from batches, including the encoding of the L1 attributes deposit
+ * and of the user deposits.
+ *
+ * @author grapebaba
+ * @since 0.2.0
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class AttributesBenchmark {
+
+    private static final long FIRST_EPOCH = 9_000_000L;
+
+    private static final long FIRST_TIMESTAMP = 1_690_000_000L;
+
+    private static final int DEPOSITS_PER_EPOCH = 4;
+
+    private Config config;
+
+    private Attributes<AlternatingBatches> attributes;
+
+    private L1Info l1Info;
+
+    private UserDeposited deposit;
+
+    /** Sets up two epochs with user deposits and batches alternating between them. */
+    @Setup
+    public void setUp() {
+        this.config = new Config(null, null, null, null, null, null, 9545, false, null, ChainConfig.optimismGoerli());
+        L1Info first = l1Info(FIRST_EPOCH);
+        L1Info second = l1Info(FIRST_EPOCH + 1);
+        Epoch safeEpoch = new Epoch(
+                first.blockInfo().number(), first.blockInfo().hash(), first.blockInfo().timestamp());
+        BlockInfo safeHead =
+                new BlockInfo(hash(1L), BigInteger.valueOf(100L), hash(0L), BigInteger.valueOf(FIRST_TIMESTAMP));
+        io.optimism.derive.State state = io.optimism.derive.State.create(safeHead, safeEpoch, this.config)
+                .updateL1Info(first)
+                .updateL1Info(second);
+
+        // every batch starts a new epoch, so every derivation also encodes the user deposits
+        List<Batch> batches = List.of(batch(first), batch(second));
+        this.attributes = new Attributes<>(
+                new AlternatingBatches(batches), new AtomicReference<>(state), this.config, BigInteger.ZERO);
+        this.l1Info = first;
+        this.deposit = first.userDeposits().get(0);
+    }
+
+    /**
+     * Derives the payload attributes of the next batch.
+     *
+     * @return the payload attributes
+     */
+    @Benchmark
+    public PayloadAttributes deriveAttributes() {
+        return this.attributes.next();
+    }
+
+    /**
+     * Encodes the L1 attributes deposit transaction.
+     *
+     * @return the encoded transaction
+     */
+    @Benchmark
+    public byte[] encodeAttributesDeposited() {
+        AttributesDeposited attributesDeposited = AttributesDeposited.fromBlockInfo(
+                this.l1Info, BigInteger.ONE, BigInteger.valueOf(FIRST_TIMESTAMP + 2), this.config);
+        return DepositedTransaction.from(attributesDeposited).encode();
+    }
+
+    /**
+     * Encodes a user deposit transaction.
+     *
+     * @return the encoded transaction
+     */
+    @Benchmark
+    public byte[] encodeUserDeposited() {
+        return DepositedTransaction.from(this.deposit).encode();
+    }
+
+    /**
+     * Encodes the L1 attributes deposit transaction with the web3j ABI and RLP encoders, the path
+     * replaced by {@link DepositEncoder}.
+     *
+     * @return the encoded transaction
+     */
+    @Benchmark
+    public byte[] encodeAttributesDepositedLegacy() {
+        AttributesDeposited attributesDeposited = AttributesDeposited.fromBlockInfo(
+                this.l1Info, BigInteger.ONE, BigInteger.valueOf(FIRST_TIMESTAMP + 2), this.config);
+        byte[] hash = Numeric.hexStringToByteArray(attributesDeposited.hash());
+        byte[] seq = Numeric.toBytesPadded(attributesDeposited.sequenceNumber(), 32);
+        byte[] sourceHash = Hash.sha3(
+                ArrayUtils.addAll(Numeric.toBytesPadded(BigInteger.ONE, 32), Hash.sha3(ArrayUtils.addAll(hash, seq))));
+        SystemAccounts systemAccounts = SystemAccounts.defaultSystemAccounts();
+        return legacyEncode(new DepositedTransaction(
+                Numeric.toHexString(sourceHash),
+                systemAccounts.attributesDepositor(),
+                systemAccounts.attributesPreDeploy(),
+                BigInteger.ZERO,
+                BigInteger.ZERO,
+                attributesDeposited.gas(),
+                attributesDeposited.isSystemTx(),
+                legacyCalldata(attributesDeposited)));
+    }
+
+    /**
+     * Encodes a user deposit transaction with the web3j RLP encoder, the path replaced by {@link
+     * DepositEncoder}.
+     *
+     * @return the encoded transaction
+     */
+    @Benchmark
+    public byte[] encodeUserDepositedLegacy() {
+        byte[] hash = Numeric.hexStringToByteArray(this.deposit.l1BlockHash());
+        byte[] logIndex = Numeric.toBytesPadded(this.deposit.logIndex(), 32);
+        byte[] sourceHash = Hash.sha3(ArrayUtils.addAll(new byte[32], Hash.sha3(ArrayUtils.addAll(hash, logIndex))));
+        return legacyEncode(new DepositedTransaction(
+                Numeric.toHexString(sourceHash),
+                this.deposit.from(),
+                this.deposit.isCreation() ? null : this.deposit.to(),
+                this.deposit.mint(),
+                this.deposit.value(),
+                this.deposit.gas(),
+                false,
+                this.deposit.data()));
+    }
+
+    private static byte[] legacyCalldata(AttributesDeposited attributes) {
+        return Numeric.hexStringToByteArray("015d8eb9"
+                + TypeEncoder.encode(new Uint(attributes.number()))
+                + TypeEncoder.encode(new Uint(attributes.timestamp()))
+                + TypeEncoder.encode(new Uint(attributes.baseFee()))
+                + TypeEncoder.encode(new Bytes32(Numeric.hexStringToByteArray(attributes.hash())))
+                + TypeEncoder.encode(new Uint(attributes.sequenceNumber()))
+                + TypeEncoder.encode(new Bytes32(Numeric.hexStringToByteArray(attributes.batcherHash())))
+                + TypeEncoder.encode(new Uint(attributes.feeOverhead()))
+                + TypeEncoder.encode(new Uint(attributes.feeScalar())));
+    }
+
+    private static byte[] legacyEncode(DepositedTransaction tx) {
+        List<RlpType> result = new ArrayList<>();
+        result.add(RlpString.create(Numeric.hexStringToByteArray(tx.sourceHash())));
+        result.add(RlpString.create(Numeric.hexStringToByteArray(tx.from())));
+        if (tx.to() != null && !tx.to().isEmpty()) {
+            result.add(RlpString.create(Numeric.hexStringToByteArray(tx.to())));
+        } else {
+            result.add(RlpString.create(""));
+        }
+        result.add(RlpString.create(tx.mint()));
+        result.add(RlpString.create(tx.value()));
+        result.add(RlpString.create(tx.gas()));
+        result.add(RlpString.create(tx.isSystemTx() ? 1L : 0L));
+        result.add(RlpString.create(tx.data()));
+        byte[] encoded = RlpEncoder.encode(new RlpList(result));
+        return ByteBuffer.allocate(encoded.length + 1).put((byte) 0x7e).put(encoded).array();
+    }
+
+    private static Batch batch(L1Info l1Info) {
+        return new Batch(
+                hash(1L),
+                l1Info.blockInfo().number(),
+                l1Info.blockInfo().hash(),
+                BigInteger.valueOf(FIRST_TIMESTAMP + 2),
+                List.of("0x02" + "ab".repeat(120)),
+                l1Info.blockInfo().number());
+    }
+
+    private static L1Info l1Info(long number) {
+        BigInteger num = BigInteger.valueOf(number);
+        List<UserDeposited> deposits = new ArrayList<>(DEPOSITS_PER_EPOCH);
+        for (int i = 0; i < DEPOSITS_PER_EPOCH; i++) {
+            deposits.add(new UserDeposited(
+                    "0x" + "1".repeat(40),
+                    "0x" + "2".repeat(40),
+                    BigInteger.ZERO,
+                    BigInteger.TEN,
+                    BigInteger.valueOf(100_000L),
+                    false,
+                    new byte[128],
+                    num,
+                    hash(number),
+                    BigInteger.valueOf(i)));
+        }
+        SystemConfig systemConfig = new SystemConfig(
+                "0x" + "3".repeat(40),
+                BigInteger.valueOf(30_000_000L),
+                BigInteger.valueOf(188L),
+                BigInteger.valueOf(684_000L),
+                null);
+        return new L1Info(
+                new L1BlockInfo(
+                        num,
+                        hash(number),
+                        BigInteger.valueOf(FIRST_TIMESTAMP + (number - FIRST_EPOCH) * 12L),
+                        BigInteger.valueOf(1_000_000_000L),
+                        hash(0L)),
+                systemConfig,
+                deposits,
+                List.of(),
+                false);
+    }
+
+    private static String hash(long number) {
+        return String.format("0x%064x", number);
+    }
+
+    private static final class AlternatingBatches implements PurgeableIterator<Batch> {
+
+        private final List<Batch> batches;
+
+        private int index;
+
+        AlternatingBatches(List<Batch> batches) {
+            this.batches = batches;
+        }
+
+        @Override
+        public void purge() {
+            this.index = 0;
+        }
+
+        @Override
+        public Batch next() {
+            final Batch batch = this.batches.get(this.index);
+            this.index = (this.index + 1) % this.batches.size();
+            return batch;
+        }
+    }
+}
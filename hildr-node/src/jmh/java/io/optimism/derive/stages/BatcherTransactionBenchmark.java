@@ -0,0 +1,74 @@
+/*
+ * Copyright 2023 281165273grape@gmail.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package io.optimism.derive.stages;
+
+import io.optimism.derive.stages.BatcherTransactions.BatcherTransaction;
+import io.optimism.utilities.derive.stages.Frame;
+import java.math.BigInteger;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Decoding the frames of a batcher transaction.
+ *
+ * @author grapebaba
+ * @since 0.2.0
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BatcherTransactionBenchmark {
+
+    /** The number of frames packed into the transaction. */
+    @Param({"1", "8"})
+    public int framesPerTx;
+
+    private byte[] txData;
+
+    /** Builds a batcher transaction from the frames of a synthetic channel. */
+    @Setup
+    public void setUp() {
+        List<Frame> frames = SyntheticChannels.channelFrames(new Random(42L), 16_000, 8, 16, 160);
+        this.txData =
+                SyntheticChannels.batcherTransaction(frames.subList(0, Math.min(this.framesPerTx, frames.size())));
+    }
+
+    /**
+     * Decodes all frames of the transaction.
+     *
+     * @return the batcher transaction
+     */
+    @Benchmark
+    public BatcherTransaction create() {
+        return BatcherTransaction.create(this.txData, BigInteger.ONE);
+    }
+}
@@ -0,0 +1,73 @@
+/*
+ * Copyright 2023 281165273grape@gmail.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package io.optimism.derive.stages;
+
+import io.optimism.derive.stages.Channels.Channel;
+import io.optimism.utilities.derive.stages.Batch;
+import java.math.BigInteger;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Decoding the batches of a full compressed channel.
+ *
+ * @author grapebaba
+ * @since 0.2.0
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BatchesBenchmark {
+
+    /** The number of user transactions in every L2 block. */
+    @Param({"4", "64"})
+    public int txsPerBlock;
+
+    private Channel channel;
+
+    /** Builds a full synthetic channel. */
+    @Setup
+    public void setUp() {
+        this.channel = SyntheticChannels.channel(
+                SyntheticChannels.channelFrames(new Random(42L), 120_000, 1, this.txsPerBlock, 160), BigInteger.ONE);
+    }
+
+    /**
+     * Decodes every batch of the channel.
+     *
+     * @return the batches
+     */
+    @Benchmark
+    public List<Batch> decodeBatches() {
+        return Batches.decodeBatches(this.channel);
+    }
+}
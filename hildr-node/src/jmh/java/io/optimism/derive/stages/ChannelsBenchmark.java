@@ -0,0 +1,121 @@
+/*
+ * Copyright 2023 281165273grape@gmail.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package io.optimism.derive.stages;
+
+import io.optimism.config.Config;
+import io.optimism.config.Config.ChainConfig;
+import io.optimism.derive.PurgeableIterator;
+import io.optimism.derive.stages.BatcherTransactions.BatcherTransaction;
+import io.optimism.utilities.derive.stages.Frame;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Assembling channels from frames, with the frames of every channel in order and with the frames
+ * of several channels interleaved.
+ *
+ * @author grapebaba
+ * @since 0.2.0
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ChannelsBenchmark {
+
+    private static final int CHANNELS = 4;
+
+    /** The order of the frames over the batcher transactions. */
+    @Param({"sequential", "interleaved"})
+    public String layout;
+
+    private Config config;
+
+    private List<BatcherTransaction> transactions;
+
+    /** Builds the batcher transactions of several synthetic channels. */
+    @Setup
+    public void setUp() {
+        this.config = new Config(null, null, null, null, null, null, 9545, false, null, ChainConfig.optimismGoerli());
+        Random random = new Random(42L);
+        List<List<Frame>> channels = new ArrayList<>(CHANNELS);
+        for (int i = 0; i < CHANNELS; i++) {
+            channels.add(SyntheticChannels.channelFrames(random, 16_000, 8, 16, 160));
+        }
+        List<byte[]> txs = "interleaved".equals(this.layout)
+                ? SyntheticChannels.interleave(channels, 2)
+                : SyntheticChannels.sequential(channels, 2);
+        this.transactions = new ArrayList<>(txs.size());
+        for (byte[] tx : txs) {
+            this.transactions.add(BatcherTransaction.create(tx, BigInteger.ONE));
+        }
+    }
+
+    /**
+     * Feeds all transactions to a new channels stage and takes every ready channel.
+     *
+     * @return the number of channels read
+     */
+    @Benchmark
+    public int next() {
+        Channels<TransactionSource> channels = new Channels<>(new TransactionSource(this.transactions), this.config);
+        int read = 0;
+        for (int i = 0; i <= this.transactions.size(); i++) {
+            if (channels.next() != null) {
+                read++;
+            }
+        }
+        return read;
+    }
+
+    private static final class TransactionSource implements PurgeableIterator<BatcherTransaction> {
+
+        private final List<BatcherTransaction> transactions;
+
+        private int index;
+
+        TransactionSource(List<BatcherTransaction> transactions) {
+            this.transactions = transactions;
+        }
+
+        @Override
+        public void purge() {
+            this.index = this.transactions.size();
+        }
+
+        @Override
+        public BatcherTransaction next() {
+            return this.index < this.transactions.size() ? this.transactions.get(this.index++) : null;
+        }
+    }
+}
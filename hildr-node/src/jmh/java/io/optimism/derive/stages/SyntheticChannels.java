@@ -0,0 +1,212 @@
+/*
+ * Copyright 2023 281165273grape@gmail.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package io.optimism.derive.stages;
+
+import io.optimism.batcher.channel.ChannelConfig;
+import io.optimism.batcher.channel.ChannelImpl;
+import io.optimism.batcher.compressor.CompressorConfig;
+import io.optimism.batcher.compressor.Compressors;
+import io.optimism.batcher.telemetry.NoopBatcherMetrics;
+import io.optimism.utilities.derive.stages.Frame;
+import java.io.ByteArrayOutputStream;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import org.web3j.crypto.Hash;
+import org.web3j.protocol.core.methods.response.EthBlock;
+import org.web3j.utils.Numeric;
+
+/**
+ * Generates channels the way the batcher does. Synthetic L2 blocks are fed to the batcher's {@link
+ * ChannelImpl} with a ratio compressor until the channel is full, so the frames carry real zlib
+ * compressed batches of a realistic size.
+ *
+ * @author grapebaba
+ * @since 0.2.0
+ */
+public final class SyntheticChannels {
+
+    private static final String DEPOSIT_TX_TYPE = "0x7e";
+
+    private static final String USER_TX_TYPE = "0x2";
+
+    private static final byte[] L1_INFO_SELECTOR = Arrays.copyOf(
+            Hash.sha3("setL1BlockValues(uint64,uint64,uint256,bytes32,uint64,bytes32,uint256,uint256)"
+                    .getBytes(StandardCharsets.UTF_8)),
+            4);
+
+    private static final long FIRST_L1_BLOCK = 9_000_000L;
+
+    private static final long FIRST_TIMESTAMP = 1_690_000_000L;
+
+    private SyntheticChannels() {}
+
+    /**
+     * Builds the frames of one full channel.
+     *
+     * @param random the random source of the transaction payloads
+     * @param maxFrameSize the max size of a frame
+     * @param targetNumFrames the number of frames the compressor aims for
+     * @param txsPerBlock the number of user transactions in every L2 block
+     * @param txSize the size of a user transaction payload
+     * @return the frames in order
+     */
+    public static List<Frame> channelFrames(
+            Random random, int maxFrameSize, int targetNumFrames, int txsPerBlock, int txSize) {
+        final ChannelImpl channel = new ChannelImpl(
+                new ChannelConfig(30000, 0, maxFrameSize, 3600, 10, new NoopBatcherMetrics()),
+                Compressors.create(
+                        new CompressorConfig(maxFrameSize, targetNumFrames, "0.4", Compressors.RatioKind)));
+        long number = 0L;
+        while (!channel.isFull()) {
+            channel.addBlock(l2Block(random, number++, txsPerBlock, txSize));
+        }
+        final List<Frame> frames = new ArrayList<>(channel.pendingFrames());
+        while (channel.hasFrame()) {
+            frames.add(channel.nextFrame());
+        }
+        return frames;
+    }
+
+    /**
+     * Encodes frames as the calldata of one batcher transaction.
+     *
+     * @param frames the frames
+     * @return the batcher transaction data
+     */
+    public static byte[] batcherTransaction(List<Frame> frames) {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        out.write(Frame.DERIVATION_VERSION_0);
+        frames.forEach(frame -> out.writeBytes(frame.encode()));
+        return out.toByteArray();
+    }
+
+    /**
+     * Spreads the frames of several channels over batcher transactions, taking one frame of every
+     * channel in turn, the way concurrent batchers interleave their submissions.
+     *
+     * @param channels the frames of every channel
+     * @param framesPerTx the number of frames in a batcher transaction
+     * @return the batcher transactions data
+     */
+    public static List<byte[]> interleave(List<List<Frame>> channels, int framesPerTx) {
+        final List<Frame> ordered = new ArrayList<>();
+        final int maxFrames =
+                channels.stream().mapToInt(List::size).max().orElse(0);
+        for (int i = 0; i < maxFrames; i++) {
+            for (List<Frame> frames : channels) {
+                if (i < frames.size()) {
+                    ordered.add(frames.get(i));
+                }
+            }
+        }
+        return split(ordered, framesPerTx);
+    }
+
+    /**
+     * Puts the frames of every channel after each other into batcher transactions.
+     *
+     * @param channels the frames of every channel
+     * @param framesPerTx the number of frames in a batcher transaction
+     * @return the batcher transactions data
+     */
+    public static List<byte[]> sequential(List<List<Frame>> channels, int framesPerTx) {
+        final List<Frame> ordered = new ArrayList<>();
+        channels.forEach(ordered::addAll);
+        return split(ordered, framesPerTx);
+    }
+
+    /**
+     * Concatenates the frame data of a channel, giving the zlib stream of its batches.
+     *
+     * @param frames the frames of the channel
+     * @param l1InclusionBlock the L1 inclusion block
+     * @return the channel
+     */
+    public static Channels.Channel channel(List<Frame> frames, BigInteger l1InclusionBlock) {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        frames.forEach(frame -> out.writeBytes(frame.frameData()));
+        return new Channels.Channel(frames.get(0).channelId(), out.toByteArray(), l1InclusionBlock);
+    }
+
+    private static List<byte[]> split(List<Frame> frames, int framesPerTx) {
+        final List<byte[]> txs = new ArrayList<>();
+        for (int from = 0; from < frames.size(); from += framesPerTx) {
+            txs.add(batcherTransaction(frames.subList(from, Math.min(from + framesPerTx, frames.size()))));
+        }
+        return txs;
+    }
+
+    @SuppressWarnings("rawtypes")
+    private static EthBlock.Block l2Block(Random random, long number, int txsPerBlock, int txSize) {
+        final long l1Number = FIRST_L1_BLOCK + number / 6;
+        final List<EthBlock.TransactionResult> txs = new ArrayList<>(txsPerBlock + 1);
+        txs.add(transaction(DEPOSIT_TX_TYPE, l1InfoCalldata(l1Number, number % 6)));
+        for (int i = 0; i < txsPerBlock; i++) {
+            txs.add(transaction(USER_TX_TYPE, userTransaction(random, txSize)));
+        }
+        final EthBlock.Block block = new EthBlock.Block();
+        block.setNumber(Numeric.encodeQuantity(BigInteger.valueOf(number)));
+        block.setHash(hash(number + 1));
+        block.setParentHash(hash(number));
+        block.setTimestamp(Numeric.encodeQuantity(BigInteger.valueOf(FIRST_TIMESTAMP + number * 2)));
+        block.setTransactions(txs);
+        return block;
+    }
+
+    private static EthBlock.TransactionObject transaction(String type, byte[] input) {
+        final EthBlock.TransactionObject tx = new EthBlock.TransactionObject();
+        tx.setType(type);
+        tx.setInput(Numeric.toHexString(input));
+        return tx;
+    }
+
+    private static byte[] l1InfoCalldata(long l1Number, long sequenceNumber) {
+        return ByteBuffer.allocate(4 + 32 * 8)
+                .put(L1_INFO_SELECTOR)
+                .put(word(l1Number))
+                .put(word(FIRST_TIMESTAMP + (l1Number - FIRST_L1_BLOCK) * 12))
+                .put(word(1_000_000_000L))
+                .put(Numeric.hexStringToByteArray(hash(l1Number)))
+                .put(word(sequenceNumber))
+                .put(new byte[32])
+                .put(word(188L))
+                .put(word(684_000L))
+                .array();
+    }
+
+    private static byte[] userTransaction(Random random, int txSize) {
+        // half random bytes and half zero padding, close to the compression ratio of real calldata
+        final byte[] tx = new byte[txSize];
+        final byte[] randomPart = new byte[txSize / 2];
+        random.nextBytes(randomPart);
+        System.arraycopy(randomPart, 0, tx, 0, randomPart.length);
+        return tx;
+    }
+
+    private static byte[] word(long value) {
+        return Numeric.toBytesPadded(BigInteger.valueOf(value), 32);
+    }
+
+    private static String hash(long number) {
+        return String.format("0x%064x", number);
+    }
+}
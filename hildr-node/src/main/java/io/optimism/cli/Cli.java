@@ -53,7 +53,10 @@ public class Cli implements Runnable {
             description = "network type, or rollup.json file path, support: optimism-goerli, base-goerli")
     String network;
 
-    @Option(names = "--l1-rpc-url", required = true, description = "The base chain RPC URL")
+    @Option(
+            names = "--l1-rpc-url",
+            required = true,
+            description = "The base chain RPC URL, several comma separated http URLs are used with failover")
     String l1RpcUrl;
 
     @Option(names = "--l1-ws-rpc-url", required = true, description = "The base chain WS RPC URL")
@@ -114,6 +117,11 @@ public class Cli implements Runnable {
     @Option(names = "--devnet", description = "Dev net flag")
     private Boolean devnet;
 
+    @Option(
+            names = {"--data-dir"},
+            description = "The directory to persist derivation state in, for fast restarts")
+    String dataDir;
+
     /** the Cli constructor. */
     public Cli() {}
 
@@ -206,6 +214,7 @@ public class Cli implements Runnable {
                 StringUtils.trim(Cli.this.getJwtSecret()),
                 cli.checkpointSyncUrl,
                 cli.rpcPort,
-                cli.devnet);
+                cli.devnet,
+                cli.dataDir);
     }
 }
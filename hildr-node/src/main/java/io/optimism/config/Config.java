@@ -55,6 +55,7 @@ import org.web3j.utils.Numeric;
  * @param rpcPort The rpc port.
  * @param devnet The flag of devnet.
  * @param checkpointSyncUrl The checkpoint sync url.
+ * @param dataDir The directory of the derivation store, empty to disable it.
  * @author grapebaba
  * @since 0.1.0
  */
@@ -67,6 +68,7 @@ public record Config(
         String checkpointSyncUrl,
         Integer rpcPort,
         Boolean devnet,
+        String dataDir,
         ChainConfig chainConfig) {
 
     /**
@@ -93,6 +95,7 @@ public record Config(
             defaultProvider.put("config.jwtSecret", "");
             defaultProvider.put("config.checkpointSyncUrl", "");
             defaultProvider.put("config.rpcPort", "9545");
+            defaultProvider.put("config.dataDir", "");
             MapConfigSource defaultProviderConfigSource = new MapConfigSource(defaultProvider);
 
             Map<String, String> chainProvider = chainConfig.toConfigMap();
@@ -144,6 +147,7 @@ public record Config(
      * @param checkpointSyncUrl The checkpoint sync url.
      * @param rpcPort The rpc port.
      * @param devnet The devnet flag.
+     * @param dataDir The directory of the derivation store.
      */
     public record CliConfig(
             String l1RpcUrl,
@@ -153,7 +157,8 @@ public record Config(
             String jwtSecret,
             String checkpointSyncUrl,
             Integer rpcPort,
-            Boolean devnet) {
+            Boolean devnet,
+            String dataDir) {
 
         /**
          * To configMap.
@@ -184,6 +189,9 @@ public record Config(
                 map.put("config.rpcPort", rpcPort.toString());
             }
             map.put("config.devnet", String.valueOf(devnet != null && devnet));
+            if (StringUtils.isNotEmpty(dataDir)) {
+                map.put("config.dataDir", dataDir);
+            }
             return map;
         }
     }
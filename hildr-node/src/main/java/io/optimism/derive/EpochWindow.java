@@ -0,0 +1,305 @@
+/*
+ * Copyright 2023 281165273grape@gmail.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+
+package io.optimism.derive;
+
+import io.optimism.common.Epoch;
+import io.optimism.l1.L1Info;
+import io.optimism.type.Hash32;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Window of L1 infos keyed by block number. Every update returns a new window, so a window can be
+ * read from any thread while newer versions are built.
+ *
+ * <p>The infos live in a ring indexed by {@code number & (capacity - 1)}, sized to the sequencer
+ * window plus {@value #MARGIN} slots, with an open addressing index of hashes next to it. A ring
+ * is shared by the windows built from one another; each slot is claimed once, so the windows
+ * holding it see the same entry. When the slot of a new info is already taken, by a pruned info
+ * of an older lap or by a different info of another window, the window moves its infos to a new
+ * ring instead of overwriting the slot. Each entry caches the epoch of its info.
+ *
+ * @author grapebaba
+ * @since 0.2.0
+ */
+final class EpochWindow {
+
+    /** The slots kept beyond the sequencer window, the ring is copied at most once per margin appends. */
+    static final int MARGIN = 1024;
+
+    private static final int MIN_CAPACITY = 64;
+
+    private static final int MAX_CAPACITY = 1 << 29;
+
+    private final Ring ring;
+
+    private final long first;
+
+    private final long last;
+
+    private EpochWindow(Ring ring, long first, long last) {
+        this.ring = ring;
+        this.first = first;
+        this.last = last;
+    }
+
+    /**
+     * Creates an empty window.
+     *
+     * @param windowSize the number of L1 blocks the window is expected to hold
+     * @return the window
+     */
+    static EpochWindow empty(long windowSize) {
+        return new EpochWindow(new Ring(windowSize + MARGIN), 0L, -1L);
+    }
+
+    /**
+     * Gets the L1 info of the given block number.
+     *
+     * @param number the block number
+     * @return the L1 info, null if not in the window
+     */
+    L1Info get(long number) {
+        final Entry entry = this.entry(number);
+        return entry == null ? null : entry.info;
+    }
+
+    /**
+     * Gets the L1 info of the given block hash.
+     *
+     * @param hash the block hash
+     * @return the L1 info, null if not in the window
+     */
+    L1Info get(Hash32 hash) {
+        final Entry entry = this.ring.find(hash, this.first, this.last);
+        return entry == null ? null : entry.info;
+    }
+
+    /**
+     * Gets the epoch of the given block number.
+     *
+     * @param number the block number
+     * @return the epoch, null if not in the window
+     */
+    Epoch epoch(long number) {
+        final Entry entry = this.entry(number);
+        return entry == null ? null : entry.epoch;
+    }
+
+    /**
+     * Gets the hash of the given block number.
+     *
+     * @param number the block number
+     * @return the block hash, null if not in the window
+     */
+    Hash32 hash(long number) {
+        final Entry entry = this.entry(number);
+        return entry == null ? null : entry.hash;
+    }
+
+    /**
+     * Gets the epoch of the given block hash.
+     *
+     * @param hash the block hash
+     * @return the epoch, null if not in the window
+     */
+    Epoch epoch(Hash32 hash) {
+        final Entry entry = this.ring.find(hash, this.first, this.last);
+        return entry == null ? null : entry.epoch;
+    }
+
+    /**
+     * Puts the L1 info at its block number. An info at or below the last number replaces it and
+     * drops everything above, as after a reorg.
+     *
+     * @param info the L1 info
+     * @return the new window
+     */
+    EpochWindow put(L1Info info) {
+        final Entry entry = new Entry(info);
+        if (entry.number <= this.last) {
+            return this.copy(this.first, entry.number - 1, this.ring.capacity()).append(entry);
+        }
+        return this.append(entry);
+    }
+
+    /**
+     * Drops all infos below the given block number.
+     *
+     * @param number the lowest block number to keep
+     * @return the new window
+     */
+    EpochWindow pruneBelow(long number) {
+        if (number <= this.first) {
+            return this;
+        }
+        return new EpochWindow(this.ring, number, Math.max(this.last, number - 1));
+    }
+
+    /**
+     * Drops all infos.
+     *
+     * @return the empty window
+     */
+    EpochWindow clear() {
+        return new EpochWindow(this.ring, 0L, -1L);
+    }
+
+    /**
+     * Whether the window holds no infos.
+     *
+     * @return true if empty
+     */
+    boolean isEmpty() {
+        return this.first > this.last;
+    }
+
+    private Entry entry(long number) {
+        if (number < this.first || number > this.last) {
+            return null;
+        }
+        final Entry entry = this.ring.get(number);
+        return entry != null && entry.number == number ? entry : null;
+    }
+
+    private EpochWindow append(Entry entry) {
+        final long number = entry.number;
+        final long from = this.isEmpty() ? number : this.first;
+        if (number - from < this.ring.capacity() && this.claim(entry)) {
+            return new EpochWindow(this.ring, from, number);
+        }
+        // the ring is full or a slot is taken, which older windows may still read
+        return this.copy(this.first, this.last, Math.max(this.ring.capacity(), number - from + 1 + MARGIN))
+                .append(entry);
+    }
+
+    private boolean claim(Entry entry) {
+        if (!this.isEmpty()) {
+            // skipped numbers are claimed as well, so no later info can show up inside this window
+            for (long number = this.last + 1; number < entry.number; number++) {
+                if (!this.ring.claim(new Entry(number))) {
+                    return false;
+                }
+            }
+        }
+        return this.ring.claim(entry);
+    }
+
+    private EpochWindow copy(long from, long to, long capacity) {
+        final Ring copy = new Ring(capacity);
+        for (long number = from; number <= to; number++) {
+            final Entry entry = this.entry(number);
+            copy.claim(entry == null ? new Entry(number) : entry);
+        }
+        return new EpochWindow(copy, from, to);
+    }
+
+    private static final class Ring {
+
+        private final AtomicReferenceArray<Entry> slots;
+
+        private final AtomicIntegerArray index;
+
+        private final int mask;
+
+        private Ring(long minCapacity) {
+            if (minCapacity > MAX_CAPACITY) {
+                throw new IllegalArgumentException("epoch window too large: " + minCapacity);
+            }
+            int capacity = MIN_CAPACITY;
+            while (capacity < minCapacity) {
+                capacity <<= 1;
+            }
+            this.slots = new AtomicReferenceArray<>(capacity);
+            // at most one hash per slot, so the index stays at most half full
+            this.index = new AtomicIntegerArray(capacity << 1);
+            this.mask = capacity - 1;
+        }
+
+        private int capacity() {
+            return this.mask + 1;
+        }
+
+        private Entry get(long number) {
+            return this.slots.get((int) number & this.mask);
+        }
+
+        private boolean claim(Entry entry) {
+            final int slot = (int) entry.number & this.mask;
+            if (!this.slots.compareAndSet(slot, null, entry)) {
+                // an update retried on the same window finds its own entry
+                final Entry claimed = this.slots.get(slot);
+                return claimed.number == entry.number && claimed.info == entry.info;
+            }
+            if (entry.hash != null) {
+                final int indexMask = this.index.length() - 1;
+                int cell = spread(entry.hash.hashCode()) & indexMask;
+                while (!this.index.compareAndSet(cell, 0, slot + 1)) {
+                    cell = (cell + 1) & indexMask;
+                }
+            }
+            return true;
+        }
+
+        private Entry find(Hash32 hash, long first, long last) {
+            final int indexMask = this.index.length() - 1;
+            for (int cell = spread(hash.hashCode()) & indexMask; ; cell = (cell + 1) & indexMask) {
+                final int slot = this.index.get(cell);
+                if (slot == 0) {
+                    return null;
+                }
+                final Entry entry = this.slots.get(slot - 1);
+                if (entry.number >= first && entry.number <= last && hash.equals(entry.hash)) {
+                    return entry;
+                }
+            }
+        }
+
+        private static int spread(int hashCode) {
+            final int h = hashCode * 0x9E3779B9;
+            return h ^ (h >>> 16);
+        }
+    }
+
+    private static final class Entry {
+
+        private final long number;
+
+        private final Hash32 hash;
+
+        private final L1Info info;
+
+        private final Epoch epoch;
+
+        /** Creates the entry of a block number the window has skipped. */
+        private Entry(long number) {
+            this.number = number;
+            this.hash = null;
+            this.info = null;
+            this.epoch = null;
+        }
+
+        private Entry(L1Info info) {
+            final L1Info.L1BlockInfo blockInfo = info.blockInfo();
+            this.number = blockInfo.number().longValue();
+            this.hash = Hash32.from(blockInfo.hash());
+            this.info = info;
+            this.epoch = new Epoch(blockInfo.number(), blockInfo.hash(), blockInfo.timestamp());
+        }
+    }
+}
@@ -16,6 +16,7 @@
 
 package io.optimism.derive;
 
+import io.optimism.common.BlockInfo;
 import io.optimism.config.Config;
 import io.optimism.derive.stages.Attributes;
 import io.optimism.derive.stages.BatcherTransactions;
@@ -39,6 +40,8 @@ public class Pipeline implements PurgeableIterator<PayloadAttributes> {
 
     private MessagePassingQueue<BatcherTransactionMessage> batcherTransactionQueue;
 
+    private Batches<?> batches;
+
     private Attributes<?> attributes;
 
     private PayloadAttributes pendingAttributes;
@@ -57,6 +60,7 @@ public class Pipeline implements PurgeableIterator<PayloadAttributes> {
         BatcherTransactions batcherTransactions = new BatcherTransactions(batcherTransactionQueue);
         Channels<BatcherTransactions> channels = Channels.create(batcherTransactions, config);
         Batches<Channels<BatcherTransactions>> batches = Batches.create(channels, state, config);
+        this.batches = batches;
         attributes = new Attributes<>(batches, state, config, sequenceNumber);
     }
 
@@ -96,4 +100,18 @@ public class Pipeline implements PurgeableIterator<PayloadAttributes> {
     public void purge() {
         this.attributes.purge();
     }
+
+    /**
+     * Rewinds the pipeline to the given safe head, after the safe head of the state has been moved
+     * back to it. The batches taken after it are checked again against the safe head, without
+     * reading anything from L1 again. At most the last {@link Batches#MAX_REWIND} derived attributes
+     * can be rewound.
+     *
+     * @param safeHead the safe head
+     */
+    public void rewind(BlockInfo safeHead) {
+        this.pendingAttributes = null;
+        this.attributes.rewind(safeHead.timestamp());
+        this.batches.rewind(safeHead.timestamp());
+    }
 }
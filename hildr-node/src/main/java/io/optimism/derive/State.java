@@ -14,58 +14,52 @@
  * specific language governing permissions and limitations under the License.
  */
 
+
 package io.optimism.derive;
 
 import io.optimism.common.BlockInfo;
 import io.optimism.common.Epoch;
 import io.optimism.config.Config;
 import io.optimism.l1.L1Info;
+import io.optimism.type.Hash32;
 import java.math.BigInteger;
-import java.util.Map.Entry;
-import java.util.TreeMap;
-import org.apache.commons.lang3.StringUtils;
 
 /**
  * The type State.
  *
+ * <p>A state is an immutable snapshot. Updates return a new state sharing the unchanged L1 infos
+ * with this one, and are published by replacing the state held in an {@code AtomicReference}, so
+ * readers on any thread see a consistent view without locking.
+ *
  * @author grapebaba
  * @since 0.1.0
  */
-public class State {
+public final class State {
+
+    private final EpochWindow l1Infos;
 
-    private final TreeMap<String, L1Info> l1Info;
+    private final BlockInfo safeHead;
 
-    private final TreeMap<BigInteger, String> l1Hashes;
+    private final Epoch safeEpoch;
 
-    private BlockInfo safeHead;
+    private final Hash32 safeHeadHash;
 
-    private Epoch safeEpoch;
+    private final Hash32 safeHeadParentHash;
 
-    private BigInteger currentEpochNum;
+    private final Hash32 safeEpochHash;
+
+    private final BigInteger currentEpochNum;
 
     private final Config config;
 
-    /**
-     * Instantiates a new State.
-     *
-     * @param l1Info the L1 info
-     * @param l1Hashes the L1 hashes
-     * @param safeHead the safe head
-     * @param safeEpoch the safe epoch
-     * @param currentEpochNum the current epoch num
-     * @param config the config
-     */
-    public State(
-            TreeMap<String, L1Info> l1Info,
-            TreeMap<BigInteger, String> l1Hashes,
-            BlockInfo safeHead,
-            Epoch safeEpoch,
-            BigInteger currentEpochNum,
-            Config config) {
-        this.l1Info = l1Info;
-        this.l1Hashes = l1Hashes;
+    private State(EpochWindow l1Infos, BlockInfo safeHead, Epoch safeEpoch, BigInteger currentEpochNum, Config config) {
+        this.l1Infos = l1Infos;
         this.safeHead = safeHead;
         this.safeEpoch = safeEpoch;
+        // parsed once per head, so the batch checks compare the hashes without parsing them again
+        this.safeHeadHash = parse(safeHead.hash());
+        this.safeHeadParentHash = parse(safeHead.parentHash());
+        this.safeEpochHash = parse(safeEpoch.hash());
         this.currentEpochNum = currentEpochNum;
         this.config = config;
     }
@@ -79,7 +73,8 @@ public class State {
      * @return the state
      */
     public static State create(BlockInfo finalizedHead, Epoch finalizedEpoch, Config config) {
-        return new State(new TreeMap<>(), new TreeMap<>(), finalizedHead, finalizedEpoch, BigInteger.ZERO, config);
+        final long windowSize = config == null ? 0L : config.chainConfig().seqWindowSize().longValue();
+        return new State(EpochWindow.empty(windowSize), finalizedHead, finalizedEpoch, BigInteger.ZERO, config);
     }
 
     /**
@@ -89,7 +84,11 @@ public class State {
      * @return the l 1 info
      */
     public L1Info l1Info(String hash) {
-        return l1Info.get(hash);
+        try {
+            return l1Infos.get(Hash32.from(hash));
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
     }
 
     /**
@@ -99,25 +98,31 @@ public class State {
      * @return the l 1 info
      */
     public L1Info l1Info(BigInteger number) {
-        String hash = l1Hashes.get(number);
-        if (StringUtils.isEmpty(hash)) {
-            return null;
-        }
-        return l1Info.get(l1Hashes.get(number));
+        return l1Info(number.longValue());
+    }
+
+    /**
+     * L1 info l1 info.
+     *
+     * @param number the number
+     * @return the l 1 info
+     */
+    public L1Info l1Info(long number) {
+        return l1Infos.get(number);
     }
 
     /**
      * Epoch epoch.
      *
      * @param hash the hash
-     * @return the epoch
+     * @return the epoch, null if unknown
      */
     public Epoch epoch(String hash) {
-        L1Info l1Info = l1Info(hash);
-        return new Epoch(
-                l1Info.blockInfo().number(),
-                l1Info.blockInfo().hash(),
-                l1Info.blockInfo().timestamp());
+        try {
+            return l1Infos.epoch(Hash32.from(hash));
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
     }
 
     /**
@@ -127,27 +132,43 @@ public class State {
      * @return the epoch
      */
     public Epoch epoch(BigInteger number) {
-        L1Info l1Info = l1Info(number);
-        if (l1Info == null) {
-            return null;
-        }
-        return new Epoch(
-                l1Info.blockInfo().number(),
-                l1Info.blockInfo().hash(),
-                l1Info.blockInfo().timestamp());
+        return epoch(number.longValue());
     }
 
     /**
-     * Update l 1 info.
+     * Epoch epoch.
      *
-     * @param l1Info the l 1 info
+     * @param number the number
+     * @return the epoch
+     */
+    public Epoch epoch(long number) {
+        return l1Infos.epoch(number);
+    }
+
+    /**
+     * Gets the hash of the epoch with the given number.
+     *
+     * @param number the number
+     * @return the epoch hash, null if unknown
      */
-    public void updateL1Info(L1Info l1Info) {
-        this.currentEpochNum = l1Info.blockInfo().number();
-        this.l1Hashes.put(l1Info.blockInfo().number(), l1Info.blockInfo().hash());
-        this.l1Info.put(l1Info.blockInfo().hash(), l1Info);
+    public Hash32 epochHash(long number) {
+        return l1Infos.hash(number);
+    }
 
-        this.prune();
+    /**
+     * Update l 1 info. An L1 info at or below the current epoch replaces the infos from its number
+     * on, and infos older than the sequencer window of the safe epoch are pruned.
+     *
+     * @param l1Info the l 1 info
+     * @return the updated state
+     */
+    public State updateL1Info(L1Info l1Info) {
+        final long pruneUntil = Math.max(
+                0L,
+                this.safeEpoch.number().longValue()
+                        - config.chainConfig().seqWindowSize().longValue());
+        final EpochWindow updated = this.l1Infos.put(l1Info).pruneBelow(pruneUntil);
+        return new State(updated, this.safeHead, this.safeEpoch, l1Info.blockInfo().number(), this.config);
     }
 
     /**
@@ -155,13 +176,10 @@ public class State {
      *
      * @param safeHead the safe head
      * @param safeEpoch the safe epoch
+     * @return the purged state
      */
-    public void purge(BlockInfo safeHead, Epoch safeEpoch) {
-        this.safeHead = safeHead;
-        this.safeEpoch = safeEpoch;
-        this.l1Info.clear();
-        this.l1Hashes.clear();
-        this.currentEpochNum = BigInteger.ZERO;
+    public State purge(BlockInfo safeHead, Epoch safeEpoch) {
+        return new State(this.l1Infos.clear(), safeHead, safeEpoch, BigInteger.ZERO, this.config);
     }
 
     /**
@@ -169,10 +187,10 @@ public class State {
      *
      * @param safeHead the safe head
      * @param safeEpoch the safe epoch
+     * @return the updated state
      */
-    public void updateSafeHead(BlockInfo safeHead, Epoch safeEpoch) {
-        this.safeHead = safeHead;
-        this.safeEpoch = safeEpoch;
+    public State updateSafeHead(BlockInfo safeHead, Epoch safeEpoch) {
+        return new State(this.l1Infos, safeHead, safeEpoch, this.currentEpochNum, this.config);
     }
 
     /**
@@ -185,61 +203,58 @@ public class State {
     }
 
     /**
-     * Sets safe head.
+     * Gets safe epoch.
      *
-     * @param safeHead the safe head
+     * @return the safe epoch
      */
-    public void setSafeHead(BlockInfo safeHead) {
-        this.safeHead = safeHead;
+    public Epoch getSafeEpoch() {
+        return safeEpoch;
     }
 
     /**
-     * Gets safe epoch.
+     * Gets safe head hash.
      *
-     * @return the safe epoch
+     * @return the safe head hash, null while the safe head is speculative
      */
-    public Epoch getSafeEpoch() {
-        return safeEpoch;
+    public Hash32 getSafeHeadHash() {
+        return safeHeadHash;
     }
 
     /**
-     * Sets safe epoch.
+     * Gets safe head parent hash.
      *
-     * @param safeEpoch the safe epoch
+     * @return the safe head parent hash
      */
-    public void setSafeEpoch(Epoch safeEpoch) {
-        this.safeEpoch = safeEpoch;
+    public Hash32 getSafeHeadParentHash() {
+        return safeHeadParentHash;
     }
 
     /**
-     * Gets current epoch num.
+     * Gets safe epoch hash.
      *
-     * @return the current epoch num
+     * @return the safe epoch hash
      */
-    public BigInteger getCurrentEpochNum() {
-        return currentEpochNum;
+    public Hash32 getSafeEpochHash() {
+        return safeEpochHash;
     }
 
     /**
-     * Sets current epoch num.
+     * Gets current epoch num.
      *
-     * @param currentEpochNum the current epoch num
+     * @return the current epoch num
      */
-    public void setCurrentEpochNum(BigInteger currentEpochNum) {
-        this.currentEpochNum = currentEpochNum;
+    public BigInteger getCurrentEpochNum() {
+        return currentEpochNum;
     }
 
-    private void prune() {
-        BigInteger pruneUntil =
-                this.safeEpoch.number().subtract(config.chainConfig().seqWindowSize());
-        pruneUntil = pruneUntil.compareTo(BigInteger.ZERO) < 0 ? BigInteger.ZERO : pruneUntil;
-        Entry<BigInteger, String> blockNumAndHash;
-        while ((blockNumAndHash = this.l1Hashes.firstEntry()) != null) {
-            if (blockNumAndHash.getKey().compareTo(pruneUntil) >= 0) {
-                break;
-            }
-            this.l1Info.remove(blockNumAndHash.getValue());
-            this.l1Hashes.pollFirstEntry();
+    private static Hash32 parse(String hash) {
+        if (hash == null) {
+            return null;
+        }
+        try {
+            return Hash32.from(hash);
+        } catch (IllegalArgumentException e) {
+            return null;
         }
     }
 }
@@ -16,7 +16,6 @@
 
 package io.optimism.derive.stages;
 
-import io.optimism.common.BlockNotIncludedException;
 import io.optimism.common.Epoch;
 import io.optimism.config.Config;
 import io.optimism.config.Config.SystemAccounts;
@@ -26,27 +25,13 @@ import io.optimism.engine.ExecutionPayload.PayloadAttributes;
 import io.optimism.l1.L1Info;
 import io.optimism.utilities.derive.stages.Batch;
 import java.math.BigInteger;
-import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.concurrent.atomic.AtomicReference;
-import java.util.stream.Collectors;
-import net.osslabz.evm.abi.definition.AbiDefinition.Entry.Param;
-import net.osslabz.evm.abi.definition.AbiDefinition.Event;
-import net.osslabz.evm.abi.definition.SolidityType;
-import org.apache.commons.lang3.ArrayUtils;
-import org.apache.commons.lang3.StringUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.web3j.abi.TypeEncoder;
-import org.web3j.abi.datatypes.Uint;
-import org.web3j.abi.datatypes.generated.Bytes32;
-import org.web3j.crypto.Hash;
 import org.web3j.protocol.core.methods.response.EthLog.LogObject;
-import org.web3j.rlp.RlpEncoder;
-import org.web3j.rlp.RlpList;
-import org.web3j.rlp.RlpString;
-import org.web3j.rlp.RlpType;
 import org.web3j.utils.Numeric;
 
 /**
@@ -68,6 +53,10 @@ public class Attributes<I extends PurgeableIterator<Batch>> implements Purgeable
 
     private String epochHash;
 
+    private final ArrayDeque<Checkpoint> checkpoints = new ArrayDeque<>();
+
+    private BigInteger rewindLimit;
+
     private final Config config;
 
     /**
@@ -96,6 +85,10 @@ public class Attributes<I extends PurgeableIterator<Batch>> implements Purgeable
         LOGGER.debug("attributes derived from block {}", batch.epochNum());
         LOGGER.debug("batch epoch hash {}", batch.epochHash());
 
+        this.checkpoints.addLast(new Checkpoint(batch.timestamp(), this.sequenceNumber, this.epochHash));
+        if (this.checkpoints.size() > Batches.MAX_REWIND) {
+            this.rewindLimit = this.checkpoints.removeFirst().timestamp();
+        }
         this.updateSequenceNumber(batch.epochHash());
 
         State state = this.state.get();
@@ -125,34 +118,28 @@ public class Attributes<I extends PurgeableIterator<Batch>> implements Purgeable
     }
 
     private List<String> deriveTransactions(Batch batch, L1Info l1Info) {
-        List<String> transactions = new ArrayList<>();
-
-        String attributesTx = this.deriveAttributesDeposited(l1Info, batch.timestamp());
-        transactions.add(attributesTx);
-
-        if (this.sequenceNumber.equals(BigInteger.ZERO)) {
-            List<String> userDepositedTxs = this.deriveUserDeposited();
-            transactions.addAll(userDepositedTxs);
+        final List<String> rest = batch.transactions();
+        final List<UserDeposited> deposits =
+                this.sequenceNumber.equals(BigInteger.ZERO) ? this.userDeposits() : List.of();
+        // sized up front, so the list never grows while the block is assembled
+        final List<String> transactions = new ArrayList<>(1 + deposits.size() + rest.size());
+
+        transactions.add(this.deriveAttributesDeposited(l1Info, batch.timestamp()));
+        for (UserDeposited deposit : deposits) {
+            transactions.add(Numeric.toHexString(DepositedTransaction.from(deposit).encode()));
         }
-
-        List<String> rest = batch.transactions();
         transactions.addAll(rest);
 
         return transactions;
     }
 
-    private List<String> deriveUserDeposited() {
+    private List<UserDeposited> userDeposits() {
         State state = this.state.get();
         L1Info l1Info = state.l1Info(this.epochHash);
         if (l1Info == null) {
             throw new L1InfoNotFoundException();
         }
-        return l1Info.userDeposits().stream()
-                .map(deposit -> {
-                    DepositedTransaction tx = DepositedTransaction.from(deposit);
-                    return Numeric.toHexString(tx.encode());
-                })
-                .collect(Collectors.toList());
+        return l1Info.userDeposits();
     }
 
     private String deriveAttributesDeposited(L1Info l1Info, BigInteger batchTimestamp) {
@@ -178,6 +165,29 @@ public class Attributes<I extends PurgeableIterator<Batch>> implements Purgeable
         this.batchIterator.purge();
         this.sequenceNumber = BigInteger.ZERO;
         this.epochHash = this.state.get().getSafeEpoch().hash();
+        this.checkpoints.clear();
+        this.rewindLimit = null;
+    }
+
+    /**
+     * Moves the sequence number and the epoch back to where they were when the attributes after the
+     * given timestamp were derived. The batches of those attributes must be put back as well.
+     *
+     * @param timestamp the timestamp of the safe head
+     * @throws IllegalStateException thrown if the attributes after the timestamp are no longer known
+     */
+    public void rewind(BigInteger timestamp) {
+        if (this.rewindLimit != null && this.rewindLimit.compareTo(timestamp) > 0) {
+            throw new IllegalStateException("can not rewind attributes derived before " + this.rewindLimit);
+        }
+        Checkpoint first = null;
+        while (!this.checkpoints.isEmpty() && this.checkpoints.peekLast().timestamp().compareTo(timestamp) > 0) {
+            first = this.checkpoints.removeLast();
+        }
+        if (first != null) {
+            this.sequenceNumber = first.sequenceNumber();
+            this.epochHash = first.epochHash();
+        }
     }
 
     /**
@@ -208,28 +218,6 @@ public class Attributes<I extends PurgeableIterator<Batch>> implements Purgeable
             String l1BlockHash,
             BigInteger logIndex) {
 
-        private static final Event event;
-
-        static {
-            Param from = new Param();
-            from.setIndexed(true);
-            from.setName("from");
-            from.setType(new SolidityType.AddressType());
-            Param to = new Param();
-            to.setIndexed(true);
-            to.setName("to");
-            to.setType(new SolidityType.AddressType());
-            Param version = new Param();
-            version.setIndexed(true);
-            version.setName("version");
-            version.setType(new SolidityType.UnsignedIntType("uint256"));
-            Param opaqueData = new Param();
-            opaqueData.setIndexed(false);
-            opaqueData.setName("opaqueData");
-            opaqueData.setType(new SolidityType.BytesType());
-            event = new Event(false, "UserDeposited", List.of(from, to, version, opaqueData), List.of());
-        }
-
         /**
          * Derive UserDeposited from log.
          *
@@ -237,31 +225,7 @@ public class Attributes<I extends PurgeableIterator<Batch>> implements Purgeable
          * @return the UserDeposited
          */
         public static UserDeposited fromLog(LogObject log) {
-            byte[][] topics =
-                    log.getTopics().stream().map(Numeric::hexStringToByteArray).toArray(byte[][]::new);
-            List<?> decodedEvent = event.decode(Numeric.hexStringToByteArray(log.getData()), topics);
-            byte[] opaqueData = (byte[]) decodedEvent.get(3);
-
-            String from = Numeric.prependHexPrefix(
-                    StringUtils.substring(Numeric.cleanHexPrefix(log.getTopics().get(1)), 24));
-            String to = Numeric.prependHexPrefix(
-                    StringUtils.substring(Numeric.cleanHexPrefix(log.getTopics().get(2)), 24));
-            BigInteger mint = Numeric.toBigInt(ArrayUtils.subarray(opaqueData, 0, 32));
-            BigInteger value = Numeric.toBigInt(ArrayUtils.subarray(opaqueData, 32, 64));
-            BigInteger gas = Numeric.toBigInt(ArrayUtils.subarray(opaqueData, 64, 72));
-            boolean isCreation = opaqueData[72] != (byte) 0;
-            byte[] data = ArrayUtils.subarray(opaqueData, 73, opaqueData.length);
-            BigInteger l1BlockNum = log.getBlockNumber();
-            if (l1BlockNum == null) {
-                throw new BlockNotIncludedException();
-            }
-            String l1BlockHash = log.getBlockHash();
-            if (l1BlockHash == null) {
-                throw new BlockNotIncludedException();
-            }
-
-            return new UserDeposited(
-                    from, to, mint, value, gas, isCreation, data, l1BlockNum, l1BlockHash, log.getLogIndex());
+            return DepositLogDecoder.decode(log);
         }
     }
 
@@ -327,18 +291,7 @@ public class Attributes<I extends PurgeableIterator<Batch>> implements Purgeable
          * @return the bytes
          */
         public byte[] encode() {
-            StringBuilder sb = new StringBuilder();
-            sb.append("015d8eb9"); // selector
-            sb.append(TypeEncoder.encode(new Uint(this.number)));
-            sb.append(TypeEncoder.encode(new Uint(this.timestamp)));
-            sb.append(TypeEncoder.encode(new Uint(this.baseFee)));
-            sb.append(TypeEncoder.encode(new Bytes32(Numeric.hexStringToByteArray(this.hash))));
-            sb.append(TypeEncoder.encode(new Uint(this.sequenceNumber)));
-            sb.append(TypeEncoder.encode(new Bytes32(Numeric.hexStringToByteArray(this.batcherHash))));
-            sb.append(TypeEncoder.encode(new Uint(this.feeOverhead)));
-            sb.append(TypeEncoder.encode(new Uint(this.feeScalar)));
-
-            return Numeric.hexStringToByteArray(sb.toString());
+            return DepositEncoder.l1InfoCalldata(this);
         }
     }
 
@@ -373,11 +326,10 @@ public class Attributes<I extends PurgeableIterator<Batch>> implements Purgeable
          * @return the deposited transaction
          */
         public static DepositedTransaction from(AttributesDeposited attributesDeposited) {
-            byte[] hash = Numeric.hexStringToByteArray(attributesDeposited.hash);
-            byte[] seq = Numeric.toBytesPadded(attributesDeposited.sequenceNumber, 32);
-            byte[] h = Hash.sha3(ArrayUtils.addAll(hash, seq));
-            byte[] domain = Numeric.toBytesPadded(BigInteger.ONE, 32);
-            byte[] sourceHash = Hash.sha3(ArrayUtils.addAll(domain, h));
+            byte[] sourceHash = DepositEncoder.sourceHash(
+                    attributesDeposited.hash,
+                    attributesDeposited.sequenceNumber,
+                    DepositEncoder.L1_INFO_DEPOSIT_DOMAIN);
 
             SystemAccounts systemAccounts = SystemAccounts.defaultSystemAccounts();
             String from = systemAccounts.attributesDepositor();
@@ -403,11 +355,8 @@ public class Attributes<I extends PurgeableIterator<Batch>> implements Purgeable
          * @return the deposited transaction
          */
         public static DepositedTransaction from(UserDeposited userDeposited) {
-            byte[] hash = Numeric.hexStringToByteArray(userDeposited.l1BlockHash);
-            byte[] logIndex = Numeric.toBytesPadded(userDeposited.logIndex, 32);
-            byte[] h = Hash.sha3(ArrayUtils.addAll(hash, logIndex));
-            byte[] domain = Numeric.toBytesPadded(BigInteger.ZERO, 32);
-            byte[] sourceHash = Hash.sha3(ArrayUtils.addAll(domain, h));
+            byte[] sourceHash = DepositEncoder.sourceHash(
+                    userDeposited.l1BlockHash, userDeposited.logIndex, DepositEncoder.USER_DEPOSIT_DOMAIN);
 
             return new DepositedTransaction(
                     Numeric.toHexString(sourceHash),
@@ -426,30 +375,16 @@ public class Attributes<I extends PurgeableIterator<Batch>> implements Purgeable
          * @return the rlp list
          */
         public byte[] encode() {
-            List<RlpType> result = new ArrayList<>();
-
-            result.add(RlpString.create(Numeric.hexStringToByteArray(this.sourceHash)));
-            result.add(RlpString.create(Numeric.hexStringToByteArray(this.from)));
-
-            if (StringUtils.isNotEmpty(this.to)) {
-                result.add(RlpString.create(Numeric.hexStringToByteArray(this.to)));
-            } else {
-                result.add(RlpString.create(""));
-            }
-
-            result.add(RlpString.create(this.mint));
-            result.add(RlpString.create(this.value));
-            result.add(RlpString.create(this.gas));
-            result.add(RlpString.create(this.isSystemTx ? 1L : 0L));
-            result.add(RlpString.create(this.data));
-
-            RlpList rlpList = new RlpList(result);
-            byte[] encoded = RlpEncoder.encode(rlpList);
-
-            return ByteBuffer.allocate(encoded.length + 1)
-                    .put((byte) 0x7e)
-                    .put(encoded)
-                    .array();
+            return DepositEncoder.encode(this);
         }
     }
+
+    /**
+     * The sequence number and the epoch before the attributes of a batch were derived.
+     *
+     * @param timestamp the timestamp of the batch
+     * @param sequenceNumber the sequence number of the block before
+     * @param epochHash the epoch hash of the block before
+     */
+    private record Checkpoint(BigInteger timestamp, BigInteger sequenceNumber, String epochHash) {}
 }
@@ -0,0 +1,318 @@
+/*
+ * Copyright 2023 281165273grape@gmail.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package io.optimism.derive.stages;
+
+import io.optimism.derive.stages.Channels.Channel;
+import io.optimism.utilities.derive.stages.Batch;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.web3j.utils.Numeric;
+
+/**
+ * Pulls batches out of a channel one at a time. The channel is inflated through a small window
+ * and the RLP is parsed straight from the inflated stream, so neither the decompressed channel
+ * nor an RLP tree of it is ever held in memory.
+ *
+ * <p>At most {@link #MAX_RLP_BYTES_PER_CHANNEL} bytes are decompressed. Like a malformed batch,
+ * hitting the limit ends the channel, and only the batches read before are returned.
+ *
+ * @author grapebaba
+ * @since 0.2.0
+ */
+public class BatchReader implements Iterator<Batch> {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(BatchReader.class);
+
+    /** The max number of decompressed bytes read from a channel. */
+    public static final int MAX_RLP_BYTES_PER_CHANNEL = 10_000_000;
+
+    private static final int BATCH_V0 = 0;
+
+    private final LimitedInflaterInputStream in;
+
+    private final BigInteger l1InclusionBlock;
+
+    private Batch next;
+
+    private boolean done;
+
+    /**
+     * Instantiates a new Batch reader.
+     *
+     * @param channel the channel
+     */
+    public BatchReader(Channel channel) {
+        this(channel.data(), channel.l1InclusionBlock(), MAX_RLP_BYTES_PER_CHANNEL);
+    }
+
+    /**
+     * Instantiates a new Batch reader.
+     *
+     * @param compressed the zlib compressed channel data
+     * @param l1InclusionBlock the L1 inclusion block of the channel
+     * @param maxBytes the max number of decompressed bytes to read
+     */
+    public BatchReader(byte[] compressed, BigInteger l1InclusionBlock, int maxBytes) {
+        this.in = new LimitedInflaterInputStream(compressed, maxBytes);
+        this.l1InclusionBlock = l1InclusionBlock;
+    }
+
+    @Override
+    public boolean hasNext() {
+        while (this.next == null && !this.done) {
+            this.next = this.readBatch();
+        }
+        return this.next != null;
+    }
+
+    @Override
+    public Batch next() {
+        if (!this.hasNext()) {
+            throw new NoSuchElementException();
+        }
+        final Batch batch = this.next;
+        this.next = null;
+        return batch;
+    }
+
+    /**
+     * Reads the next batch. Returns null without marking the reader done when a batch of an
+     * unknown version was skipped.
+     */
+    private Batch readBatch() {
+        try {
+            final int prefix = this.in.read();
+            if (prefix < 0) {
+                this.finish();
+                return null;
+            }
+            final long length = this.readStringLength(prefix);
+            if (length < 1) {
+                throw new RlpFormatException("empty batch data");
+            }
+            final long batchEnd = this.in.position() + length;
+            final int version = this.in.readByte();
+            if (version != BATCH_V0) {
+                LOGGER.warn("skip batch of unknown version {}", version);
+                this.in.skipFully(length - 1);
+                return null;
+            }
+            final long listLength = this.readListLength(this.in.readByte());
+            final long listEnd = this.in.position() + listLength;
+            if (listEnd > batchEnd) {
+                throw new RlpFormatException("batch list exceeds batch data");
+            }
+            final String parentHash = Numeric.toHexString(this.readString());
+            final BigInteger epochNum = new BigInteger(1, this.readString());
+            final String epochHash = Numeric.toHexString(this.readString());
+            final BigInteger timestamp = new BigInteger(1, this.readString());
+            final long txsLength = this.readListLength(this.in.readByte());
+            final long txsEnd = this.in.position() + txsLength;
+            final List<String> transactions = new ArrayList<>();
+            while (this.in.position() < txsEnd) {
+                transactions.add(Numeric.toHexString(this.readString()));
+            }
+            if (this.in.position() != txsEnd || txsEnd > listEnd) {
+                throw new RlpFormatException("invalid batch transactions list");
+            }
+            // skip list items appended by later versions of the format, and any bytes after the list
+            this.in.skipFully(batchEnd - this.in.position());
+            return new Batch(parentHash, epochNum, epochHash, timestamp, transactions, this.l1InclusionBlock);
+        } catch (LimitExceededException e) {
+            LOGGER.warn("channel exceeds {} decompressed bytes, ignoring the rest of it", this.in.maxBytes);
+        } catch (RlpFormatException | EOFException e) {
+            LOGGER.warn("malformed batch in channel, ignoring the rest of it: {}", e.getMessage());
+        } catch (IOException e) {
+            throw new DecompressZlibException(e);
+        }
+        this.finish();
+        return null;
+    }
+
+    private void finish() {
+        this.done = true;
+        this.in.close();
+    }
+
+    private byte[] readString() throws IOException {
+        final int prefix = this.in.readByte();
+        if (prefix < 0x80) {
+            return new byte[] {(byte) prefix};
+        }
+        final long length = this.readStringLength(prefix);
+        return this.in.readFully(length);
+    }
+
+    private long readStringLength(int prefix) throws IOException {
+        if (prefix < 0x80) {
+            throw new RlpFormatException("expected a string, got a single byte");
+        } else if (prefix <= 0xb7) {
+            return prefix - 0x80;
+        } else if (prefix <= 0xbf) {
+            return this.readLength(prefix - 0xb7);
+        }
+        throw new RlpFormatException("expected a string, got a list");
+    }
+
+    private long readListLength(int prefix) throws IOException {
+        if (prefix < 0xc0) {
+            throw new RlpFormatException("expected a list, got a string");
+        } else if (prefix <= 0xf7) {
+            return prefix - 0xc0;
+        }
+        return this.readLength(prefix - 0xf7);
+    }
+
+    private long readLength(int lengthOfLength) throws IOException {
+        if (lengthOfLength > 4) {
+            throw new RlpFormatException("length too large");
+        }
+        long length = 0;
+        for (int i = 0; i < lengthOfLength; i++) {
+            length = (length << 8) | this.in.readByte();
+        }
+        return length;
+    }
+
+    /** Thrown when the RLP of a batch is malformed. */
+    private static class RlpFormatException extends IOException {
+
+        RlpFormatException(String message) {
+            super(message);
+        }
+    }
+
+    /** Thrown when a channel decompresses to more than the allowed number of bytes. */
+    private static class LimitExceededException extends IOException {
+
+        LimitExceededException() {
+            super("decompressed size limit exceeded");
+        }
+    }
+
+    /**
+     * Inflates compressed data through a small buffer and counts the inflated bytes. A stream that
+     * ends without a final block is treated as ended, instead of failing.
+     */
+    private static class LimitedInflaterInputStream extends InputStream {
+
+        private static final int BUFFER_SIZE = 8 * 1024;
+
+        private final Inflater inflater;
+
+        private final byte[] buffer = new byte[BUFFER_SIZE];
+
+        private final long maxBytes;
+
+        private int bufferPos;
+
+        private int bufferLen;
+
+        private long position;
+
+        LimitedInflaterInputStream(byte[] compressed, long maxBytes) {
+            this.inflater = new Inflater();
+            this.inflater.setInput(compressed);
+            this.maxBytes = maxBytes;
+        }
+
+        long position() {
+            return this.position;
+        }
+
+        @Override
+        public int read() throws IOException {
+            if (this.bufferPos == this.bufferLen && !this.fill()) {
+                return -1;
+            }
+            this.position++;
+            return this.buffer[this.bufferPos++] & 0xff;
+        }
+
+        int readByte() throws IOException {
+            final int b = this.read();
+            if (b < 0) {
+                throw new EOFException("unexpected end of channel");
+            }
+            return b;
+        }
+
+        byte[] readFully(long length) throws IOException {
+            if (this.position + length > this.maxBytes) {
+                throw new LimitExceededException();
+            }
+            final byte[] bytes = new byte[(int) length];
+            int offset = 0;
+            while (offset < bytes.length) {
+                if (this.bufferPos == this.bufferLen && !this.fill()) {
+                    throw new EOFException("unexpected end of channel");
+                }
+                final int count = Math.min(bytes.length - offset, this.bufferLen - this.bufferPos);
+                System.arraycopy(this.buffer, this.bufferPos, bytes, offset, count);
+                this.bufferPos += count;
+                this.position += count;
+                offset += count;
+            }
+            return bytes;
+        }
+
+        void skipFully(long length) throws IOException {
+            if (length < 0) {
+                throw new RlpFormatException("invalid length");
+            }
+            for (long i = 0; i < length; i++) {
+                this.readByte();
+            }
+        }
+
+        private boolean fill() throws IOException {
+            if (this.position >= this.maxBytes) {
+                throw new LimitExceededException();
+            }
+            try {
+                final int count = this.inflater.inflate(this.buffer);
+                if (count == 0) {
+                    if (this.inflater.needsDictionary()) {
+                        throw new DataFormatException("zlib dictionary required");
+                    }
+                    // finished, or the input ended without a final block
+                    return false;
+                }
+                this.bufferPos = 0;
+                this.bufferLen = count;
+                return true;
+            } catch (DataFormatException e) {
+                throw new IOException(e);
+            }
+        }
+
+        @Override
+        public void close() {
+            this.inflater.end();
+        }
+    }
+}
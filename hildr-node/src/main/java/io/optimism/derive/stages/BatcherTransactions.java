@@ -19,11 +19,11 @@ package io.optimism.derive.stages;
 import io.optimism.derive.PurgeableIterator;
 import io.optimism.utilities.derive.stages.Frame;
 import java.math.BigInteger;
+import java.nio.ByteBuffer;
 import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Deque;
 import java.util.List;
-import org.apache.commons.lang3.ArrayUtils;
 import org.apache.commons.lang3.tuple.ImmutablePair;
 import org.jctools.queues.MessagePassingQueue;
 import org.slf4j.Logger;
@@ -93,11 +93,12 @@ public class BatcherTransactions implements PurgeableIterator<BatcherTransaction
          */
         public static BatcherTransaction create(byte[] data, BigInteger l1Origin) {
             final byte version = data[0];
-            final byte[] framesData = ArrayUtils.subarray(data, 1, data.length);
+            // frames reference the transaction bytes, so skip the version byte instead of copying
+            final ByteBuffer framesData = ByteBuffer.wrap(data).asReadOnlyBuffer();
 
-            int offset = 0;
+            int offset = 1;
             List<Frame> frames = new ArrayList<>();
-            while (offset < framesData.length) {
+            while (offset < data.length) {
                 final ImmutablePair<Frame, Integer> framePair = Frame.from(framesData, offset, l1Origin);
                 Frame frame = framePair.getLeft();
                 int nextOffset = framePair.getRight();
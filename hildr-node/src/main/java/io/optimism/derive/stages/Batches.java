@@ -23,22 +23,16 @@ import io.optimism.config.Config;
 import io.optimism.derive.PurgeableIterator;
 import io.optimism.derive.State;
 import io.optimism.derive.stages.Channels.Channel;
+import io.optimism.type.Hash32;
 import io.optimism.utilities.derive.stages.Batch;
-import java.io.ByteArrayOutputStream;
 import java.math.BigInteger;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.TreeMap;
 import java.util.concurrent.atomic.AtomicReference;
-import java.util.stream.Collectors;
-import java.util.zip.DataFormatException;
-import java.util.zip.Inflater;
-import org.apache.commons.lang3.ArrayUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.web3j.rlp.RlpDecoder;
-import org.web3j.rlp.RlpList;
-import org.web3j.rlp.RlpString;
-import org.web3j.rlp.RlpType;
 
 /**
  * The type Batches.
@@ -50,14 +44,26 @@ import org.web3j.rlp.RlpType;
 public class Batches<I extends PurgeableIterator<Channel>> implements PurgeableIterator<Batch> {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(Batches.class);
+
+    /** The max number of accepted batches that can be put back by {@link #rewind(BigInteger)}. */
+    public static final int MAX_REWIND = 64;
+
     private final TreeMap<BigInteger, Batch> batches;
 
-    private final I channelIterator;
+    private final ArrayDeque<Batch> accepted = new ArrayDeque<>();
+
+    private final ChannelDecoder channelDecoder;
 
     private final AtomicReference<State> state;
 
     private final Config config;
 
+    private final long blockTime;
+
+    private final long seqWindowSize;
+
+    private final long maxSeqDrift;
+
     /**
      * Instantiates a new Batches.
      *
@@ -68,22 +74,41 @@ public class Batches<I extends PurgeableIterator<Channel>> implements PurgeableI
      */
     public Batches(TreeMap<BigInteger, Batch> batches, I channelIterator, AtomicReference<State> state, Config config) {
         this.batches = batches;
-        this.channelIterator = channelIterator;
+        this.channelDecoder = new ChannelDecoder(channelIterator);
         this.state = state;
         this.config = config;
+        this.blockTime = config.chainConfig().blockTime().longValue();
+        this.seqWindowSize = config.chainConfig().seqWindowSize().longValue();
+        this.maxSeqDrift = config.chainConfig().maxSeqDrift().longValue();
     }
 
     @Override
     public void purge() {
-        this.channelIterator.purge();
+        this.channelDecoder.purge();
         this.batches.clear();
+        this.accepted.clear();
+    }
+
+    /**
+     * Puts the accepted batches after the given timestamp back, so they are checked again once the
+     * safe head has been moved back to that timestamp. A batch decoded since then for the same
+     * timestamp is kept instead.
+     *
+     * @param timestamp the timestamp of the safe head
+     */
+    public void rewind(BigInteger timestamp) {
+        while (!this.accepted.isEmpty() && this.accepted.peekLast().timestamp().compareTo(timestamp) > 0) {
+            final Batch batch = this.accepted.removeLast();
+            this.batches.putIfAbsent(batch.timestamp(), batch);
+        }
     }
 
     @Override
     public Batch next() {
-        Channel channel = this.channelIterator.next();
-        if (channel != null) {
-            decodeBatches(channel).forEach(batch -> this.batches.put(batch.timestamp(), batch));
+        // channels are decoded in parallel, but their batches arrive in channel order
+        List<Batch> decoded = this.channelDecoder.next();
+        if (decoded != null) {
+            decoded.forEach(batch -> this.batches.put(batch.timestamp(), batch));
         }
 
         Batch derivedBatch = null;
@@ -95,6 +120,11 @@ public class Batches<I extends PurgeableIterator<Channel>> implements PurgeableI
                     case Accept:
                         derivedBatch = batch;
                         this.batches.remove(batch.timestamp());
+                        this.resolveSpeculativeHead(batch);
+                        this.accepted.addLast(batch);
+                        if (this.accepted.size() > MAX_REWIND) {
+                            this.accepted.removeFirst();
+                        }
                         break loop;
                     case Drop:
                         LOGGER.warn("dropping invalid batch");
@@ -119,10 +149,12 @@ public class Batches<I extends PurgeableIterator<Channel>> implements PurgeableI
             BigInteger currentL1Block = state.getCurrentEpochNum();
             BlockInfo safeHead = state.getSafeHead();
             Epoch epoch = state.getSafeEpoch();
-            Epoch nextEpoch = state.epoch(epoch.number().add(BigInteger.ONE));
+            Epoch nextEpoch = state.epoch(epoch.number().longValue() + 1);
             BigInteger seqWindowSize = this.config.chainConfig().seqWindowSize();
 
-            if (nextEpoch != null) {
+            // the generated batch has no parent claim the driver could check, so it is only generated on a
+            // safe head the engine has confirmed
+            if (nextEpoch != null && safeHead.hash() != null) {
                 if (currentL1Block.compareTo(epoch.number().add(seqWindowSize)) > 0) {
                     BigInteger nextTimestamp =
                             safeHead.timestamp().add(this.config.chainConfig().blockTime());
@@ -148,100 +180,101 @@ public class Batches<I extends PurgeableIterator<Channel>> implements PurgeableI
      * @return the list
      */
     public static List<Batch> decodeBatches(Channel channel) {
-        byte[] channelData = decompressZlib(channel.data());
-        List<RlpType> batches = RlpDecoder.decode(channelData).getValues();
-        return batches.stream()
-                .map(rlpType -> {
-                    byte[] batchData = ArrayUtils.subarray(
-                            ((RlpString) rlpType).getBytes(), 1, ((RlpString) rlpType).getBytes().length);
-                    RlpList rlpBatchData =
-                            (RlpList) RlpDecoder.decode(batchData).getValues().get(0);
-                    return Batch.decode(rlpBatchData, channel.l1InclusionBlock());
-                })
-                .collect(Collectors.toList());
+        List<Batch> batches = new ArrayList<>();
+        new BatchReader(channel).forEachRemaining(batches::add);
+        return batches;
     }
 
-    private static byte[] decompressZlib(byte[] data) {
-        try {
-            Inflater inflater = new Inflater();
-            inflater.setInput(data);
-            ByteArrayOutputStream outputStream = new ByteArrayOutputStream(data.length);
-            byte[] buffer = new byte[1024];
-            while (!inflater.finished()) {
-                int count = inflater.inflate(buffer);
-                outputStream.write(buffer, 0, count);
+    /**
+     * The safe head has no hash yet when it was derived ahead of the engine, so the parent hash
+     * claimed by the accepted batch is taken as its hash.
+     */
+    private void resolveSpeculativeHead(Batch batch) {
+        this.state.updateAndGet(state -> {
+            BlockInfo head = state.getSafeHead();
+            if (head.hash() != null) {
+                return state;
             }
-
-            return outputStream.toByteArray();
-        } catch (DataFormatException e) {
-            throw new DecompressZlibException(e);
-        }
+            return state.updateSafeHead(
+                    new BlockInfo(batch.parentHash(), head.number(), head.parentHash(), head.timestamp()),
+                    state.getSafeEpoch());
+        });
     }
 
     @SuppressWarnings("WhitespaceAround")
     private BatchStatus batchStatus(Batch batch) {
         State state = this.state.get();
         Epoch epoch = state.getSafeEpoch();
-        Epoch nextEpoch = state.epoch(epoch.number().add(BigInteger.ONE));
+        // numbers and timestamps fit in a long and the state holds its hashes parsed, so the checks below
+        // compare primitives and allocate nothing
+        final long epochNum = epoch.number().longValue();
+        Epoch nextEpoch = state.epoch(epochNum + 1);
         BlockInfo head = state.getSafeHead();
-        BigInteger nextTimestamp =
-                head.timestamp().add(this.config.chainConfig().blockTime());
+        final long nextTimestamp = head.timestamp().longValue() + this.blockTime;
+        final long batchTimestamp = batch.timestamp().longValue();
+        final long batchEpochNum = batch.epochNum().longValue();
 
         // check timestamp range
-        switch (batch.timestamp().compareTo(nextTimestamp)) {
-            case 1 -> {
-                return BatchStatus.Future;
-            }
-            case -1 -> {
-                return BatchStatus.Drop;
-            }
-            default -> {}
+        if (batchTimestamp > nextTimestamp) {
+            return BatchStatus.Future;
+        }
+        // A speculative head has no hash yet, the batch taken for it only claims its parent and the driver checks
+        // the claim against the engine. If the claim is wrong the head is rewound, so a batch that looks stale
+        // or invalid now may be the valid one and waits in the buffer until the engine confirmed the head.
+        final boolean speculative = head.hash() == null;
+        if (batchTimestamp < nextTimestamp) {
+            return speculative ? BatchStatus.Undecided : BatchStatus.Drop;
         }
 
-        // check that block builds on existing chain
-        if (!batch.parentHash().equalsIgnoreCase(head.hash())) {
+        // check that block builds on existing chain, a speculative head can not be its own parent
+        if (speculative
+                ? matches(state.getSafeHeadParentHash(), batch.parentHash())
+                : !matches(state.getSafeHeadHash(), batch.parentHash())) {
+            if (speculative) {
+                return BatchStatus.Undecided;
+            }
             LOGGER.warn("invalid parent hash");
             return BatchStatus.Drop;
         }
 
         // check the inclusion delay
-        if (batch.epochNum().add(this.config.chainConfig().seqWindowSize()).compareTo(batch.l1InclusionBlock()) < 0) {
+        if (batchEpochNum + this.seqWindowSize < batch.l1InclusionBlock().longValue()) {
             LOGGER.warn("inclusion window elapsed");
             return BatchStatus.Drop;
         }
 
         Epoch batchOrigin;
+        Hash32 batchOriginHash;
         // check and set batch origin epoch
-        if (batch.epochNum().compareTo(epoch.number()) == 0) {
+        if (batchEpochNum == epochNum) {
             batchOrigin = epoch;
-        } else if (batch.epochNum().compareTo(epoch.number().add(BigInteger.ONE)) == 0) {
+            batchOriginHash = state.getSafeEpochHash();
+        } else if (batchEpochNum == epochNum + 1) {
             batchOrigin = nextEpoch;
+            batchOriginHash = state.epochHash(epochNum + 1);
         } else {
             LOGGER.warn("invalid batch origin epoch number");
             return BatchStatus.Drop;
         }
 
         if (batchOrigin != null) {
-            if (!batch.epochHash().equalsIgnoreCase(batchOrigin.hash())) {
+            if (!matches(batchOriginHash, batch.epochHash())) {
                 LOGGER.warn("invalid epoch hash");
                 return BatchStatus.Drop;
             }
 
-            if (batch.timestamp().compareTo(batchOrigin.timestamp()) < 0) {
+            final long originTimestamp = batchOrigin.timestamp().longValue();
+            if (batchTimestamp < originTimestamp) {
                 LOGGER.warn("batch too old");
                 return BatchStatus.Drop;
             }
 
             // handle sequencer drift
-            if (batch.timestamp()
-                            .compareTo(batchOrigin
-                                    .timestamp()
-                                    .add(this.config.chainConfig().maxSeqDrift()))
-                    > 0) {
+            if (batchTimestamp > originTimestamp + this.maxSeqDrift) {
                 if (batch.transactions().isEmpty()) {
-                    if (epoch.number().compareTo(batch.epochNum()) == 0) {
+                    if (epochNum == batchEpochNum) {
                         if (nextEpoch != null) {
-                            if (batch.timestamp().compareTo(nextEpoch.timestamp()) >= 0) {
+                            if (batchTimestamp >= nextEpoch.timestamp().longValue()) {
                                 LOGGER.warn("sequencer drift too large");
                                 return BatchStatus.Drop;
                             }
@@ -268,6 +301,10 @@ public class Batches<I extends PurgeableIterator<Channel>> implements PurgeableI
         return BatchStatus.Accept;
     }
 
+    private static boolean matches(Hash32 hash, String hex) {
+        return hash != null && hash.matches(hex);
+    }
+
     /**
      * Create batches.
      *
@@ -0,0 +1,107 @@
+/*
+ * Copyright 2023 281165273grape@gmail.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+
+package io.optimism.derive.stages;
+
+import io.optimism.derive.PurgeableIterator;
+import io.optimism.derive.stages.Channels.Channel;
+import io.optimism.utilities.derive.stages.Batch;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Decodes completed channels on a shared pool. All channels that are ready are inflated and decoded
+ * in parallel, while the decoded batches are still handed out in the order the channels completed,
+ * which is their L1 inclusion order.
+ *
+ * <p>Decoding is a pure function of the channel data, so purging only has to drop the channels in
+ * flight: their results are never handed out, and the pool finishes them in the background.
+ *
+ * @author grapebaba
+ * @since 0.2.0
+ */
+class ChannelDecoder implements PurgeableIterator<List<Batch>> {
+
+    /** The pool decoding channels, shared by all pipelines. */
+    static final ForkJoinPool POOL = new ForkJoinPool(Runtime.getRuntime().availableProcessors());
+
+    /** The max number of channels decoded ahead of the caller. */
+    static final int MAX_IN_FLIGHT = 2 * POOL.getParallelism();
+
+    private final PurgeableIterator<Channel> channelIterator;
+
+    private final Deque<CompletableFuture<List<Batch>>> inFlight;
+
+    /**
+     * Instantiates a new channel decoder.
+     *
+     * @param channelIterator the channel iterator
+     */
+    ChannelDecoder(PurgeableIterator<Channel> channelIterator) {
+        this.channelIterator = channelIterator;
+        this.inFlight = new ArrayDeque<>(MAX_IN_FLIGHT);
+    }
+
+    /**
+     * Gets the batches of the next completed channel. Every channel that is ready is sent to the pool
+     * first, then the call waits for the oldest one only.
+     *
+     * @return the batches of the oldest channel, or null if no channel is ready
+     */
+    @Override
+    public List<Batch> next() {
+        while (this.inFlight.size() < MAX_IN_FLIGHT) {
+            final Channel channel = this.channelIterator.next();
+            if (channel == null) {
+                break;
+            }
+            this.inFlight.addLast(CompletableFuture.supplyAsync(() -> Batches.decodeBatches(channel), POOL));
+        }
+        final CompletableFuture<List<Batch>> oldest = this.inFlight.pollFirst();
+        if (oldest == null) {
+            return null;
+        }
+        try {
+            return oldest.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    @Override
+    public void purge() {
+        this.inFlight.forEach(future -> future.cancel(false));
+        this.inFlight.clear();
+        this.channelIterator.purge();
+    }
+
+    /**
+     * Gets the number of channels in flight.
+     *
+     * @return the number of channels
+     */
+    int inFlight() {
+        return this.inFlight.size();
+    }
+}
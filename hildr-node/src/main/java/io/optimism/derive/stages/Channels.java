@@ -21,17 +21,27 @@ import io.optimism.config.Config;
 import io.optimism.derive.PurgeableIterator;
 import io.optimism.derive.stages.BatcherTransactions.BatcherTransaction;
 import io.optimism.derive.stages.Channels.Channel;
+import io.optimism.utilities.derive.stages.ChannelId;
 import io.optimism.utilities.derive.stages.Frame;
 import java.math.BigInteger;
-import java.util.Comparator;
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
-import java.util.Objects;
+import java.util.NoSuchElementException;
 import java.util.Optional;
-import org.apache.commons.lang3.ArrayUtils;
 
 /**
  * The type Channels.
  *
+ * <p>Pending channels are indexed by channel id in arrival order, so looking up the channel of a
+ * frame is constant time and pruning still drops the oldest channel first. The total size of all
+ * pending frames is maintained as frames are added and channels are removed.
+ *
  * @param <I> the type parameter
  * @author grapebaba
  * @since 0.1.0
@@ -40,14 +50,16 @@ public class Channels<I extends PurgeableIterator<BatcherTransaction>> implement
 
     private final I batcherTxIterator;
 
-    private final List<PendingChannel> pendingChannels;
+    private final LinkedHashMap<ChannelId, PendingChannel> pendingChannels;
 
-    private final List<Frame> frameBank;
+    private final Deque<Frame> frameBank;
 
     private final BigInteger maxChannelSize;
 
     private final BigInteger channelTimeout;
 
+    private long totalSize;
+
     /**
      * Instantiates a new Channels.
      *
@@ -56,8 +68,8 @@ public class Channels<I extends PurgeableIterator<BatcherTransaction>> implement
      */
     public Channels(I batcherTxIterator, Config config) {
         this.batcherTxIterator = batcherTxIterator;
-        this.pendingChannels = Lists.newArrayList();
-        this.frameBank = Lists.newArrayList();
+        this.pendingChannels = new LinkedHashMap<>();
+        this.frameBank = new ArrayDeque<>();
         this.maxChannelSize = config.chainConfig().maxChannelSize();
         this.channelTimeout = config.chainConfig().channelTimeout();
     }
@@ -67,6 +79,7 @@ public class Channels<I extends PurgeableIterator<BatcherTransaction>> implement
         this.batcherTxIterator.purge();
         this.pendingChannels.clear();
         this.frameBank.clear();
+        this.totalSize = 0L;
     }
 
     @Override
@@ -81,20 +94,21 @@ public class Channels<I extends PurgeableIterator<BatcherTransaction>> implement
      */
     protected void pushFrame(Frame frame) {
         // Find a pending channel matching on the channel id
-        Optional<PendingChannel> existedPc = this.pendingChannels.stream()
-                .filter(c -> c.getChannelId().equals(frame.channelId()))
-                .findFirst();
+        PendingChannel existedPc = this.pendingChannels.get(frame.id());
 
         // Insert frame if pending channel exists
         // Otherwise, construct a new pending channel with the frame's id
-        if (existedPc.isPresent()) {
-            existedPc.get().pushFrame(frame);
-            if (existedPc.get().isTimedOut(this.channelTimeout)) {
-                this.pendingChannels.remove(existedPc.get());
+        if (existedPc != null) {
+            final long sizeBefore = existedPc.getDataSize();
+            existedPc.pushFrame(frame);
+            this.totalSize += existedPc.getDataSize() - sizeBefore;
+            if (existedPc.isTimedOut(this.channelTimeout)) {
+                this.removePendingChannel(existedPc);
             }
         } else {
             PendingChannel pendingChannel = PendingChannel.create(frame);
-            this.pendingChannels.add(pendingChannel);
+            this.pendingChannels.put(pendingChannel.getId(), pendingChannel);
+            this.totalSize += pendingChannel.getDataSize();
         }
     }
 
@@ -112,14 +126,22 @@ public class Channels<I extends PurgeableIterator<BatcherTransaction>> implement
      * @return the optional
      */
     protected Optional<Channel> fetchReadyChannel(BigInteger id) {
-        return this.pendingChannels.stream()
-                .filter(c -> c.getChannelId().equals(id) && c.isComplete())
-                .findFirst()
-                .map(pendingChannel -> {
-                    Channel channel = Channel.from(pendingChannel);
-                    pendingChannels.remove(pendingChannel);
-                    return channel;
-                });
+        return this.fetchReadyChannel(ChannelId.from(id));
+    }
+
+    /**
+     * Fetch ready channel optional.
+     *
+     * @param id the id
+     * @return the optional
+     */
+    protected Optional<Channel> fetchReadyChannel(ChannelId id) {
+        PendingChannel pendingChannel = this.pendingChannels.get(id);
+        if (pendingChannel == null || !pendingChannel.isComplete()) {
+            return Optional.empty();
+        }
+        this.removePendingChannel(pendingChannel);
+        return Optional.of(Channel.from(pendingChannel));
     }
 
     private Optional<Channel> processFrames() {
@@ -127,8 +149,8 @@ public class Channels<I extends PurgeableIterator<BatcherTransaction>> implement
 
         while (!this.frameBank.isEmpty()) {
             // Append the frame to the channel
-            Frame frame = this.frameBank.remove(0);
-            BigInteger frameChannelId = frame.channelId();
+            Frame frame = this.frameBank.poll();
+            ChannelId frameChannelId = frame.id();
             this.pushFrame(frame);
             this.prune();
 
@@ -141,26 +163,19 @@ public class Channels<I extends PurgeableIterator<BatcherTransaction>> implement
         return Optional.empty();
     }
 
-    private Optional<PendingChannel> removePendingChannel() {
-        if (this.pendingChannels.isEmpty()) {
-            return Optional.empty();
-        } else {
-            return Optional.of(this.pendingChannels.remove(0));
-        }
-    }
-
-    private long totalSize() {
-        return this.pendingChannels.stream()
-                .map(p -> p.frames.stream().map(Frame::frameDataLen).reduce(0, Integer::sum))
-                .reduce(0, Integer::sum);
+    private void removePendingChannel(PendingChannel pendingChannel) {
+        this.pendingChannels.remove(pendingChannel.getId());
+        this.totalSize -= pendingChannel.getDataSize();
     }
 
     private void prune() {
-        while (this.totalSize() > this.maxChannelSize.longValue()) {
-            Optional<PendingChannel> removed = this.removePendingChannel();
-            if (removed.isEmpty()) {
+        final Iterator<PendingChannel> oldest = this.pendingChannels.values().iterator();
+        while (this.totalSize > this.maxChannelSize.longValue()) {
+            if (!oldest.hasNext()) {
                 throw new RuntimeException("should have removed a channel");
             }
+            this.totalSize -= oldest.next().getDataSize();
+            oldest.remove();
         }
     }
 
@@ -170,7 +185,7 @@ public class Channels<I extends PurgeableIterator<BatcherTransaction>> implement
      * @return the pending channels
      */
     public List<PendingChannel> getPendingChannels() {
-        return pendingChannels;
+        return new ArrayList<>(this.pendingChannels.values());
     }
 
     /**
@@ -212,14 +227,25 @@ public class Channels<I extends PurgeableIterator<BatcherTransaction>> implement
     /**
      * The type PendingChannel.
      *
+     * <p>Frames are kept in a slot array indexed by frame number, so duplicate detection is a
+     * single lookup and assembly walks the frames in order without sorting.
+     *
      * @author grapebaba
      * @since 0.1.0
      */
     public static class PendingChannel {
 
+        private static final int INITIAL_SLOTS = 4;
+
         private final BigInteger channelId;
 
-        private final List<Frame> frames;
+        private final ChannelId id;
+
+        private Frame[] slots;
+
+        private int frameCount;
+
+        private long dataSize;
 
         private Integer size;
 
@@ -243,10 +269,12 @@ public class Channels<I extends PurgeableIterator<BatcherTransaction>> implement
                 BigInteger highestL1Block,
                 BigInteger lowestL1Block) {
             this.channelId = channelId;
-            this.frames = frames;
+            this.id = ChannelId.from(channelId);
+            this.slots = new Frame[Math.max(INITIAL_SLOTS, size == null ? frames.size() : size)];
             this.size = size;
             this.highestL1Block = highestL1Block;
             this.lowestL1Block = lowestL1Block;
+            frames.forEach(this::putSlot);
         }
 
         /**
@@ -255,7 +283,7 @@ public class Channels<I extends PurgeableIterator<BatcherTransaction>> implement
          * @return the boolean
          */
         public boolean isComplete() {
-            return size != null && frames.size() == size;
+            return size != null && frameCount == size;
         }
 
         /**
@@ -274,10 +302,23 @@ public class Channels<I extends PurgeableIterator<BatcherTransaction>> implement
          * @return the byte [ ]
          */
         public byte[] assemble() {
-            return frames.stream()
-                    .sorted(Comparator.comparing(Frame::frameNumber))
-                    .map(Frame::frameData)
-                    .reduce(new byte[0], ArrayUtils::addAll);
+            int length = 0;
+            for (Frame frame : this.slots) {
+                if (frame != null) {
+                    length += frame.frameDataBuffer().remaining();
+                }
+            }
+            final byte[] data = new byte[length];
+            int offset = 0;
+            for (Frame frame : this.slots) {
+                if (frame != null) {
+                    final ByteBuffer frameData = frame.frameDataBuffer();
+                    final int frameLength = frameData.remaining();
+                    frameData.get(data, offset, frameLength);
+                    offset += frameLength;
+                }
+            }
+            return data;
         }
 
         /**
@@ -286,10 +327,16 @@ public class Channels<I extends PurgeableIterator<BatcherTransaction>> implement
          * @return the big integer
          */
         public BigInteger l1InclusionBlock() {
-            return this.frames.stream()
-                    .map(Frame::l1InclusionBlock)
-                    .max(BigInteger::compareTo)
-                    .orElseThrow();
+            BigInteger max = null;
+            for (Frame frame : this.slots) {
+                if (frame != null && (max == null || frame.l1InclusionBlock().compareTo(max) > 0)) {
+                    max = frame.l1InclusionBlock();
+                }
+            }
+            if (max == null) {
+                throw new NoSuchElementException("No value present");
+            }
+            return max;
         }
 
         /**
@@ -298,9 +345,8 @@ public class Channels<I extends PurgeableIterator<BatcherTransaction>> implement
          * @param frame the frame
          */
         public void pushFrame(Frame frame) {
-            final boolean hasSeen = this.frames.stream()
-                    .map(Frame::frameNumber)
-                    .anyMatch(number -> Objects.equals(number, frame.frameNumber()));
+            final boolean hasSeen =
+                    frame.frameNumber() < this.slots.length && this.slots[frame.frameNumber()] != null;
 
             if (!hasSeen) {
                 if (frame.l1InclusionBlock().compareTo(this.highestL1Block) > 0) {
@@ -312,10 +358,22 @@ public class Channels<I extends PurgeableIterator<BatcherTransaction>> implement
                 if (frame.isLastFrame()) {
                     this.size = frame.frameNumber() + 1;
                 }
-                this.frames.add(frame);
+                this.putSlot(frame);
             }
         }
 
+        private void putSlot(Frame frame) {
+            final int number = frame.frameNumber();
+            if (number >= this.slots.length) {
+                this.slots = Arrays.copyOf(this.slots, Math.max(number + 1, this.slots.length * 2));
+            }
+            if (this.slots[number] == null) {
+                this.frameCount++;
+                this.dataSize += frame.frameDataLen();
+            }
+            this.slots[number] = frame;
+        }
+
         /**
          * Gets channel id.
          *
@@ -326,14 +384,38 @@ public class Channels<I extends PurgeableIterator<BatcherTransaction>> implement
         }
 
         /**
-         * Gets frames.
+         * Gets channel id as a value type.
+         *
+         * @return the channel id
+         */
+        public ChannelId getId() {
+            return id;
+        }
+
+        /**
+         * Gets frames in frame number order.
          *
          * @return the frames
          */
         public List<Frame> getFrames() {
+            final List<Frame> frames = new ArrayList<>(this.frameCount);
+            for (Frame frame : this.slots) {
+                if (frame != null) {
+                    frames.add(frame);
+                }
+            }
             return frames;
         }
 
+        /**
+         * Gets the total frame data size.
+         *
+         * @return the frame data size
+         */
+        public long getDataSize() {
+            return dataSize;
+        }
+
         /**
          * Gets size.
          *
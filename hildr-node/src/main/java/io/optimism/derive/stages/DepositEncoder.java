@@ -0,0 +1,318 @@
+/*
+ * Copyright 2023 281165273grape@gmail.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+
+package io.optimism.derive.stages;
+
+import io.optimism.derive.stages.Attributes.AttributesDeposited;
+import io.optimism.derive.stages.Attributes.DepositedTransaction;
+import java.math.BigInteger;
+import java.security.DigestException;
+import java.util.Arrays;
+import org.bouncycastle.jcajce.provider.digest.Keccak;
+
+/**
+ * Byte level encoder of deposit transactions and of the L1 attributes calldata. Every encoding is
+ * written straight into one array of the exact size, hex strings are decoded in place, and source
+ * hashes are computed with a keccak digest reused per thread.
+ *
+ * @author grapebaba
+ * @since 0.2.0
+ */
+final class DepositEncoder {
+
+    /** The length of the setL1BlockValues calldata: selector and eight 32 byte words. */
+    static final int L1_INFO_LENGTH = 4 + 8 * 32;
+
+    /** The source hash domain of user deposits. */
+    static final int USER_DEPOSIT_DOMAIN = 0;
+
+    /** The source hash domain of L1 info deposits. */
+    static final int L1_INFO_DEPOSIT_DOMAIN = 1;
+
+    private static final byte DEPOSIT_TX_TYPE = 0x7e;
+
+    private static final byte[] L1_INFO_SELECTOR = {0x01, 0x5d, (byte) 0x8e, (byte) 0xb9};
+
+    private static final int WORD = 32;
+
+    private static final ThreadLocal<Hasher> HASHER = ThreadLocal.withInitial(Hasher::new);
+
+    private DepositEncoder() {}
+
+    /**
+     * Encodes the setL1BlockValues calldata of the L1 attributes deposit.
+     *
+     * @param attributes the L1 attributes
+     * @return the calldata
+     */
+    static byte[] l1InfoCalldata(AttributesDeposited attributes) {
+        final byte[] out = new byte[L1_INFO_LENGTH];
+        System.arraycopy(L1_INFO_SELECTOR, 0, out, 0, L1_INFO_SELECTOR.length);
+        int offset = L1_INFO_SELECTOR.length;
+        offset = writeWord(attributes.number(), out, offset);
+        offset = writeWord(attributes.timestamp(), out, offset);
+        offset = writeWord(attributes.baseFee(), out, offset);
+        offset = writeBytes32(attributes.hash(), out, offset);
+        offset = writeWord(attributes.sequenceNumber(), out, offset);
+        offset = writeBytes32(attributes.batcherHash(), out, offset);
+        offset = writeWord(attributes.feeOverhead(), out, offset);
+        writeWord(attributes.feeScalar(), out, offset);
+        return out;
+    }
+
+    /**
+     * Computes a deposit source hash, keccak(domain ++ keccak(blockHash ++ index)).
+     *
+     * @param blockHash the L1 block hash
+     * @param index the log index of user deposits, the sequence number of L1 info deposits
+     * @param domain the source hash domain
+     * @return the source hash
+     */
+    static byte[] sourceHash(String blockHash, BigInteger index, int domain) {
+        return HASHER.get().sourceHash(blockHash, index, domain);
+    }
+
+    /**
+     * Encodes a deposit transaction, the type byte followed by the RLP list of its fields.
+     *
+     * @param tx the deposit transaction
+     * @return the encoded transaction
+     */
+    static byte[] encode(DepositedTransaction tx) {
+        final boolean hasTo = tx.to() != null && !tx.to().isEmpty();
+        final int payload = hexStringLength(tx.sourceHash())
+                + hexStringLength(tx.from())
+                + (hasTo ? hexStringLength(tx.to()) : 1)
+                + quantityLength(tx.mint())
+                + quantityLength(tx.value())
+                + quantityLength(tx.gas())
+                + 1
+                + stringLength(tx.data().length, tx.data().length == 1 ? tx.data()[0] : 0);
+        final byte[] out = new byte[1 + headerLength(payload) + payload];
+        out[0] = DEPOSIT_TX_TYPE;
+        int offset = writeHeader(0xc0, payload, out, 1);
+        offset = writeHexString(tx.sourceHash(), out, offset);
+        offset = writeHexString(tx.from(), out, offset);
+        if (hasTo) {
+            offset = writeHexString(tx.to(), out, offset);
+        } else {
+            out[offset++] = (byte) 0x80;
+        }
+        offset = writeQuantity(tx.mint(), out, offset);
+        offset = writeQuantity(tx.value(), out, offset);
+        offset = writeQuantity(tx.gas(), out, offset);
+        out[offset++] = tx.isSystemTx() ? (byte) 0x01 : (byte) 0x80;
+        writeString(tx.data(), out, offset);
+        return out;
+    }
+
+    private static int writeWord(BigInteger value, byte[] out, int offset) {
+        if (value.signum() < 0) {
+            throw new IllegalArgumentException("negative uint256: " + value);
+        }
+        if (value.bitLength() < Long.SIZE) {
+            long v = value.longValue();
+            for (int i = offset + WORD - 1; v != 0; i--) {
+                out[i] = (byte) v;
+                v >>>= 8;
+            }
+        } else {
+            final byte[] bytes = value.toByteArray();
+            final int start = bytes[0] == 0 ? 1 : 0;
+            final int length = bytes.length - start;
+            if (length > WORD) {
+                throw new IllegalArgumentException("uint256 overflow: " + value);
+            }
+            System.arraycopy(bytes, start, out, offset + WORD - length, length);
+        }
+        return offset + WORD;
+    }
+
+    private static int writeBytes32(String hex, byte[] out, int offset) {
+        if (hexLength(hex) != WORD) {
+            throw new IllegalArgumentException("not a bytes32 value: " + hex);
+        }
+        decodeHex(hex, out, offset);
+        return offset + WORD;
+    }
+
+    private static int hexStringLength(String hex) {
+        final int length = hexLength(hex);
+        return stringLength(length, length == 1 ? hexByte(hex) : 0);
+    }
+
+    private static int writeHexString(String hex, byte[] out, int offset) {
+        final int length = hexLength(hex);
+        if (length == 1 && (hexByte(hex) & 0xff) < 0x80) {
+            out[offset] = hexByte(hex);
+            return offset + 1;
+        }
+        offset = writeHeader(0x80, length, out, offset);
+        decodeHex(hex, out, offset);
+        return offset + length;
+    }
+
+    private static int quantityLength(BigInteger value) {
+        if (value.signum() < 1) {
+            return 1;
+        }
+        final int length = (value.bitLength() + 7) / 8;
+        return length == 1 && value.intValue() < 0x80 ? 1 : headerLength(length) + length;
+    }
+
+    private static int writeQuantity(BigInteger value, byte[] out, int offset) {
+        // RLP integers are big endian without leading zeros, zero is the empty string
+        if (value.signum() < 1) {
+            out[offset] = (byte) 0x80;
+            return offset + 1;
+        }
+        final int length = (value.bitLength() + 7) / 8;
+        if (length == 1 && value.intValue() < 0x80) {
+            out[offset] = (byte) value.intValue();
+            return offset + 1;
+        }
+        offset = writeHeader(0x80, length, out, offset);
+        if (value.bitLength() < Long.SIZE) {
+            long v = value.longValue();
+            for (int i = offset + length - 1; i >= offset; i--) {
+                out[i] = (byte) v;
+                v >>>= 8;
+            }
+        } else {
+            final byte[] bytes = value.toByteArray();
+            System.arraycopy(bytes, bytes.length - length, out, offset, length);
+        }
+        return offset + length;
+    }
+
+    private static int stringLength(int length, byte first) {
+        return length == 1 && (first & 0xff) < 0x80 ? 1 : headerLength(length) + length;
+    }
+
+    private static void writeString(byte[] value, byte[] out, int offset) {
+        if (value.length == 1 && (value[0] & 0xff) < 0x80) {
+            out[offset] = value[0];
+            return;
+        }
+        offset = writeHeader(0x80, value.length, out, offset);
+        System.arraycopy(value, 0, out, offset, value.length);
+    }
+
+    private static int headerLength(int length) {
+        return length <= 55 ? 1 : 1 + byteCount(length);
+    }
+
+    private static int writeHeader(int base, int length, byte[] out, int offset) {
+        if (length <= 55) {
+            out[offset] = (byte) (base + length);
+            return offset + 1;
+        }
+        final int count = byteCount(length);
+        out[offset] = (byte) (base + 55 + count);
+        for (int i = count; i > 0; i--) {
+            out[offset + i] = (byte) length;
+            length >>>= 8;
+        }
+        return offset + 1 + count;
+    }
+
+    private static int byteCount(int value) {
+        return (Integer.SIZE - Integer.numberOfLeadingZeros(value) + 7) / 8;
+    }
+
+    /**
+     * Gets the index of the first hex digit, skipping the 0x prefix.
+     *
+     * @param hex the hex string
+     * @return the index of the first digit
+     */
+    static int hexStart(String hex) {
+        return hex.startsWith("0x") || hex.startsWith("0X") ? 2 : 0;
+    }
+
+    private static int hexLength(String hex) {
+        return (hex.length() - hexStart(hex) + 1) / 2;
+    }
+
+    private static byte hexByte(String hex) {
+        final byte[] single = new byte[1];
+        decodeHex(hex, single, 0);
+        return single[0];
+    }
+
+    /** Decodes a hex string like Numeric.hexStringToByteArray, an odd digit count has a leading zero. */
+    private static void decodeHex(String hex, byte[] out, int offset) {
+        int i = hexStart(hex);
+        if ((hex.length() - i) % 2 == 1) {
+            out[offset++] = (byte) digit(hex.charAt(i++));
+        }
+        decodeHex(hex, i, hex.length(), out, offset);
+    }
+
+    /**
+     * Decodes an even number of hex digits.
+     *
+     * @param hex the hex string
+     * @param start the index of the first digit
+     * @param end the index after the last digit
+     * @param out the destination
+     * @param offset the destination offset
+     */
+    static void decodeHex(String hex, int start, int end, byte[] out, int offset) {
+        for (int i = start; i < end; i += 2) {
+            out[offset++] = (byte) ((digit(hex.charAt(i)) << 4) | digit(hex.charAt(i + 1)));
+        }
+    }
+
+    private static int digit(char c) {
+        final int digit = Character.digit(c, 16);
+        if (digit < 0) {
+            throw new IllegalArgumentException("invalid hex digit: " + c);
+        }
+        return digit;
+    }
+
+    /** Keccak digest and scratch buffer of one thread. */
+    private static final class Hasher {
+
+        private final Keccak.Digest256 digest = new Keccak.Digest256();
+
+        private final byte[] buffer = new byte[2 * WORD];
+
+        byte[] sourceHash(String blockHash, BigInteger index, int domain) {
+            if (hexLength(blockHash) != WORD) {
+                throw new IllegalArgumentException("not a block hash: " + blockHash);
+            }
+            Arrays.fill(this.buffer, (byte) 0);
+            decodeHex(blockHash, this.buffer, 0);
+            writeWord(index, this.buffer, WORD);
+            this.digest.update(this.buffer, 0, this.buffer.length);
+            final byte[] out = new byte[WORD];
+            try {
+                this.digest.digest(this.buffer, WORD, WORD);
+                Arrays.fill(this.buffer, 0, WORD, (byte) 0);
+                this.buffer[WORD - 1] = (byte) domain;
+                this.digest.update(this.buffer, 0, this.buffer.length);
+                this.digest.digest(out, 0, WORD);
+            } catch (DigestException e) {
+                this.digest.reset();
+                throw new IllegalStateException(e);
+            }
+            return out;
+        }
+    }
+}
@@ -0,0 +1,119 @@
+/*
+ * Copyright 2023 281165273grape@gmail.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+
+package io.optimism.derive.stages;
+
+import io.optimism.common.BlockNotIncludedException;
+import io.optimism.derive.stages.Attributes.UserDeposited;
+import java.math.BigInteger;
+import java.util.List;
+import org.web3j.protocol.core.methods.response.EthLog.LogObject;
+
+/**
+ * Decoder of TransactionDeposited logs. The indexed addresses are cut out of the topics, and the
+ * opaque data is read at its ABI offset straight from the hex log data, so only the deposit fields
+ * and the calldata are materialized.
+ *
+ * <p>The opaque data is packed as mint (32 bytes), value (32 bytes), gas (8 bytes), isCreation (1
+ * byte), followed by the calldata.
+ *
+ * @author grapebaba
+ * @since 0.2.0
+ */
+final class DepositLogDecoder {
+
+    private static final int WORD_DIGITS = 64;
+
+    private static final int ADDRESS_DIGITS = 40;
+
+    private static final int HEADER_LENGTH = 32 + 32 + 8 + 1;
+
+    private DepositLogDecoder() {}
+
+    /**
+     * Decodes a TransactionDeposited log.
+     *
+     * @param log the log
+     * @return the user deposit
+     */
+    static UserDeposited decode(LogObject log) {
+        final List<String> topics = log.getTopics();
+        if (topics == null || topics.size() < 3) {
+            throw new IllegalArgumentException("not a TransactionDeposited log: " + topics);
+        }
+        final String from = address(topics.get(1));
+        final String to = address(topics.get(2));
+
+        final String hex = log.getData();
+        final int start = DepositEncoder.hexStart(hex);
+        final int digits = hex.length() - start;
+        final int offset = wordAsLength(hex, start, digits, 0);
+        final int length = wordAsLength(hex, start, digits, offset + 32);
+        final int opaqueStart = start + 2 * (offset + 32);
+        if (length < HEADER_LENGTH || (long) opaqueStart + 2L * length > hex.length()) {
+            throw new IllegalArgumentException("invalid TransactionDeposited opaque data length: " + length);
+        }
+
+        final byte[] header = new byte[HEADER_LENGTH];
+        DepositEncoder.decodeHex(hex, opaqueStart, opaqueStart + 2 * HEADER_LENGTH, header, 0);
+        final BigInteger mint = new BigInteger(1, header, 0, 32);
+        final BigInteger value = new BigInteger(1, header, 32, 32);
+        final BigInteger gas = new BigInteger(1, header, 64, 8);
+        final boolean isCreation = header[72] != (byte) 0;
+        final byte[] data = new byte[length - HEADER_LENGTH];
+        final int dataStart = opaqueStart + 2 * HEADER_LENGTH;
+        DepositEncoder.decodeHex(hex, dataStart, dataStart + 2 * data.length, data, 0);
+
+        final BigInteger l1BlockNum = log.getBlockNumber();
+        if (l1BlockNum == null) {
+            throw new BlockNotIncludedException();
+        }
+        final String l1BlockHash = log.getBlockHash();
+        if (l1BlockHash == null) {
+            throw new BlockNotIncludedException();
+        }
+        return new UserDeposited(
+                from, to, mint, value, gas, isCreation, data, l1BlockNum, l1BlockHash, log.getLogIndex());
+    }
+
+    private static String address(String topic) {
+        final int start = DepositEncoder.hexStart(topic);
+        if (topic.length() - start != WORD_DIGITS) {
+            throw new IllegalArgumentException("not an address topic: " + topic);
+        }
+        return "0x" + topic.substring(start + WORD_DIGITS - ADDRESS_DIGITS);
+    }
+
+    /** Reads the ABI word at the given byte position as a length or offset, rejecting oversized values. */
+    private static int wordAsLength(String hex, int start, int digits, int position) {
+        if (position < 0 || 2L * position + WORD_DIGITS > digits) {
+            throw new IllegalArgumentException("TransactionDeposited log data too short: " + digits / 2);
+        }
+        final int wordStart = start + 2 * position;
+        final int valueStart = wordStart + WORD_DIGITS - 8;
+        for (int i = wordStart; i < valueStart; i++) {
+            if (hex.charAt(i) != '0') {
+                throw new IllegalArgumentException("TransactionDeposited ABI word out of range at " + position);
+            }
+        }
+        final long value = Long.parseLong(hex, valueStart, valueStart + 8, 16);
+        if (value > Integer.MAX_VALUE / 2) {
+            throw new IllegalArgumentException("TransactionDeposited ABI word out of range at " + position);
+        }
+        return (int) value;
+    }
+}
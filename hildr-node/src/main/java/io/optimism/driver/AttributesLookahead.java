@@ -0,0 +1,274 @@
+/*
+ * Copyright 2023 281165273grape@gmail.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+
+package io.optimism.driver;
+
+import io.optimism.common.BlockInfo;
+import io.optimism.common.Epoch;
+import io.optimism.common.HildrServiceExecutionException;
+import io.optimism.derive.PurgeableIterator;
+import io.optimism.derive.State;
+import io.optimism.engine.ExecutionPayload.PayloadAttributes;
+import java.math.BigInteger;
+import java.time.Duration;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Derives payload attributes ahead of the engine. A derivation thread pulls attributes from the
+ * pipeline into a bounded queue, while the driver executes the attributes taken earlier, so the
+ * derivation work overlaps the engine round trips.
+ *
+ * <p>The hash of a derived block is only known once the engine has built it, so the derivation
+ * thread advances the safe head of the state speculatively: the derived block gets the hash the
+ * next batch claims as its parent. Every derived attributes carry that claimed parent hash, and the
+ * driver must check it against the engine's safe head before executing them, then confirm the head
+ * the engine built. All other writers of the state must hold the state lock, and the lookahead must
+ * be stopped before the pipeline or the state is purged or rewound.
+ *
+ * @author grapebaba
+ * @since 0.2.0
+ */
+class AttributesLookahead {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(AttributesLookahead.class);
+
+    /** The default max number of derived attributes waiting for the engine. */
+    static final int DEFAULT_DEPTH = 16;
+
+    private static final Duration IDLE_WAIT = Duration.ofMillis(50L);
+
+    private final PurgeableIterator<PayloadAttributes> pipeline;
+
+    private final AtomicReference<State> state;
+
+    private final BlockingQueue<DerivedAttributes> queue;
+
+    private final Runnable derivedListener;
+
+    private final ReentrantLock stateLock = new ReentrantLock();
+
+    private volatile Thread thread;
+
+    private volatile boolean running;
+
+    private volatile Throwable failure;
+
+    /**
+     * Instantiates a new attributes lookahead.
+     *
+     * @param pipeline the derivation pipeline
+     * @param state the derivation state
+     * @param depth the max number of derived attributes waiting for the engine
+     */
+    AttributesLookahead(PurgeableIterator<PayloadAttributes> pipeline, AtomicReference<State> state, int depth) {
+        this(pipeline, state, depth, () -> {});
+    }
+
+    /**
+     * Instantiates a new attributes lookahead.
+     *
+     * @param pipeline the derivation pipeline
+     * @param state the derivation state
+     * @param depth the max number of derived attributes waiting for the engine
+     * @param derivedListener notified after attributes have been derived or the derivation failed
+     */
+    AttributesLookahead(
+            PurgeableIterator<PayloadAttributes> pipeline,
+            AtomicReference<State> state,
+            int depth,
+            Runnable derivedListener) {
+        if (depth <= 0) {
+            throw new IllegalArgumentException("lookahead depth must be positive");
+        }
+        this.pipeline = pipeline;
+        this.state = state;
+        this.queue = new ArrayBlockingQueue<>(depth);
+        this.derivedListener = derivedListener;
+    }
+
+    /** Starts the derivation thread, if it is not running. */
+    void start() {
+        if (this.running) {
+            return;
+        }
+        this.running = true;
+        this.thread = Thread.ofVirtual().name("attributes-lookahead").start(this::derive);
+    }
+
+    /**
+     * Stops the derivation thread and drops all derived attributes. When this returns, the pipeline
+     * and the state are no longer touched by the lookahead, so they can be purged.
+     *
+     * @throws InterruptedException thrown if interrupted while waiting for the derivation thread
+     */
+    void stop() throws InterruptedException {
+        final Thread current = this.thread;
+        this.running = false;
+        if (current != null) {
+            current.interrupt();
+            current.join();
+            this.thread = null;
+        }
+        this.queue.clear();
+        this.failure = null;
+    }
+
+    /**
+     * Whether the derivation thread is running.
+     *
+     * @return true if running
+     */
+    boolean isRunning() {
+        return this.running;
+    }
+
+    /**
+     * Takes the next derived attributes.
+     *
+     * @return the derived attributes, or null if none is ready
+     * @throws HildrServiceExecutionException thrown if the derivation thread failed and all
+     *     attributes derived before the failure have been taken
+     */
+    DerivedAttributes poll() {
+        final DerivedAttributes derived = this.queue.poll();
+        if (derived != null) {
+            // the queue has room again
+            this.wakeUp();
+        } else if (this.failure != null) {
+            throw new HildrServiceExecutionException("attributes derivation failed", this.failure);
+        }
+        return derived;
+    }
+
+    /**
+     * Runs the given state update while holding the state lock, then wakes the derivation thread up,
+     * since the update may let it derive more attributes.
+     *
+     * @param update the state update
+     */
+    void updateState(Runnable update) {
+        this.stateLock.lock();
+        try {
+            update.run();
+        } finally {
+            this.stateLock.unlock();
+        }
+        this.wakeUp();
+    }
+
+    /**
+     * Gives the speculative safe head of the state the hash of the block the engine built for it.
+     * Batches that can not be checked against a claimed parent are only taken on a confirmed head, so
+     * the derivation waits for this once the engine has caught up.
+     *
+     * @param safeHead the safe head of the engine
+     * @param safeEpoch the safe epoch of the engine
+     */
+    void confirm(BlockInfo safeHead, Epoch safeEpoch) {
+        this.updateState(() -> this.state.updateAndGet(current -> {
+            final BlockInfo head = current.getSafeHead();
+            return head.hash() == null && head.number().equals(safeHead.number())
+                    ? current.updateSafeHead(safeHead, safeEpoch)
+                    : current;
+        }));
+    }
+
+    /** Wakes the derivation thread up after new input has been pushed to the pipeline. */
+    void wakeUp() {
+        final Thread current = this.thread;
+        if (current != null) {
+            LockSupport.unpark(current);
+        }
+    }
+
+    private void derive() {
+        try {
+            while (this.running && !Thread.currentThread().isInterrupted()) {
+                if (this.queue.remainingCapacity() == 0) {
+                    LockSupport.parkNanos(this, IDLE_WAIT.toNanos());
+                    continue;
+                }
+                final DerivedAttributes derived = this.deriveNext();
+                if (derived == null) {
+                    LockSupport.parkNanos(this, IDLE_WAIT.toNanos());
+                    continue;
+                }
+                // only this thread adds to the queue, so there is room for the put
+                this.queue.put(derived);
+                this.derivedListener.run();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Throwable e) {
+            LOGGER.error("attributes lookahead failed", e);
+            this.failure = e;
+            this.running = false;
+            this.derivedListener.run();
+        }
+    }
+
+    private DerivedAttributes deriveNext() {
+        this.stateLock.lock();
+        try {
+            if (!this.running) {
+                return null;
+            }
+            final PayloadAttributes attributes = this.pipeline.next();
+            if (attributes == null) {
+                return null;
+            }
+            // the parent is taken from the snapshot that is replaced, so a concurrent update can not slip in between
+            final BlockInfo[] parent = new BlockInfo[1];
+            this.state.updateAndGet(current -> {
+                final BlockInfo head = current.getSafeHead();
+                parent[0] = head;
+                return current.updateSafeHead(
+                        new BlockInfo(null, head.number().add(BigInteger.ONE), head.hash(), attributes.timestamp()),
+                        attributes.epoch());
+            });
+            return new DerivedAttributes(attributes, parent[0].hash());
+        } finally {
+            this.stateLock.unlock();
+        }
+    }
+
+    /**
+     * The type DerivedAttributes.
+     *
+     * @param attributes the payload attributes
+     * @param parentHash the parent hash claimed by the batch, null if no batch claimed a parent, then
+     *     the attributes do not build on any head
+     */
+    record DerivedAttributes(PayloadAttributes attributes, String parentHash) {
+
+        /**
+         * Whether the attributes build on the given safe head.
+         *
+         * @param safeHead the safe head of the engine
+         * @return true if the claimed parent hash is the hash of the safe head
+         */
+        boolean buildsOn(BlockInfo safeHead) {
+            return this.parentHash != null && this.parentHash.equalsIgnoreCase(safeHead.hash());
+        }
+    }
+}
@@ -20,7 +20,6 @@ import static java.lang.Thread.sleep;
 import static org.web3j.protocol.core.DefaultBlockParameterName.FINALIZED;
 import static org.web3j.protocol.core.DefaultBlockParameterName.LATEST;
 
-import com.google.common.collect.Iterables;
 import com.google.common.collect.Lists;
 import com.google.common.util.concurrent.AbstractExecutionThreadService;
 import io.optimism.common.BlockInfo;
@@ -28,6 +27,7 @@ import io.optimism.common.Epoch;
 import io.optimism.common.HildrServiceExecutionException;
 import io.optimism.config.Config;
 import io.optimism.derive.Pipeline;
+import io.optimism.driver.DriverScheduler.Step;
 import io.optimism.engine.Engine;
 import io.optimism.engine.EngineApi;
 import io.optimism.engine.ExecutionPayload;
@@ -38,6 +38,7 @@ import io.optimism.network.OpStackNetwork;
 import io.optimism.rpc.RpcMethod;
 import io.optimism.rpc.RpcServer;
 import io.optimism.rpc.internal.result.SyncStatusResult;
+import io.optimism.store.DerivationStore;
 import io.optimism.telemetry.InnerMetrics;
 import io.optimism.type.BlockId;
 import io.optimism.type.DepositTransaction;
@@ -49,11 +50,13 @@ import io.optimism.type.SystemConfig;
 import io.optimism.utilities.TxDecoder;
 import io.optimism.utilities.rpc.Web3jProvider;
 import io.optimism.utilities.telemetry.TracerTaskWrapper;
+import java.io.IOException;
 import java.math.BigInteger;
+import java.nio.file.Paths;
 import java.time.Duration;
 import java.util.HashMap;
 import java.util.List;
-import java.util.Optional;
+import java.util.Set;
 import java.util.concurrent.Callable;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutionException;
@@ -64,12 +67,14 @@ import java.util.concurrent.StructuredTaskScope;
 import java.util.concurrent.atomic.AtomicReference;
 import java.util.function.Function;
 import java.util.stream.Collectors;
+import org.apache.commons.lang3.StringUtils;
 import org.jctools.queues.MessagePassingQueue;
 import org.jctools.queues.MpscUnboundedXaddArrayQueue;
 import org.jetbrains.annotations.NotNull;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.web3j.protocol.Web3j;
+import org.web3j.protocol.core.DefaultBlockParameter;
 import org.web3j.protocol.core.methods.response.EthBlock;
 import org.web3j.utils.Numeric;
 
@@ -83,6 +88,13 @@ import org.web3j.utils.Numeric;
 public class Driver<E extends Engine> extends AbstractExecutionThreadService {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(Driver.class);
+
+    /** The max number of unsafe payloads inserted before the unsafe head is moved. */
+    private static final int UNSAFE_CHAIN_LENGTH = 64;
+
+    /** The max time the driver waits for a signal before it runs all steps anyway. */
+    private static final Duration IDLE_TICK = Duration.ofSeconds(1L);
+
     private final Pipeline pipeline;
 
     private final EngineDriver<E> engineDriver;
@@ -93,7 +105,7 @@ public class Driver<E extends Engine> extends AbstractExecutionThreadService {
 
     private BigInteger finalizedL1BlockNumber;
 
-    private List<ExecutionPayload> futureUnsafeBlocks;
+    private final UnsafePayloadBuffer unsafePayloads;
 
     private final AtomicReference<io.optimism.derive.State> state;
 
@@ -115,6 +127,12 @@ public class Driver<E extends Engine> extends AbstractExecutionThreadService {
 
     private OpStackNetwork opStackNetwork;
 
+    private final DerivationStore store;
+
+    private final AttributesLookahead lookahead;
+
+    private final DriverScheduler scheduler;
+
     /**
      * Instantiates a new Driver.
      *
@@ -127,7 +145,7 @@ public class Driver<E extends Engine> extends AbstractExecutionThreadService {
      * @param latch            the close notifier
      * @param config           the chain config
      * @param opStackNetwork   the op stack network
-     *
+     * @param store            the derivation store, null if persistence is disabled
      */
     @SuppressWarnings("preview")
     public Driver(
@@ -139,20 +157,30 @@ public class Driver<E extends Engine> extends AbstractExecutionThreadService {
             RpcServer rpcServer,
             CountDownLatch latch,
             Config config,
-            OpStackNetwork opStackNetwork) {
+            OpStackNetwork opStackNetwork,
+            DerivationStore store) {
         this.engineDriver = engineDriver;
+        this.store = store;
         this.rpcServer = rpcServer;
         this.pipeline = pipeline;
         this.state = state;
         this.chainWatcher = chainWatcher;
         this.unsafeBlockQueue = unsafeBlockQueue;
-        this.futureUnsafeBlocks = Lists.newArrayList();
+        this.unsafePayloads = new UnsafePayloadBuffer(
+                UnsafePayloadBuffer.DEFAULT_MAX_DISTANCE, UnsafePayloadBuffer.DEFAULT_MAX_BYTES);
         this.unfinalizedBlocks = Lists.newArrayList();
         this.executor = Executors.newVirtualThreadPerTaskExecutor();
         this.latch = latch;
         this.config = config;
         this.channelTimeout = config.chainConfig().channelTimeout();
         this.opStackNetwork = opStackNetwork;
+        this.scheduler = new DriverScheduler();
+        this.lookahead = new AttributesLookahead(
+                pipeline, state, AttributesLookahead.DEFAULT_DEPTH, () -> this.scheduler.signal(Step.SAFE_HEAD));
+        this.chainWatcher.setUpdateListener(() -> this.scheduler.signal(Step.SAFE_HEAD));
+        if (this.opStackNetwork != null) {
+            this.opStackNetwork.setPayloadListener(() -> this.scheduler.signal(Step.UNSAFE_HEAD));
+        }
         HashMap<String, Function> rpcHandler = HashMap.newHashMap(1);
         rpcHandler.put(RpcMethod.OP_SYNC_STATUS.getRpcMethodName(), unused -> this.getSyncStatus());
         rpcHandler.put(RpcMethod.OP_ROLLUP_CONFIG.getRpcMethodName(), unused -> this.getRollupConfig());
@@ -180,6 +208,14 @@ public class Driver<E extends Engine> extends AbstractExecutionThreadService {
     public static Driver<EngineApi> from(Config config, CountDownLatch latch)
             throws InterruptedException, ExecutionException {
         Web3j provider = Web3jProvider.createClient(config.l2RpcUrl());
+        DerivationStore store = StringUtils.isEmpty(config.dataDir())
+                ? null
+                : DerivationStore.open(
+                        Paths.get(config.dataDir()),
+                        config.chainConfig()
+                                .seqWindowSize()
+                                .add(config.chainConfig().channelTimeout())
+                                .multiply(BigInteger.TWO));
 
         EthBlock finalizedBlock;
         try (var scope = new StructuredTaskScope.ShutdownOnFailure()) {
@@ -194,37 +230,46 @@ public class Driver<E extends Engine> extends AbstractExecutionThreadService {
 
         HeadInfo head;
         if (finalizedBlock == null) {
-            LOGGER.warn("could not get head info. Falling back to the genesis head.");
-            head = new HeadInfo(
-                    config.chainConfig().l2Genesis(), config.chainConfig().l1StartEpoch(), BigInteger.ZERO);
+            head = fallbackHead(config, store);
         } else {
             try {
                 head = HeadInfo.from(finalizedBlock.getBlock());
             } catch (Throwable throwable) {
-                LOGGER.warn("could not get head info. Falling back to the genesis head.");
-                head = new HeadInfo(
-                        config.chainConfig().l2Genesis(), config.chainConfig().l1StartEpoch(), BigInteger.ZERO);
+                head = fallbackHead(config, store);
             }
         }
 
         BlockInfo finalizedHead = head.l2BlockInfo();
         Epoch finalizedEpoch = head.l1Epoch();
-        BigInteger finalizedSeq = head.sequenceNumber();
-
-        LOGGER.info("starting from head: {}", finalizedHead.hash());
-        BigInteger l1StartBlock =
-                finalizedEpoch.number().subtract(config.chainConfig().channelTimeout());
+        HeadInfo startHead = store == null
+                ? head
+                : resumeHead(
+                        head,
+                        store.safeHead().orElse(null),
+                        number -> store.finalizedL1Info(number)
+                                .map(stored -> stored.l1Info().blockInfo().hash())
+                                .orElse(null),
+                        number -> l2BlockHash(provider, number));
+        BlockInfo safeHead = startHead.l2BlockInfo();
+        Epoch safeEpoch = startHead.l1Epoch();
+
+        LOGGER.info("starting from head: {}", safeHead.hash());
+        BigInteger l1StartBlock = safeEpoch.number().subtract(config.chainConfig().channelTimeout());
         ChainWatcher watcher = new ChainWatcher(
                 l1StartBlock.compareTo(BigInteger.ZERO) < 0 ? BigInteger.ZERO : l1StartBlock,
-                finalizedHead.number(),
-                config);
+                safeHead.number(),
+                config,
+                store);
 
         AtomicReference<io.optimism.derive.State> state =
-                new AtomicReference<>(io.optimism.derive.State.create(finalizedHead, finalizedEpoch, config));
+                new AtomicReference<>(io.optimism.derive.State.create(safeHead, safeEpoch, config));
 
         EngineDriver<EngineApi> engineDriver = new EngineDriver<>(finalizedHead, finalizedEpoch, provider, config);
+        if (startHead != head) {
+            engineDriver.rewind(safeHead, safeEpoch);
+        }
 
-        Pipeline pipeline = new Pipeline(state, config, finalizedSeq);
+        Pipeline pipeline = new Pipeline(state, config, startHead.sequenceNumber());
 
         RpcServer rpcServer = new RpcServer(config);
         rpcServer.start();
@@ -234,7 +279,67 @@ public class Driver<E extends Engine> extends AbstractExecutionThreadService {
 
         provider.shutdown();
         return new Driver<>(
-                engineDriver, pipeline, state, watcher, unsafeBlockQueue, rpcServer, latch, config, opStackNetwork);
+                engineDriver,
+                pipeline,
+                state,
+                watcher,
+                unsafeBlockQueue,
+                rpcServer,
+                latch,
+                config,
+                opStackNetwork,
+                store);
+    }
+
+    /**
+     * Picks the head derivation restarts from. The stored safe head is taken if it is ahead of the
+     * finalized head, the L2 node still has it, and its L1 origin is a stored finalized L1 block, so
+     * no L1 reorg can have replaced the epoch it builds on.
+     *
+     * @param finalized the finalized head
+     * @param safe the stored safe head, null if none
+     * @param l1Hash gives the hash of a stored finalized L1 block, null if not stored
+     * @param l2Hash gives the hash of the L2 block with a number, null if unknown
+     * @return the head derivation restarts from
+     */
+    static HeadInfo resumeHead(
+            HeadInfo finalized,
+            HeadInfo safe,
+            Function<BigInteger, String> l1Hash,
+            Function<BigInteger, String> l2Hash) {
+        if (safe == null || safe.l2BlockInfo().number().compareTo(finalized.l2BlockInfo().number()) <= 0) {
+            return finalized;
+        }
+        final Epoch epoch = safe.l1Epoch();
+        final BlockInfo block = safe.l2BlockInfo();
+        if (!StringUtils.equalsIgnoreCase(epoch.hash(), l1Hash.apply(epoch.number()))
+                || !StringUtils.equalsIgnoreCase(block.hash(), l2Hash.apply(block.number()))) {
+            LOGGER.info("stored safe head {} can not be resumed, starting from the finalized head", block.number());
+            return finalized;
+        }
+        LOGGER.info("resuming from stored safe head: {} {}", block.number(), block.hash());
+        return safe;
+    }
+
+    private static String l2BlockHash(Web3j provider, BigInteger number) {
+        try {
+            EthBlock.Block block = provider.ethGetBlockByNumber(DefaultBlockParameter.valueOf(number), false)
+                    .send()
+                    .getBlock();
+            return block == null ? null : block.getHash();
+        } catch (IOException e) {
+            LOGGER.warn("could not get L2 block {}", number, e);
+            return null;
+        }
+    }
+
+    private static HeadInfo fallbackHead(Config config, DerivationStore store) {
+        if (store != null && store.finalizedHead().isPresent()) {
+            LOGGER.warn("could not get head info. Falling back to the stored finalized head.");
+            return store.finalizedHead().get();
+        }
+        LOGGER.warn("could not get head info. Falling back to the genesis head.");
+        return new HeadInfo(config.chainConfig().l2Genesis(), config.chainConfig().l1StartEpoch(), BigInteger.ZERO);
     }
 
     /**
@@ -326,7 +431,7 @@ public class Driver<E extends Engine> extends AbstractExecutionThreadService {
     protected void run() {
         while (isRunning() && !isShutdownTriggered) {
             try {
-                this.advance();
+                this.advance(this.scheduler.await(IDLE_TICK));
             } catch (InterruptedException e) {
                 LOGGER.error("driver run interrupted", e);
                 this.latch.countDown();
@@ -353,6 +458,8 @@ public class Driver<E extends Engine> extends AbstractExecutionThreadService {
             throw new HildrServiceExecutionException(e);
         }
         this.chainWatcher.start();
+        this.scheduler.signal(Step.SAFE_HEAD);
+        this.scheduler.signal(Step.UNSAFE_HEAD);
     }
 
     @Override
@@ -363,8 +470,21 @@ public class Driver<E extends Engine> extends AbstractExecutionThreadService {
     @Override
     protected void shutDown() {
         LOGGER.info("driver shut down.");
+        try {
+            this.lookahead.stop();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
         this.chainWatcher.stop();
         LOGGER.info("chainWatcher shut down.");
+        if (this.store != null) {
+            try {
+                this.store.close();
+                LOGGER.info("derivation store closed.");
+            } catch (IOException e) {
+                LOGGER.warn("failed to close derivation store", e);
+            }
+        }
         this.executor.shutdown();
         LOGGER.info("executor shut down.");
         this.engineDriver.stop();
@@ -382,6 +502,8 @@ public class Driver<E extends Engine> extends AbstractExecutionThreadService {
     protected void triggerShutdown() {
         LOGGER.info("driver trigger shut down");
         this.isShutdownTriggered = true;
+        // wakes the driver loop up, so it sees the shutdown
+        this.scheduler.signal(Step.FINALIZATION);
     }
 
     private void awaitEngineReady() throws InterruptedException {
@@ -390,112 +512,147 @@ public class Driver<E extends Engine> extends AbstractExecutionThreadService {
         }
     }
 
+    /**
+     * Runs the signaled steps. A step that changes the input of another step signals that step, so
+     * it runs in the same or the next round.
+     */
     @SuppressWarnings("VariableDeclarationUsageDistance")
-    private void advance() throws InterruptedException, ExecutionException {
-        try (var scope = new StructuredTaskScope.ShutdownOnFailure()) {
-            var voidFuture = scope.fork(TracerTaskWrapper.wrap((Callable<Void>) () -> {
-                Driver.this.advanceSafeHead();
-                return null;
-            }));
+    private void advance(Set<Step> steps) throws InterruptedException, ExecutionException {
+        if (steps.contains(Step.SAFE_HEAD)) {
+            try (var scope = new StructuredTaskScope.ShutdownOnFailure()) {
+                var voidFuture = scope.fork(TracerTaskWrapper.wrap((Callable<Void>) () -> {
+                    Driver.this.advanceSafeHead();
+                    return null;
+                }));
+
+                scope.join();
+                scope.throwIfFailed();
+                voidFuture.get();
+            }
+        }
 
-            scope.join();
-            scope.throwIfFailed();
-            voidFuture.get();
+        if (steps.contains(Step.UNSAFE_HEAD)) {
+            try (var scope = new StructuredTaskScope.ShutdownOnFailure()) {
+                var voidFuture = scope.fork(TracerTaskWrapper.wrap((Callable<Void>) () -> {
+                    Driver.this.advanceUnsafeHead();
+                    return null;
+                }));
+                scope.join();
+                scope.throwIfFailed();
+                voidFuture.get();
+            }
         }
 
-        try (var scope = new StructuredTaskScope.ShutdownOnFailure()) {
-            var voidFuture = scope.fork(TracerTaskWrapper.wrap((Callable<Void>) () -> {
-                Driver.this.advanceUnsafeHead();
-                return null;
-            }));
-            scope.join();
-            scope.throwIfFailed();
-            voidFuture.get();
+        if (steps.contains(Step.FINALIZATION)) {
+            this.updateFinalized();
         }
-        this.updateFinalized();
         this.updateMetrics();
     }
 
     private void advanceSafeHead() throws ExecutionException, InterruptedException {
         this.handleNextBlockUpdate();
-        this.updateStateHead();
 
-        for (PayloadAttributes payloadAttributes = this.pipeline.next();
-                payloadAttributes != null;
-                payloadAttributes = this.pipeline.next()) {
-            BigInteger l1InclusionBlock = payloadAttributes.l1InclusionBlock();
-            if (l1InclusionBlock == null) {
-                throw new InvalidAttributesException("attributes without inclusion block");
+        this.lookahead.start();
+        for (AttributesLookahead.DerivedAttributes derived = this.lookahead.poll();
+                derived != null;
+                derived = this.lookahead.poll()) {
+            if (!derived.buildsOn(this.engineDriver.getSafeHead())) {
+                this.rejectLookahead(derived);
+                return;
             }
+            this.executeAttributes(derived.attributes());
+            // once the engine caught up, the lookahead may continue from the block the engine built
+            this.lookahead.confirm(this.engineDriver.getSafeHead(), this.engineDriver.getSafeEpoch());
+        }
+    }
 
-            BigInteger seqNumber = payloadAttributes.seqNumber();
-            if (seqNumber == null) {
-                throw new InvalidAttributesException("attributes without seq number");
-            }
+    private void executeAttributes(PayloadAttributes payloadAttributes)
+            throws ExecutionException, InterruptedException {
+        BigInteger l1InclusionBlock = payloadAttributes.l1InclusionBlock();
+        if (l1InclusionBlock == null) {
+            throw new InvalidAttributesException("attributes without inclusion block");
+        }
 
-            Driver.this.engineDriver.handleAttributes(payloadAttributes);
+        BigInteger seqNumber = payloadAttributes.seqNumber();
+        if (seqNumber == null) {
+            throw new InvalidAttributesException("attributes without seq number");
+        }
 
-            LOGGER.info(
-                    "safe head updated: {} {}",
-                    Driver.this.engineDriver.getSafeHead().number(),
-                    Driver.this.engineDriver.getSafeHead().hash());
+        Driver.this.engineDriver.handleAttributes(payloadAttributes);
 
-            final BlockInfo newSafeHead = Driver.this.engineDriver.getSafeHead();
-            final Epoch newSafeEpoch = Driver.this.engineDriver.getSafeEpoch();
+        LOGGER.info(
+                "safe head updated: {} {}",
+                Driver.this.engineDriver.getSafeHead().number(),
+                Driver.this.engineDriver.getSafeHead().hash());
 
-            Driver.this.state.getAndUpdate(state -> {
-                state.updateSafeHead(newSafeHead, newSafeEpoch);
-                return state;
-            });
+        final BlockInfo newSafeHead = Driver.this.engineDriver.getSafeHead();
+        final Epoch newSafeEpoch = Driver.this.engineDriver.getSafeEpoch();
 
-            UnfinalizedBlock newUnfinalizedBlock =
-                    new UnfinalizedBlock(newSafeHead, newSafeEpoch, l1InclusionBlock, seqNumber);
+        UnfinalizedBlock newUnfinalizedBlock =
+                new UnfinalizedBlock(newSafeHead, newSafeEpoch, l1InclusionBlock, seqNumber);
 
-            Driver.this.unfinalizedBlocks.add(newUnfinalizedBlock);
+        Driver.this.unfinalizedBlocks.add(newUnfinalizedBlock);
+        // the engine may have reset the unsafe head, and the new safe block may be finalized already
+        Driver.this.scheduler.signal(Step.UNSAFE_HEAD);
+        Driver.this.scheduler.signal(Step.FINALIZATION);
+        if (Driver.this.store != null) {
+            Driver.this.store.putSafeHead(new HeadInfo(newSafeHead, newSafeEpoch, seqNumber));
         }
     }
 
+    /**
+     * The derived attributes were built from a batch whose parent is not the safe head. The state and
+     * the pipeline are moved back to the safe head of the engine, so the batches taken ahead are
+     * checked against its hash again and the batch is dropped as it would have been without the
+     * lookahead. The engine and the L1 watcher are not touched.
+     */
+    private void rejectLookahead(AttributesLookahead.DerivedAttributes derived) throws InterruptedException {
+        final BlockInfo safeHead = this.engineDriver.getSafeHead();
+        LOGGER.warn(
+                "derived attributes at {} do not build on safe head {}, re-deriving from it",
+                derived.attributes().timestamp(),
+                safeHead.hash());
+        this.lookahead.stop();
+        this.updateStateHead();
+        this.pipeline.rewind(safeHead);
+        this.scheduler.signal(Step.SAFE_HEAD);
+    }
+
     private void advanceUnsafeHead() throws ExecutionException, InterruptedException {
+        final BigInteger head = this.engineDriver.getUnsafeHead().number();
+        this.unsafePayloads.prune(head);
         for (ExecutionPayload payload = this.unsafeBlockQueue.poll();
                 payload != null;
                 payload = this.unsafeBlockQueue.poll()) {
-            this.futureUnsafeBlocks.add(payload);
+            this.unsafePayloads.add(payload, head);
         }
 
-        this.futureUnsafeBlocks = this.futureUnsafeBlocks.stream()
-                .filter(payload -> {
-                    BigInteger unsafeBlockNum = payload.blockNumber();
-                    BigInteger syncedBlockNum =
-                            Driver.this.engineDriver.getUnsafeHead().number();
-                    return unsafeBlockNum.compareTo(syncedBlockNum) > 0
-                            && unsafeBlockNum.subtract(syncedBlockNum).compareTo(BigInteger.valueOf(1024L)) < 0;
-                })
-                .collect(Collectors.toList());
-
-        Optional<ExecutionPayload> nextUnsafePayload = Iterables.tryFind(
-                        this.futureUnsafeBlocks, input -> input.parentHash()
-                                .equalsIgnoreCase(
-                                        Driver.this.engineDriver.getUnsafeHead().hash()))
-                .toJavaUtil();
-
-        if (nextUnsafePayload.isPresent()) {
-            this.engineDriver.handleUnsafePayload(nextUnsafePayload.get());
+        // a chain of consecutive payloads is inserted with a single forkchoice update
+        for (List<ExecutionPayload> chain = this.nextUnsafeChain(); !chain.isEmpty(); chain = this.nextUnsafeChain()) {
+            this.engineDriver.handleUnsafePayloads(chain);
         }
     }
 
+    private List<ExecutionPayload> nextUnsafeChain() {
+        return this.unsafePayloads.takeChain(this.engineDriver.getUnsafeHead().hash(), UNSAFE_CHAIN_LENGTH);
+    }
+
     private void updateStateHead() {
-        this.state.getAndUpdate(state -> {
-            state.updateSafeHead(this.engineDriver.getSafeHead(), this.engineDriver.getSafeEpoch());
-            return state;
-        });
+        final BlockInfo safeHead = this.engineDriver.getSafeHead();
+        final Epoch safeEpoch = this.engineDriver.getSafeEpoch();
+        this.state.updateAndGet(state -> state.updateSafeHead(safeHead, safeEpoch));
     }
 
     @SuppressWarnings("preview")
-    private void handleNextBlockUpdate() {
+    private void handleNextBlockUpdate() throws InterruptedException {
         BlockUpdate next = this.chainWatcher.getBlockUpdateQueue().poll();
         if (next == null) {
             return;
         }
+        if (!this.chainWatcher.getBlockUpdateQueue().isEmpty()) {
+            // one update per round, the rest in the next rounds
+            this.scheduler.signal(Step.SAFE_HEAD);
+        }
 
         switch (next) {
             case BlockUpdate.NewBlock l1info -> {
@@ -506,50 +663,120 @@ public class Driver<E extends Engine> extends AbstractExecutionThreadService {
                                 .collect(Collectors.toList()),
                         num);
 
-                Driver.this.state.getAndUpdate(state -> {
-                    state.updateL1Info(((BlockUpdate.NewBlock) next).get());
-                    return state;
-                });
+                Driver.this.lookahead.updateState(
+                        () -> Driver.this.state.updateAndGet(state -> state.updateL1Info(l1info.get())));
             }
             case BlockUpdate.Reorg ignored -> {
                 LOGGER.warn("reorg detected, purging pipeline");
-                Driver.this.unfinalizedBlocks.clear();
+                Driver.this.purge();
+                Driver.this.scheduler.signal(Step.UNSAFE_HEAD);
+            }
+            case BlockUpdate.ShallowReorg reorg -> {
+                Driver.this.rewind(reorg.get());
+                Driver.this.scheduler.signal(Step.UNSAFE_HEAD);
+            }
+            case BlockUpdate.FinalityUpdate num -> {
+                Driver.this.finalizedL1BlockNumber = num.get();
+                Driver.this.scheduler.signal(Step.FINALIZATION);
+            }
+            default -> throw new IllegalArgumentException("unknown block update type");
+        }
+    }
+
+    private void purge() throws InterruptedException {
+        // the lookahead must not touch the pipeline or the state while they are purged
+        this.lookahead.stop();
+        this.unfinalizedBlocks.clear();
 
-                Driver.this.chainWatcher.restart(
-                        Driver.this.engineDriver.getFinalizedEpoch().number().subtract(this.channelTimeout),
-                        Driver.this.engineDriver.getFinalizedHead().number());
+        this.chainWatcher.restart(
+                this.engineDriver.getFinalizedEpoch().number().subtract(this.channelTimeout),
+                this.engineDriver.getFinalizedHead().number());
 
-                Driver.this.state.getAndUpdate(state -> {
-                    state.purge(
-                            Driver.this.engineDriver.getFinalizedHead(), Driver.this.engineDriver.getFinalizedEpoch());
-                    return state;
-                });
+        final BlockInfo finalizedHead = this.engineDriver.getFinalizedHead();
+        final Epoch finalizedEpoch = this.engineDriver.getFinalizedEpoch();
+        this.state.updateAndGet(state -> state.purge(finalizedHead, finalizedEpoch));
 
-                Driver.this.pipeline.purge();
-                Driver.this.engineDriver.reorg();
+        this.pipeline.purge();
+        this.engineDriver.reorg();
+    }
+
+    /**
+     * Rewinds derivation to the last safe block derived only from L1 blocks up to the common
+     * ancestor. Derivation restarts at a block with sequence number zero, so the pipeline can
+     * continue its epoch. Falls back to the full purge when no such block is left unfinalized.
+     */
+    private void rewind(BlockInfo commonAncestor) throws InterruptedException {
+        final int resumeIndex = resumeIndex(this.unfinalizedBlocks, commonAncestor.number());
+        if (resumeIndex < 0) {
+            LOGGER.warn("no unfinalized safe block below L1 block {}, purging pipeline", commonAncestor.number());
+            this.purge();
+            return;
+        }
+        final UnfinalizedBlock resume = this.unfinalizedBlocks.get(resumeIndex);
+        LOGGER.warn(
+                "L1 reorg above block {}, rewinding safe head to {} {}",
+                commonAncestor.number(),
+                resume.head().number(),
+                resume.head().hash());
+
+        this.lookahead.stop();
+        this.unfinalizedBlocks.subList(resumeIndex + 1, this.unfinalizedBlocks.size()).clear();
+
+        this.chainWatcher.restart(
+                resume.epoch().number().subtract(this.channelTimeout).max(BigInteger.ZERO),
+                resume.head().number());
+
+        this.state.updateAndGet(state -> state.purge(resume.head(), resume.epoch()));
+
+        this.pipeline.purge();
+        this.engineDriver.rewind(resume.head(), resume.epoch());
+    }
+
+    /**
+     * Finds the unfinalized safe block to rewind to after an L1 reorg above the common ancestor.
+     *
+     * @param unfinalizedBlocks the unfinalized safe blocks, oldest first
+     * @param commonAncestor the number of the common ancestor
+     * @return the index of the last block with sequence number zero whose batches were all included
+     *     at or below the common ancestor, or -1 if there is none and the pipeline must be purged
+     */
+    static int resumeIndex(List<UnfinalizedBlock> unfinalizedBlocks, BigInteger commonAncestor) {
+        int resumeIndex = -1;
+        for (int i = 0; i < unfinalizedBlocks.size(); i++) {
+            final UnfinalizedBlock block = unfinalizedBlocks.get(i);
+            if (block.l1InclusionBlock().compareTo(commonAncestor) > 0) {
+                break;
+            }
+            if (block.seqNumber().signum() == 0) {
+                resumeIndex = i;
             }
-            case BlockUpdate.FinalityUpdate num -> Driver.this.finalizedL1BlockNumber = num.get();
-            default -> throw new IllegalArgumentException("unknown block update type");
         }
+        return resumeIndex;
     }
 
     private void updateFinalized() {
-        UnfinalizedBlock newFinalized = Iterables.getLast(
-                this.unfinalizedBlocks.stream()
-                        .filter(unfinalizedBlock ->
-                                unfinalizedBlock.l1InclusionBlock().compareTo(Driver.this.finalizedL1BlockNumber) <= 0
-                                        && unfinalizedBlock.seqNumber().compareTo(BigInteger.ZERO) == 0)
-                        .collect(Collectors.toList()),
-                null);
+        if (this.finalizedL1BlockNumber == null) {
+            return;
+        }
+        final long finalizedL1 = this.finalizedL1BlockNumber.longValue();
+        UnfinalizedBlock newFinalized = null;
+        for (UnfinalizedBlock unfinalizedBlock : this.unfinalizedBlocks) {
+            if (unfinalizedBlock.l1InclusionBlock().longValue() <= finalizedL1
+                    && unfinalizedBlock.seqNumber().signum() == 0) {
+                newFinalized = unfinalizedBlock;
+            }
+        }
 
         if (newFinalized != null) {
             this.engineDriver.updateFinalized(newFinalized.head(), newFinalized.epoch());
+            if (this.store != null) {
+                this.store.putFinalizedHead(
+                        new HeadInfo(newFinalized.head(), newFinalized.epoch(), newFinalized.seqNumber()));
+            }
         }
 
-        this.unfinalizedBlocks = this.unfinalizedBlocks.stream()
-                .filter(unfinalizedBlock ->
-                        unfinalizedBlock.l1InclusionBlock().compareTo(Driver.this.finalizedL1BlockNumber) > 0)
-                .collect(Collectors.toList());
+        this.unfinalizedBlocks.removeIf(
+                unfinalizedBlock -> unfinalizedBlock.l1InclusionBlock().longValue() <= finalizedL1);
     }
 
     private void updateMetrics() {
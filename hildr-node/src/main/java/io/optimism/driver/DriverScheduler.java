@@ -0,0 +1,130 @@
+/*
+ * Copyright 2023 281165273grape@gmail.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+
+package io.optimism.driver;
+
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Timer;
+import java.time.Duration;
+import java.util.EnumSet;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Wakes the driver loop up when there is work for one of its steps. Producers signal the step their
+ * input is for, and the driver thread parks until a step has been signaled. Signals of a step that
+ * arrive before the driver picks it up are coalesced into one run, and the time from the first of
+ * them to the pick up is recorded as the driver_signal_latency timer.
+ *
+ * <p>Only one thread may wait for steps, any thread may signal.
+ *
+ * @author grapebaba
+ * @since 0.2.0
+ */
+final class DriverScheduler {
+
+    /** The steps of the driver loop. */
+    enum Step {
+        /** Handles L1 block updates and executes derived attributes. */
+        SAFE_HEAD,
+        /** Inserts buffered unsafe payloads. */
+        UNSAFE_HEAD,
+        /** Finalizes safe blocks included in finalized L1 blocks. */
+        FINALIZATION;
+
+        private int bit() {
+            return 1 << this.ordinal();
+        }
+    }
+
+    private static final Step[] STEPS = Step.values();
+
+    private final AtomicInteger pending = new AtomicInteger();
+
+    private final AtomicLongArray signaledAt = new AtomicLongArray(STEPS.length);
+
+    private final Timer[] latency = new Timer[STEPS.length];
+
+    private volatile Thread waiter;
+
+    /** Instantiates a new driver scheduler. */
+    DriverScheduler() {
+        for (Step step : STEPS) {
+            this.latency[step.ordinal()] = Timer.builder("driver_signal_latency")
+                    .description("time from the first signal of a driver step to the run of the step")
+                    .tag("step", step.name().toLowerCase(Locale.ROOT))
+                    .register(Metrics.globalRegistry);
+        }
+    }
+
+    /**
+     * Signals that there is work for a step.
+     *
+     * @param step the step
+     */
+    void signal(Step step) {
+        // only the first signal of a burst sets the time, the pick up resets it
+        this.signaledAt.compareAndSet(step.ordinal(), 0L, System.nanoTime());
+        final int previous = this.pending.getAndUpdate(steps -> steps | step.bit());
+        if ((previous & step.bit()) == 0) {
+            final Thread current = this.waiter;
+            if (current != null) {
+                LockSupport.unpark(current);
+            }
+        }
+    }
+
+    /**
+     * Waits until at least one step has been signaled. When nothing is signaled within the timeout,
+     * all steps are returned, so a missed signal can not stall the driver.
+     *
+     * @param timeout the max time to wait
+     * @return the signaled steps
+     * @throws InterruptedException thrown if interrupted while waiting
+     */
+    Set<Step> await(Duration timeout) throws InterruptedException {
+        this.waiter = Thread.currentThread();
+        final long deadline = System.nanoTime() + timeout.toNanos();
+        int steps;
+        while ((steps = this.pending.getAndSet(0)) == 0) {
+            final long remaining = deadline - System.nanoTime();
+            if (remaining <= 0L) {
+                return EnumSet.allOf(Step.class);
+            }
+            LockSupport.parkNanos(this, remaining);
+            if (Thread.interrupted()) {
+                throw new InterruptedException("interrupted while waiting for driver signals");
+            }
+        }
+        final long now = System.nanoTime();
+        final Set<Step> signaled = EnumSet.noneOf(Step.class);
+        for (Step step : STEPS) {
+            if ((steps & step.bit()) != 0) {
+                signaled.add(step);
+                final long at = this.signaledAt.getAndSet(step.ordinal(), 0L);
+                if (at != 0L) {
+                    this.latency[step.ordinal()].record(now - at, TimeUnit.NANOSECONDS);
+                }
+            }
+        }
+        return signaled;
+    }
+}
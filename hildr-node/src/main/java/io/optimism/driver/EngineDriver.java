@@ -28,8 +28,7 @@ import io.optimism.engine.ExecutionPayload.Status;
 import io.optimism.engine.ForkChoiceUpdate;
 import io.optimism.engine.ForkChoiceUpdate.ForkchoiceState;
 import io.optimism.engine.OpEthExecutionPayload;
-import io.optimism.engine.OpEthForkChoiceUpdate;
-import io.optimism.engine.OpEthPayloadStatus;
+import io.optimism.utilities.rpc.BatchRpcClient;
 import io.optimism.utilities.telemetry.TracerTaskWrapper;
 import java.math.BigInteger;
 import java.util.List;
@@ -42,6 +41,7 @@ import org.slf4j.LoggerFactory;
 import org.web3j.crypto.Hash;
 import org.web3j.protocol.Web3j;
 import org.web3j.protocol.core.DefaultBlockParameter;
+import org.web3j.protocol.core.Request;
 import org.web3j.protocol.core.methods.response.EthBlock;
 import org.web3j.protocol.core.methods.response.EthBlock.TransactionObject;
 
@@ -59,6 +59,8 @@ public class EngineDriver<E extends Engine> {
 
     private Web3j web3j;
 
+    private BatchRpcClient batchClient;
+
     private BigInteger blockTime;
 
     private BlockInfo unsafeHead;
@@ -88,6 +90,7 @@ public class EngineDriver<E extends Engine> {
         this.safeHead = finalizedHead;
         this.safeEpoch = finalizedEpoch;
         this.web3j = web3j;
+        this.batchClient = new BatchRpcClient(web3j);
         this.blockTime = config.chainConfig().blockTime();
     }
 
@@ -185,6 +188,44 @@ public class EngineDriver<E extends Engine> {
         LOGGER.info("head updated: {} {}", this.unsafeHead.number(), this.unsafeHead.hash());
     }
 
+    /**
+     * Handles a run of consecutive unsafe payloads, the first one building on the unsafe head. The
+     * payloads are inserted one after another without forkchoice updates in between, and a single
+     * forkchoice update then moves the unsafe head to the last valid payload. From the first payload
+     * the engine does not report as VALID on, for instance INVALID or SYNCING, the payloads are
+     * handled one by one as by {@link #handleUnsafePayload(ExecutionPayload)}.
+     *
+     * @param payloads the consecutive payloads
+     * @throws ExecutionException the execution exception
+     * @throws InterruptedException the interrupted exception
+     */
+    public void handleUnsafePayloads(List<ExecutionPayload> payloads) throws ExecutionException, InterruptedException {
+        if (payloads.size() <= 1) {
+            for (ExecutionPayload payload : payloads) {
+                this.handleUnsafePayload(payload);
+            }
+            return;
+        }
+        int inserted = 0;
+        for (ExecutionPayload payload : payloads) {
+            Status status = this.engine.newPayloadAsync(payload).get().getPayloadStatus().getStatus();
+            if (status != Status.VALID) {
+                LOGGER.debug("payload {} status {}, handling the rest one by one", payload.blockNumber(), status);
+                break;
+            }
+            inserted++;
+        }
+        if (inserted > 0) {
+            this.unsafeHead = BlockInfo.from(payloads.get(inserted - 1));
+            this.updateForkchoice();
+            LOGGER.info(
+                    "head updated by {} payloads: {} {}", inserted, this.unsafeHead.number(), this.unsafeHead.hash());
+        }
+        for (ExecutionPayload payload : payloads.subList(inserted, payloads.size())) {
+            this.handleUnsafePayload(payload);
+        }
+    }
+
     /**
      * Update finalized.
      *
@@ -203,6 +244,18 @@ public class EngineDriver<E extends Engine> {
         this.safeEpoch = this.finalizedEpoch;
     }
 
+    /**
+     * Rewinds the safe and unsafe heads to a safe block that is not affected by a reorg.
+     *
+     * @param head the safe block
+     * @param epoch the epoch of the safe block
+     */
+    public void rewind(BlockInfo head, Epoch epoch) {
+        this.unsafeHead = head;
+        this.safeHead = head;
+        this.safeEpoch = epoch;
+    }
+
     /**
      * Engine ready completable future.
      *
@@ -212,11 +265,10 @@ public class EngineDriver<E extends Engine> {
     public boolean engineReady() throws InterruptedException {
         ForkchoiceState forkchoiceState = createForkchoiceState();
 
-        try (var scope = new StructuredTaskScope.ShutdownOnFailure()) {
-            var res = scope.fork(
-                    TracerTaskWrapper.wrap(() -> EngineDriver.this.engine.forkchoiceUpdated(forkchoiceState, null)));
-            scope.join();
-            return scope.exception().isEmpty() && !res.get().hasError();
+        try {
+            return !this.engine.forkchoiceUpdatedAsync(forkchoiceState, null).get().hasError();
+        } catch (ExecutionException e) {
+            return false;
         }
     }
 
@@ -250,11 +302,11 @@ public class EngineDriver<E extends Engine> {
         BigInteger timeDiff = timestamp.subtract(this.finalizedHead.timestamp());
         BigInteger blocks = timeDiff.divide(this.blockTime);
         BigInteger blockNumber = this.finalizedHead.number().add(blocks);
+        Request<?, EthBlock> request = web3j.ethGetBlockByNumber(DefaultBlockParameter.valueOf(blockNumber), true);
 
         try (var scope = new StructuredTaskScope.ShutdownOnFailure()) {
-            StructuredTaskScope.Subtask<EthBlock> ethBlockFuture = scope.fork(TracerTaskWrapper.wrap(
-                    () -> web3j.ethGetBlockByNumber(DefaultBlockParameter.valueOf(blockNumber), true)
-                            .send()));
+            StructuredTaskScope.Subtask<EthBlock> ethBlockFuture =
+                    scope.fork(TracerTaskWrapper.wrap(() -> batchClient.send(request)));
 
             scope.join();
             scope.throwIfFailed();
@@ -280,34 +332,21 @@ public class EngineDriver<E extends Engine> {
     private void updateForkchoice() throws InterruptedException, ExecutionException {
         ForkchoiceState forkchoiceState = createForkchoiceState();
 
-        try (var scope = new StructuredTaskScope.ShutdownOnFailure()) {
-            StructuredTaskScope.Subtask<OpEthForkChoiceUpdate> forkChoiceUpdateFuture = scope.fork(
-                    TracerTaskWrapper.wrap(() -> EngineDriver.this.engine.forkchoiceUpdated(forkchoiceState, null)));
-
-            scope.join();
-            scope.throwIfFailed();
-            ForkChoiceUpdate forkChoiceUpdate = forkChoiceUpdateFuture.get().getForkChoiceUpdate();
+        ForkChoiceUpdate forkChoiceUpdate =
+                this.engine.forkchoiceUpdatedAsync(forkchoiceState, null).get().getForkChoiceUpdate();
 
-            if (forkChoiceUpdate.payloadStatus().getStatus() != Status.VALID) {
-                throw new ForkchoiceUpdateException(String.format(
-                        "could not accept new forkchoice: %s",
-                        forkChoiceUpdate.payloadStatus().getValidationError()));
-            }
+        if (forkChoiceUpdate.payloadStatus().getStatus() != Status.VALID) {
+            throw new ForkchoiceUpdateException(String.format(
+                    "could not accept new forkchoice: %s",
+                    forkChoiceUpdate.payloadStatus().getValidationError()));
         }
     }
 
     private void pushPayload(ExecutionPayload payload) throws InterruptedException, ExecutionException {
-        try (var scope = new StructuredTaskScope.ShutdownOnFailure()) {
-            StructuredTaskScope.Subtask<OpEthPayloadStatus> payloadStatusFuture =
-                    scope.fork(TracerTaskWrapper.wrap(() -> EngineDriver.this.engine.newPayload(payload)));
+        PayloadStatus payloadStatus = this.engine.newPayloadAsync(payload).get().getPayloadStatus();
 
-            scope.join();
-            scope.throwIfFailed();
-            PayloadStatus payloadStatus = payloadStatusFuture.get().getPayloadStatus();
-
-            if (payloadStatus.getStatus() != Status.VALID && payloadStatus.getStatus() != Status.ACCEPTED) {
-                throw new InvalidExecutionPayloadException("the provided checkpoint payload is invalid");
-            }
+        if (payloadStatus.getStatus() != Status.VALID && payloadStatus.getStatus() != Status.ACCEPTED) {
+            throw new InvalidExecutionPayloadException("the provided checkpoint payload is invalid");
         }
     }
 
@@ -315,16 +354,8 @@ public class EngineDriver<E extends Engine> {
             throws InterruptedException, ExecutionException {
         ForkchoiceState forkchoiceState = createForkchoiceState();
 
-        ForkChoiceUpdate forkChoiceUpdate;
-        try (var scope = new StructuredTaskScope.ShutdownOnFailure()) {
-            StructuredTaskScope.Subtask<OpEthForkChoiceUpdate> forkChoiceUpdateFuture =
-                    scope.fork(TracerTaskWrapper.wrap(
-                            () -> EngineDriver.this.engine.forkchoiceUpdated(forkchoiceState, attributes)));
-
-            scope.join();
-            scope.throwIfFailed();
-            forkChoiceUpdate = forkChoiceUpdateFuture.get().getForkChoiceUpdate();
-        }
+        ForkChoiceUpdate forkChoiceUpdate =
+                this.engine.forkchoiceUpdatedAsync(forkchoiceState, attributes).get().getForkChoiceUpdate();
 
         if (forkChoiceUpdate.payloadStatus().getStatus() != Status.VALID) {
             throw new InvalidPayloadAttributesException();
@@ -335,16 +366,7 @@ public class EngineDriver<E extends Engine> {
             throw new PayloadIdNotReturnedException();
         }
 
-        OpEthExecutionPayload res;
-        try (var scope1 = new StructuredTaskScope.ShutdownOnFailure()) {
-            StructuredTaskScope.Subtask<OpEthExecutionPayload> payloadFuture =
-                    scope1.fork(TracerTaskWrapper.wrap(() -> EngineDriver.this.engine.getPayload(payloadId)));
-
-            scope1.join();
-            scope1.throwIfFailed();
-            res = payloadFuture.get();
-        }
-        return res;
+        return this.engine.getPayloadAsync(payloadId).get();
     }
 
     private void skipAttributes(PayloadAttributes attributes, EthBlock block)
@@ -0,0 +1,230 @@
+/*
+ * Copyright 2023 281165273grape@gmail.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+
+package io.optimism.driver;
+
+import io.optimism.engine.ExecutionPayload;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Buffer of unsafe payloads received ahead of the unsafe head. Payloads are indexed by block hash,
+ * by parent hash and by block number, so duplicate gossip copies are dropped on arrival and the
+ * payload building on the unsafe head is found with a single lookup. The buffer keeps only payloads
+ * within a block distance of the unsafe head and below a total size, evicting the payloads farthest
+ * from the head first.
+ *
+ * <p>The buffer is not thread safe, it is only used by the driver loop.
+ *
+ * @author grapebaba
+ * @since 0.2.0
+ */
+final class UnsafePayloadBuffer {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(UnsafePayloadBuffer.class);
+
+    /** The default max distance between a buffered payload and the unsafe head. */
+    static final long DEFAULT_MAX_DISTANCE = 1024L;
+
+    /** The default max estimated size of all buffered payloads. */
+    static final long DEFAULT_MAX_BYTES = 128L * 1024 * 1024;
+
+    /** The estimated size of a payload without its transactions. */
+    private static final int PAYLOAD_OVERHEAD = 1024;
+
+    /** The estimated size of a transaction besides its hex characters. */
+    private static final int TRANSACTION_OVERHEAD = 64;
+
+    private final long maxDistance;
+
+    private final long maxBytes;
+
+    private final Map<String, Entry> byHash = new HashMap<>();
+
+    private final Map<String, List<Entry>> byParent = new HashMap<>();
+
+    private final NavigableMap<BigInteger, List<Entry>> byNumber = new TreeMap<>();
+
+    private long bytes;
+
+    /**
+     * Instantiates a new unsafe payload buffer.
+     *
+     * @param maxDistance the max distance between a buffered payload and the unsafe head
+     * @param maxBytes the max estimated size of all buffered payloads
+     */
+    UnsafePayloadBuffer(long maxDistance, long maxBytes) {
+        if (maxDistance <= 0 || maxBytes <= 0) {
+            throw new IllegalArgumentException("max distance and max bytes must be positive");
+        }
+        this.maxDistance = maxDistance;
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * Adds a payload, unless it is already buffered, not ahead of the unsafe head or too far ahead.
+     * Payloads farthest from the head are evicted while the buffer is over its size.
+     *
+     * @param payload the payload
+     * @param head the unsafe head number
+     * @return true if the payload is buffered
+     */
+    boolean add(ExecutionPayload payload, BigInteger head) {
+        final String hash = key(payload.blockHash());
+        if (this.byHash.containsKey(hash) || !this.inWindow(payload.blockNumber(), head)) {
+            return false;
+        }
+        final Entry entry = new Entry(payload, hash, key(payload.parentHash()), sizeOf(payload));
+        this.byHash.put(hash, entry);
+        this.byParent.computeIfAbsent(entry.parent(), unused -> new ArrayList<>(1)).add(entry);
+        this.byNumber.computeIfAbsent(payload.blockNumber(), unused -> new ArrayList<>(1)).add(entry);
+        this.bytes += entry.size();
+        while (this.bytes > this.maxBytes) {
+            final Entry farthest = this.byNumber.lastEntry().getValue().getLast();
+            LOGGER.debug(
+                    "unsafe payload buffer full, evict payload {} {}",
+                    farthest.payload().blockNumber(),
+                    farthest.payload().blockHash());
+            this.remove(farthest);
+        }
+        return this.byHash.containsKey(hash);
+    }
+
+    /**
+     * Takes the payload building on the given unsafe head. Competing payloads of the same parent
+     * are taken in arrival order.
+     *
+     * @param headHash the unsafe head hash
+     * @return the payload, or null if none builds on the head
+     */
+    ExecutionPayload next(String headHash) {
+        final List<Entry> children = this.byParent.get(key(headHash));
+        if (children == null) {
+            return null;
+        }
+        final Entry entry = children.getFirst();
+        this.remove(entry);
+        return entry.payload();
+    }
+
+    /**
+     * Takes the run of consecutive payloads building on the given unsafe head.
+     *
+     * @param headHash the unsafe head hash
+     * @param maxLength the max number of payloads to take
+     * @return the payloads in block order, empty if none builds on the head
+     */
+    List<ExecutionPayload> takeChain(String headHash, int maxLength) {
+        final List<ExecutionPayload> chain = new ArrayList<>();
+        for (ExecutionPayload next = this.next(headHash);
+                next != null;
+                next = chain.size() < maxLength ? this.next(next.blockHash()) : null) {
+            chain.add(next);
+        }
+        return chain;
+    }
+
+    /**
+     * Evicts the payloads that are not ahead of the unsafe head or too far ahead of it.
+     *
+     * @param head the unsafe head number
+     */
+    void prune(BigInteger head) {
+        while (!this.byNumber.isEmpty() && this.byNumber.firstKey().compareTo(head) <= 0) {
+            this.removeAll(this.byNumber.firstEntry().getValue());
+        }
+        while (!this.byNumber.isEmpty() && !this.inWindow(this.byNumber.lastKey(), head)) {
+            this.removeAll(this.byNumber.lastEntry().getValue());
+        }
+    }
+
+    /**
+     * Gets the number of buffered payloads.
+     *
+     * @return the number of payloads
+     */
+    int size() {
+        return this.byHash.size();
+    }
+
+    /**
+     * Gets the estimated size of all buffered payloads.
+     *
+     * @return the size in bytes
+     */
+    long bytes() {
+        return this.bytes;
+    }
+
+    /** Removes all payloads. */
+    void clear() {
+        this.byHash.clear();
+        this.byParent.clear();
+        this.byNumber.clear();
+        this.bytes = 0;
+    }
+
+    private boolean inWindow(BigInteger number, BigInteger head) {
+        final BigInteger distance = number.subtract(head);
+        return distance.signum() > 0 && distance.compareTo(BigInteger.valueOf(this.maxDistance)) < 0;
+    }
+
+    private void removeAll(List<Entry> entries) {
+        for (Entry entry : List.copyOf(entries)) {
+            this.remove(entry);
+        }
+    }
+
+    private void remove(Entry entry) {
+        this.byHash.remove(entry.hash());
+        unlink(this.byParent, entry.parent(), entry);
+        unlink(this.byNumber, entry.payload().blockNumber(), entry);
+        this.bytes -= entry.size();
+    }
+
+    private static <K> void unlink(Map<K, List<Entry>> index, K key, Entry entry) {
+        final List<Entry> entries = index.get(key);
+        entries.remove(entry);
+        if (entries.isEmpty()) {
+            index.remove(key);
+        }
+    }
+
+    private static String key(String hash) {
+        return hash.toLowerCase(Locale.ROOT);
+    }
+
+    private static long sizeOf(ExecutionPayload payload) {
+        long size = PAYLOAD_OVERHEAD;
+        if (payload.transactions() != null) {
+            for (String tx : payload.transactions()) {
+                size += TRANSACTION_OVERHEAD + tx.length();
+            }
+        }
+        return size;
+    }
+
+    private record Entry(ExecutionPayload payload, String hash, String parent, long size) {}
+}
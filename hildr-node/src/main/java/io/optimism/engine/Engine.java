@@ -20,6 +20,7 @@ import io.optimism.engine.ExecutionPayload.PayloadAttributes;
 import io.optimism.engine.ForkChoiceUpdate.ForkchoiceState;
 import java.io.IOException;
 import java.math.BigInteger;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * The type Engine.
@@ -90,4 +91,33 @@ public interface Engine {
      *     href="https://github.com/ethereum/execution-apis/blob/main/src/engine/paris.md#engine_getpayloadv1">engine_getPayloadV1</a>
      */
     OpEthExecutionPayload getPayload(BigInteger payloadId) throws IOException;
+
+    /**
+     * Asynchronous variant of {@link #forkchoiceUpdated(ForkchoiceState, PayloadAttributes)}. The
+     * returned future completes exceptionally with an {@link IOException} if the call failed.
+     *
+     * @param forkchoiceState the forkchoice state
+     * @param payloadAttributes the payload attributes
+     * @return the future of the fork choice update
+     */
+    CompletableFuture<OpEthForkChoiceUpdate> forkchoiceUpdatedAsync(
+            ForkchoiceState forkchoiceState, PayloadAttributes payloadAttributes);
+
+    /**
+     * Asynchronous variant of {@link #newPayload(ExecutionPayload)}. The returned future completes
+     * exceptionally with an {@link IOException} if the call failed.
+     *
+     * @param executionPayload the execution payload
+     * @return the future of the payload status
+     */
+    CompletableFuture<OpEthPayloadStatus> newPayloadAsync(ExecutionPayload executionPayload);
+
+    /**
+     * Asynchronous variant of {@link #getPayload(BigInteger)}. The returned future completes
+     * exceptionally with an {@link IOException} if the call failed.
+     *
+     * @param payloadId the payload id
+     * @return the future of the payload
+     */
+    CompletableFuture<OpEthExecutionPayload> getPayloadAsync(BigInteger payloadId);
 }
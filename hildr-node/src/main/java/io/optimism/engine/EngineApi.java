@@ -16,29 +16,48 @@
 
 package io.optimism.engine;
 
-import io.jsonwebtoken.Jwts;
-import io.jsonwebtoken.SignatureAlgorithm;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import io.jsonwebtoken.security.Keys;
 import io.optimism.engine.ExecutionPayload.PayloadAttributes;
 import io.optimism.engine.ForkChoiceUpdate.ForkchoiceState;
 import java.io.IOException;
+import java.io.InputStream;
 import java.math.BigInteger;
 import java.security.Key;
+import java.time.Clock;
 import java.time.Instant;
 import java.util.Arrays;
 import java.util.Collections;
-import java.util.Date;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import okhttp3.Call;
+import okhttp3.Callback;
+import okhttp3.ConnectionPool;
+import okhttp3.Dispatcher;
+import okhttp3.MediaType;
+import okhttp3.OkHttpClient;
+import okhttp3.RequestBody;
+import okhttp3.ResponseBody;
+import okio.BufferedSink;
 import org.apache.commons.lang3.StringUtils;
 import org.slf4j.Logger;
+import org.web3j.protocol.ObjectMapperFactory;
 import org.web3j.protocol.core.Request;
+import org.web3j.protocol.core.Response;
 import org.web3j.protocol.core.methods.response.EthChainId;
-import org.web3j.protocol.http.HttpService;
 import org.web3j.utils.Numeric;
 
 /**
  * The type EngineApi.
  *
+ * <p>Calls are sent asynchronously over a keep-alive connection pool to the engine. Request and
+ * response bodies are streamed through Jackson, and the JWT is signed once and reused until it
+ * gets close to the end of its validity window. Every call carries its own authorization header,
+ * so calls may overlap.
+ *
  * @author zhouxing
  * @since 0.1.0
  */
@@ -58,10 +77,24 @@ public class EngineApi implements Engine {
     /** The default engine api authentication port. */
     public static final Integer DEFAULT_AUTH_PORT = 8851;
 
-    /** HttpService web3jService. */
-    private final HttpService web3jService;
+    private static final MediaType JSON_MEDIA_TYPE = MediaType.get("application/json; charset=utf-8");
+
+    private static final int MAX_IDLE_CONNECTIONS = 8;
+
+    private static final long KEEP_ALIVE_MINUTES = 5L;
+
+    private static final int MAX_REQUESTS_PER_HOST = 16;
+
+    // the engine api spec allows up to 8 seconds for forkchoiceUpdated and newPayload
+    private static final long CALL_TIMEOUT_SECONDS = 8L;
+
+    private final String baseUrl;
 
-    private final Key key;
+    private final OkHttpClient httpClient;
+
+    private final ObjectMapper objectMapper;
+
+    private final JwtCache jwtCache;
 
     /**
      * Creates an engine api from environment variables.
@@ -99,8 +132,29 @@ public class EngineApi implements Engine {
      * @param secretStr secret
      */
     public EngineApi(final String baseUrl, final String secretStr) {
-        this.key = Keys.hmacShaKeyFor(Numeric.hexStringToByteArray(secretStr));
-        this.web3jService = new HttpService(baseUrl);
+        this(baseUrl, secretStr, Clock.systemUTC());
+    }
+
+    /**
+     * Creates a new [`EngineApi`] with a base url, secret and the clock of the JWT issued at times.
+     *
+     * @param baseUrl baseUrl
+     * @param secretStr secret
+     * @param clock the clock
+     */
+    EngineApi(final String baseUrl, final String secretStr, final Clock clock) {
+        final Key key = Keys.hmacShaKeyFor(Numeric.hexStringToByteArray(secretStr));
+        this.baseUrl = baseUrl;
+        this.jwtCache = new JwtCache(key, clock);
+        this.objectMapper = ObjectMapperFactory.getObjectMapper();
+        final Dispatcher dispatcher = new Dispatcher();
+        dispatcher.setMaxRequestsPerHost(MAX_REQUESTS_PER_HOST);
+        this.httpClient = new OkHttpClient.Builder()
+                .connectionPool(new ConnectionPool(MAX_IDLE_CONNECTIONS, KEEP_ALIVE_MINUTES, TimeUnit.MINUTES))
+                .dispatcher(dispatcher)
+                .callTimeout(CALL_TIMEOUT_SECONDS, TimeUnit.SECONDS)
+                .retryOnConnectionFailure(true)
+                .build();
     }
 
     /**
@@ -123,49 +177,49 @@ public class EngineApi implements Engine {
      * @return the string
      */
     protected static String generateJws(Key key) {
-        Instant now = Instant.now();
-        Date nowDate = Date.from(now);
-        Date expirationDate = Date.from(now.plusSeconds(60));
-        return Jwts.builder()
-                .setIssuedAt(nowDate)
-                .setExpiration(expirationDate)
-                .signWith(key, SignatureAlgorithm.HS256)
-                .compact();
+        return JwtCache.sign(key, Instant.now());
     }
 
     @Override
     public OpEthForkChoiceUpdate forkchoiceUpdated(ForkchoiceState forkchoiceState, PayloadAttributes payloadAttributes)
             throws IOException {
-        web3jService.addHeader("authorization", String.format("Bearer %1$s", generateJws(key)));
-        Request<?, OpEthForkChoiceUpdate> r = new Request<>(
+        return await(this.forkchoiceUpdatedAsync(forkchoiceState, payloadAttributes));
+    }
+
+    @Override
+    public OpEthPayloadStatus newPayload(ExecutionPayload executionPayload) throws IOException {
+        return await(this.newPayloadAsync(executionPayload));
+    }
+
+    @Override
+    public OpEthExecutionPayload getPayload(BigInteger payloadId) throws IOException {
+        return await(this.getPayloadAsync(payloadId));
+    }
+
+    @Override
+    public CompletableFuture<OpEthForkChoiceUpdate> forkchoiceUpdatedAsync(
+            ForkchoiceState forkchoiceState, PayloadAttributes payloadAttributes) {
+        return this.call(
                 ENGINE_FORKCHOICE_UPDATED_V1,
                 Arrays.asList(forkchoiceState, payloadAttributes != null ? payloadAttributes.toReq() : null),
-                web3jService,
                 OpEthForkChoiceUpdate.class);
-        return r.send();
     }
 
     @Override
-    public OpEthPayloadStatus newPayload(ExecutionPayload executionPayload) throws IOException {
-        web3jService.addHeader("authorization", String.format("Bearer %1$s", generateJws(key)));
-        Request<?, OpEthPayloadStatus> r = new Request<>(
+    public CompletableFuture<OpEthPayloadStatus> newPayloadAsync(ExecutionPayload executionPayload) {
+        return this.call(
                 ENGINE_NEW_PAYLOAD_V1,
                 Collections.singletonList(executionPayload != null ? executionPayload.toReq() : null),
-                web3jService,
                 OpEthPayloadStatus.class);
-        return r.send();
     }
 
     @Override
-    public OpEthExecutionPayload getPayload(BigInteger payloadId) throws IOException {
-        web3jService.addHeader("authorization", String.format("Bearer %1$s", generateJws(key)));
-        Request<?, OpEthExecutionPayload> r = new Request<>(
+    public CompletableFuture<OpEthExecutionPayload> getPayloadAsync(BigInteger payloadId) {
+        return this.call(
                 ENGINE_GET_PAYLOAD_V1,
                 Collections.singletonList(
                         payloadId != null ? Numeric.toHexStringWithPrefixZeroPadded(payloadId, 16) : null),
-                web3jService,
                 OpEthExecutionPayload.class);
-        return r.send();
     }
 
     /**
@@ -175,15 +229,90 @@ public class EngineApi implements Engine {
      */
     public boolean isAvailable() {
         LOGGER.debug("Checking if EngineApi is available");
-        web3jService.addHeader("authorization", String.format("Bearer %1$s", generateJws(key)));
-        Request<?, EthChainId> r = new Request<>("eth_chainId", List.of(), web3jService, EthChainId.class);
         EthChainId chainId;
         try {
-            chainId = r.send();
+            chainId = await(this.call("eth_chainId", List.of(), EthChainId.class));
         } catch (IOException e) {
             LOGGER.error("EngineApi is not available", e);
             return false;
         }
         return chainId != null;
     }
+
+    private <T extends Response<?>> CompletableFuture<T> call(String method, List<?> params, Class<T> responseType) {
+        final Request<?, T> request = new Request<>(method, params, null, responseType);
+        final okhttp3.Request httpRequest = new okhttp3.Request.Builder()
+                .url(this.baseUrl)
+                .header("Authorization", "Bearer " + this.jwtCache.get())
+                .post(new JsonRequestBody(this.objectMapper, request))
+                .build();
+        final CompletableFuture<T> future = new CompletableFuture<>();
+        final Call call = this.httpClient.newCall(httpRequest);
+        call.enqueue(new Callback() {
+            @Override
+            public void onFailure(Call call, IOException e) {
+                future.completeExceptionally(e);
+            }
+
+            @Override
+            public void onResponse(Call call, okhttp3.Response response) {
+                try (ResponseBody body = response.body()) {
+                    if (!response.isSuccessful()) {
+                        throw new IOException(
+                                String.format("engine api %s failed with http status %d", method, response.code()));
+                    }
+                    try (InputStream in = body.byteStream()) {
+                        future.complete(EngineApi.this.objectMapper.readValue(in, responseType));
+                    }
+                } catch (IOException | RuntimeException e) {
+                    future.completeExceptionally(e);
+                }
+            }
+        });
+        // cancelling the future cancels the http call
+        future.whenComplete((unused, throwable) -> {
+            if (future.isCancelled()) {
+                call.cancel();
+            }
+        });
+        return future;
+    }
+
+    private static <T> T await(CompletableFuture<T> future) throws IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            future.cancel(true);
+            throw new IOException("interrupted while waiting for the engine api", e);
+        } catch (ExecutionException | CompletionException e) {
+            if (e.getCause() instanceof IOException ioException) {
+                throw ioException;
+            }
+            throw new IOException(e.getCause());
+        }
+    }
+
+    /** Writes a JSON-RPC request straight into the http request stream. */
+    private static final class JsonRequestBody extends RequestBody {
+
+        private final ObjectMapper objectMapper;
+
+        private final Request<?, ?> request;
+
+        JsonRequestBody(ObjectMapper objectMapper, Request<?, ?> request) {
+            this.objectMapper = objectMapper;
+            this.request = request;
+        }
+
+        @Override
+        public MediaType contentType() {
+            return JSON_MEDIA_TYPE;
+        }
+
+        @Override
+        public void writeTo(BufferedSink sink) throws IOException {
+            this.objectMapper.writeValue(sink.outputStream(), this.request);
+        }
+    }
 }
@@ -0,0 +1,96 @@
+/*
+ * Copyright 2023 281165273grape@gmail.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package io.optimism.engine;
+
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.SignatureAlgorithm;
+import java.security.Key;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Date;
+
+/**
+ * Caches the engine api JWT. The engine accepts a token whose issued at time is within 60 seconds
+ * of its own clock, so a signed token is reused for a while and replaced well before it could be
+ * rejected.
+ *
+ * @author zhouxing
+ * @since 0.2.0
+ */
+final class JwtCache {
+
+    /** The validity window of a token, as checked by the engine. */
+    static final Duration VALIDITY = Duration.ofSeconds(60L);
+
+    /** The age after which a new token is signed. */
+    static final Duration ROTATE_AFTER = Duration.ofSeconds(30L);
+
+    private final Key key;
+
+    private final Clock clock;
+
+    private volatile Token token;
+
+    /**
+     * Instantiates a new jwt cache.
+     *
+     * @param key the jwt secret key
+     * @param clock the clock
+     */
+    JwtCache(Key key, Clock clock) {
+        this.key = key;
+        this.clock = clock;
+    }
+
+    /**
+     * Gets a valid token, signing a new one if the cached token is too old.
+     *
+     * @return the token
+     */
+    String get() {
+        final Instant now = this.clock.instant();
+        Token current = this.token;
+        if (current == null || !now.isBefore(current.issuedAt().plus(ROTATE_AFTER))) {
+            synchronized (this) {
+                current = this.token;
+                if (current == null || !now.isBefore(current.issuedAt().plus(ROTATE_AFTER))) {
+                    current = new Token(sign(this.key, now), now);
+                    this.token = current;
+                }
+            }
+        }
+        return current.jws();
+    }
+
+    /**
+     * Signs a token issued at the given time.
+     *
+     * @param key the jwt secret key
+     * @param issuedAt the issued at time
+     * @return the token
+     */
+    static String sign(Key key, Instant issuedAt) {
+        return Jwts.builder()
+                .setIssuedAt(Date.from(issuedAt))
+                .setExpiration(Date.from(issuedAt.plus(VALIDITY)))
+                .signWith(key, SignatureAlgorithm.HS256)
+                .compact();
+    }
+
+    private record Token(String jws, Instant issuedAt) {}
+}
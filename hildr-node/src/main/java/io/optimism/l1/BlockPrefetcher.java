@@ -0,0 +1,188 @@
+/*
+ * Copyright 2023 281165273grape@gmail.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package io.optimism.l1;
+
+import io.optimism.common.BlockNotIncludedException;
+import io.optimism.utilities.rpc.BatchRpcClient;
+import io.optimism.utilities.rpc.RpcPriority;
+import java.math.BigInteger;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.web3j.protocol.Web3j;
+import org.web3j.protocol.Web3jService;
+import org.web3j.protocol.core.Request;
+
+/**
+ * Keeps a bounded window of L1 block requests in flight ahead of the ingestion cursor. Blocks are
+ * fetched with JSON-RPC batches and handed out strictly in block number order, so the caller keeps
+ * its sequential view of the chain.
+ *
+ * @author thinkAfCod
+ * @since 0.2.0
+ */
+class BlockPrefetcher {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(BlockPrefetcher.class);
+
+    private final Web3jService service;
+
+    private final String batchInbox;
+
+    private final BatchRpcClient batchClient;
+
+    private final ExecutorService executor;
+
+    private final int windowSize;
+
+    private final Deque<PendingBlock> window;
+
+    private BigInteger nextToFetch;
+
+    /**
+     * Instantiates a new block prefetcher.
+     *
+     * @param client the L1 client
+     * @param service the web3j service of the L1 client
+     * @param batchInbox the batch inbox address, other transactions are dropped while decoding
+     * @param executor the executor running the fetch tasks
+     * @param windowSize the max number of blocks in flight
+     */
+    BlockPrefetcher(Web3j client, Web3jService service, String batchInbox, ExecutorService executor, int windowSize) {
+        this.service = service;
+        this.batchInbox = batchInbox;
+        this.batchClient = new BatchRpcClient(client);
+        this.executor = executor;
+        this.windowSize = windowSize;
+        this.window = new ArrayDeque<>(windowSize);
+    }
+
+    /**
+     * Schedules fetches until the window is full or the head block has been reached. Missing blocks
+     * are requested as one JSON-RPC batch once at least half of the window is free, so the caller
+     * still has buffered blocks while the next batch is in flight.
+     *
+     * @param from the next block number the caller will take
+     * @param head the highest block number that may be fetched
+     */
+    void fill(BigInteger from, BigInteger head) {
+        if (this.window.isEmpty() || this.nextToFetch == null) {
+            this.nextToFetch = from;
+        }
+        final int free = this.windowSize - this.window.size();
+        if (free <= 0 || (!this.window.isEmpty() && free < this.windowSize / 2)) {
+            return;
+        }
+        final List<BigInteger> numbers = new ArrayList<>(free);
+        while (numbers.size() < free && this.nextToFetch.compareTo(head) <= 0) {
+            numbers.add(this.nextToFetch);
+            this.nextToFetch = this.nextToFetch.add(BigInteger.ONE);
+        }
+        if (numbers.isEmpty()) {
+            return;
+        }
+        // a batch that stops short of the head belongs to a backfill, it must not hold up tip calls
+        final RpcPriority priority =
+                numbers.get(numbers.size() - 1).compareTo(head) < 0 ? RpcPriority.BULK : RpcPriority.TIP;
+        final CompletableFuture<List<InboxBlock>> batch = new CompletableFuture<>();
+        // the task is kept to interrupt the batch call on clear, cancelling the future does not stop it
+        final Future<?> fetch = this.executor.submit(() -> {
+            try {
+                batch.complete(this.fetch(numbers, priority));
+            } catch (Throwable e) {
+                batch.completeExceptionally(e);
+            }
+        });
+        for (int i = 0; i < numbers.size(); i++) {
+            final int index = i;
+            this.window.addLast(new PendingBlock(numbers.get(i), batch.thenApply(blocks -> blocks.get(index)), fetch));
+        }
+    }
+
+    /**
+     * Takes the block with the given number, waiting for its fetch to complete. If the window does
+     * not start at the requested block, it is discarded and the block is fetched directly.
+     *
+     * @param number the block number
+     * @return the block with its batch inbox transactions
+     * @throws ExecutionException thrown if failed to get the block from the client
+     * @throws InterruptedException thrown if interrupted while waiting for the block
+     */
+    InboxBlock take(BigInteger number) throws ExecutionException, InterruptedException {
+        PendingBlock head = this.window.peekFirst();
+        if (head == null || !head.number().equals(number)) {
+            if (head != null) {
+                LOGGER.debug("prefetch window starts at {}, but block {} requested", head.number(), number);
+            }
+            this.clear();
+            this.fill(number, number);
+            head = this.window.peekFirst();
+        }
+        this.window.pollFirst();
+        try {
+            return head.block().get();
+        } catch (ExecutionException e) {
+            // a failed batch fails every block of it, so fetch them again
+            this.clear();
+            throw e;
+        }
+    }
+
+    /** Cancels all in flight fetches and interrupts their batch calls. */
+    void clear() {
+        this.window.forEach(pending -> {
+            pending.fetch().cancel(true);
+            pending.block().cancel(true);
+        });
+        this.window.clear();
+        this.nextToFetch = null;
+    }
+
+    private List<InboxBlock> fetch(List<BigInteger> numbers, RpcPriority priority) {
+        LOGGER.debug("will prefetch blocks: {} -> {}", numbers.get(0), numbers.get(numbers.size() - 1));
+        final List<Request<?, InboxBlock.BlockResponse>> requests = numbers.stream()
+                .<Request<?, InboxBlock.BlockResponse>>map(
+                        number -> L1BlockDecoder.request(this.service, number, this.batchInbox))
+                .collect(Collectors.toList());
+        final List<InboxBlock.BlockResponse> responses;
+        try {
+            responses = priority.call(() -> this.batchClient.sendAll(requests));
+        } catch (Exception e) {
+            throw new CompletionException(e);
+        }
+        return responses.stream()
+                .map(response -> {
+                    InboxBlock block = response.getBlock();
+                    if (block == null || block.number() == null) {
+                        throw new BlockNotIncludedException();
+                    }
+                    return block;
+                })
+                .collect(Collectors.toList());
+    }
+
+    private record PendingBlock(BigInteger number, CompletableFuture<InboxBlock> block, Future<?> fetch) {}
+}
@@ -16,6 +16,7 @@
 
 package io.optimism.l1;
 
+import io.optimism.common.BlockInfo;
 import java.math.BigInteger;
 
 /**
@@ -83,4 +84,28 @@ public abstract class BlockUpdate {
         /** Reorg constructor. */
         public Reorg() {}
     }
+
+    /** update Reorg of unfinalized blocks only, above a known common ancestor. */
+    public static class ShallowReorg extends BlockUpdate {
+
+        private final BlockInfo commonAncestor;
+
+        /**
+         * ShallowReorg constructor.
+         *
+         * @param commonAncestor the last block shared by the old and the new chain
+         */
+        public ShallowReorg(BlockInfo commonAncestor) {
+            this.commonAncestor = commonAncestor;
+        }
+
+        /**
+         * get common ancestor block.
+         *
+         * @return common ancestor block
+         */
+        public BlockInfo get() {
+            return commonAncestor;
+        }
+    }
 }
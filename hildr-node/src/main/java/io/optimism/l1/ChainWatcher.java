@@ -18,6 +18,7 @@ package io.optimism.l1;
 
 import io.optimism.common.BlockInfo;
 import io.optimism.config.Config;
+import io.optimism.store.DerivationStore;
 import java.math.BigInteger;
 import java.util.concurrent.Executors;
 import org.jctools.queues.MessagePassingQueue;
@@ -35,6 +36,8 @@ public class ChainWatcher {
     private volatile MessagePassingQueue<BlockUpdate> blockUpdateQueue;
     private volatile InnerWatcher innerWatcher;
     private final Config config;
+    private final DerivationStore store;
+    private volatile Runnable updateListener = () -> {};
 
     /**
      * Gets block update queue.
@@ -53,14 +56,38 @@ public class ChainWatcher {
      * @param config the global config
      */
     public ChainWatcher(BigInteger l1StartBlock, BigInteger l2StartBlock, Config config) {
+        this(l1StartBlock, l2StartBlock, config, null);
+    }
+
+    /**
+     * the ChainWatcher constructor.
+     *
+     * @param l1StartBlock the start block number of l1
+     * @param l2StartBlock the start block number of l2
+     * @param config the global config
+     * @param store the derivation store, null if persistence is disabled
+     */
+    public ChainWatcher(BigInteger l1StartBlock, BigInteger l2StartBlock, Config config, DerivationStore store) {
         this.config = config;
+        this.store = store;
         this.blockUpdateQueue = new MpscGrowableArrayQueue<>(1024 * 4, 1024 * 64);
         this.innerWatcher = new InnerWatcher(
                 this.config,
                 this.blockUpdateQueue,
                 l1StartBlock,
                 l2StartBlock,
-                Executors.newVirtualThreadPerTaskExecutor());
+                Executors.newVirtualThreadPerTaskExecutor(),
+                this.store);
+        this.innerWatcher.setUpdateListener(this::notifyUpdate);
+    }
+
+    /**
+     * Sets the listener notified after each block update has been put to the block update queue.
+     *
+     * @param updateListener the listener
+     */
+    public void setUpdateListener(Runnable updateListener) {
+        this.updateListener = updateListener;
     }
 
     /** start ChainWatcher. */
@@ -87,7 +114,9 @@ public class ChainWatcher {
                 this.blockUpdateQueue,
                 l1StartBlock,
                 l2StartBlock,
-                Executors.newVirtualThreadPerTaskExecutor());
+                Executors.newVirtualThreadPerTaskExecutor(),
+                this.store);
+        this.innerWatcher.setUpdateListener(this::notifyUpdate);
         this.start();
     }
 
@@ -144,4 +173,8 @@ public class ChainWatcher {
     public Config.SystemConfig getSystemConfig() {
         return this.innerWatcher.getSystemConfig();
     }
+
+    private void notifyUpdate() {
+        this.updateListener.run();
+    }
 }
@@ -0,0 +1,88 @@
+/*
+ * Copyright 2023 281165273grape@gmail.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+
+package io.optimism.l1;
+
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+import io.optimism.common.BlockInfo;
+import java.math.BigInteger;
+import java.util.List;
+import org.web3j.protocol.core.Response;
+
+/**
+ * The parts of an L1 block the derivation reads: the header fields of {@link L1Info.L1BlockInfo} and
+ * the transactions sent to the batch inbox.
+ *
+ * @param number the block number
+ * @param hash the block hash
+ * @param parentHash the parent block hash
+ * @param timestamp the block timestamp
+ * @param baseFeePerGas the base fee per gas, null before London
+ * @param mixHash the mix hash (prevrandao)
+ * @param inboxTransactions the transactions sent to the batch inbox
+ * @author thinkAfCod
+ * @since 0.2.0
+ */
+public record InboxBlock(
+        BigInteger number,
+        String hash,
+        String parentHash,
+        BigInteger timestamp,
+        BigInteger baseFeePerGas,
+        String mixHash,
+        List<InboxTransaction> inboxTransactions) {
+
+    /**
+     * Gets the block info.
+     *
+     * @return the block info
+     */
+    public BlockInfo toBlockInfo() {
+        return new BlockInfo(this.hash, this.number, this.parentHash, this.timestamp);
+    }
+
+    /**
+     * The type InboxTransaction.
+     *
+     * @param from the sender
+     * @param to the recipient
+     * @param input the calldata
+     */
+    public record InboxTransaction(String from, String to, String input) {}
+
+    /** The eth_getBlockByNumber response, decoded by {@link L1BlockDecoder}. */
+    public static class BlockResponse extends Response<InboxBlock> {
+
+        /** Instantiates a new block response. */
+        public BlockResponse() {}
+
+        @Override
+        @JsonDeserialize(using = L1BlockDecoder.Deserializer.class)
+        public void setResult(InboxBlock result) {
+            super.setResult(result);
+        }
+
+        /**
+         * Gets the block.
+         *
+         * @return the block, null if the block is not known
+         */
+        public InboxBlock getBlock() {
+            return this.getResult();
+        }
+    }
+}
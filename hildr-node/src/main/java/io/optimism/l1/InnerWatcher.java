@@ -24,19 +24,19 @@ import io.optimism.common.BlockNotIncludedException;
 import io.optimism.common.HildrServiceExecutionException;
 import io.optimism.config.Config;
 import io.optimism.config.Config.SystemConfig;
-import io.optimism.derive.stages.Attributes;
 import io.optimism.derive.stages.Attributes.UserDeposited;
 import io.optimism.driver.L1AttributesDepositedTxNotFoundException;
 import io.optimism.l1.BlockUpdate.FinalityUpdate;
+import io.optimism.store.DerivationStore;
+import io.optimism.store.StoredL1Info;
 import io.optimism.utilities.rpc.Web3jProvider;
 import io.optimism.utilities.telemetry.Logging;
 import io.reactivex.disposables.Disposable;
 import java.math.BigInteger;
-import java.time.Duration;
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.HashMap;
 import java.util.List;
+import java.util.Optional;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Executor;
 import java.util.concurrent.ExecutorService;
@@ -45,21 +45,11 @@ import org.java_websocket.exceptions.WebsocketNotConnectedException;
 import org.jctools.queues.MessagePassingQueue;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.web3j.abi.EventEncoder;
-import org.web3j.abi.TypeReference;
-import org.web3j.abi.datatypes.Address;
-import org.web3j.abi.datatypes.Bytes;
-import org.web3j.abi.datatypes.Event;
-import org.web3j.abi.datatypes.generated.Uint256;
-import org.web3j.abi.datatypes.generated.Uint8;
 import org.web3j.protocol.Web3j;
+import org.web3j.protocol.Web3jService;
 import org.web3j.protocol.core.DefaultBlockParameter;
 import org.web3j.protocol.core.DefaultBlockParameterName;
-import org.web3j.protocol.core.methods.request.EthFilter;
 import org.web3j.protocol.core.methods.response.EthBlock;
-import org.web3j.protocol.core.methods.response.EthLog;
-import org.web3j.protocol.core.methods.response.EthLog.LogObject;
-import org.web3j.protocol.core.methods.response.EthLog.LogResult;
 import org.web3j.protocol.websocket.events.NewHead;
 import org.web3j.tuples.generated.Tuple2;
 import org.web3j.utils.Numeric;
@@ -75,18 +65,8 @@ public class InnerWatcher extends AbstractExecutionThreadService {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(InnerWatcher.class);
 
-    private static final String CONFIG_UPDATE_TOPIC = EventEncoder.encode(new Event(
-            "ConfigUpdate",
-            Arrays.asList(
-                    new TypeReference<Uint256>() {}, new TypeReference<Uint8>() {}, new TypeReference<Bytes>() {})));
-
-    private static final String TRANSACTION_DEPOSITED_TOPIC = EventEncoder.encode(new Event(
-            "TransactionDeposited",
-            Arrays.asList(
-                    new TypeReference<Address>() {},
-                    new TypeReference<Address>() {},
-                    new TypeReference<Uint256>() {},
-                    new TypeReference<Bytes>() {})));
+    /** Max number of L1 blocks fetched ahead of the current block. */
+    private static final int PREFETCH_WINDOW_SIZE = 32;
 
     private final ExecutorService executor;
 
@@ -98,6 +78,21 @@ public class InnerWatcher extends AbstractExecutionThreadService {
 
     private final Web3j wsProvider;
 
+    /** Fetches L1 blocks ahead of the current block. */
+    private final BlockPrefetcher prefetcher;
+
+    /** Indexes the deposit and system config logs. */
+    private final L1LogIndexer logIndexer;
+
+    /** Store of the emitted L1 infos, null if persistence is disabled. */
+    private final DerivationStore store;
+
+    /** Whether finalized L1 infos are still replayed from the store. */
+    private boolean replaying;
+
+    /** Most recent block replayed from the store. */
+    private BlockInfo lastReplayed;
+
     private BigInteger l1StartBlock;
 
     private BigInteger l2StartBlock;
@@ -105,6 +100,9 @@ public class InnerWatcher extends AbstractExecutionThreadService {
     /** Channel to send block updates. */
     private final MessagePassingQueue<BlockUpdate> blockUpdateQueue;
 
+    /** Notified after a block update has been sent. */
+    private volatile Runnable updateListener = () -> {};
+
     /** Most recent ingested block. */
     private BigInteger currentBlock;
 
@@ -122,26 +120,15 @@ public class InnerWatcher extends AbstractExecutionThreadService {
 
     private volatile BlockInfo l1Safe;
 
-    private volatile BlockInfo l1Head;
+    /** Tracks the head and paces the safe and finalized block lookups. */
+    private final L1HeadTracker headTracker = new L1HeadTracker();
 
     /** List of blocks that have not been finalized yet. */
     private List<BlockInfo> unfinalizedBlocks;
 
-    /**
-     * Mapping from block number to user deposits. Past block deposits are removed as they are no
-     * longer needed.
-     */
-    private final HashMap<BigInteger, List<Attributes.UserDeposited>> deposits;
-
     /** Current system config value. */
     private Config.SystemConfig systemConfig;
 
-    /**
-     * Next system config if it exists and the L1 block number it activates BigInteger,
-     * Config.SystemConfig.
-     */
-    private volatile Tuple2<BigInteger, Config.SystemConfig> systemConfigUpdate;
-
     private boolean isShutdownTriggered = false;
 
     private Disposable l1HeadListener;
@@ -163,10 +150,43 @@ public class InnerWatcher extends AbstractExecutionThreadService {
             BigInteger l1StartBlock,
             BigInteger l2StartBlock,
             ExecutorService executor) {
+        this(config, queue, l1StartBlock, l2StartBlock, executor, null);
+    }
+
+    /**
+     * create a InnerWatcher instance.
+     *
+     * @param config the global config
+     * @param queue the Queue to send block updates
+     * @param l1StartBlock the start block number of l1
+     * @param l2StartBlock the start block number of l2
+     * @param executor the executor for async request
+     * @param store the derivation store, null if persistence is disabled
+     */
+    public InnerWatcher(
+            Config config,
+            MessagePassingQueue<BlockUpdate> queue,
+            BigInteger l1StartBlock,
+            BigInteger l2StartBlock,
+            ExecutorService executor,
+            DerivationStore store) {
         this.executor = executor;
+        this.store = store;
         this.config = config;
-        this.provider = Web3jProvider.createClient(config.l1RpcUrl());
+        final Tuple2<Web3j, Web3jService> l1Client = Web3jProvider.create(config.l1RpcUrl());
+        this.provider = l1Client.component1();
         this.wsProvider = Web3jProvider.createClient(config.l1WsRpcUrl());
+        this.prefetcher = new BlockPrefetcher(
+                this.provider,
+                l1Client.component2(),
+                config.chainConfig().batchInbox(),
+                executor,
+                PREFETCH_WINDOW_SIZE);
+        this.logIndexer = new L1LogIndexer(
+                this.provider,
+                executor,
+                config.chainConfig().depositContract(),
+                config.chainConfig().systemConfigContract());
         this.l1StartBlock = l1StartBlock;
         this.l2StartBlock = l2StartBlock;
         this.devnet = config.devnet() != null && config.devnet();
@@ -176,8 +196,6 @@ public class InnerWatcher extends AbstractExecutionThreadService {
         this.headBlock = BigInteger.ZERO;
         this.finalizedBlock = BigInteger.ZERO;
         this.unfinalizedBlocks = new ArrayList<>();
-        this.deposits = new HashMap<>();
-        this.systemConfigUpdate = new Tuple2<>(l1StartBlock, null);
     }
 
     private void getMetadataFromL2(BigInteger l2StartBlock) {
@@ -222,7 +240,7 @@ public class InnerWatcher extends AbstractExecutionThreadService {
                             BigInteger number = Numeric.toBigInt(header.getNumber());
                             String parentHash = header.getParentHash();
                             BigInteger time = Numeric.toBigInt(header.getTimestamp());
-                            l1Head = new BlockInfo(hash, number, parentHash, time);
+                            this.headTracker.onNewHead(new BlockInfo(hash, number, parentHash, time));
                         },
                         t -> {
                             if (t instanceof WebsocketNotConnectedException) {
@@ -239,6 +257,34 @@ public class InnerWatcher extends AbstractExecutionThreadService {
      * @throws InterruptedException thrown if executor has been shutdown
      */
     public void tryIngestBlock() throws ExecutionException, InterruptedException {
+        if (this.replaying && this.replayStoredBlock()) {
+            return;
+        }
+        this.refreshTags();
+        this.headBlock = this.headTracker.update(this.currentBlock, () -> this.getHead().getNumber());
+
+        if (this.currentBlock.compareTo(this.headBlock) <= 0) {
+            LOGGER.debug(
+                    "will update system config with newest log: currentBlock({}) <= headBlock({})",
+                    this.currentBlock,
+                    this.headBlock);
+            updateSystemConfigWithNewestLog();
+        } else {
+            LOGGER.debug(
+                    "will wait for a new head: currentBlock({}) > headBlock({})", this.currentBlock, this.headBlock);
+            this.headTracker.awaitNewHead();
+        }
+    }
+
+    /**
+     * Looks the safe and finalized blocks up once per L1 slot. They only move once per slot, so a
+     * lookup per ingested block would mostly return the same blocks again.
+     */
+    private void refreshTags() throws ExecutionException, InterruptedException {
+        if (!this.headTracker.isTagRefreshDue()) {
+            return;
+        }
+
         final EthBlock.Block l1SafeBlock = this.getSafe();
         this.l1Safe = BlockInfo.from(l1SafeBlock);
 
@@ -251,55 +297,117 @@ public class InnerWatcher extends AbstractExecutionThreadService {
             this.finalizedBlock = finalizedBlockDetail.getNumber();
             this.l1Finalized = BlockInfo.from(finalizedBlockDetail);
             this.putBlockUpdate(new FinalityUpdate(finalizedBlock));
+            if (this.store != null) {
+                this.store.putL1Finalized(this.finalizedBlock);
+            }
             this.unfinalizedBlocks = this.unfinalizedBlocks.stream()
                     .filter(blockInfo -> blockInfo.number().compareTo(InnerWatcher.this.finalizedBlock) > 0)
                     .collect(Collectors.toList());
         }
-
-        if (this.currentBlock.compareTo(this.headBlock) > 0 || this.headBlock.equals(BigInteger.ZERO)) {
-            LOGGER.debug("will get head block: currentBlock({}) > headBlock({})", this.currentBlock, this.headBlock);
-            this.headBlock = this.getHead().getNumber();
-        }
-
-        if (this.currentBlock.compareTo(this.headBlock) <= 0) {
-            LOGGER.debug(
-                    "will update system config with newest log: currentBlock({}) <= headBlock({})",
-                    this.currentBlock,
-                    this.headBlock);
-            updateSystemConfigWithNewestLog();
-        } else {
-            LOGGER.debug(
-                    "will sleep 250 milliseconds: currentBlock({}) > headBlock({})", this.currentBlock, this.headBlock);
-            try {
-                Thread.sleep(Duration.ofMillis(250L));
-            } catch (InterruptedException e) {
-                Thread.currentThread().interrupt();
-                throw new HildrServiceExecutionException(e);
-            }
-        }
     }
 
     private void updateSystemConfigWithNewestLog() throws ExecutionException, InterruptedException {
-        this.updateSystemConfig();
-        EthBlock.Block blockResp = this.pollBlockByNumber(this.provider, this.currentBlock);
-        List<UserDeposited> userDeposits = this.getDeposits(this.currentBlock);
+        this.prefetcher.fill(this.currentBlock, this.headBlock);
+        InboxBlock blockResp = this.prefetcher.take(this.currentBlock);
+        L1LogIndexer.BlockLogs logs = this.logIndexer.take(this.currentBlock, blockResp.hash(), this.headBlock);
+        this.updateSystemConfig(logs.configUpdates());
+        List<UserDeposited> userDeposits = logs.deposits();
 
         boolean finalized = this.currentBlock.compareTo(this.finalizedBlock) >= 0;
         L1Info l1Info =
                 L1Info.create(blockResp, userDeposits, config.chainConfig().batchInbox(), finalized, this.systemConfig);
 
         if (l1Info.blockInfo().number().compareTo(this.finalizedBlock) >= 0) {
-            BlockInfo blockInfo = BlockInfo.from(blockResp);
+            BlockInfo blockInfo = blockResp.toBlockInfo();
             this.unfinalizedBlocks.add(blockInfo);
             this.currentBlockInfo = blockInfo;
         }
 
-        BlockUpdate update = this.checkReorg() ? new BlockUpdate.Reorg() : new BlockUpdate.NewBlock(l1Info);
+        BlockUpdate update;
+        if (this.checkReorg()) {
+            this.prefetcher.clear();
+            final BlockInfo commonAncestor = findCommonAncestor(this.unfinalizedBlocks, this::canonicalHash);
+            if (this.store != null) {
+                this.store.truncateL1Infos(truncateFrom(this.unfinalizedBlocks, commonAncestor));
+            }
+            if (commonAncestor != null) {
+                LOGGER.warn("L1 reorg above block {} {}", commonAncestor.number(), commonAncestor.hash());
+                update = new BlockUpdate.ShallowReorg(commonAncestor);
+            } else {
+                update = new BlockUpdate.Reorg();
+            }
+        } else {
+            if (this.store != null) {
+                this.store.putL1Info(new StoredL1Info(l1Info, blockResp.parentHash()));
+            }
+            update = new BlockUpdate.NewBlock(l1Info);
+        }
         this.putBlockUpdate(update);
         LOGGER.debug("current block will add one: {}", this.currentBlock);
         this.currentBlock = this.currentBlock.add(BigInteger.ONE);
     }
 
+    /**
+     * Emits the stored L1 info of the current block without any RPC call. The system config stored
+     * with the block already has its updates applied, so only the log cursor needs to move along.
+     *
+     * @return true if a block was replayed, false once the store has no linked finalized block left
+     */
+    private boolean replayStoredBlock() {
+        Optional<StoredL1Info> stored = this.store.finalizedL1Info(this.currentBlock);
+        if (stored.isEmpty()
+                || (this.lastReplayed != null
+                        && !stored.get().parentHash().equalsIgnoreCase(this.lastReplayed.hash()))) {
+            LOGGER.info("replayed stored L1 infos up to block {}", this.currentBlock.subtract(BigInteger.ONE));
+            this.replaying = false;
+            if (this.lastReplayed != null) {
+                // let the reorg check link the first fetched block to the replayed ones
+                this.unfinalizedBlocks.add(this.lastReplayed);
+            }
+            return false;
+        }
+        final L1Info l1Info = stored.get().l1Info();
+        final L1Info.L1BlockInfo blockInfo = l1Info.blockInfo();
+        this.systemConfig = l1Info.systemConfig();
+        this.lastReplayed =
+                new BlockInfo(blockInfo.hash(), blockInfo.number(), stored.get().parentHash(), blockInfo.timestamp());
+        this.currentBlockInfo = this.lastReplayed;
+        this.putBlockUpdate(new BlockUpdate.NewBlock(l1Info));
+        this.currentBlock = this.currentBlock.add(BigInteger.ONE);
+        return true;
+    }
+
+    /**
+     * Checks the last stored finalized L1 info against the L1 chain, so stale records are never
+     * replayed.
+     *
+     * @return true if the stored L1 infos can be replayed
+     */
+    private boolean canReplay() throws ExecutionException, InterruptedException {
+        Optional<BigInteger> l1Finalized = this.store.l1Finalized();
+        if (l1Finalized.isEmpty() || l1Finalized.get().compareTo(this.currentBlock) < 0) {
+            return false;
+        }
+        Optional<StoredL1Info> last = this.store.lastFinalizedL1Info();
+        if (last.isEmpty()) {
+            return false;
+        }
+        final L1Info.L1BlockInfo blockInfo = last.get().l1Info().blockInfo();
+        if (blockInfo.number().compareTo(this.currentBlock) < 0) {
+            return false;
+        }
+        final EthBlock.Block block =
+                this.pollBlock(this.provider, DefaultBlockParameter.valueOf(blockInfo.number()), false);
+        if (!blockInfo.hash().equalsIgnoreCase(block.getHash())) {
+            LOGGER.warn("stored L1 block {} is not canonical, will not replay the store", blockInfo.number());
+            return false;
+        }
+        LOGGER.info("will replay stored L1 infos from block {} to {}", this.currentBlock, blockInfo.number());
+        // the stored finality never runs ahead of the chain, so the driver may finalize replayed blocks
+        this.putBlockUpdate(new FinalityUpdate(l1Finalized.get()));
+        return true;
+    }
+
     private void putBlockUpdate(final BlockUpdate update) {
         while (true) {
             boolean isOffered = this.blockUpdateQueue.offer(update);
@@ -307,44 +415,29 @@ public class InnerWatcher extends AbstractExecutionThreadService {
                 break;
             }
         }
+        this.updateListener.run();
     }
 
-    private void updateSystemConfig() throws ExecutionException, InterruptedException {
-        BigInteger preLastUpdateBlock = this.systemConfigUpdate.component1();
-        if (preLastUpdateBlock.compareTo(this.currentBlock) < 0) {
-            BigInteger toBlock = preLastUpdateBlock.add(BigInteger.valueOf(1000L));
-            LOGGER.debug(
-                    "will get system update eth log: fromBlock={} -> toBlock={}; contract={}",
-                    preLastUpdateBlock.add(BigInteger.ONE),
-                    toBlock,
-                    InnerWatcher.this.config.chainConfig().systemConfigContract());
-            EthLog updates = this.getLog(
-                    preLastUpdateBlock.add(BigInteger.ONE),
-                    toBlock,
-                    InnerWatcher.this.config.chainConfig().systemConfigContract(),
-                    CONFIG_UPDATE_TOPIC);
-
-            if (updates.getLogs().isEmpty()) {
-                this.systemConfigUpdate = new Tuple2<>(toBlock, null);
-            } else {
-                LogResult<?> update = updates.getLogs().iterator().next();
-                BigInteger updateBlock = ((LogObject) update).getBlockNumber();
-                SystemConfigUpdate configUpdate = SystemConfigUpdate.tryFrom((LogObject) update);
-                if (updateBlock == null) {
-                    this.systemConfigUpdate = new Tuple2<>(toBlock, null);
-                } else {
-                    SystemConfig updateSystemConfig = parseSystemConfigUpdate(configUpdate);
-                    this.systemConfigUpdate = new Tuple2<>(updateBlock, updateSystemConfig);
-                }
+    /**
+     * Sets the listener notified after each block update has been sent, so the consumer of the
+     * queue can wait for updates instead of polling.
+     *
+     * @param updateListener the listener
+     */
+    public void setUpdateListener(Runnable updateListener) {
+        this.updateListener = updateListener;
+    }
+
+    private void updateSystemConfig(List<SystemConfigUpdate> configUpdates) {
+        // updates of the same block apply in log order, each on top of the previous one
+        for (SystemConfigUpdate configUpdate : configUpdates) {
+            SystemConfig nextConfig = this.parseSystemConfigUpdate(configUpdate);
+            if (nextConfig != null) {
+                LOGGER.info("system config updated");
+                LOGGER.debug("{}", nextConfig);
+                this.systemConfig = nextConfig;
             }
         }
-        BigInteger lastUpdateBlock = this.systemConfigUpdate.component1();
-        SystemConfig nextConfig = this.systemConfigUpdate.component2();
-        if (lastUpdateBlock.compareTo(currentBlock) == 0 && nextConfig != null) {
-            LOGGER.info("system config updated");
-            LOGGER.debug("{}", nextConfig);
-            this.systemConfig = nextConfig;
-        }
     }
 
     private Config.SystemConfig parseSystemConfigUpdate(SystemConfigUpdate configUpdate) {
@@ -391,6 +484,44 @@ public class InnerWatcher extends AbstractExecutionThreadService {
         return false;
     }
 
+    /**
+     * Walks the unfinalized blocks back to the last one that is still on the canonical chain.
+     *
+     * @param unfinalizedBlocks the unfinalized blocks, the last one's parent did not match
+     * @param lookup the lookup of the canonical block hash
+     * @return the common ancestor, or null if none of the unfinalized blocks is canonical
+     * @throws ExecutionException thrown if a lookup failed
+     * @throws InterruptedException thrown if interrupted during a lookup
+     */
+    static BlockInfo findCommonAncestor(List<BlockInfo> unfinalizedBlocks, CanonicalHashLookup lookup)
+            throws ExecutionException, InterruptedException {
+        // the last block is the one whose parent did not match
+        for (int i = unfinalizedBlocks.size() - 2; i >= 0; i--) {
+            final BlockInfo block = unfinalizedBlocks.get(i);
+            if (block.hash().equalsIgnoreCase(lookup.hashOf(block.number()))) {
+                return block;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Gets the first L1 block the store must forget after a reorg.
+     *
+     * @param unfinalizedBlocks the unfinalized blocks
+     * @param commonAncestor the common ancestor, or null if none of the unfinalized blocks is canonical
+     * @return the block after the common ancestor, or the first unfinalized block without one
+     */
+    static BigInteger truncateFrom(List<BlockInfo> unfinalizedBlocks, BlockInfo commonAncestor) {
+        return commonAncestor != null
+                ? commonAncestor.number().add(BigInteger.ONE)
+                : unfinalizedBlocks.get(0).number();
+    }
+
+    private String canonicalHash(BigInteger number) throws ExecutionException, InterruptedException {
+        return this.pollBlock(this.provider, DefaultBlockParameter.valueOf(number), false).getHash();
+    }
+
     private EthBlock.Block getSafe() throws ExecutionException, InterruptedException {
         var parameter = this.devnet ? DefaultBlockParameterName.LATEST : DefaultBlockParameterName.SAFE;
         return this.pollBlock(this.provider, parameter, false);
@@ -428,54 +559,6 @@ public class InnerWatcher extends AbstractExecutionThreadService {
         return block;
     }
 
-    private EthLog getLog(BigInteger fromBlock, BigInteger toBlock, String contract, String topic)
-            throws ExecutionException, InterruptedException {
-        final EthFilter ethFilter = new EthFilter(
-                        DefaultBlockParameter.valueOf(fromBlock), DefaultBlockParameter.valueOf(toBlock), contract)
-                .addSingleTopic(topic);
-
-        return this.executor
-                .submit(() -> this.provider.ethGetLogs(ethFilter).send())
-                .get();
-    }
-
-    private List<Attributes.UserDeposited> getDeposits(BigInteger blockNum)
-            throws ExecutionException, InterruptedException {
-        final List<Attributes.UserDeposited> removed = this.deposits.remove(blockNum);
-        if (removed != null) {
-            return removed;
-        }
-        final BigInteger endBlock = this.headBlock.min(blockNum.add(BigInteger.valueOf(1000L)));
-        LOGGER.debug(
-                "will get deposit eth logs: fromBlock={} -> toBlock={};contract={}",
-                blockNum,
-                endBlock,
-                this.config.chainConfig().depositContract());
-
-        EthLog result = this.getLog(
-                blockNum, endBlock, this.config.chainConfig().depositContract(), TRANSACTION_DEPOSITED_TOPIC);
-
-        result.getLogs().forEach(log -> {
-            if (log instanceof LogObject) {
-                var userDeposited = UserDeposited.fromLog((LogObject) log);
-                final var num = userDeposited.l1BlockNum();
-                var userDepositeds = InnerWatcher.this.deposits.computeIfAbsent(num, k -> new ArrayList<>());
-                userDepositeds.add(userDeposited);
-            } else {
-                throw new IllegalStateException("Unexpected result type: " + log.get() + " required LogObject");
-            }
-        });
-        var max = (int) endBlock.subtract(blockNum).add(BigInteger.ONE).longValue();
-        for (int i = 0; i < max; i++) {
-            InnerWatcher.this.deposits.putIfAbsent(blockNum.add(BigInteger.valueOf(i)), new ArrayList<>());
-        }
-        var remv = InnerWatcher.this.deposits.remove(blockNum);
-        if (remv == null) {
-            throw new DepositsNotFoundException();
-        }
-        return remv;
-    }
-
     @Override
     protected void startUp() throws Exception {
         if (this.l2StartBlock.equals(config.chainConfig().l2Genesis().number())) {
@@ -483,6 +566,7 @@ public class InnerWatcher extends AbstractExecutionThreadService {
         } else {
             this.getMetadataFromL2(this.l2StartBlock);
         }
+        this.replaying = this.store != null && this.canReplay();
         this.subscribeL1NewHeads();
     }
 
@@ -515,6 +599,7 @@ public class InnerWatcher extends AbstractExecutionThreadService {
 
     @Override
     protected void shutDown() {
+        this.prefetcher.clear();
         this.executor.shutdown();
         this.provider.shutdown();
         if (!this.l1HeadListener.isDisposed()) {
@@ -525,6 +610,7 @@ public class InnerWatcher extends AbstractExecutionThreadService {
     @Override
     protected void triggerShutdown() {
         this.isShutdownTriggered = true;
+        this.headTracker.wakeUp();
     }
 
     /**
@@ -551,7 +637,7 @@ public class InnerWatcher extends AbstractExecutionThreadService {
      * @return L1 head BlockInfo instance
      */
     public BlockInfo getL1HeadBlock() {
-        return this.l1Head;
+        return this.headTracker.subscribedHead();
     }
 
     /**
@@ -580,4 +666,19 @@ public class InnerWatcher extends AbstractExecutionThreadService {
     public SystemConfig getSystemConfig() {
         return this.systemConfig;
     }
+
+    /** The lookup of the canonical block hash at a height. */
+    @FunctionalInterface
+    interface CanonicalHashLookup {
+
+        /**
+         * Looks the canonical block hash up.
+         *
+         * @param number the block number
+         * @return the block hash
+         * @throws ExecutionException thrown if the lookup failed
+         * @throws InterruptedException thrown if interrupted during the lookup
+         */
+        String hashOf(BigInteger number) throws ExecutionException, InterruptedException;
+    }
 }
@@ -0,0 +1,162 @@
+/*
+ * Copyright 2023 281165273grape@gmail.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+
+package io.optimism.l1;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.JsonDeserializer;
+import io.optimism.utilities.rpc.StreamingRequest;
+import java.io.IOException;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.List;
+import org.web3j.protocol.Web3jService;
+import org.web3j.protocol.core.DefaultBlockParameter;
+import org.web3j.utils.Numeric;
+
+/**
+ * Streaming decoder of eth_getBlockByNumber results. It reads the header fields the derivation needs
+ * and the from, to and input of each transaction, and keeps only the transactions sent to the batch
+ * inbox. Every other field is skipped by the parser without being materialized.
+ *
+ * @author thinkAfCod
+ * @since 0.2.0
+ */
+final class L1BlockDecoder {
+
+    private L1BlockDecoder() {}
+
+    /**
+     * Creates an eth_getBlockByNumber request with full transactions, whose result keeps only the
+     * transactions sent to the batch inbox.
+     *
+     * @param service the web3j service
+     * @param number the block number
+     * @param batchInbox the batch inbox address
+     * @return the request
+     */
+    static StreamingRequest<Object, InboxBlock.BlockResponse> request(
+            Web3jService service, BigInteger number, String batchInbox) {
+        return new StreamingRequest<>(
+                "eth_getBlockByNumber",
+                List.of(DefaultBlockParameter.valueOf(number).getValue(), true),
+                service,
+                InboxBlock.BlockResponse.class,
+                parser -> decode(parser, batchInbox));
+    }
+
+    /**
+     * Decodes the block the parser is positioned at.
+     *
+     * @param parser the parser, positioned at the start of the block object or a null value
+     * @param batchInbox the batch inbox address, null to keep all transactions
+     * @return the block, null if the value is null
+     * @throws IOException thrown if the block could not be decoded
+     */
+    static InboxBlock decode(JsonParser parser, String batchInbox) throws IOException {
+        if (parser.currentToken() == JsonToken.VALUE_NULL) {
+            return null;
+        }
+        expect(parser, JsonToken.START_OBJECT);
+        BigInteger number = null;
+        String hash = null;
+        String parentHash = null;
+        BigInteger timestamp = null;
+        BigInteger baseFeePerGas = null;
+        String mixHash = null;
+        List<InboxBlock.InboxTransaction> transactions = List.of();
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            final String name = parser.currentName();
+            parser.nextToken();
+            switch (name) {
+                case "number" -> number = quantity(parser);
+                case "hash" -> hash = parser.getValueAsString();
+                case "parentHash" -> parentHash = parser.getValueAsString();
+                case "timestamp" -> timestamp = quantity(parser);
+                case "baseFeePerGas" -> baseFeePerGas = quantity(parser);
+                case "mixHash" -> mixHash = parser.getValueAsString();
+                case "transactions" -> transactions = decodeTransactions(parser, batchInbox);
+                default -> parser.skipChildren();
+            }
+        }
+        return new InboxBlock(number, hash, parentHash, timestamp, baseFeePerGas, mixHash, transactions);
+    }
+
+    private static List<InboxBlock.InboxTransaction> decodeTransactions(JsonParser parser, String batchInbox)
+            throws IOException {
+        expect(parser, JsonToken.START_ARRAY);
+        final List<InboxBlock.InboxTransaction> transactions = new ArrayList<>();
+        while (parser.nextToken() != JsonToken.END_ARRAY) {
+            if (parser.currentToken() != JsonToken.START_OBJECT) {
+                // a block with transaction hashes only
+                continue;
+            }
+            String from = null;
+            String to = null;
+            String input = null;
+            boolean skip = false;
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                final String name = parser.currentName();
+                parser.nextToken();
+                if (skip) {
+                    parser.skipChildren();
+                    continue;
+                }
+                switch (name) {
+                    case "from" -> from = parser.getValueAsString();
+                    case "to" -> {
+                        to = parser.getValueAsString();
+                        // once the recipient is known, the input of other transactions is never read
+                        skip = batchInbox != null && !batchInbox.equalsIgnoreCase(to);
+                        input = skip ? null : input;
+                    }
+                    case "input" -> input = parser.getValueAsString();
+                    default -> parser.skipChildren();
+                }
+            }
+            if (!skip && input != null && (batchInbox == null || batchInbox.equalsIgnoreCase(to))) {
+                transactions.add(new InboxBlock.InboxTransaction(from, to, input));
+            }
+        }
+        return transactions;
+    }
+
+    private static BigInteger quantity(JsonParser parser) {
+        final String value = parser.getValueAsString();
+        return value == null ? null : Numeric.decodeQuantity(value);
+    }
+
+    private static void expect(JsonParser parser, JsonToken token) throws IOException {
+        if (parser.currentToken() != token) {
+            throw new IOException(String.format("expected %s but found %s", token, parser.currentToken()));
+        }
+    }
+
+    /** Jackson deserializer for services that do not stream results, it keeps all transactions. */
+    static final class Deserializer extends JsonDeserializer<InboxBlock> {
+
+        /** Instantiates a new deserializer. */
+        Deserializer() {}
+
+        @Override
+        public InboxBlock deserialize(JsonParser parser, DeserializationContext context) throws IOException {
+            return decode(parser, null);
+        }
+    }
+}
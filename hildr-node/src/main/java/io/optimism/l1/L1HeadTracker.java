@@ -0,0 +1,181 @@
+/*
+ * Copyright 2023 281165273grape@gmail.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+
+package io.optimism.l1;
+
+import io.optimism.common.BlockInfo;
+import java.math.BigInteger;
+import java.time.Duration;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Tracks the L1 head from the new heads subscription, falling back to http lookups while the
+ * subscription is silent, and paces the safe and finalized block lookups to one per L1 slot.
+ *
+ * @author thinkAfCod
+ * @since 0.2.0
+ */
+final class L1HeadTracker {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(L1HeadTracker.class);
+
+    /** Interval of the safe and finalized block lookups, one L1 slot. */
+    static final Duration SLOT_INTERVAL = Duration.ofSeconds(12L);
+
+    /** Wait for a new head when the head is polled over http. */
+    static final Duration HEAD_POLL_INTERVAL = Duration.ofMillis(250L);
+
+    private final LongSupplier nanoClock;
+
+    /** Released by the new heads subscription to wake the ingestion up. */
+    private final Semaphore newHeadSignal = new Semaphore(0);
+
+    private volatile SubscribedHead subscribed;
+
+    private SubscribedHead consumed;
+
+    private BigInteger head = BigInteger.ZERO;
+
+    private boolean tagsRefreshed;
+
+    private long nextTagRefresh;
+
+    /** Instantiates a new L1 head tracker. */
+    L1HeadTracker() {
+        this(System::nanoTime);
+    }
+
+    /**
+     * Instantiates a new L1 head tracker.
+     *
+     * @param nanoClock the clock in nanoseconds
+     */
+    L1HeadTracker(LongSupplier nanoClock) {
+        this.nanoClock = nanoClock;
+    }
+
+    /**
+     * Records a head delivered by the new heads subscription and wakes the ingestion up.
+     *
+     * @param block the new head
+     */
+    void onNewHead(BlockInfo block) {
+        this.subscribed = new SubscribedHead(block, this.nanoClock.getAsLong());
+        this.newHeadSignal.release();
+    }
+
+    /**
+     * Updates the head. The latest notification is taken as the head, also when it is lower than
+     * the previous one after a reorg to a shorter chain. The head is only looked up over http when
+     * the ingestion has caught up and the subscription has been silent for a slot, or never
+     * delivered.
+     *
+     * @param currentBlock the next block to ingest
+     * @param lookup the http head lookup
+     * @return the head block number
+     * @throws ExecutionException thrown if the head lookup failed
+     * @throws InterruptedException thrown if interrupted during the head lookup
+     */
+    BigInteger update(BigInteger currentBlock, HeadLookup lookup) throws ExecutionException, InterruptedException {
+        final SubscribedHead latest = this.subscribed;
+        if (latest != null && latest != this.consumed) {
+            this.consumed = latest;
+            this.head = latest.block().number();
+        }
+        if ((currentBlock.compareTo(this.head) > 0 && this.isSubscriptionSilent()) || this.head.signum() == 0) {
+            LOGGER.debug("will get head block: currentBlock({}) > headBlock({})", currentBlock, this.head);
+            this.head = lookup.head();
+        }
+        return this.head;
+    }
+
+    /**
+     * Waits for the next head notification, for a slot while the subscription delivers heads and
+     * for the http poll interval otherwise.
+     *
+     * @throws InterruptedException thrown if interrupted while waiting
+     */
+    void awaitNewHead() throws InterruptedException {
+        final Duration timeout = this.isSubscriptionSilent() ? HEAD_POLL_INTERVAL : SLOT_INTERVAL;
+        if (this.newHeadSignal.tryAcquire(timeout.toMillis(), TimeUnit.MILLISECONDS)) {
+            // heads that arrived meanwhile are covered by the latest one
+            this.newHeadSignal.drainPermits();
+        }
+    }
+
+    /** Wakes a waiting ingestion up without a new head. */
+    void wakeUp() {
+        this.newHeadSignal.release();
+    }
+
+    /**
+     * Whether the safe and finalized blocks are due to be looked up again. They only move once per
+     * slot, so a lookup per ingested block would mostly return the same blocks again.
+     *
+     * @return true once per slot
+     */
+    boolean isTagRefreshDue() {
+        final long now = this.nanoClock.getAsLong();
+        if (this.tagsRefreshed && now - this.nextTagRefresh < 0) {
+            return false;
+        }
+        this.tagsRefreshed = true;
+        this.nextTagRefresh = now + SLOT_INTERVAL.toNanos();
+        return true;
+    }
+
+    /**
+     * Whether the subscription has not delivered a head for a slot.
+     *
+     * @return true if silent
+     */
+    boolean isSubscriptionSilent() {
+        final SubscribedHead latest = this.subscribed;
+        return latest == null || this.nanoClock.getAsLong() - latest.receivedAt() > SLOT_INTERVAL.toNanos();
+    }
+
+    /**
+     * Gets the latest head delivered by the subscription.
+     *
+     * @return the head, null if none was delivered
+     */
+    BlockInfo subscribedHead() {
+        final SubscribedHead latest = this.subscribed;
+        return latest == null ? null : latest.block();
+    }
+
+    /** The http lookup of the head block number. */
+    @FunctionalInterface
+    interface HeadLookup {
+
+        /**
+         * Looks the head block number up.
+         *
+         * @return the head block number
+         * @throws ExecutionException thrown if the lookup failed
+         * @throws InterruptedException thrown if interrupted during the lookup
+         */
+        BigInteger head() throws ExecutionException, InterruptedException;
+    }
+
+    private record SubscribedHead(BlockInfo block, long receivedAt) {}
+}
@@ -83,6 +83,39 @@ public record L1Info(
         return new L1Info(l1BlockInfo, systemConfig, userDeposits, batcherTransactions, finalized);
     }
 
+    /**
+     * Create L1Info from a streamed block.
+     *
+     * @param block the block with its batch inbox transactions
+     * @param userDeposits the user deposits
+     * @param batchInbox the batch inbox
+     * @param finalized the finalized
+     * @param systemConfig the system config
+     * @return the L1Info
+     */
+    public static L1Info create(
+            InboxBlock block,
+            List<UserDeposited> userDeposits,
+            String batchInbox,
+            boolean finalized,
+            SystemConfig systemConfig) {
+        if (block.number() == null || block.hash() == null || block.mixHash() == null) {
+            throw new BlockNotIncludedException();
+        }
+        if (block.baseFeePerGas() == null) {
+            throw new BlockIsPreLondonException();
+        }
+        L1BlockInfo l1BlockInfo = L1BlockInfo.create(
+                block.number(), block.hash(), block.timestamp(), block.baseFeePerGas(), block.mixHash());
+        List<String> batcherTransactions = block.inboxTransactions().stream()
+                .filter(tx -> systemConfig.batchSender().equalsIgnoreCase(tx.from())
+                        && batchInbox.equalsIgnoreCase(tx.to()))
+                .map(InboxBlock.InboxTransaction::input)
+                .collect(Collectors.toList());
+
+        return new L1Info(l1BlockInfo, systemConfig, userDeposits, batcherTransactions, finalized);
+    }
+
     private static List<String> createBatcherTransactions(Block block, String batchSender, String batchInbox) {
         return block.getTransactions().stream()
                 .filter(transactionResult ->
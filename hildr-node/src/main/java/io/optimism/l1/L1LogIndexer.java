@@ -0,0 +1,283 @@
+/*
+ * Copyright 2023 281165273grape@gmail.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+
+package io.optimism.l1;
+
+import io.optimism.derive.stages.Attributes.UserDeposited;
+import io.optimism.utilities.rpc.RpcPriority;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import org.apache.commons.lang3.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.web3j.abi.EventEncoder;
+import org.web3j.abi.TypeReference;
+import org.web3j.abi.datatypes.Address;
+import org.web3j.abi.datatypes.Bytes;
+import org.web3j.abi.datatypes.Event;
+import org.web3j.abi.datatypes.generated.Uint256;
+import org.web3j.abi.datatypes.generated.Uint8;
+import org.web3j.protocol.Web3j;
+import org.web3j.protocol.core.DefaultBlockParameter;
+import org.web3j.protocol.core.Response;
+import org.web3j.protocol.core.methods.request.EthFilter;
+import org.web3j.protocol.core.methods.response.EthLog;
+import org.web3j.protocol.core.methods.response.EthLog.LogObject;
+
+/**
+ * Indexes the L1 logs the derivation needs, the deposits of the deposit contract and the config
+ * updates of the system config contract, with one {@code eth_getLogs} call per block range. The
+ * decoded logs are cached by block number until the block is ingested. The range of a call adapts
+ * to the observed log density, and it is halved whenever the provider rejects a call for returning
+ * too many logs or spanning too many blocks.
+ *
+ * @author thinkAfCod
+ * @since 0.2.0
+ */
+class L1LogIndexer {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(L1LogIndexer.class);
+
+    /** The topic of the system config update event. */
+    static final String CONFIG_UPDATE_TOPIC = EventEncoder.encode(new Event(
+            "ConfigUpdate",
+            Arrays.asList(
+                    new TypeReference<Uint256>() {}, new TypeReference<Uint8>() {}, new TypeReference<Bytes>() {})));
+
+    /** The topic of the deposit event. */
+    static final String TRANSACTION_DEPOSITED_TOPIC = EventEncoder.encode(new Event(
+            "TransactionDeposited",
+            Arrays.asList(
+                    new TypeReference<Address>() {},
+                    new TypeReference<Address>() {},
+                    new TypeReference<Uint256>() {},
+                    new TypeReference<Bytes>() {})));
+
+    /** The number of blocks of the first call. */
+    static final long INITIAL_RANGE = 1000L;
+
+    /** The max number of blocks of a call. */
+    static final long MAX_RANGE = 10_000L;
+
+    /** The number of logs a call should return. */
+    static final long TARGET_LOGS = 2000L;
+
+    private static final int LIMIT_EXCEEDED_CODE = -32005;
+
+    private static final List<String> LIMIT_MESSAGES = List.of(
+            "query returned more than", "block range", "too many", "limit exceeded", "response size", "range is too");
+
+    private final Web3j provider;
+
+    private final ExecutorService executor;
+
+    private final String depositContract;
+
+    private final String systemConfigContract;
+
+    private final TreeMap<BigInteger, BlockLogs> logs;
+
+    private BigInteger indexedFrom;
+
+    private BigInteger indexedTo;
+
+    private long range;
+
+    /**
+     * Instantiates a new L1 log indexer.
+     *
+     * @param provider the L1 client
+     * @param executor the executor running the calls
+     * @param depositContract the deposit contract address
+     * @param systemConfigContract the system config contract address
+     */
+    L1LogIndexer(Web3j provider, ExecutorService executor, String depositContract, String systemConfigContract) {
+        this.provider = provider;
+        this.executor = executor;
+        this.depositContract = depositContract;
+        this.systemConfigContract = systemConfigContract;
+        this.logs = new TreeMap<>();
+        this.range = INITIAL_RANGE;
+    }
+
+    /**
+     * Takes the logs of a block. If the block has not been indexed yet, the logs of the range
+     * starting at the block are fetched first. Logs of blocks before the given block are dropped.
+     *
+     * @param blockNum the block number
+     * @param blockHash the block hash, logs indexed from another block with this number are fetched
+     *     again
+     * @param headBlock the highest block number that may be indexed
+     * @return the logs of the block
+     * @throws ExecutionException thrown if failed to get the logs from the client
+     * @throws InterruptedException thrown if interrupted while waiting for the logs
+     */
+    BlockLogs take(BigInteger blockNum, String blockHash, BigInteger headBlock)
+            throws ExecutionException, InterruptedException {
+        this.logs.headMap(blockNum).clear();
+        if (!this.isIndexed(blockNum)) {
+            this.index(blockNum, headBlock.max(blockNum));
+        }
+        BlockLogs blockLogs = this.logs.remove(blockNum);
+        if (!matches(blockLogs, blockHash)) {
+            LOGGER.warn(
+                    "indexed logs of block {} are from block {}, will index again", blockNum, blockLogs.blockHash());
+            this.clear();
+            this.index(blockNum, headBlock.max(blockNum));
+            blockLogs = this.logs.remove(blockNum);
+            if (!matches(blockLogs, blockHash)) {
+                this.clear();
+                throw new LogQueryException(String.format(
+                        "logs of block %d are from block %s, not %s", blockNum, blockLogs.blockHash(), blockHash));
+            }
+        }
+        return blockLogs != null ? blockLogs : BlockLogs.EMPTY;
+    }
+
+    /** Drops all indexed logs. */
+    void clear() {
+        this.logs.clear();
+        this.indexedFrom = null;
+        this.indexedTo = null;
+    }
+
+    /**
+     * Gets the number of blocks of the next call.
+     *
+     * @return the range
+     */
+    long range() {
+        return this.range;
+    }
+
+    private static boolean matches(BlockLogs blockLogs, String blockHash) {
+        return blockLogs == null || blockHash == null || blockHash.equalsIgnoreCase(blockLogs.blockHash());
+    }
+
+    private boolean isIndexed(BigInteger blockNum) {
+        return this.indexedFrom != null
+                && blockNum.compareTo(this.indexedFrom) >= 0
+                && blockNum.compareTo(this.indexedTo) <= 0;
+    }
+
+    private void index(BigInteger fromBlock, BigInteger headBlock) throws ExecutionException, InterruptedException {
+        while (true) {
+            final BigInteger toBlock = headBlock.min(fromBlock.add(BigInteger.valueOf(this.range - 1)));
+            LOGGER.debug(
+                    "will get eth logs: fromBlock={} -> toBlock={}; contracts={}, {}",
+                    fromBlock,
+                    toBlock,
+                    this.depositContract,
+                    this.systemConfigContract);
+            // a range that stops short of the head belongs to a backfill, it must not hold up tip calls
+            final EthLog result = this.getLogs(
+                    fromBlock, toBlock, toBlock.compareTo(headBlock) < 0 ? RpcPriority.BULK : RpcPriority.TIP);
+            if (result.hasError()) {
+                if (this.range > 1 && isLimitError(result.getError())) {
+                    this.range = Math.max(1L, this.range / 2);
+                    LOGGER.debug("eth logs call rejected by provider, range reduced to {}", this.range);
+                    continue;
+                }
+                throw new LogQueryException(String.format(
+                        "failed to get logs of blocks %d -> %d: %s",
+                        fromBlock, toBlock, result.getError().getMessage()));
+            }
+            final List<EthLog.LogResult> results = result.getLogs() != null ? result.getLogs() : List.of();
+            this.clear();
+            results.forEach(this::put);
+            this.indexedFrom = fromBlock;
+            this.indexedTo = toBlock;
+            this.adaptRange(toBlock.subtract(fromBlock).longValue() + 1, results.size());
+            return;
+        }
+    }
+
+    private void put(EthLog.LogResult<?> result) {
+        if (!(result instanceof LogObject log)) {
+            throw new IllegalStateException("Unexpected result type: " + result.get() + " required LogObject");
+        }
+        if (log.isRemoved() || log.getTopics() == null || log.getTopics().isEmpty()) {
+            return;
+        }
+        final String topic = log.getTopics().get(0);
+        final BlockLogs blockLogs = this.logs.computeIfAbsent(log.getBlockNumber(), unused -> new BlockLogs(
+                log.getBlockHash(), new ArrayList<>(), new ArrayList<>()));
+        if (TRANSACTION_DEPOSITED_TOPIC.equalsIgnoreCase(topic)
+                && this.depositContract.equalsIgnoreCase(log.getAddress())) {
+            blockLogs.deposits().add(UserDeposited.fromLog(log));
+        } else if (CONFIG_UPDATE_TOPIC.equalsIgnoreCase(topic)
+                && this.systemConfigContract.equalsIgnoreCase(log.getAddress())) {
+            blockLogs.configUpdates().add(SystemConfigUpdate.tryFrom(log));
+        }
+    }
+
+    /**
+     * Sizes the next range so that it would have returned about the target number of logs, growing
+     * at most twofold per call.
+     */
+    private void adaptRange(long blocks, long logCount) {
+        final long next;
+        if (logCount == 0) {
+            next = blocks * 2;
+        } else {
+            next = Math.min(blocks * 2, blocks * TARGET_LOGS / logCount);
+        }
+        // a range cut short by the chain head may shrink the next range, but never grows it
+        if (next < this.range || blocks >= this.range) {
+            this.range = Math.max(1L, Math.min(MAX_RANGE, next));
+        }
+    }
+
+    private EthLog getLogs(BigInteger fromBlock, BigInteger toBlock, RpcPriority priority)
+            throws ExecutionException, InterruptedException {
+        final EthFilter ethFilter = new EthFilter(
+                        DefaultBlockParameter.valueOf(fromBlock),
+                        DefaultBlockParameter.valueOf(toBlock),
+                        List.of(this.depositContract, this.systemConfigContract))
+                .addOptionalTopics(TRANSACTION_DEPOSITED_TOPIC, CONFIG_UPDATE_TOPIC);
+
+        return this.executor
+                .submit(() -> priority.call(() -> this.provider.ethGetLogs(ethFilter).send()))
+                .get();
+    }
+
+    private static boolean isLimitError(Response.Error error) {
+        if (error.getCode() == LIMIT_EXCEEDED_CODE) {
+            return true;
+        }
+        final String message = StringUtils.defaultString(error.getMessage());
+        return LIMIT_MESSAGES.stream().anyMatch(limit -> StringUtils.containsIgnoreCase(message, limit));
+    }
+
+    /**
+     * The logs of a block.
+     *
+     * @param blockHash the hash of the block the logs were emitted in, null if it has no logs
+     * @param deposits the user deposits, in log order
+     * @param configUpdates the system config updates, in log order
+     */
+    record BlockLogs(String blockHash, List<UserDeposited> deposits, List<SystemConfigUpdate> configUpdates) {
+
+        /** The logs of a block without logs. */
+        static final BlockLogs EMPTY = new BlockLogs(null, List.of(), List.of());
+    }
+}
@@ -84,6 +84,8 @@ public class BlockTopicHandler implements TopicHandler {
 
     private final MessagePassingQueue<ExecutionPayload> unsafeBlockQueue;
 
+    private volatile Runnable payloadListener = () -> {};
+
     /**
      * Instantiates a new Block topic handler.
      *
@@ -125,6 +127,15 @@ public class BlockTopicHandler implements TopicHandler {
                 .exceptionally(error -> handleMessageProcessingError(message, error));
     }
 
+    /**
+     * Sets the listener notified after a valid payload has been put to the unsafe block queue.
+     *
+     * @param payloadListener the listener
+     */
+    public void setPayloadListener(Runnable payloadListener) {
+        this.payloadListener = payloadListener;
+    }
+
     /**
      * Gets topic.
      *
@@ -379,6 +390,7 @@ public class BlockTopicHandler implements TopicHandler {
         }
 
         this.unsafeBlockQueue.offer(blockMessage.payload);
+        this.payloadListener.run();
         return SafeFuture.completedFuture(InternalValidationResult.ACCEPT);
     }
 
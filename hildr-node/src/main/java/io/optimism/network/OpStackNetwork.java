@@ -149,6 +149,15 @@ public class OpStackNetwork {
                 .build();
     }
 
+    /**
+     * Sets the listener notified after a valid payload has been put to the unsafe block queue.
+     *
+     * @param payloadListener the listener
+     */
+    public void setPayloadListener(Runnable payloadListener) {
+        ((BlockTopicHandler) this.topicHandler).setPayloadListener(payloadListener);
+    }
+
     /** Start. */
     public void start() {
         this.p2pNetwork
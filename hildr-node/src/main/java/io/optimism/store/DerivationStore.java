@@ -0,0 +1,367 @@
+/*
+ * Copyright 2023 281165273grape@gmail.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package io.optimism.store;
+
+import io.optimism.driver.HeadInfo;
+import java.io.Closeable;
+import java.io.IOException;
+import java.math.BigInteger;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.stream.Stream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Persistent store of the L1 infos emitted by the chain watcher and the head checkpoints of the
+ * driver, so a restart can rebuild derivation state from disk instead of refetching it from L1.
+ *
+ * <p>Records are appended to memory-mapped segment files. A new segment is rolled once the active
+ * one exceeds the segment size, and whole segments are deleted once all of their L1 infos fall out
+ * of the retention window behind the finalized L1 block. The latest record of a kind always wins,
+ * so rewriting a block after a reorg simply supersedes the old one.
+ *
+ * @author grapebaba
+ * @since 0.2.0
+ */
+public class DerivationStore implements Closeable {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(DerivationStore.class);
+
+    private static final byte L1_INFO = 1;
+
+    private static final byte L1_FINALIZED = 2;
+
+    private static final byte SAFE_HEAD = 3;
+
+    private static final byte FINALIZED_HEAD = 4;
+
+    private static final byte L1_TRUNCATE = 5;
+
+    private static final int DEFAULT_SEGMENT_SIZE = 256 * 1024 * 1024;
+
+    private static final String SEGMENT_PREFIX = "derivation-";
+
+    private static final String SEGMENT_SUFFIX = ".log";
+
+    private final Path dir;
+
+    private final int segmentSize;
+
+    private final BigInteger retainBlocks;
+
+    private final TreeMap<Long, RecordLog> segments = new TreeMap<>();
+
+    private final TreeMap<Long, BigInteger> segmentMaxBlocks = new TreeMap<>();
+
+    private final TreeMap<BigInteger, Location> l1Infos = new TreeMap<>();
+
+    private BigInteger l1Finalized;
+
+    private HeadInfo safeHead;
+
+    private HeadInfo finalizedHead;
+
+    private DerivationStore(Path dir, int segmentSize, BigInteger retainBlocks) {
+        this.dir = dir;
+        this.segmentSize = segmentSize;
+        this.retainBlocks = retainBlocks;
+    }
+
+    /**
+     * Opens or creates a derivation store with the default segment size.
+     *
+     * @param dir the data directory
+     * @param retainBlocks the number of L1 blocks kept behind the finalized L1 block
+     * @return the derivation store
+     */
+    public static DerivationStore open(Path dir, BigInteger retainBlocks) {
+        return open(dir, DEFAULT_SEGMENT_SIZE, retainBlocks);
+    }
+
+    /**
+     * Opens or creates a derivation store.
+     *
+     * @param dir the data directory
+     * @param segmentSize the size in bytes after which a new segment is rolled
+     * @param retainBlocks the number of L1 blocks kept behind the finalized L1 block
+     * @return the derivation store
+     */
+    public static DerivationStore open(Path dir, int segmentSize, BigInteger retainBlocks) {
+        DerivationStore store = new DerivationStore(dir, segmentSize, retainBlocks);
+        try {
+            Files.createDirectories(dir);
+            try (Stream<Path> files = Files.list(dir)) {
+                for (Path file : files.toList()) {
+                    String name = file.getFileName().toString();
+                    if (name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX)) {
+                        long id = Long.parseLong(
+                                name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+                        store.segments.put(id, RecordLog.open(file));
+                    }
+                }
+            }
+            for (Map.Entry<Long, RecordLog> segment : store.segments.entrySet()) {
+                store.load(segment.getKey(), segment.getValue());
+            }
+            if (store.segments.isEmpty()) {
+                store.roll();
+            }
+        } catch (IOException | RuntimeException e) {
+            store.closeQuietly();
+            throw new StoreException("failed to open derivation store at " + dir, e);
+        }
+        LOGGER.info(
+                "derivation store opened: dir={}, segments={}, l1Infos={}, l1Finalized={}",
+                dir,
+                store.segments.size(),
+                store.l1Infos.size(),
+                store.l1Finalized);
+        return store;
+    }
+
+    /**
+     * Appends an L1 info.
+     *
+     * @param stored the L1 info with its parent hash
+     */
+    public synchronized void putL1Info(StoredL1Info stored) {
+        final BigInteger number = stored.l1Info().blockInfo().number();
+        final Location location = this.append(L1_INFO, StoreCodec.encodeL1Info(stored));
+        this.l1Infos.put(number, location);
+        this.segmentMaxBlocks.merge(location.segment(), number, BigInteger::max);
+    }
+
+    /**
+     * Forgets all L1 infos at or above the given block number, for example after an L1 reorg.
+     *
+     * @param from the first block number to forget
+     */
+    public synchronized void truncateL1Infos(BigInteger from) {
+        this.append(L1_TRUNCATE, StoreCodec.encodeNumber(from));
+        this.l1Infos.tailMap(from, true).clear();
+        if (this.l1Finalized != null && this.l1Finalized.compareTo(from) >= 0) {
+            this.l1Finalized = from.subtract(BigInteger.ONE);
+        }
+    }
+
+    /**
+     * Records the finalized L1 block number and prunes segments out of the retention window.
+     *
+     * @param number the finalized L1 block number
+     */
+    public synchronized void putL1Finalized(BigInteger number) {
+        if (this.l1Finalized != null && this.l1Finalized.compareTo(number) >= 0) {
+            return;
+        }
+        this.append(L1_FINALIZED, StoreCodec.encodeNumber(number));
+        this.l1Finalized = number;
+        this.prune(number.subtract(this.retainBlocks));
+    }
+
+    /**
+     * Records the safe L2 head.
+     *
+     * @param head the safe head
+     */
+    public synchronized void putSafeHead(HeadInfo head) {
+        this.append(SAFE_HEAD, StoreCodec.encodeHead(head));
+        this.safeHead = head;
+    }
+
+    /**
+     * Records the finalized L2 head.
+     *
+     * @param head the finalized head
+     */
+    public synchronized void putFinalizedHead(HeadInfo head) {
+        this.append(FINALIZED_HEAD, StoreCodec.encodeHead(head));
+        this.finalizedHead = head;
+    }
+
+    /**
+     * Gets a stored L1 info, if its block is at or below the stored finalized L1 block.
+     *
+     * @param number the L1 block number
+     * @return the stored L1 info
+     */
+    public synchronized Optional<StoredL1Info> finalizedL1Info(BigInteger number) {
+        if (this.l1Finalized == null || number.compareTo(this.l1Finalized) > 0) {
+            return Optional.empty();
+        }
+        final Location location = this.l1Infos.get(number);
+        if (location == null) {
+            return Optional.empty();
+        }
+        final RecordLog segment = this.segments.get(location.segment());
+        return Optional.of(StoreCodec.decodeL1Info(segment.read(location.offset()).payload()));
+    }
+
+    /**
+     * Gets the stored L1 info with the highest block number at or below the stored finalized L1
+     * block.
+     *
+     * @return the stored L1 info
+     */
+    public synchronized Optional<StoredL1Info> lastFinalizedL1Info() {
+        if (this.l1Finalized == null) {
+            return Optional.empty();
+        }
+        final Map.Entry<BigInteger, Location> entry = this.l1Infos.floorEntry(this.l1Finalized);
+        if (entry == null) {
+            return Optional.empty();
+        }
+        return this.finalizedL1Info(entry.getKey());
+    }
+
+    /**
+     * Gets the highest stored finalized L1 block number.
+     *
+     * @return the finalized L1 block number
+     */
+    public synchronized Optional<BigInteger> l1Finalized() {
+        return Optional.ofNullable(this.l1Finalized);
+    }
+
+    /**
+     * Gets the latest safe L2 head.
+     *
+     * @return the safe head
+     */
+    public synchronized Optional<HeadInfo> safeHead() {
+        return Optional.ofNullable(this.safeHead);
+    }
+
+    /**
+     * Gets the latest finalized L2 head.
+     *
+     * @return the finalized head
+     */
+    public synchronized Optional<HeadInfo> finalizedHead() {
+        return Optional.ofNullable(this.finalizedHead);
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        IOException error = null;
+        for (RecordLog segment : this.segments.values()) {
+            try {
+                segment.close();
+            } catch (IOException e) {
+                error = e;
+            }
+        }
+        this.segments.clear();
+        if (error != null) {
+            throw error;
+        }
+    }
+
+    private void load(long id, RecordLog segment) {
+        segment.forEach(record -> {
+            switch (record.type()) {
+                case L1_INFO -> {
+                    BigInteger number = StoreCodec.l1InfoNumber(record.payload());
+                    this.l1Infos.put(number, new Location(id, record.offset()));
+                    this.segmentMaxBlocks.merge(id, number, BigInteger::max);
+                }
+                case L1_TRUNCATE -> {
+                    BigInteger from = StoreCodec.decodeNumber(record.payload());
+                    this.l1Infos.tailMap(from, true).clear();
+                    if (this.l1Finalized != null && this.l1Finalized.compareTo(from) >= 0) {
+                        this.l1Finalized = from.subtract(BigInteger.ONE);
+                    }
+                }
+                case L1_FINALIZED -> {
+                    BigInteger number = StoreCodec.decodeNumber(record.payload());
+                    if (this.l1Finalized == null || this.l1Finalized.compareTo(number) < 0) {
+                        this.l1Finalized = number;
+                    }
+                }
+                case SAFE_HEAD -> this.safeHead = StoreCodec.decodeHead(record.payload());
+                case FINALIZED_HEAD -> this.finalizedHead = StoreCodec.decodeHead(record.payload());
+                default -> LOGGER.warn("skip unknown record type {} in {}", record.type(), segment.path());
+            }
+        });
+    }
+
+    private Location append(byte type, byte[] payload) {
+        try {
+            RecordLog active = this.segments.lastEntry().getValue();
+            if (active.size() >= this.segmentSize) {
+                active.force();
+                this.roll();
+                active = this.segments.lastEntry().getValue();
+            }
+            return new Location(this.segments.lastKey(), active.append(type, payload));
+        } catch (IOException e) {
+            throw new StoreException("failed to append record to derivation store", e);
+        }
+    }
+
+    private void roll() throws IOException {
+        final long id = this.segments.isEmpty() ? 0L : this.segments.lastKey() + 1;
+        final Path file = this.dir.resolve(String.format("%s%020d%s", SEGMENT_PREFIX, id, SEGMENT_SUFFIX));
+        final RecordLog segment = RecordLog.open(file);
+        this.segments.put(id, segment);
+        // carry the checkpoints over, so older segments can be deleted without losing them
+        if (this.l1Finalized != null) {
+            segment.append(L1_FINALIZED, StoreCodec.encodeNumber(this.l1Finalized));
+        }
+        if (this.safeHead != null) {
+            segment.append(SAFE_HEAD, StoreCodec.encodeHead(this.safeHead));
+        }
+        if (this.finalizedHead != null) {
+            segment.append(FINALIZED_HEAD, StoreCodec.encodeHead(this.finalizedHead));
+        }
+    }
+
+    private void prune(BigInteger below) {
+        final long active = this.segments.lastKey();
+        for (Long id : new ArrayList<>(this.segments.headMap(active, false).keySet())) {
+            final BigInteger maxBlock = this.segmentMaxBlocks.get(id);
+            if (maxBlock != null && maxBlock.compareTo(below) >= 0) {
+                // segments are written in block order, later ones can not be prunable either
+                break;
+            }
+            final RecordLog segment = this.segments.remove(id);
+            this.segmentMaxBlocks.remove(id);
+            this.l1Infos.values().removeIf(location -> location.segment() == id);
+            try {
+                segment.close();
+                Files.deleteIfExists(segment.path());
+                LOGGER.debug("pruned derivation store segment {}", segment.path());
+            } catch (IOException e) {
+                LOGGER.warn("failed to delete derivation store segment {}", segment.path(), e);
+            }
+        }
+    }
+
+    private void closeQuietly() {
+        try {
+            this.close();
+        } catch (IOException e) {
+            LOGGER.warn("failed to close derivation store", e);
+        }
+    }
+
+    private record Location(long segment, int offset) {}
+}
@@ -0,0 +1,239 @@
+/*
+ * Copyright 2023 281165273grape@gmail.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package io.optimism.store;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only log of typed records backed by a memory-mapped file.
+ *
+ * <p>The file starts with an 8 byte header (magic, version), followed by records laid out as
+ * {@code [int length][byte type][payload][int crc32]}, where length counts the type byte and the
+ * payload and the crc covers both. A zero length marks the end of the log, and a record with a bad
+ * crc is treated as a torn write and dropped with everything after it when the log is opened.
+ *
+ * @author grapebaba
+ * @since 0.2.0
+ */
+public class RecordLog implements Closeable {
+
+    /** The magic number of a record log file. */
+    static final int MAGIC = 0x484c4452;
+
+    /** The format version of a record log file. */
+    static final int VERSION = 1;
+
+    /** The header size of a record log file. */
+    static final int HEADER_SIZE = 8;
+
+    private static final int RECORD_OVERHEAD = 9;
+
+    private static final int MAP_INCREMENT = 16 * 1024 * 1024;
+
+    private final Path path;
+
+    private final FileChannel channel;
+
+    private MappedByteBuffer buffer;
+
+    private int position;
+
+    private RecordLog(Path path, FileChannel channel, MappedByteBuffer buffer) {
+        this.path = path;
+        this.channel = channel;
+        this.buffer = buffer;
+    }
+
+    /**
+     * Opens or creates a record log.
+     *
+     * @param path the file path
+     * @return the record log
+     * @throws IOException thrown if the file could not be opened or mapped
+     */
+    public static RecordLog open(Path path) throws IOException {
+        FileChannel channel = FileChannel.open(
+                path, StandardOpenOption.READ, StandardOpenOption.WRITE, StandardOpenOption.CREATE);
+        long size = channel.size();
+        if (size > Integer.MAX_VALUE) {
+            channel.close();
+            throw new StoreException("record log too large: " + path);
+        }
+        long mapSize = Math.max(MAP_INCREMENT, (size + MAP_INCREMENT - 1) / MAP_INCREMENT * MAP_INCREMENT);
+        RecordLog log = new RecordLog(path, channel, channel.map(FileChannel.MapMode.READ_WRITE, 0, mapSize));
+        if (size == 0) {
+            log.buffer.putInt(0, MAGIC);
+            log.buffer.putInt(4, VERSION);
+        } else if (log.buffer.getInt(0) != MAGIC || log.buffer.getInt(4) != VERSION) {
+            log.close();
+            throw new StoreException("not a record log or unsupported version: " + path);
+        }
+        log.position = log.recover();
+        return log;
+    }
+
+    /**
+     * Appends a record.
+     *
+     * @param type the record type
+     * @param payload the record payload
+     * @return the offset of the record
+     * @throws IOException thrown if the file could not be extended
+     */
+    public int append(byte type, byte[] payload) throws IOException {
+        final int recordSize = RECORD_OVERHEAD + payload.length;
+        this.ensureCapacity(recordSize);
+        final int offset = this.position;
+        this.buffer.putInt(offset + 4 + 1 + payload.length, crc(type, ByteBuffer.wrap(payload)));
+        this.buffer.put(offset + 4, type);
+        this.buffer.put(offset + 5, payload);
+        // the length is written last, so a partially written record is never visible
+        this.buffer.putInt(offset, payload.length + 1);
+        this.position += recordSize;
+        return offset;
+    }
+
+    /**
+     * Reads the record at the given offset.
+     *
+     * @param offset the record offset
+     * @return the record
+     */
+    public Record read(int offset) {
+        if (offset < HEADER_SIZE || offset >= this.position) {
+            throw new StoreException("invalid record offset: " + offset);
+        }
+        final int length = this.buffer.getInt(offset);
+        return new Record(offset, this.buffer.get(offset + 4), this.buffer.slice(offset + 5, length - 1));
+    }
+
+    /**
+     * Visits all records in append order.
+     *
+     * @param visitor the record visitor
+     */
+    public void forEach(RecordVisitor visitor) {
+        int offset = HEADER_SIZE;
+        while (offset < this.position) {
+            Record record = this.read(offset);
+            visitor.visit(record);
+            offset += RECORD_OVERHEAD + record.payload().remaining();
+        }
+    }
+
+    /**
+     * Gets the number of bytes used by the log.
+     *
+     * @return the size in bytes
+     */
+    public int size() {
+        return this.position;
+    }
+
+    /**
+     * Gets the file path.
+     *
+     * @return the file path
+     */
+    public Path path() {
+        return this.path;
+    }
+
+    /** Flushes written records to the storage device. */
+    public void force() {
+        this.buffer.force();
+    }
+
+    @Override
+    public void close() throws IOException {
+        this.buffer.force();
+        this.channel.close();
+    }
+
+    private int recover() {
+        int offset = HEADER_SIZE;
+        while (offset + RECORD_OVERHEAD <= this.buffer.capacity()) {
+            final int length = this.buffer.getInt(offset);
+            if (length <= 0 || offset + RECORD_OVERHEAD - 1 + length > this.buffer.capacity()) {
+                break;
+            }
+            final byte type = this.buffer.get(offset + 4);
+            final int expected = this.buffer.getInt(offset + 4 + length);
+            if (crc(type, this.buffer.slice(offset + 5, length - 1)) != expected) {
+                break;
+            }
+            offset += RECORD_OVERHEAD - 1 + length;
+        }
+        if (offset + 4 <= this.buffer.capacity() && this.buffer.getInt(offset) != 0) {
+            // drop the torn tail, so it can not be mistaken for records appended later
+            for (int i = offset; i < this.buffer.capacity(); i++) {
+                this.buffer.put(i, (byte) 0);
+            }
+        }
+        return offset;
+    }
+
+    private void ensureCapacity(int recordSize) throws IOException {
+        // keep room for the zero length that terminates the log
+        final long required = (long) this.position + recordSize + 4;
+        if (required <= this.buffer.capacity()) {
+            return;
+        }
+        if (required > Integer.MAX_VALUE) {
+            throw new StoreException("record log is full: " + this.path);
+        }
+        final long mapSize = Math.min(
+                Integer.MAX_VALUE, (required + MAP_INCREMENT - 1) / MAP_INCREMENT * MAP_INCREMENT);
+        this.buffer.force();
+        this.buffer = this.channel.map(FileChannel.MapMode.READ_WRITE, 0, mapSize);
+    }
+
+    private static int crc(byte type, ByteBuffer payload) {
+        CRC32 crc32 = new CRC32();
+        crc32.update(type);
+        crc32.update(payload.duplicate());
+        return (int) crc32.getValue();
+    }
+
+    /**
+     * The type Record.
+     *
+     * @param offset the record offset
+     * @param type the record type
+     * @param payload the record payload, a read only view of the mapped file
+     */
+    public record Record(int offset, byte type, ByteBuffer payload) {}
+
+    /** Visitor of records. */
+    @FunctionalInterface
+    public interface RecordVisitor {
+
+        /**
+         * Visits a record.
+         *
+         * @param record the record
+         */
+        void visit(Record record);
+    }
+}
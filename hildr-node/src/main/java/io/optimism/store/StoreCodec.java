@@ -0,0 +1,257 @@
+/*
+ * Copyright 2023 281165273grape@gmail.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package io.optimism.store;
+
+import io.optimism.common.BlockInfo;
+import io.optimism.common.Epoch;
+import io.optimism.config.Config.SystemConfig;
+import io.optimism.derive.stages.Attributes.UserDeposited;
+import io.optimism.driver.HeadInfo;
+import io.optimism.l1.L1Info;
+import io.optimism.l1.L1Info.L1BlockInfo;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Binary codec of the records kept in the derivation store. Every L1 info payload starts with the
+ * block number as a long, so the store can index a record without decoding all of it.
+ *
+ * @author grapebaba
+ * @since 0.2.0
+ */
+final class StoreCodec {
+
+    private StoreCodec() {}
+
+    /**
+     * Encodes a stored L1 info.
+     *
+     * @param stored the stored L1 info
+     * @return the payload
+     */
+    static byte[] encodeL1Info(StoredL1Info stored) {
+        final L1Info l1Info = stored.l1Info();
+        final L1BlockInfo blockInfo = l1Info.blockInfo();
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream(512);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeLong(blockInfo.number().longValueExact());
+            writeString(out, blockInfo.hash());
+            writeString(out, stored.parentHash());
+            writeBigInteger(out, blockInfo.timestamp());
+            writeBigInteger(out, blockInfo.baseFee());
+            writeString(out, blockInfo.mixHash());
+
+            final SystemConfig systemConfig = l1Info.systemConfig();
+            writeString(out, systemConfig.batchSender());
+            writeBigInteger(out, systemConfig.gasLimit());
+            writeBigInteger(out, systemConfig.l1FeeOverhead());
+            writeBigInteger(out, systemConfig.l1FeeScalar());
+            writeString(out, systemConfig.unsafeBlockSigner());
+
+            out.writeInt(l1Info.userDeposits().size());
+            for (UserDeposited deposit : l1Info.userDeposits()) {
+                writeString(out, deposit.from());
+                writeString(out, deposit.to());
+                writeBigInteger(out, deposit.mint());
+                writeBigInteger(out, deposit.value());
+                writeBigInteger(out, deposit.gas());
+                out.writeBoolean(deposit.isCreation());
+                writeBytes(out, deposit.data());
+                writeBigInteger(out, deposit.l1BlockNum());
+                writeString(out, deposit.l1BlockHash());
+                writeBigInteger(out, deposit.logIndex());
+            }
+
+            out.writeInt(l1Info.batcherTransactions().size());
+            for (String transaction : l1Info.batcherTransactions()) {
+                writeString(out, transaction);
+            }
+            out.writeBoolean(l1Info.finalized());
+        } catch (IOException e) {
+            throw new StoreException("failed to encode L1 info", e);
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Reads the block number of an encoded L1 info.
+     *
+     * @param payload the payload
+     * @return the block number
+     */
+    static BigInteger l1InfoNumber(ByteBuffer payload) {
+        return BigInteger.valueOf(payload.getLong(payload.position()));
+    }
+
+    /**
+     * Decodes a stored L1 info.
+     *
+     * @param payload the payload
+     * @return the stored L1 info
+     */
+    static StoredL1Info decodeL1Info(ByteBuffer payload) {
+        try (DataInputStream in = input(payload)) {
+            final BigInteger number = BigInteger.valueOf(in.readLong());
+            final String hash = readString(in);
+            final String parentHash = readString(in);
+            final L1BlockInfo blockInfo =
+                    new L1BlockInfo(number, hash, readBigInteger(in), readBigInteger(in), readString(in));
+            final SystemConfig systemConfig = new SystemConfig(
+                    readString(in), readBigInteger(in), readBigInteger(in), readBigInteger(in), readString(in));
+
+            final int depositCount = in.readInt();
+            final List<UserDeposited> deposits = new ArrayList<>(depositCount);
+            for (int i = 0; i < depositCount; i++) {
+                deposits.add(new UserDeposited(
+                        readString(in),
+                        readString(in),
+                        readBigInteger(in),
+                        readBigInteger(in),
+                        readBigInteger(in),
+                        in.readBoolean(),
+                        readBytes(in),
+                        readBigInteger(in),
+                        readString(in),
+                        readBigInteger(in)));
+            }
+
+            final int transactionCount = in.readInt();
+            final List<String> transactions = new ArrayList<>(transactionCount);
+            for (int i = 0; i < transactionCount; i++) {
+                transactions.add(readString(in));
+            }
+            final boolean finalized = in.readBoolean();
+            return new StoredL1Info(
+                    new L1Info(blockInfo, systemConfig, deposits, transactions, finalized), parentHash);
+        } catch (IOException e) {
+            throw new StoreException("failed to decode L1 info", e);
+        }
+    }
+
+    /**
+     * Encodes a block number.
+     *
+     * @param number the block number
+     * @return the payload
+     */
+    static byte[] encodeNumber(BigInteger number) {
+        return ByteBuffer.allocate(Long.BYTES).putLong(number.longValueExact()).array();
+    }
+
+    /**
+     * Decodes a block number.
+     *
+     * @param payload the payload
+     * @return the block number
+     */
+    static BigInteger decodeNumber(ByteBuffer payload) {
+        return BigInteger.valueOf(payload.getLong(payload.position()));
+    }
+
+    /**
+     * Encodes a head info.
+     *
+     * @param head the head info
+     * @return the payload
+     */
+    static byte[] encodeHead(HeadInfo head) {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream(256);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            final BlockInfo blockInfo = head.l2BlockInfo();
+            writeString(out, blockInfo.hash());
+            writeBigInteger(out, blockInfo.number());
+            writeString(out, blockInfo.parentHash());
+            writeBigInteger(out, blockInfo.timestamp());
+            final Epoch epoch = head.l1Epoch();
+            writeBigInteger(out, epoch.number());
+            writeString(out, epoch.hash());
+            writeBigInteger(out, epoch.timestamp());
+            writeBigInteger(out, head.sequenceNumber());
+        } catch (IOException e) {
+            throw new StoreException("failed to encode head info", e);
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Decodes a head info.
+     *
+     * @param payload the payload
+     * @return the head info
+     */
+    static HeadInfo decodeHead(ByteBuffer payload) {
+        try (DataInputStream in = input(payload)) {
+            final BlockInfo blockInfo =
+                    new BlockInfo(readString(in), readBigInteger(in), readString(in), readBigInteger(in));
+            final Epoch epoch = new Epoch(readBigInteger(in), readString(in), readBigInteger(in));
+            return new HeadInfo(blockInfo, epoch, readBigInteger(in));
+        } catch (IOException e) {
+            throw new StoreException("failed to decode head info", e);
+        }
+    }
+
+    private static DataInputStream input(ByteBuffer payload) {
+        final byte[] bytes = new byte[payload.remaining()];
+        payload.duplicate().get(bytes);
+        return new DataInputStream(new ByteArrayInputStream(bytes));
+    }
+
+    private static void writeBigInteger(DataOutputStream out, BigInteger value) throws IOException {
+        writeBytes(out, value == null ? null : value.toByteArray());
+    }
+
+    private static BigInteger readBigInteger(DataInputStream in) throws IOException {
+        final byte[] bytes = readBytes(in);
+        return bytes == null ? null : new BigInteger(bytes);
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        writeBytes(out, value == null ? null : value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        final byte[] bytes = readBytes(in);
+        return bytes == null ? null : new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static void writeBytes(DataOutputStream out, byte[] value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        out.writeInt(value.length);
+        out.write(value);
+    }
+
+    private static byte[] readBytes(DataInputStream in) throws IOException {
+        final int length = in.readInt();
+        if (length < 0) {
+            return null;
+        }
+        final byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return bytes;
+    }
+}
@@ -0,0 +1,50 @@
+/*
+ * Copyright 2023 281165273grape@gmail.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package io.optimism.store;
+
+/**
+ * The type StoreException.
+ *
+ * @author grapebaba
+ * @since 0.2.0
+ */
+public class StoreException extends RuntimeException {
+
+    /** Instantiates a new Store exception. */
+    public StoreException() {
+        super("derivation store failure");
+    }
+
+    /**
+     * Instantiates a new Store exception.
+     *
+     * @param message the message
+     */
+    public StoreException(String message) {
+        super(message);
+    }
+
+    /**
+     * Instantiates a new Store exception.
+     *
+     * @param message the message
+     * @param cause the cause
+     */
+    public StoreException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
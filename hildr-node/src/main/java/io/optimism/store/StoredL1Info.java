@@ -0,0 +1,29 @@
+/*
+ * Copyright 2023 281165273grape@gmail.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package io.optimism.store;
+
+import io.optimism.l1.L1Info;
+
+/**
+ * The type StoredL1Info.
+ *
+ * @param l1Info the L1 info emitted by the chain watcher
+ * @param parentHash the parent hash of the L1 block
+ * @author grapebaba
+ * @since 0.2.0
+ */
+public record StoredL1Info(L1Info l1Info, String parentHash) {}
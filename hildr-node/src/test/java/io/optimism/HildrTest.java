@@ -39,7 +39,7 @@ class HildrTest {
      */
     @Test
     void appHasGreeting() throws JsonProcessingException {
-        CliConfig cliConfig = new CliConfig("test", "test", "test", "test", "test", null, null, false);
+        CliConfig cliConfig = new CliConfig("test", "test", "test", "test", "test", null, null, false, null);
         TomlMapper mapper = new TomlMapper();
         String cliConfigStr = mapper.writerFor(CliConfig.class).writeValueAsString(cliConfig);
 
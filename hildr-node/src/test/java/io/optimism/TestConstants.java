@@ -58,7 +58,7 @@ public class TestConstants {
         var l1WsRpcUrl = l1RpcWsUrlFormat.formatted(envs.get(ETH_API_ENV));
         var l2RpcUrl = l2RpcUrlFormat.formatted(envs.get(OPT_API_ENV));
         Config.CliConfig cliConfig =
-                new Config.CliConfig(l1RpcUrl, l1WsRpcUrl, l2RpcUrl, null, "testjwt", null, null, false);
+                new Config.CliConfig(l1RpcUrl, l1WsRpcUrl, l2RpcUrl, null, "testjwt", null, null, false, null);
         return Config.create(null, cliConfig, Config.ChainConfig.optimismGoerli());
     }
 }
@@ -40,7 +40,7 @@ class ConfigTest {
     /** Create. */
     @Test
     void create() {
-        CliConfig cliConfig = new CliConfig(null, null, null, null, "testjwt", null, null, false);
+        CliConfig cliConfig = new CliConfig(null, null, null, null, "testjwt", null, null, false, null);
         Config config = Config.create(
                 Paths.get("src", "test", "resources", "test.toml"), cliConfig, ChainConfig.optimismGoerli());
         assertEquals("https://example2.com", config.l2RpcUrl());
@@ -0,0 +1,218 @@
+/*
+ * Copyright 2023 281165273grape@gmail.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+
+package io.optimism.derive;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import io.optimism.common.BlockInfo;
+import io.optimism.common.Epoch;
+import io.optimism.config.Config;
+import io.optimism.config.Config.ChainConfig;
+import io.optimism.l1.L1Info;
+import io.optimism.l1.L1Info.L1BlockInfo;
+import io.optimism.type.Hash32;
+import java.math.BigInteger;
+import java.util.List;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+/**
+ * The type StateTest.
+ *
+ * @author grapebaba
+ * @since 0.2.0
+ */
+class StateTest {
+
+    private static final long SAFE_EPOCH = 10_000L;
+
+    private static final Config CONFIG =
+            new Config("", "", "", "", null, null, 9545, false, null, ChainConfig.optimismGoerli());
+
+    private static final long SEQ_WINDOW_SIZE = CONFIG.chainConfig().seqWindowSize().longValue();
+
+    @Test
+    @DisplayName("test updates leave older snapshots unchanged")
+    void testUpdatesLeaveOlderSnapshotsUnchanged() {
+        State initial = create();
+        State first = initial.updateL1Info(l1Info(0, SAFE_EPOCH));
+        State second = first.updateL1Info(l1Info(0, SAFE_EPOCH + 1));
+        State moved = second.updateSafeHead(safeHead(101L), epoch(SAFE_EPOCH + 1));
+
+        assertNull(initial.l1Info(SAFE_EPOCH));
+        assertEquals(BigInteger.ZERO, initial.getCurrentEpochNum());
+        assertNotNull(first.l1Info(SAFE_EPOCH));
+        assertNull(first.l1Info(SAFE_EPOCH + 1));
+        assertNull(first.l1Info(hash(0, SAFE_EPOCH + 1)));
+        assertEquals(BigInteger.valueOf(SAFE_EPOCH), first.getCurrentEpochNum());
+        assertEquals(BigInteger.valueOf(SAFE_EPOCH + 1), second.epoch(hash(0, SAFE_EPOCH + 1)).number());
+        assertEquals(BigInteger.valueOf(100L), second.getSafeHead().number());
+        assertEquals(BigInteger.valueOf(101L), moved.getSafeHead().number());
+        assertSame(second.l1Info(SAFE_EPOCH), moved.l1Info(SAFE_EPOCH));
+    }
+
+    @Test
+    @DisplayName("test infos older than the sequencer window are pruned")
+    void testPrune() {
+        final long oldest = SAFE_EPOCH - SEQ_WINDOW_SIZE;
+        State state = create();
+        for (long number = oldest - 1; number <= SAFE_EPOCH; number++) {
+            state = state.updateL1Info(l1Info(0, number));
+        }
+        assertNull(state.l1Info(oldest - 1));
+        assertNotNull(state.l1Info(hash(0, oldest)));
+
+        State snapshot = state;
+        state = state.updateSafeHead(safeHead(101L), epoch(SAFE_EPOCH + 200L))
+                .updateL1Info(l1Info(0, SAFE_EPOCH + 1));
+
+        final long kept = oldest + 200L;
+        assertNull(state.l1Info(kept - 1));
+        assertNull(state.l1Info(hash(0, kept - 1)));
+        assertNotNull(state.l1Info(kept));
+        assertNotNull(state.l1Info(hash(0, kept)));
+        assertNotNull(state.l1Info(hash(0, SAFE_EPOCH + 1)));
+        // a snapshot taken before the pruning still finds its infos by hash
+        assertNotNull(snapshot.l1Info(oldest));
+        assertNotNull(snapshot.l1Info(hash(0, oldest)));
+        assertNull(snapshot.l1Info(hash(0, SAFE_EPOCH + 1)));
+    }
+
+    @Test
+    @DisplayName("test a reorged L1 block replaces the infos from its number on")
+    void testReorg() {
+        State state = create();
+        for (long number = SAFE_EPOCH; number < SAFE_EPOCH + 130L; number++) {
+            state = state.updateL1Info(l1Info(0, number));
+        }
+        State reorged = state.updateL1Info(l1Info(1, SAFE_EPOCH + 64L));
+
+        assertEquals(hash(1, SAFE_EPOCH + 64L), reorged.l1Info(SAFE_EPOCH + 64L).blockInfo().hash());
+        assertNull(reorged.l1Info(SAFE_EPOCH + 65L));
+        assertNull(reorged.l1Info(hash(0, SAFE_EPOCH + 64L)));
+        assertNotNull(reorged.l1Info(hash(0, SAFE_EPOCH + 63L)));
+        assertEquals(BigInteger.valueOf(SAFE_EPOCH + 64L), reorged.getCurrentEpochNum());
+
+        assertEquals(hash(0, SAFE_EPOCH + 64L), state.l1Info(SAFE_EPOCH + 64L).blockInfo().hash());
+        assertNotNull(state.l1Info(hash(0, SAFE_EPOCH + 129L)));
+        assertNull(state.l1Info(hash(1, SAFE_EPOCH + 64L)));
+    }
+
+    @Test
+    @DisplayName("test snapshots keep their infos after the window wraps around")
+    void testWrapAround() {
+        State state = create();
+        for (long number = SAFE_EPOCH - SEQ_WINDOW_SIZE; number <= SAFE_EPOCH; number++) {
+            state = state.updateL1Info(l1Info(0, number));
+        }
+        State snapshot = state;
+        // every update moves the window by one block, until it has passed the ring several times
+        for (long number = SAFE_EPOCH + 1; number <= SAFE_EPOCH + 4 * SEQ_WINDOW_SIZE; number++) {
+            state = state.updateSafeHead(safeHead(100L), epoch(number)).updateL1Info(l1Info(0, number));
+        }
+
+        for (long number = SAFE_EPOCH - SEQ_WINDOW_SIZE; number <= SAFE_EPOCH; number += 97L) {
+            assertEquals(hash(0, number), snapshot.l1Info(number).blockInfo().hash());
+            assertSame(snapshot.l1Info(number), snapshot.l1Info(hash(0, number)));
+            assertNull(state.l1Info(number));
+        }
+        final long last = SAFE_EPOCH + 4 * SEQ_WINDOW_SIZE;
+        assertNotNull(state.l1Info(last - SEQ_WINDOW_SIZE));
+        assertNotNull(state.l1Info(hash(0, last - SEQ_WINDOW_SIZE)));
+        assertNull(state.l1Info(last - SEQ_WINDOW_SIZE - 1));
+        assertNull(snapshot.l1Info(hash(0, last)));
+    }
+
+    @Test
+    @DisplayName("test epochs are built once per L1 info")
+    void testEpochCache() {
+        State state = create().updateL1Info(l1Info(0, SAFE_EPOCH));
+
+        Epoch epoch = state.epoch(SAFE_EPOCH);
+        assertEquals(BigInteger.valueOf(SAFE_EPOCH), epoch.number());
+        assertEquals(hash(0, SAFE_EPOCH), epoch.hash());
+        assertEquals(BigInteger.valueOf(SAFE_EPOCH * 12L), epoch.timestamp());
+        assertSame(epoch, state.epoch(hash(0, SAFE_EPOCH)));
+        assertSame(epoch, state.updateL1Info(l1Info(0, SAFE_EPOCH + 1)).epoch(SAFE_EPOCH));
+        assertNull(state.epoch(SAFE_EPOCH + 1));
+        assertNull(state.epoch(hash(1, SAFE_EPOCH)));
+    }
+
+    @Test
+    @DisplayName("test purge drops all infos")
+    void testPurge() {
+        State state = create().updateL1Info(l1Info(0, SAFE_EPOCH));
+        State purged = state.purge(safeHead(90L), epoch(SAFE_EPOCH - 1));
+
+        assertNull(purged.l1Info(SAFE_EPOCH));
+        assertNull(purged.l1Info(hash(0, SAFE_EPOCH)));
+        assertEquals(BigInteger.ZERO, purged.getCurrentEpochNum());
+        assertEquals(BigInteger.valueOf(90L), purged.getSafeHead().number());
+        assertNotNull(state.l1Info(hash(0, SAFE_EPOCH)));
+    }
+
+    @Test
+    @DisplayName("test the head and epoch hashes are kept parsed")
+    void testHashesKeptParsed() {
+        State state = create().updateL1Info(l1Info(0, SAFE_EPOCH)).updateL1Info(l1Info(1, SAFE_EPOCH + 1));
+
+        assertEquals(Hash32.from(hash(2, 100L)), state.getSafeHeadHash());
+        assertEquals(Hash32.from(hash(2, 99L)), state.getSafeHeadParentHash());
+        assertEquals(Hash32.from(hash(0, SAFE_EPOCH)), state.getSafeEpochHash());
+        assertEquals(Hash32.from(hash(1, SAFE_EPOCH + 1)), state.epochHash(SAFE_EPOCH + 1));
+        assertNull(state.epochHash(SAFE_EPOCH + 2));
+
+        State speculative = state.updateSafeHead(
+                new BlockInfo(null, BigInteger.valueOf(101L), hash(2, 100L), BigInteger.TEN), epoch(SAFE_EPOCH));
+        assertNull(speculative.getSafeHeadHash());
+        assertEquals(Hash32.from(hash(2, 100L)), speculative.getSafeHeadParentHash());
+    }
+
+    private static State create() {
+        return State.create(safeHead(100L), epoch(SAFE_EPOCH), CONFIG);
+    }
+
+    private static BlockInfo safeHead(long number) {
+        return new BlockInfo(hash(2, number), BigInteger.valueOf(number), hash(2, number - 1), BigInteger.TEN);
+    }
+
+    private static Epoch epoch(long number) {
+        return new Epoch(BigInteger.valueOf(number), hash(0, number), BigInteger.valueOf(number * 12L));
+    }
+
+    private static L1Info l1Info(int fork, long number) {
+        return new L1Info(
+                new L1BlockInfo(
+                        BigInteger.valueOf(number),
+                        hash(fork, number),
+                        BigInteger.valueOf(number * 12L),
+                        BigInteger.ONE,
+                        hash(0, 0L)),
+                null,
+                List.of(),
+                List.of(),
+                false);
+    }
+
+    private static String hash(int fork, long number) {
+        return String.format("0x%032x%032x", fork, number);
+    }
+}
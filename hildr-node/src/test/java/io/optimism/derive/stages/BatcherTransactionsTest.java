@@ -135,4 +135,23 @@ class BatcherTransactionsTest {
         assertTrue(frame.isLastFrame());
         assertArrayEquals(ArrayUtils.subarray(data, 23, data.length - 1), frame.frameData());
     }
+
+    /** Test decode tx with multiple frames. */
+    @Test
+    @DisplayName("test decode tx with multiple frames.")
+    void testDecodeTxWithMultipleFrames() {
+        BigInteger channelId = new BigInteger("239159748140584302248388764660258118408");
+        byte[] first = Frame.create(channelId, 0, new byte[] {1, 2, 3}, false).encode();
+        byte[] second = Frame.create(channelId, 1, new byte[] {4, 5}, true).encode();
+        byte[] data = ArrayUtils.addAll(ArrayUtils.addAll(new byte[] {0}, first), second);
+
+        BatcherTransaction tx = BatcherTransaction.create(data, BigInteger.valueOf(123456L));
+
+        assertEquals(2, tx.frames().size());
+        assertEquals(channelId, tx.frames().get(1).channelId());
+        assertEquals(tx.frames().get(0).id(), tx.frames().get(1).id());
+        assertArrayEquals(new byte[] {1, 2, 3}, tx.frames().get(0).frameData());
+        assertArrayEquals(new byte[] {4, 5}, tx.frames().get(1).frameData());
+        assertTrue(tx.frames().get(1).isLastFrame());
+    }
 }
@@ -17,14 +17,38 @@
 package io.optimism.derive.stages;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
+import io.optimism.common.BlockInfo;
+import io.optimism.common.Epoch;
+import io.optimism.config.Config;
+import io.optimism.config.Config.ChainConfig;
+import io.optimism.derive.PurgeableIterator;
+import io.optimism.derive.State;
 import io.optimism.derive.stages.Channels.Channel;
+import io.optimism.l1.L1Info;
+import io.optimism.l1.L1Info.L1BlockInfo;
 import io.optimism.utilities.derive.stages.Batch;
 import java.math.BigInteger;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
 import java.util.List;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.zip.Deflater;
+import org.apache.commons.lang3.ArrayUtils;
 import org.bouncycastle.util.encoders.Hex;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
+import org.web3j.rlp.RlpEncoder;
+import org.web3j.rlp.RlpList;
+import org.web3j.rlp.RlpString;
+import org.web3j.utils.Numeric;
 
 /**
  * The type BatchesTest.
@@ -34,112 +58,120 @@ import org.junit.jupiter.api.Test;
  */
 class BatchesTest {
 
+    private static final Config CONFIG =
+            new Config("", "", "", "", null, null, 9545, false, null, ChainConfig.optimismGoerli());
+
+    private static final Epoch EPOCH = new Epoch(BigInteger.TEN, "0x" + "cd".repeat(32), BigInteger.valueOf(1000L));
+
+    private static final String SAFE_HASH = "0x" + "ab".repeat(32);
+
+    private static final String CHANNEL_DATA = "78dad459793894fbdb7f9e19db20eb902dbb9086b410b2af2939b66c255bd60991"
+            + "c8a133c6845276c9daa36c21bb3211932c8908591a6509132a3b1959decb"
+            + "e93ade73aeebbc745ee7f773755fd7fcf599effdfd3cf7f5b93ff7f7f93e"
+            + "786a5d804cad05255ef05f6445189cc97f1b4ef3656d2cdd318bcbe30a93"
+            + "f689737dea1f3297ed8d83029fa64364f70716e8c138e517e81606f661f7"
+            + "54e982039eda1366dc277286510cf7142b717613166832d56279316cb100"
+            + "0ba65305f1e230eb3fec23da58628342a55fc9ee47fa1db79e1d672c3968"
+            + "bfd4740253ae81b0ca2a01fe1456ad32f374dd47270af5fcc69839881590"
+            + "a92137b059305c9d2280500faf1a489d7179f26143eb2923944efb05a138"
+            + "1b4536499f9ed9be14ff2817142427de6d4a59af3be62c8fa3d5927fef36"
+            + "15e6226f4bc1ad412d4b8c609853dc8b87b591612d4170a5d9df4953a7f1"
+            + "c73ebc397a8f742d3526ac08559a86953e948c9e75c7e061f68d186f3960"
+            + "f3c06c0e83d0e6380c0041601bf197c591f9a7553e1647f6f171fa191419"
+            + "c90d03f08605100061f06d6c60bd054eb119788b6b8ff14ee2eb052e0af9"
+            + "78632db54e63fed6900a3ad0b179456da86a97b9134d00b9d0b04b97a604"
+            + "dd743bb92fa035f0412bec13a2793e7a9ad5d33bb1bdcbf20d22146377f9"
+            + "d0ca56f9d51733a63507dc9270cc575fd67821d24e1d76a18bce5c503c71"
+            + "05ed33cd51c62075c2284ee2e2120bf1154d553ccc2694c37ef478185d64"
+            + "e7c7e23d8d1ca784c7b17034d436d228729fd385b9a73a2900b0adc7ec9e"
+            + "be6a12bbd61c2b23cc5ab27a0bd80beda6203f2ef8e02540f41dd4154ca8"
+            + "b52563434b3a0d6dae239607cff261e9f4cbf317f3b030b72030180a02cf"
+            + "45c6d6f5b401fb6e5f1ae6541b1a1fafe55ab9b462e28729d77840995cf1"
+            + "67f2bd365a1af9538a93022353d6019218be002b7cfba60fbb348559e7cb"
+            + "9ca6cc20642cf82997cb7d58b7c2c919b96f29f9f0c52ceb792c4ec403ad"
+            + "cf025d38461918536ade57d6256794c54d9591726b85ae5ca645790264f5"
+            + "ce99be48fcce9766836f76e9b73c52a9fd2c2a675e4122f85d148b406cd3"
+            + "f6f8c2ca860ad88b4201609def590ffbe3d8667b8495284986b19e918fd4"
+            + "f26e7aacf5e8d7bc6733e3bda1f65a90a4b901166e8317198816e8b8f6a2"
+            + "35b2735954b95a877177b165b1dd19064d9eef7cb936f83a68a52447c996"
+            + "a14e2d7967b2a0f20a8e440bc8fc8bf54da41df6d00a95ee76eea6a1e43c"
+            + "d90b374dee48a889b33ec87480a8d776204b17e24aa9f787efc9cb246560"
+            + "634d57bf1ac252549f9d9f9f4b141f0ba3435c09837fe71bb8c1f7ffb0e4"
+            + "edf20518d554d6f97211849d7bdf9e1d4d6dad75f3ffaa29f5f5bed74c29"
+            + "1159ddb4d274dd4c7f72113a2f9fe17534fc9b46f02ffcb153d6a0efcd41"
+            + "c7de92d78f16e73cbeec5b2496f17fe71bbcc1175fd6914a7890e046782b"
+            + "25d58a0e33c8e046996e932f68a7e97bf6c6773dd414db0992ee66f862ef"
+            + "d7b0d4cbb38a2725a6b15af899c579f5f73395a46ac6439a19c1ac17300a"
+            + "69dd16434ea3f0abc7382c254daeedb28cb28ce8a4715a16f3c0532e0164"
+            + "ca052880911a317f464a05ac6f507f15e4d2507c37acc2672f2a65ba8945"
+            + "2cd462e4c10f0f53373265f61f83c987716330c5ad883c130aef10d53512"
+            + "4188963915286248c63fe160a25aa04ce01182bdcf7cabffe445c9c40200"
+            + "6fa1d9c9c12406bec7637610ffbdc0114419d3d1c2665984e38779b84aa0"
+            + "406a349297e54ec1a783c92edc841c4a5f8af3ab9fa54b24fb31dfd02339"
+            + "b55153b01c472a83b7bf729c6ea4d16268a519df2abfc77da516e51cbad5"
+            + "b523bacf2fa0510ca7809952648a79ee1749ae815455db8bbf5adc99f5ca"
+            + "08a2486c653e8ab649921b701814ef71ed1c312261efe82c0c7960e1aed0"
+            + "ac772a7a2d4a8ad5c72cfe4b4153af34aa62f09866423392fe1ee9158054"
+            + "e7877883c2be453f6f873fbcc5bfa785cf96646d7020bba6b16726f7bd76"
+            + "bf8e6b9ec886a69936346d9eef031cbddfef860b9aa276fc98d9e57b7282"
+            + "f0dfd2f4f6e22f9adecf6ec5acb74cef4d49beeedc4b607f0cc01b0c7750"
+            + "d3300d5ea95f13770efffea7ee9214aa608830831027a6cac7e43f5263b6"
+            + "09ec5ac8392856353d8d543ca1f56c7fa91581533ba051a7521ea8b34067"
+            + "75e144c3f49fa69ee7c4b19d344a99df2abfad67aa357a685e092af3f27b"
+            + "aa103215d1299e79bcdf523975e98d79bc8892bf67f091e78d11d8525ac9"
+            + "73c7925330ef4a1f45f7e851fa464c16e2bc6fb8ea74ad9bbf6cad30116d"
+            + "6eef0e98654be15e71c33a9d6a54709f9cd192375a7b68ba8509905f5243"
+            + "96ac59cb99b80757cbd2ae33093dbd51d426ee10ec98b966fde1e81919bb"
+            + "727d60f12444e546317fcd852c9fa41a622735d32f28716c9a7726dcedf3"
+            + "613a7782a67888c40f5bbf07e18f69a29975d88f645a878b8f9889ef2f9c"
+            + "2f2aa6d5e7111be9e71825db4ebef6375bf9e1949e7f9a264a731b9d57aa"
+            + "9d548c58ae610dcc797a805e9e0920b0d405ff849d3737009e8af53f45ac"
+            + "fddc95f16a36c40c80bfe6ded1d71c9670466827f1f502fb36485df66b7c"
+            + "3d35669fdb34dd9ed97fd3d78a973eb0c1c4452f212660cc155545bc93f3"
+            + "755f150a56e0453410f37a721e465d48f09b5f26a97356cac9cb176f957f"
+            + "8f0ca7d01518275b5c9cf7a3eb7908dc9bc84ee704915bb4353aba2bc01d"
+            + "9b2277fc527487470d429f45f8dd2ac154d9a24af8c85be039e5a0125f95"
+            + "414f1b6ebdf3507abe4371059ecb17564fe60829d393a4af4dc91ba02869"
+            + "451ba5579a726f8f43f23315d143b465b436cbd5c65c2c7eec76e99ae3d1"
+            + "e6c885f7b9b56d079db9fff7d57d7e43d346056b4b3e80fd41a4ab83bfe3"
+            + "924fd91bca2b0a3fe1098961d9770959672e55d1203cce4573c60180d7b3"
+            + "51eda4a62588777c77125f2f3045fa5304178bfee869bb89570f6119d16a"
+            + "bb5e8f7334266864d5791cacd655e1ad9b2b9cd60aebb5d2b53832281831"
+            + "5e3bd9fd793f4cea6925ca7c363d2d245170abfcdad50d221509fa89e708"
+            + "3c4f92436dbe527a7f48fdd6c24edb36991e8874e83cab0406a0463b966f"
+            + "f376f194e14c4171a5b05d3cfb4cd69e0512e063ed87e32faf9f900afd76"
+            + "1f9e7858d96fc600e3e353e7bae4d0dbe455f6f5b9e31beef46255372739"
+            + "88514d2088e8d79c14162c29955b91ef33a8467208283ffdd0750fcbeebd"
+            + "6c621578582e408665419705c9a3495ac8b9ea9595986cf5cc03579bd43d"
+            + "898e96c55cc5828691b5f8ea1f36ff4b6498391e761a46861962c1f4200a"
+            + "5c355694092bca1404fa88c536b029cbce2c0d1cfb86465a4a08ed0ebe7b"
+            + "adc715830787d113aec15b946b8b7600f9b7c0adb7d76effac9ffe26b6e0"
+            + "07506b1aeb48991869fca7f6a7d9c67ad1b9884307b6b93f4800a1eceb15"
+            + "cb4e3ebc394e77da220de3b227739a05094f3e4848d3199b2255ba431ca0"
+            + "dfa8f5625fba3725f9d3c514c5513c763b7caffbfaa43a77411e876ac8b9"
+            + "4fbc56788a11804c31089994cc79d273068924c7ef9f5de11a4ea6da0f32"
+            + "1316f7cf7774f5843712448c7e58ad97c914311bb6beb061eb6946166e1c"
+            + "98bdef8e2c921e63a4ed085d0db4693fa1addb84a7db0f7649c488528df6"
+            + "a9f1be1c05e0a37d7010beade3d0b66c1d085966df161e8adafcc6355496"
+            + "632bdbcd825623f88f18b7f1b9c2cfa949bf793859c51a57a8c23cbc7f7a"
+            + "f5aa5155f1dcf1c71de23c0bfcb40a09aa4deda6050c8569ab2f5c537eb9"
+            + "e087c42c3a670c286e959f5fcf1e57393465caf598def15e14c588dd7088"
+            + "4248da9c6b6bd44d54cc73bde72a23aa259d7b8ff77d8ae97b3150e02124"
+            + "5ddf4ada65661daf806e9d9dabec5558b7f550ebf7ec260b16b6eeca8b7a"
+            + "1aaaf9c5a26c0d951e22723402ab211f1e29dba840729edee9496582beaa"
+            + "d4554e5e2eed3d11a14283c9e23ace5d2b4e433d0fcc3078b0124606cbb1"
+            + "603aec8f6f23415408e358da0a8b733edac893e8b77bef4f59328a6ae5d3"
+            + "ca87b0e58e7f115001f0a0c6214938f69fb4f9df5d94fd7349511c8be8f7"
+            + "6872e109bd9bc6c2fdfff03993e49ed485a226b1da209b4d975acc32f9a9"
+            + "00ffa6cfffddf31340280d2efa59844d59a7ec592dd5a87998b6113506c4"
+            + "4c665ca197cebff1c90e5484cc8a6cb2c5b1badab35aefa35c1384f0bb64"
+            + "59061ad574c2f37f8bbbd2e8dff5f27f020000ffff8db46838";
+
     /** Decode batches. */
     @Test
     @DisplayName("Test decode batches successfully")
     void decodeBatches() {
-        String data = "78dad459793894fbdb7f9e19db20eb902dbb9086b410b2af2939b66c255bd60991"
-                + "c8a133c6845276c9daa36c21bb3211932c8908591a6509132a3b1959decb"
-                + "e93ade73aeebbc745ee7f773755fd7fcf599effdfd3cf7f5b93ff7f7f93e"
-                + "786a5d804cad05255ef05f6445189cc97f1b4ef3656d2cdd318bcbe30a93"
-                + "f689737dea1f3297ed8d83029fa64364f70716e8c138e517e81606f661f7"
-                + "54e982039eda1366dc277286510cf7142b717613166832d56279316cb100"
-                + "0ba65305f1e230eb3fec23da58628342a55fc9ee47fa1db79e1d672c3968"
-                + "bfd4740253ae81b0ca2a01fe1456ad32f374dd47270af5fcc69839881590"
-                + "a92137b059305c9d2280500faf1a489d7179f26143eb2923944efb05a138"
-                + "1b4536499f9ed9be14ff2817142427de6d4a59af3be62c8fa3d5927fef36"
-                + "15e6226f4bc1ad412d4b8c609853dc8b87b591612d4170a5d9df4953a7f1"
-                + "c73ebc397a8f742d3526ac08559a86953e948c9e75c7e061f68d186f3960"
-                + "f3c06c0e83d0e6380c0041601bf197c591f9a7553e1647f6f171fa191419"
-                + "c90d03f08605100061f06d6c60bd054eb119788b6b8ff14ee2eb052e0af9"
-                + "78632db54e63fed6900a3ad0b179456da86a97b9134d00b9d0b04b97a604"
-                + "dd743bb92fa035f0412bec13a2793e7a9ad5d33bb1bdcbf20d22146377f9"
-                + "d0ca56f9d51733a63507dc9270cc575fd67821d24e1d76a18bce5c503c71"
-                + "05ed33cd51c62075c2284ee2e2120bf1154d553ccc2694c37ef478185d64"
-                + "e7c7e23d8d1ca784c7b17034d436d228729fd385b9a73a2900b0adc7ec9e"
-                + "be6a12bbd61c2b23cc5ab27a0bd80beda6203f2ef8e02540f41dd4154ca8"
-                + "b52563434b3a0d6dae239607cff261e9f4cbf317f3b030b72030180a02cf"
-                + "45c6d6f5b401fb6e5f1ae6541b1a1fafe55ab9b462e28729d77840995cf1"
-                + "67f2bd365a1af9538a93022353d6019218be002b7cfba60fbb348559e7cb"
-                + "9ca6cc20642cf82997cb7d58b7c2c919b96f29f9f0c52ceb792c4ec403ad"
-                + "cf025d38461918536ade57d6256794c54d9591726b85ae5ca645790264f5"
-                + "ce99be48fcce9766836f76e9b73c52a9fd2c2a675e4122f85d148b406cd3"
-                + "f6f8c2ca860ad88b4201609def590ffbe3d8667b8495284986b19e918fd4"
-                + "f26e7aacf5e8d7bc6733e3bda1f65a90a4b901166e8317198816e8b8f6a2"
-                + "35b2735954b95a877177b165b1dd19064d9eef7cb936f83a68a52447c996"
-                + "a14e2d7967b2a0f20a8e440bc8fc8bf54da41df6d00a95ee76eea6a1e43c"
-                + "d90b374dee48a889b33ec87480a8d776204b17e24aa9f787efc9cb246560"
-                + "634d57bf1ac252549f9d9f9f4b141f0ba3435c09837fe71bb8c1f7ffb0e4"
-                + "edf20518d554d6f97211849d7bdf9e1d4d6dad75f3ffaa29f5f5bed74c29"
-                + "1159ddb4d274dd4c7f72113a2f9fe17534fc9b46f02ffcb153d6a0efcd41"
-                + "c7de92d78f16e73cbeec5b2496f17fe71bbcc1175fd6914a7890e046782b"
-                + "25d58a0e33c8e046996e932f68a7e97bf6c6773dd414db0992ee66f862ef"
-                + "d7b0d4cbb38a2725a6b15af899c579f5f73395a46ac6439a19c1ac17300a"
-                + "69dd16434ea3f0abc7382c254daeedb28cb28ce8a4715a16f3c0532e0164"
-                + "ca052880911a317f464a05ac6f507f15e4d2507c37acc2672f2a65ba8945"
-                + "2cd462e4c10f0f53373265f61f83c987716330c5ad883c130aef10d53512"
-                + "4188963915286248c63fe160a25aa04ce01182bdcf7cabffe445c9c40200"
-                + "6fa1d9c9c12406bec7637610ffbdc0114419d3d1c2665984e38779b84aa0"
-                + "406a349297e54ec1a783c92edc841c4a5f8af3ab9fa54b24fb31dfd02339"
-                + "b55153b01c472a83b7bf729c6ea4d16268a519df2abfc77da516e51cbad5"
-                + "b523bacf2fa0510ca7809952648a79ee1749ae815455db8bbf5adc99f5ca"
-                + "08a2486c653e8ab649921b701814ef71ed1c312261efe82c0c7960e1aed0"
-                + "ac772a7a2d4a8ad5c72cfe4b4153af34aa62f09866423392fe1ee9158054"
-                + "e7877883c2be453f6f873fbcc5bfa785cf96646d7020bba6b16726f7bd76"
-                + "bf8e6b9ec886a69936346d9eef031cbddfef860b9aa276fc98d9e57b7282"
-                + "f0dfd2f4f6e22f9adecf6ec5acb74cef4d49beeedc4b607f0cc01b0c7750"
-                + "d3300d5ea95f13770efffea7ee9214aa608830831027a6cac7e43f5263b6"
-                + "09ec5ac8392856353d8d543ca1f56c7fa91581533ba051a7521ea8b34067"
-                + "75e144c3f49fa69ee7c4b19d344a99df2abfad67aa357a685e092af3f27b"
-                + "aa103215d1299e79bcdf523975e98d79bc8892bf67f091e78d11d8525ac9"
-                + "73c7925330ef4a1f45f7e851fa464c16e2bc6fb8ea74ad9bbf6cad30116d"
-                + "6eef0e98654be15e71c33a9d6a54709f9cd192375a7b68ba8509905f5243"
-                + "96ac59cb99b80757cbd2ae33093dbd51d426ee10ec98b966fde1e81919bb"
-                + "727d60f12444e546317fcd852c9fa41a622735d32f28716c9a7726dcedf3"
-                + "613a7782a67888c40f5bbf07e18f69a29975d88f645a878b8f9889ef2f9c"
-                + "2f2aa6d5e7111be9e71825db4ebef6375bf9e1949e7f9a264a731b9d57aa"
-                + "9d548c58ae610dcc797a805e9e0920b0d405ff849d3737009e8af53f45ac"
-                + "fddc95f16a36c40c80bfe6ded1d71c9670466827f1f502fb36485df66b7c"
-                + "3d35669fdb34dd9ed97fd3d78a973eb0c1c4452f212660cc155545bc93f3"
-                + "755f150a56e0453410f37a721e465d48f09b5f26a97356cac9cb176f957f"
-                + "8f0ca7d01518275b5c9cf7a3eb7908dc9bc84ee704915bb4353aba2bc01d"
-                + "9b2277fc527487470d429f45f8dd2ac154d9a24af8c85be039e5a0125f95"
-                + "414f1b6ebdf3507abe4371059ecb17564fe60829d393a4af4dc91ba02869"
-                + "451ba5579a726f8f43f23315d143b465b436cbd5c65c2c7eec76e99ae3d1"
-                + "e6c885f7b9b56d079db9fff7d57d7e43d346056b4b3e80fd41a4ab83bfe3"
-                + "924fd91bca2b0a3fe1098961d9770959672e55d1203cce4573c60180d7b3"
-                + "51eda4a62588777c77125f2f3045fa5304178bfee869bb89570f6119d16a"
-                + "bb5e8f7334266864d5791cacd655e1ad9b2b9cd60aebb5d2b53832281831"
-                + "5e3bd9fd793f4cea6925ca7c363d2d245170abfcdad50d221509fa89e708"
-                + "3c4f92436dbe527a7f48fdd6c24edb36991e8874e83cab0406a0463b966f"
-                + "f376f194e14c4171a5b05d3cfb4cd69e0512e063ed87e32faf9f900afd76"
-                + "1f9e7858d96fc600e3e353e7bae4d0dbe455f6f5b9e31beef46255372739"
-                + "88514d2088e8d79c14162c29955b91ef33a8467208283ffdd0750fcbeebd"
-                + "6c621578582e408665419705c9a3495ac8b9ea9595986cf5cc03579bd43d"
-                + "898e96c55cc5828691b5f8ea1f36ff4b6498391e761a46861962c1f4200a"
-                + "5c355694092bca1404fa88c536b029cbce2c0d1cfb86465a4a08ed0ebe7b"
-                + "adc715830787d113aec15b946b8b7600f9b7c0adb7d76effac9ffe26b6e0"
-                + "07506b1aeb48991869fca7f6a7d9c67ad1b9884307b6b93f4800a1eceb15"
-                + "cb4e3ebc394e77da220de3b227739a05094f3e4848d3199b2255ba431ca0"
-                + "dfa8f5625fba3725f9d3c514c5513c763b7caffbfaa43a77411e876ac8b9"
-                + "4fbc56788a11804c31089994cc79d273068924c7ef9f5de11a4ea6da0f32"
-                + "1316f7cf7774f5843712448c7e58ad97c914311bb6beb061eb6946166e1c"
-                + "98bdef8e2c921e63a4ed085d0db4693fa1addb84a7db0f7649c488528df6"
-                + "a9f1be1c05e0a37d7010beade3d0b66c1d085966df161e8adafcc6355496"
-                + "632bdbcd825623f88f18b7f1b9c2cfa949bf793859c51a57a8c23cbc7f7a"
-                + "f5aa5155f1dcf1c71de23c0bfcb40a09aa4deda6050c8569ab2f5c537eb9"
-                + "e087c42c3a670c286e959f5fcf1e57393465caf598def15e14c588dd7088"
-                + "4248da9c6b6bd44d54cc73bde72a23aa259d7b8ff77d8ae97b3150e02124"
-                + "5ddf4ada65661daf806e9d9dabec5558b7f550ebf7ec260b16b6eeca8b7a"
-                + "1aaaf9c5a26c0d951e22723402ab211f1e29dba840729edee9496582beaa"
-                + "d4554e5e2eed3d11a14283c9e23ace5d2b4e433d0fcc3078b0124606cbb1"
-                + "603aec8f6f23415408e358da0a8b733edac893e8b77bef4f59328a6ae5d3"
-                + "ca87b0e58e7f115001f0a0c6214938f69fb4f9df5d94fd7349511c8be8f7"
-                + "6872e109bd9bc6c2fdfff03993e49ed485a226b1da209b4d975acc32f9a9"
-                + "00ffa6cfffddf31340280d2efa59844d59a7ec592dd5a87998b6113506c4"
-                + "4c665ca197cebff1c90e5484cc8a6cb2c5b1badab35aefa35c1384f0bb64"
-                + "59061ad574c2f37f8bbbd2e8dff5f27f020000ffff8db46838";
-        Channel channel = new Channel(BigInteger.ONE, Hex.decode(data), BigInteger.ONE);
+        Channel channel = new Channel(BigInteger.ONE, Hex.decode(CHANNEL_DATA), BigInteger.ONE);
         List<Batch> batches = Batches.decodeBatches(channel);
         System.out.println(batches);
 
@@ -148,4 +180,283 @@ class BatchesTest {
                 "0x9a6d7cf81309515caed98e08edffe9a467a71a707910474b5fde43e2a6fc6454",
                 batches.get(0).parentHash());
     }
+
+    /** Decode batches until the decompressed size limit. */
+    @Test
+    @DisplayName("Test decode batches stops at the decompressed size limit")
+    void decodeBatchesWithSizeLimit() {
+        BatchReader reader = new BatchReader(Hex.decode(CHANNEL_DATA), BigInteger.ONE, 2000);
+        List<Batch> batches = new ArrayList<>();
+        reader.forEachRemaining(batches::add);
+
+        assertEquals(1, batches.size());
+        assertEquals(
+                "0x9a6d7cf81309515caed98e08edffe9a467a71a707910474b5fde43e2a6fc6454",
+                batches.get(0).parentHash());
+        assertFalse(reader.hasNext());
+    }
+
+    /** Decode batches with bytes after the batch list. */
+    @Test
+    @DisplayName("Test bytes after the batch list are skipped")
+    void decodeBatchWithTrailingBytes() {
+        byte[] data = ArrayUtils.addAll(encodeBatch(1002L, new byte[] {1, 2, 3}), encodeBatch(1004L, new byte[0]));
+        BatchReader reader = new BatchReader(compress(data), BigInteger.ONE, BatchReader.MAX_RLP_BYTES_PER_CHANNEL);
+        List<Batch> batches = new ArrayList<>();
+        reader.forEachRemaining(batches::add);
+
+        assertEquals(2, batches.size());
+        assertEquals(BigInteger.valueOf(1002L), batches.get(0).timestamp());
+        assertEquals(BigInteger.valueOf(1004L), batches.get(1).timestamp());
+        assertEquals(SAFE_HASH, batches.get(1).parentHash());
+    }
+
+    /** Decode a batch whose list overruns the batch data. */
+    @Test
+    @DisplayName("Test a batch list overrunning the batch data ends the channel")
+    void decodeBatchOverrunningItsData() {
+        byte[] content = batchData(1002L);
+        byte[] truncated = RlpEncoder.encode(RlpString.create(Arrays.copyOf(content, content.length - 4)));
+        byte[] data = ArrayUtils.addAll(truncated, encodeBatch(1004L, new byte[0]));
+        BatchReader reader = new BatchReader(compress(data), BigInteger.ONE, BatchReader.MAX_RLP_BYTES_PER_CHANNEL);
+
+        assertFalse(reader.hasNext());
+    }
+
+    /** Decode channels in parallel. */
+    @Test
+    @DisplayName("Test channels decoded in parallel are handed out in channel order")
+    void decodeChannelsInOrder() {
+        var channels = new ChannelSource(ChannelDecoder.MAX_IN_FLIGHT * 2);
+        var decoder = new ChannelDecoder(channels);
+
+        List<BigInteger> inclusionBlocks = new ArrayList<>();
+        List<Batch> batches;
+        while ((batches = decoder.next()) != null) {
+            assertEquals(6, batches.size());
+            inclusionBlocks.add(batches.get(0).l1InclusionBlock());
+        }
+
+        assertEquals(ChannelDecoder.MAX_IN_FLIGHT * 2, inclusionBlocks.size());
+        for (int i = 0; i < inclusionBlocks.size(); i++) {
+            assertEquals(BigInteger.valueOf(i + 1), inclusionBlocks.get(i));
+        }
+    }
+
+    /** Purge channels in flight. */
+    @Test
+    @DisplayName("Test purging drops the channels in flight")
+    void purgeChannelsInFlight() {
+        var channels = new ChannelSource(ChannelDecoder.MAX_IN_FLIGHT * 2);
+        var decoder = new ChannelDecoder(channels);
+
+        assertEquals(BigInteger.ONE, decoder.next().get(0).l1InclusionBlock());
+        assertEquals(ChannelDecoder.MAX_IN_FLIGHT - 1, decoder.inFlight());
+
+        decoder.purge();
+
+        assertEquals(0, decoder.inFlight());
+        assertTrue(channels.purged);
+        assertNull(decoder.next());
+    }
+
+    /** Rewind to the engine head after a batch with a wrong parent was taken ahead. */
+    @Test
+    @DisplayName("Test a batch with a wrong parent taken ahead is dropped after rewinding to the engine head")
+    void dropWrongParentAfterRewind() {
+        var state = new AtomicReference<>(State.create(block(SAFE_HASH, 1L, 1000L), EPOCH, CONFIG));
+        var buffered = new TreeMap<BigInteger, Batch>();
+        var batches = new Batches<>(buffered, new ChannelSource(0), state, CONFIG);
+        Batch first = batch(SAFE_HASH, 1002L);
+        Batch wrongParent = batch(hash(9L), 1004L);
+        Batch third = batch(hash(3L), 1006L);
+        List.of(first, wrongParent, third).forEach(batch -> buffered.put(batch.timestamp(), batch));
+
+        // taken ahead of the engine, each batch claims the hash of the speculative head
+        assertSame(first, batches.next());
+        speculate(state, first);
+        assertSame(wrongParent, batches.next());
+        assertEquals(hash(9L), state.get().getSafeHead().hash());
+        speculate(state, wrongParent);
+        assertSame(third, batches.next());
+        speculate(state, third);
+
+        // the engine built the first block with another hash than the one claimed by the second batch
+        BlockInfo engineHead = block(hash(2L), 2L, 1002L);
+        state.updateAndGet(current -> current.updateSafeHead(engineHead, EPOCH));
+        batches.rewind(engineHead.timestamp());
+
+        assertNull(batches.next());
+        assertEquals(1, buffered.size());
+        assertSame(engineHead, state.get().getSafeHead());
+
+        Batch second = batch(hash(2L), 1004L);
+        buffered.put(second.timestamp(), second);
+        assertSame(second, batches.next());
+        speculate(state, second);
+        assertSame(third, batches.next());
+    }
+
+    /** Keep a batch claiming the parent of the speculative head until the head is confirmed. */
+    @Test
+    @DisplayName("Test a batch building on the parent of a speculative head waits for the engine")
+    void keepBatchOnParentOfSpeculativeHead() {
+        var state = new AtomicReference<>(State.create(block(SAFE_HASH, 1L, 1000L), EPOCH, CONFIG));
+        var buffered = new TreeMap<BigInteger, Batch>();
+        var batches = new Batches<>(buffered, new ChannelSource(0), state, CONFIG);
+        Batch first = batch(SAFE_HASH, 1002L);
+        buffered.put(first.timestamp(), first);
+
+        assertSame(first, batches.next());
+        speculate(state, first);
+        buffered.put(BigInteger.valueOf(1004L), batch(SAFE_HASH, 1004L));
+
+        assertNull(batches.next());
+        assertEquals(1, buffered.size());
+
+        BlockInfo engineHead = block(hash(2L), 2L, 1002L);
+        state.updateAndGet(current -> current.updateSafeHead(engineHead, EPOCH));
+        assertNull(batches.next());
+        assertTrue(buffered.isEmpty());
+    }
+
+    /** Take the valid batch after rewinding a batch with a wrong parent for the same timestamp. */
+    @Test
+    @DisplayName("Test a valid batch arriving after a wrong one for the same timestamp is taken after the rewind")
+    void takeValidBatchAfterRewind() {
+        var state = new AtomicReference<>(State.create(block(SAFE_HASH, 1L, 1000L), EPOCH, CONFIG));
+        var buffered = new TreeMap<BigInteger, Batch>();
+        var batches = new Batches<>(buffered, new ChannelSource(0), state, CONFIG);
+        Batch first = batch(SAFE_HASH, 1002L);
+        Batch wrongParent = batch(hash(9L), 1004L);
+        List.of(first, wrongParent).forEach(batch -> buffered.put(batch.timestamp(), batch));
+
+        assertSame(first, batches.next());
+        speculate(state, first);
+        assertSame(wrongParent, batches.next());
+        speculate(state, wrongParent);
+
+        // the valid batch arrives after the wrong one was taken and waits for the engine
+        Batch second = batch(hash(2L), 1004L);
+        buffered.put(second.timestamp(), second);
+        assertNull(batches.next());
+        assertSame(second, buffered.get(second.timestamp()));
+
+        BlockInfo engineHead = block(hash(2L), 2L, 1002L);
+        state.updateAndGet(current -> current.updateSafeHead(engineHead, EPOCH));
+        batches.rewind(engineHead.timestamp());
+
+        assertSame(second, batches.next());
+        assertTrue(buffered.isEmpty());
+    }
+
+    /** Generate an empty batch for an elapsed sequencer window only on a confirmed safe head. */
+    @Test
+    @DisplayName("Test an empty batch is only generated on a safe head the engine has confirmed")
+    void generateEmptyBatchOnConfirmedHead() {
+        State initial = State.create(block(SAFE_HASH, 1L, 1000L), EPOCH, CONFIG)
+                .updateL1Info(l1Info(11L, 2000L))
+                .updateL1Info(l1Info(3611L, 3000L));
+        var state = new AtomicReference<>(initial);
+        var batches = new Batches<>(new TreeMap<>(), new ChannelSource(0), state, CONFIG);
+
+        speculate(state, batch(SAFE_HASH, 1002L));
+        assertNull(batches.next());
+
+        BlockInfo engineHead = block(hash(2L), 2L, 1002L);
+        state.updateAndGet(current -> current.updateSafeHead(engineHead, EPOCH));
+        Batch generated = batches.next();
+        assertEquals(BigInteger.valueOf(1004L), generated.timestamp());
+        assertEquals(EPOCH.number(), generated.epochNum());
+        assertTrue(generated.transactions().isEmpty());
+    }
+
+    private static void speculate(AtomicReference<State> state, Batch batch) {
+        state.updateAndGet(current -> {
+            BlockInfo head = current.getSafeHead();
+            return current.updateSafeHead(
+                    new BlockInfo(null, head.number().add(BigInteger.ONE), head.hash(), batch.timestamp()), EPOCH);
+        });
+    }
+
+    private static Batch batch(String parentHash, long timestamp) {
+        return new Batch(
+                parentHash,
+                EPOCH.number(),
+                EPOCH.hash(),
+                BigInteger.valueOf(timestamp),
+                List.of(),
+                EPOCH.number().add(BigInteger.ONE));
+    }
+
+    private static byte[] encodeBatch(long timestamp, byte[] trailing) {
+        return RlpEncoder.encode(RlpString.create(ArrayUtils.addAll(batchData(timestamp), trailing)));
+    }
+
+    private static byte[] batchData(long timestamp) {
+        byte[] list = RlpEncoder.encode(new RlpList(
+                RlpString.create(Numeric.hexStringToByteArray(SAFE_HASH)),
+                RlpString.create(EPOCH.number()),
+                RlpString.create(Numeric.hexStringToByteArray(EPOCH.hash())),
+                RlpString.create(BigInteger.valueOf(timestamp)),
+                new RlpList()));
+        // version 0 batch
+        return ArrayUtils.insert(0, list, (byte) 0);
+    }
+
+    private static byte[] compress(byte[] data) {
+        Deflater deflater = new Deflater();
+        deflater.setInput(data);
+        deflater.finish();
+        byte[] buffer = new byte[data.length + 64];
+        int length = deflater.deflate(buffer);
+        deflater.end();
+        return Arrays.copyOf(buffer, length);
+    }
+
+    private static BlockInfo block(String hash, long number, long timestamp) {
+        return new BlockInfo(hash, BigInteger.valueOf(number), hash(number - 1), BigInteger.valueOf(timestamp));
+    }
+
+    private static L1Info l1Info(long number, long timestamp) {
+        return new L1Info(
+                new L1BlockInfo(
+                        BigInteger.valueOf(number),
+                        hash(number),
+                        BigInteger.valueOf(timestamp),
+                        BigInteger.ONE,
+                        hash(0L)),
+                null,
+                List.of(),
+                List.of(),
+                false);
+    }
+
+    private static String hash(long number) {
+        return String.format("0x%064x", number);
+    }
+
+    private static final class ChannelSource implements PurgeableIterator<Channel> {
+
+        private final Deque<Channel> channels = new ArrayDeque<>();
+
+        private boolean purged;
+
+        ChannelSource(int count) {
+            for (int i = 1; i <= count; i++) {
+                channels.add(new Channel(BigInteger.valueOf(i), Hex.decode(CHANNEL_DATA), BigInteger.valueOf(i)));
+            }
+        }
+
+        @Override
+        public Channel next() {
+            return channels.poll();
+        }
+
+        @Override
+        public void purge() {
+            channels.clear();
+            purged = true;
+        }
+    }
 }
@@ -16,6 +16,7 @@
 
 package io.optimism.derive.stages;
 
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertTrue;
@@ -104,8 +105,29 @@ class ChannelsTest {
         assertTrue(channelOpt.isEmpty());
     }
 
+    @Test
+    @DisplayName("test assemble out of order frames")
+    void testAssembleOutOfOrderFrames() {
+        Tuple2<Channels<BatcherTransactions>, MessagePassingQueue<BatcherTransactionMessage>> tuple2 = createStage();
+        Frame frame2 = new Frame(BigInteger.valueOf(5L), 2, 2, new byte[] {5, 6}, true, BigInteger.valueOf(45L));
+        Frame frame0 = new Frame(BigInteger.valueOf(5L), 0, 2, new byte[] {1, 2}, false, BigInteger.valueOf(43L));
+        Frame frame1 = new Frame(BigInteger.valueOf(5L), 1, 2, new byte[] {3, 4}, false, BigInteger.valueOf(44L));
+
+        tuple2.component1().pushFrame(frame2);
+        tuple2.component1().pushFrame(frame0);
+        tuple2.component1().pushFrame(frame0);
+        assertTrue(tuple2.component1().fetchReadyChannel(BigInteger.valueOf(5L)).isEmpty());
+        tuple2.component1().pushFrame(frame1);
+
+        Channel channel =
+                tuple2.component1().fetchReadyChannel(BigInteger.valueOf(5L)).get();
+        assertArrayEquals(new byte[] {1, 2, 3, 4, 5, 6}, channel.data());
+        assertEquals(BigInteger.valueOf(45L), channel.l1InclusionBlock());
+        assertTrue(tuple2.component1().getPendingChannels().isEmpty());
+    }
+
     private Tuple2<Channels<BatcherTransactions>, MessagePassingQueue<BatcherTransactionMessage>> createStage() {
-        Config config = new Config("", "", "", "", null, null, 9545, false, ChainConfig.optimismGoerli());
+        Config config = new Config("", "", "", "", null, null, 9545, false, null, ChainConfig.optimismGoerli());
         MessagePassingQueue<BatcherTransactionMessage> transactionMessageMessagePassingQueue =
                 new MpscGrowableArrayQueue<>(4096);
         Channels<BatcherTransactions> channels =
@@ -0,0 +1,211 @@
+/*
+ * Copyright 2023 281165273grape@gmail.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+
+package io.optimism.derive.stages;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import io.optimism.derive.stages.Attributes.AttributesDeposited;
+import io.optimism.derive.stages.Attributes.DepositedTransaction;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import org.apache.commons.lang3.ArrayUtils;
+import org.junit.jupiter.api.Test;
+import org.web3j.abi.TypeEncoder;
+import org.web3j.abi.datatypes.Uint;
+import org.web3j.abi.datatypes.generated.Bytes32;
+import org.web3j.crypto.Hash;
+import org.web3j.rlp.RlpEncoder;
+import org.web3j.rlp.RlpList;
+import org.web3j.rlp.RlpString;
+import org.web3j.rlp.RlpType;
+import org.web3j.utils.Numeric;
+
+/**
+ * The type DepositEncoderTest.
+ *
+ * @author grapebaba
+ * @since 0.2.0
+ */
+class DepositEncoderTest {
+
+    private static final BigInteger[] QUANTITIES = {
+        BigInteger.ZERO,
+        BigInteger.ONE,
+        BigInteger.valueOf(0x7f),
+        BigInteger.valueOf(0x80),
+        BigInteger.valueOf(0xff),
+        BigInteger.valueOf(0x100),
+        BigInteger.valueOf(Long.MAX_VALUE),
+        BigInteger.ONE.shiftLeft(64),
+        BigInteger.ONE.shiftLeft(256).subtract(BigInteger.ONE)
+    };
+
+    private static final int[] DATA_LENGTHS = {0, 1, 2, 55, 56, 255, 256, 70_000};
+
+    /** Encodes deposit transactions like the web3j RLP encoder. */
+    @Test
+    void encodeDepositLikeRlpEncoder() {
+        Random random = new Random(42L);
+        List<DepositedTransaction> txs = new ArrayList<>();
+        for (BigInteger quantity : QUANTITIES) {
+            for (int length : DATA_LENGTHS) {
+                txs.add(deposit(random, quantity, length, random.nextBoolean()));
+            }
+        }
+        // single bytes below 0x80 are their own encoding
+        for (byte single : new byte[] {0x00, 0x7f, (byte) 0x80}) {
+            txs.add(withData(deposit(random, BigInteger.TEN, 1, false), new byte[] {single}));
+        }
+        DepositedTransaction emptyTo = deposit(random, BigInteger.TEN, 4, false);
+        txs.add(new DepositedTransaction(
+                emptyTo.sourceHash(),
+                emptyTo.from(),
+                "",
+                emptyTo.mint(),
+                emptyTo.value(),
+                emptyTo.gas(),
+                emptyTo.isSystemTx(),
+                emptyTo.data()));
+
+        for (DepositedTransaction tx : txs) {
+            assertArrayEquals(rlpEncode(tx), tx.encode());
+        }
+    }
+
+    /** Encodes the L1 info calldata like the web3j ABI encoder. */
+    @Test
+    void encodeL1InfoLikeTypeEncoder() {
+        Random random = new Random(7L);
+        for (BigInteger quantity : QUANTITIES) {
+            AttributesDeposited attributes = new AttributesDeposited(
+                    quantity,
+                    BigInteger.valueOf(1_690_000_000L),
+                    quantity,
+                    hex(random, 32),
+                    BigInteger.valueOf(random.nextInt(10)),
+                    hex(random, 32),
+                    quantity,
+                    BigInteger.valueOf(684_000L),
+                    BigInteger.valueOf(1_000_000L),
+                    false);
+            assertArrayEquals(abiEncode(attributes), attributes.encode());
+        }
+    }
+
+    /** Computes source hashes like the concatenating keccak. */
+    @Test
+    void sourceHashLikeConcatenation() {
+        Random random = new Random(3L);
+        for (BigInteger index : QUANTITIES) {
+            String blockHash = hex(random, 32);
+            for (int domain = 0; domain <= 1; domain++) {
+                byte[] inner = Hash.sha3(ArrayUtils.addAll(
+                        Numeric.hexStringToByteArray(blockHash), Numeric.toBytesPadded(index, 32)));
+                byte[] expected =
+                        Hash.sha3(ArrayUtils.addAll(Numeric.toBytesPadded(BigInteger.valueOf(domain), 32), inner));
+                assertArrayEquals(expected, DepositEncoder.sourceHash(blockHash, index, domain));
+            }
+        }
+    }
+
+    /** Rejects values that do not fit their ABI type. */
+    @Test
+    void rejectInvalidL1Info() {
+        AttributesDeposited tooLarge = new AttributesDeposited(
+                BigInteger.ONE.shiftLeft(256),
+                BigInteger.ONE,
+                BigInteger.ONE,
+                "0x" + "ab".repeat(32),
+                BigInteger.ZERO,
+                "0x" + "cd".repeat(32),
+                BigInteger.ONE,
+                BigInteger.ONE,
+                BigInteger.ONE,
+                false);
+        assertThrows(IllegalArgumentException.class, tooLarge::encode);
+        AttributesDeposited shortHash = new AttributesDeposited(
+                BigInteger.ONE,
+                BigInteger.ONE,
+                BigInteger.ONE,
+                "0xabcd",
+                BigInteger.ZERO,
+                "0x" + "cd".repeat(32),
+                BigInteger.ONE,
+                BigInteger.ONE,
+                BigInteger.ONE,
+                false);
+        assertThrows(IllegalArgumentException.class, shortHash::encode);
+    }
+
+    private static DepositedTransaction deposit(Random random, BigInteger quantity, int dataLength, boolean creation) {
+        byte[] data = new byte[dataLength];
+        random.nextBytes(data);
+        return new DepositedTransaction(
+                hex(random, 32),
+                hex(random, 20),
+                creation ? null : hex(random, 20),
+                quantity,
+                quantity.shiftRight(1),
+                BigInteger.valueOf(random.nextInt(30_000_000)),
+                random.nextBoolean(),
+                data);
+    }
+
+    private static DepositedTransaction withData(DepositedTransaction tx, byte[] data) {
+        return new DepositedTransaction(
+                tx.sourceHash(), tx.from(), tx.to(), tx.mint(), tx.value(), tx.gas(), tx.isSystemTx(), data);
+    }
+
+    private static String hex(Random random, int length) {
+        byte[] bytes = new byte[length];
+        random.nextBytes(bytes);
+        return Numeric.toHexString(bytes);
+    }
+
+    private static byte[] rlpEncode(DepositedTransaction tx) {
+        List<RlpType> result = new ArrayList<>();
+        result.add(RlpString.create(Numeric.hexStringToByteArray(tx.sourceHash())));
+        result.add(RlpString.create(Numeric.hexStringToByteArray(tx.from())));
+        if (tx.to() != null && !tx.to().isEmpty()) {
+            result.add(RlpString.create(Numeric.hexStringToByteArray(tx.to())));
+        } else {
+            result.add(RlpString.create(""));
+        }
+        result.add(RlpString.create(tx.mint()));
+        result.add(RlpString.create(tx.value()));
+        result.add(RlpString.create(tx.gas()));
+        result.add(RlpString.create(tx.isSystemTx() ? 1L : 0L));
+        result.add(RlpString.create(tx.data()));
+        return ArrayUtils.insert(0, RlpEncoder.encode(new RlpList(result)), (byte) 0x7e);
+    }
+
+    private static byte[] abiEncode(AttributesDeposited attributes) {
+        return Numeric.hexStringToByteArray("015d8eb9"
+                + TypeEncoder.encode(new Uint(attributes.number()))
+                + TypeEncoder.encode(new Uint(attributes.timestamp()))
+                + TypeEncoder.encode(new Uint(attributes.baseFee()))
+                + TypeEncoder.encode(new Bytes32(Numeric.hexStringToByteArray(attributes.hash())))
+                + TypeEncoder.encode(new Uint(attributes.sequenceNumber()))
+                + TypeEncoder.encode(new Bytes32(Numeric.hexStringToByteArray(attributes.batcherHash())))
+                + TypeEncoder.encode(new Uint(attributes.feeOverhead()))
+                + TypeEncoder.encode(new Uint(attributes.feeScalar())));
+    }
+}
@@ -0,0 +1,151 @@
+/*
+ * Copyright 2023 281165273grape@gmail.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+
+package io.optimism.derive.stages;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import io.optimism.derive.stages.Attributes.UserDeposited;
+import java.math.BigInteger;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import net.osslabz.evm.abi.definition.AbiDefinition.Entry.Param;
+import net.osslabz.evm.abi.definition.AbiDefinition.Event;
+import net.osslabz.evm.abi.definition.SolidityType;
+import org.apache.commons.lang3.ArrayUtils;
+import org.apache.commons.lang3.StringUtils;
+import org.junit.jupiter.api.Test;
+import org.web3j.protocol.core.methods.response.EthLog.LogObject;
+import org.web3j.utils.Numeric;
+
+/**
+ * The type DepositLogDecoderTest.
+ *
+ * @author grapebaba
+ * @since 0.2.0
+ */
+class DepositLogDecoderTest {
+
+    private static final String TOPIC = "0xb3813568d9991fc951961fcb4c784893574240a28925604d09fc577c55bb7c32";
+
+    /** Decodes random deposit logs like the generic ABI event decoder. */
+    @Test
+    void decodeLikeEventDecoder() {
+        Random random = new Random(20L);
+        for (int i = 0; i < 500; i++) {
+            LogObject log = randomLog(random, random.nextInt(i % 10 == 0 ? 4096 : 160));
+            UserDeposited expected = legacyDecode(log);
+            UserDeposited actual = DepositLogDecoder.decode(log);
+
+            assertEquals(expected.from(), actual.from());
+            assertEquals(expected.to(), actual.to());
+            assertEquals(expected.mint(), actual.mint());
+            assertEquals(expected.value(), actual.value());
+            assertEquals(expected.gas(), actual.gas());
+            assertEquals(expected.isCreation(), actual.isCreation());
+            assertArrayEquals(expected.data(), actual.data());
+            assertEquals(expected.l1BlockNum(), actual.l1BlockNum());
+            assertEquals(expected.l1BlockHash(), actual.l1BlockHash());
+            assertEquals(expected.logIndex(), actual.logIndex());
+        }
+    }
+
+    /** Rejects truncated log data. */
+    @Test
+    void rejectTruncatedData() {
+        LogObject log = randomLog(new Random(1L), 10);
+        String data = log.getData();
+        log.setData(data.substring(0, data.length() - 128));
+        assertThrows(IllegalArgumentException.class, () -> DepositLogDecoder.decode(log));
+        log.setData(data.substring(0, 2 + 64));
+        assertThrows(IllegalArgumentException.class, () -> DepositLogDecoder.decode(log));
+        log.setData("0x" + "f".repeat(64) + data.substring(2 + 64));
+        assertThrows(IllegalArgumentException.class, () -> DepositLogDecoder.decode(log));
+    }
+
+    private static LogObject randomLog(Random random, int dataLength) {
+        byte[] opaque = new byte[73 + dataLength];
+        random.nextBytes(opaque);
+        // mint and value are often small, gas always fits a uint64
+        if (random.nextBoolean()) {
+            Arrays.fill(opaque, 0, 24, (byte) 0);
+        }
+        opaque[72] = (byte) random.nextInt(2);
+        int padded = (opaque.length + 31) / 32 * 32;
+        String data = "0x"
+                + Numeric.toHexStringNoPrefixZeroPadded(BigInteger.valueOf(32L), 64)
+                + Numeric.toHexStringNoPrefixZeroPadded(BigInteger.valueOf(opaque.length), 64)
+                + Numeric.toHexStringNoPrefix(opaque)
+                + "00".repeat(padded - opaque.length);
+
+        LogObject log = new LogObject();
+        log.setData(data);
+        log.setTopics(List.of(TOPIC, addressTopic(random), addressTopic(random), "0x" + "0".repeat(64)));
+        log.setBlockNumber(Numeric.toHexStringWithPrefix(BigInteger.valueOf(random.nextInt(20_000_000))));
+        log.setBlockHash(Numeric.toHexString(randomBytes(random, 32)));
+        log.setLogIndex(Numeric.toHexStringWithPrefix(BigInteger.valueOf(random.nextInt(1000))));
+        return log;
+    }
+
+    private static String addressTopic(Random random) {
+        return "0x" + "0".repeat(24) + Numeric.toHexStringNoPrefix(randomBytes(random, 20));
+    }
+
+    private static byte[] randomBytes(Random random, int length) {
+        byte[] bytes = new byte[length];
+        random.nextBytes(bytes);
+        return bytes;
+    }
+
+    private static UserDeposited legacyDecode(LogObject log) {
+        Param from = new Param();
+        from.setIndexed(true);
+        from.setName("from");
+        from.setType(new SolidityType.AddressType());
+        Param to = new Param();
+        to.setIndexed(true);
+        to.setName("to");
+        to.setType(new SolidityType.AddressType());
+        Param version = new Param();
+        version.setIndexed(true);
+        version.setName("version");
+        version.setType(new SolidityType.UnsignedIntType("uint256"));
+        Param opaqueData = new Param();
+        opaqueData.setIndexed(false);
+        opaqueData.setName("opaqueData");
+        opaqueData.setType(new SolidityType.BytesType());
+        Event event = new Event(false, "UserDeposited", List.of(from, to, version, opaqueData), List.of());
+
+        byte[][] topics = log.getTopics().stream().map(Numeric::hexStringToByteArray).toArray(byte[][]::new);
+        List<?> decodedEvent = event.decode(Numeric.hexStringToByteArray(log.getData()), topics);
+        byte[] opaque = (byte[]) decodedEvent.get(3);
+        return new UserDeposited(
+                Numeric.prependHexPrefix(StringUtils.substring(Numeric.cleanHexPrefix(log.getTopics().get(1)), 24)),
+                Numeric.prependHexPrefix(StringUtils.substring(Numeric.cleanHexPrefix(log.getTopics().get(2)), 24)),
+                Numeric.toBigInt(ArrayUtils.subarray(opaque, 0, 32)),
+                Numeric.toBigInt(ArrayUtils.subarray(opaque, 32, 64)),
+                Numeric.toBigInt(ArrayUtils.subarray(opaque, 64, 72)),
+                opaque[72] != (byte) 0,
+                ArrayUtils.subarray(opaque, 73, opaque.length),
+                log.getBlockNumber(),
+                log.getBlockHash(),
+                log.getLogIndex());
+    }
+}
@@ -0,0 +1,162 @@
+/*
+ * Copyright 2023 281165273grape@gmail.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+
+package io.optimism.driver;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import io.optimism.common.BlockInfo;
+import io.optimism.common.Epoch;
+import io.optimism.derive.PurgeableIterator;
+import io.optimism.derive.State;
+import io.optimism.engine.ExecutionPayload.PayloadAttributes;
+import java.math.BigInteger;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import org.junit.jupiter.api.Test;
+
+/**
+ * The type AttributesLookaheadTest.
+ *
+ * @author grapebaba
+ * @since 0.2.0
+ */
+class AttributesLookaheadTest {
+
+    private static final String SAFE_HASH = "0x" + "ab".repeat(32);
+
+    private static final Epoch EPOCH = new Epoch(BigInteger.TEN, "0x" + "cd".repeat(32), BigInteger.valueOf(1000L));
+
+    @Test
+    void testDerivesAheadInOrder() throws InterruptedException {
+        AtomicReference<State> state = new AtomicReference<>(
+                State.create(new BlockInfo(SAFE_HASH, BigInteger.ONE, null, BigInteger.valueOf(1000L)), EPOCH, null));
+        CountingPipeline pipeline = new CountingPipeline(5);
+        AttributesLookahead lookahead = new AttributesLookahead(pipeline, state, 2);
+
+        lookahead.start();
+        AttributesLookahead.DerivedAttributes first = poll(lookahead);
+        assertEquals(BigInteger.valueOf(1002L), first.attributes().timestamp());
+        assertEquals(SAFE_HASH, first.parentHash());
+        assertTrue(first.buildsOn(new BlockInfo(SAFE_HASH.toUpperCase(), BigInteger.ONE, null, null)));
+        assertFalse(first.buildsOn(new BlockInfo("0x01", BigInteger.ONE, null, null)));
+        for (int i = 2; i <= 5; i++) {
+            AttributesLookahead.DerivedAttributes derived = poll(lookahead);
+            assertEquals(BigInteger.valueOf(1000L + 2L * i), derived.attributes().timestamp());
+            // no batch stage resolved the speculative head, so there is no claimed parent to check
+            assertNull(derived.parentHash());
+            assertFalse(derived.buildsOn(new BlockInfo(null, BigInteger.valueOf(i), null, null)));
+        }
+        lookahead.stop();
+
+        BlockInfo head = state.get().getSafeHead();
+        assertNull(head.hash());
+        assertEquals(BigInteger.valueOf(6L), head.number());
+        assertEquals(BigInteger.valueOf(1010L), head.timestamp());
+        assertFalse(lookahead.isRunning());
+    }
+
+    @Test
+    void testStopDropsDerivedAttributes() throws InterruptedException {
+        AtomicReference<State> state = new AtomicReference<>(
+                State.create(new BlockInfo(SAFE_HASH, BigInteger.ONE, null, BigInteger.valueOf(1000L)), EPOCH, null));
+        CountingPipeline pipeline = new CountingPipeline(100);
+        AttributesLookahead lookahead = new AttributesLookahead(pipeline, state, 4);
+
+        lookahead.start();
+        assertNotNull(poll(lookahead));
+        lookahead.stop();
+        int derived = pipeline.derived.get();
+
+        assertNull(lookahead.poll());
+        TimeUnit.MILLISECONDS.sleep(100L);
+        assertEquals(derived, pipeline.derived.get());
+        // at most the queue depth plus the polled attributes were derived ahead
+        assertTrue(derived <= 5);
+    }
+
+    @Test
+    void testConfirmResolvesSpeculativeHead() throws InterruptedException {
+        AtomicReference<State> state = new AtomicReference<>(
+                State.create(new BlockInfo(SAFE_HASH, BigInteger.ONE, null, BigInteger.valueOf(1000L)), EPOCH, null));
+        AttributesLookahead lookahead = new AttributesLookahead(new CountingPipeline(1), state, 2);
+
+        lookahead.start();
+        poll(lookahead);
+        lookahead.stop();
+        assertNull(state.get().getSafeHead().hash());
+
+        // the engine has not built the derived block yet
+        lookahead.confirm(new BlockInfo(SAFE_HASH, BigInteger.ONE, null, BigInteger.valueOf(1000L)), EPOCH);
+        assertNull(state.get().getSafeHead().hash());
+
+        BlockInfo engineHead = new BlockInfo("0x01", BigInteger.TWO, SAFE_HASH, BigInteger.valueOf(1002L));
+        lookahead.confirm(engineHead, EPOCH);
+        assertSame(engineHead, state.get().getSafeHead());
+    }
+
+    private static AttributesLookahead.DerivedAttributes poll(AttributesLookahead lookahead)
+            throws InterruptedException {
+        for (int i = 0; i < 500; i++) {
+            AttributesLookahead.DerivedAttributes derived = lookahead.poll();
+            if (derived != null) {
+                return derived;
+            }
+            TimeUnit.MILLISECONDS.sleep(10L);
+        }
+        throw new AssertionError("no attributes derived");
+    }
+
+    private static final class CountingPipeline implements PurgeableIterator<PayloadAttributes> {
+
+        private final int limit;
+
+        private final AtomicInteger derived = new AtomicInteger();
+
+        CountingPipeline(int limit) {
+            this.limit = limit;
+        }
+
+        @Override
+        public PayloadAttributes next() {
+            if (this.derived.get() >= this.limit) {
+                return null;
+            }
+            int index = this.derived.incrementAndGet();
+            return new PayloadAttributes(
+                    BigInteger.valueOf(1000L + 2L * index),
+                    "0x",
+                    "0x",
+                    List.of(),
+                    true,
+                    BigInteger.ONE,
+                    EPOCH,
+                    BigInteger.TEN,
+                    BigInteger.valueOf(index));
+        }
+
+        @Override
+        public void purge() {}
+    }
+}
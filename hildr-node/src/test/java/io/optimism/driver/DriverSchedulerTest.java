@@ -0,0 +1,75 @@
+/*
+ * Copyright 2023 281165273grape@gmail.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+
+package io.optimism.driver;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import io.optimism.driver.DriverScheduler.Step;
+import java.time.Duration;
+import java.util.EnumSet;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+
+/**
+ * The type DriverSchedulerTest.
+ *
+ * @author grapebaba
+ * @since 0.2.0
+ */
+class DriverSchedulerTest {
+
+    @Test
+    void testCoalescesSignals() throws InterruptedException {
+        DriverScheduler scheduler = new DriverScheduler();
+        scheduler.signal(Step.UNSAFE_HEAD);
+        scheduler.signal(Step.UNSAFE_HEAD);
+        scheduler.signal(Step.FINALIZATION);
+
+        assertEquals(EnumSet.of(Step.UNSAFE_HEAD, Step.FINALIZATION), scheduler.await(Duration.ofSeconds(5L)));
+        // the burst was picked up once, so nothing is left and the wait times out
+        assertEquals(EnumSet.allOf(Step.class), scheduler.await(Duration.ofMillis(20L)));
+    }
+
+    @Test
+    void testWakesUpOnSignal() throws Exception {
+        DriverScheduler scheduler = new DriverScheduler();
+        CompletableFuture<Set<Step>> waiting = CompletableFuture.supplyAsync(() -> {
+            try {
+                return scheduler.await(Duration.ofMinutes(1L));
+            } catch (InterruptedException e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        Thread.sleep(50L);
+        scheduler.signal(Step.SAFE_HEAD);
+
+        assertEquals(EnumSet.of(Step.SAFE_HEAD), waiting.get(5L, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void testAwaitInterrupted() {
+        DriverScheduler scheduler = new DriverScheduler();
+        Thread.currentThread().interrupt();
+        assertThrows(InterruptedException.class, () -> scheduler.await(Duration.ofMinutes(1L)));
+        assertFalse(Thread.currentThread().isInterrupted());
+    }
+}
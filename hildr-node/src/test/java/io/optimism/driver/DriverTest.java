@@ -17,15 +17,21 @@
 package io.optimism.driver;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.web3j.protocol.core.DefaultBlockParameterName.FINALIZED;
 
+import io.optimism.common.BlockInfo;
+import io.optimism.common.Epoch;
 import io.optimism.config.Config;
 import io.optimism.config.Config.ChainConfig;
 import io.optimism.config.Config.CliConfig;
 import io.optimism.engine.EngineApi;
 import java.io.IOException;
+import java.math.BigInteger;
+import java.util.List;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutionException;
+import java.util.function.Function;
 import org.junit.jupiter.api.Test;
 import org.web3j.protocol.Web3j;
 import org.web3j.protocol.core.methods.response.EthBlock;
@@ -49,7 +55,8 @@ class DriverTest {
                 "d195a64e08587a3f1560686448867220c2727550ce3e0c95c7200d0ade0f9167",
                 l2rpc,
                 null,
-                false);
+                false,
+                null);
 
         Config config = Config.create(null, cliConfig, ChainConfig.optimismGoerli());
         Web3j provider = Web3j.build(new HttpService(config.l2RpcUrl()));
@@ -60,4 +67,63 @@ class DriverTest {
                 driver.getEngineDriver().getFinalizedHead().number(),
                 finalizedBlock.getBlock().getNumber());
     }
+
+    @Test
+    void testResumeIndexPicksLastEpochStartAtOrBelowAncestor() {
+        List<Driver.UnfinalizedBlock> blocks = List.of(
+                unfinalized(1L, 10L, 0L),
+                unfinalized(2L, 10L, 1L),
+                unfinalized(3L, 11L, 0L),
+                unfinalized(4L, 12L, 1L),
+                unfinalized(5L, 13L, 0L));
+
+        assertEquals(2, Driver.resumeIndex(blocks, BigInteger.valueOf(12L)));
+        assertEquals(2, Driver.resumeIndex(blocks, BigInteger.valueOf(11L)));
+        assertEquals(4, Driver.resumeIndex(blocks, BigInteger.valueOf(13L)));
+        assertEquals(0, Driver.resumeIndex(blocks, BigInteger.TEN));
+    }
+
+    @Test
+    void testResumeIndexFallsBackToPurge() {
+        // every block was included above the ancestor
+        List<Driver.UnfinalizedBlock> included = List.of(unfinalized(1L, 10L, 0L), unfinalized(2L, 11L, 0L));
+        assertEquals(-1, Driver.resumeIndex(included, BigInteger.valueOf(9L)));
+        // no block at or below the ancestor starts an epoch
+        List<Driver.UnfinalizedBlock> midEpoch = List.of(unfinalized(1L, 10L, 1L), unfinalized(2L, 11L, 0L));
+        assertEquals(-1, Driver.resumeIndex(midEpoch, BigInteger.TEN));
+        assertEquals(-1, Driver.resumeIndex(List.of(), BigInteger.TEN));
+    }
+
+    @Test
+    void testResumeHeadFromCanonicalStoredSafeHead() {
+        HeadInfo finalized = head(5L, 10L);
+        HeadInfo safe = head(9L, 12L);
+        Function<BigInteger, String> canonical = number -> String.format("0x%064x", number);
+
+        assertSame(safe, Driver.resumeHead(finalized, safe, canonical, canonical));
+        assertSame(finalized, Driver.resumeHead(finalized, null, canonical, canonical));
+        // the stored safe head is behind the finalized head
+        assertSame(safe, Driver.resumeHead(safe, finalized, canonical, canonical));
+        // the L1 origin is not finalized in the store
+        assertSame(finalized, Driver.resumeHead(finalized, safe, number -> null, canonical));
+        // the L2 node has another block at the safe head
+        assertSame(finalized, Driver.resumeHead(finalized, safe, canonical, number -> "0x01"));
+    }
+
+    private static HeadInfo head(long number, long epoch) {
+        String hash = String.format("0x%064x", number);
+        return new HeadInfo(
+                new BlockInfo(hash, BigInteger.valueOf(number), String.format("0x%064x", number - 1), BigInteger.TWO),
+                new Epoch(BigInteger.valueOf(epoch), String.format("0x%064x", epoch), BigInteger.TEN),
+                BigInteger.ZERO);
+    }
+
+    private static Driver.UnfinalizedBlock unfinalized(long number, long l1InclusionBlock, long seqNumber) {
+        String hash = String.format("0x%064x", number);
+        return new Driver.UnfinalizedBlock(
+                new BlockInfo(hash, BigInteger.valueOf(number), String.format("0x%064x", number - 1), BigInteger.TWO),
+                new Epoch(BigInteger.valueOf(l1InclusionBlock), hash, BigInteger.TEN),
+                BigInteger.valueOf(l1InclusionBlock),
+                BigInteger.valueOf(seqNumber));
+    }
 }
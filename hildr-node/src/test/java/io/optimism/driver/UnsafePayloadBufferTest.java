@@ -0,0 +1,150 @@
+/*
+ * Copyright 2023 281165273grape@gmail.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+
+package io.optimism.driver;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import io.optimism.engine.ExecutionPayload;
+import java.math.BigInteger;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+/**
+ * The type UnsafePayloadBufferTest.
+ *
+ * @author grapebaba
+ * @since 0.2.0
+ */
+class UnsafePayloadBufferTest {
+
+    @Test
+    void testNextFollowsParentChain() {
+        UnsafePayloadBuffer buffer = new UnsafePayloadBuffer(1024L, Long.MAX_VALUE);
+        ExecutionPayload first = payload(11L, hash(10L), 1);
+        ExecutionPayload second = payload(12L, hash(11L), 1);
+        ExecutionPayload third = payload(13L, hash(12L), 1);
+        assertTrue(buffer.add(third, BigInteger.TEN));
+        assertTrue(buffer.add(first, BigInteger.TEN));
+        assertTrue(buffer.add(second, BigInteger.TEN));
+
+        assertSame(first, buffer.next(hash(10L).toUpperCase()));
+        assertSame(second, buffer.next(first.blockHash()));
+        assertSame(third, buffer.next(second.blockHash()));
+        assertNull(buffer.next(third.blockHash()));
+        assertEquals(0, buffer.size());
+        assertEquals(0L, buffer.bytes());
+    }
+
+    @Test
+    void testTakeChainStopsAtGapAndMaxLength() {
+        UnsafePayloadBuffer buffer = new UnsafePayloadBuffer(1024L, Long.MAX_VALUE);
+        for (long number = 11L; number <= 15L; number++) {
+            buffer.add(payload(number, hash(number - 1), 1), BigInteger.TEN);
+        }
+        buffer.add(payload(17L, hash(16L), 1), BigInteger.TEN);
+
+        List<ExecutionPayload> chain = buffer.takeChain(hash(10L), 3);
+        assertEquals(
+                List.of(hash(11L), hash(12L), hash(13L)),
+                chain.stream().map(ExecutionPayload::blockHash).toList());
+        chain = buffer.takeChain(hash(13L), 3);
+        assertEquals(List.of(hash(14L), hash(15L)), chain.stream().map(ExecutionPayload::blockHash).toList());
+        assertTrue(buffer.takeChain(hash(15L), 3).isEmpty());
+        assertEquals(1, buffer.size());
+    }
+
+    @Test
+    void testDropsDuplicatesAndPayloadsOutsideWindow() {
+        UnsafePayloadBuffer buffer = new UnsafePayloadBuffer(4L, Long.MAX_VALUE);
+        ExecutionPayload payload = payload(11L, hash(10L), 1);
+        assertTrue(buffer.add(payload, BigInteger.TEN));
+        assertFalse(buffer.add(payload(11L, hash(10L), 1), BigInteger.TEN));
+        assertFalse(buffer.add(payload(10L, hash(9L), 1), BigInteger.TEN));
+        assertFalse(buffer.add(payload(14L, hash(13L), 1), BigInteger.TEN));
+        assertTrue(buffer.add(payload(13L, hash(12L), 1), BigInteger.TEN));
+        assertEquals(2, buffer.size());
+
+        buffer.prune(BigInteger.valueOf(11L));
+        assertEquals(1, buffer.size());
+        assertNull(buffer.next(hash(10L)));
+        buffer.prune(BigInteger.valueOf(13L));
+        assertEquals(0, buffer.size());
+    }
+
+    @Test
+    void testEvictsFarthestPayloadsOverByteCap() {
+        UnsafePayloadBuffer buffer = new UnsafePayloadBuffer(1024L, 5 * 1024L);
+        assertTrue(buffer.add(payload(13L, hash(12L), 1_000), BigInteger.TEN));
+        assertTrue(buffer.add(payload(12L, hash(11L), 1), BigInteger.TEN));
+
+        // the nearer payload is kept, the farthest one is evicted to get under the cap
+        assertTrue(buffer.add(payload(11L, hash(10L), 1), BigInteger.TEN));
+        assertEquals(2, buffer.size());
+        assertTrue(buffer.bytes() <= 5 * 1024L);
+        assertNull(buffer.next(hash(12L)));
+
+        // a payload that would be the farthest is not buffered at all
+        assertTrue(buffer.add(payload(13L, hash(12L), 1), BigInteger.TEN));
+        assertFalse(buffer.add(payload(14L, hash(13L), 1_000), BigInteger.TEN));
+        assertEquals(3, buffer.size());
+    }
+
+    @Test
+    void testCompetingChildrenTakenInArrivalOrder() {
+        UnsafePayloadBuffer buffer = new UnsafePayloadBuffer(1024L, Long.MAX_VALUE);
+        ExecutionPayload first = payload(11L, hash(10L), "0x" + "01".repeat(32), 1);
+        ExecutionPayload second = payload(11L, hash(10L), "0x" + "02".repeat(32), 1);
+        buffer.add(first, BigInteger.TEN);
+        buffer.add(second, BigInteger.TEN);
+
+        assertSame(first, buffer.next(hash(10L)));
+        assertEquals(1, buffer.size());
+        buffer.prune(BigInteger.valueOf(11L));
+        assertEquals(0, buffer.size());
+    }
+
+    private static ExecutionPayload payload(long number, String parentHash, int txSize) {
+        return payload(number, parentHash, hash(number), txSize);
+    }
+
+    private static ExecutionPayload payload(long number, String parentHash, String hash, int txSize) {
+        return new ExecutionPayload(
+                parentHash,
+                null,
+                null,
+                null,
+                null,
+                null,
+                BigInteger.valueOf(number),
+                null,
+                null,
+                null,
+                null,
+                null,
+                hash,
+                List.of("0x" + "ab".repeat(txSize)));
+    }
+
+    private static String hash(long number) {
+        return String.format("0x%064x", number);
+    }
+}
@@ -17,6 +17,10 @@
 package io.optimism.engine;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
@@ -36,8 +40,11 @@ import java.io.IOException;
 import java.math.BigInteger;
 import java.security.Key;
 import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
 import okhttp3.mockwebserver.MockResponse;
 import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
 import org.junit.jupiter.api.AfterAll;
 import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.DisplayName;
@@ -161,6 +168,43 @@ public class EngineApiTest {
         assertEquals(initExecutionPayloadJson(), ow.writeValueAsString(executionPayload));
     }
 
+    @Test
+    void testAsyncCallsReuseToken() throws Exception {
+        // drop the requests recorded by the other tests
+        while (server.takeRequest(0, TimeUnit.MILLISECONDS) != null) {}
+        server.enqueue(new MockResponse().setBody(initPayloadStatusResp()));
+        server.enqueue(new MockResponse().setBody(initExecutionPayloadJson()));
+        EngineApi engineApi = new EngineApi(EngineApi.authUrlFromAddr(AUTH_ADDR, null), SECRET);
+
+        // one call after the other, the mock server answers in the order the requests arrive
+        OpEthPayloadStatus payloadStatus = engineApi
+                .newPayloadAsync(initExecutionPayload().toExecutionPayload())
+                .get(5, TimeUnit.SECONDS);
+        OpEthExecutionPayload executionPayload =
+                engineApi.getPayloadAsync(new BigInteger("123")).get(5, TimeUnit.SECONDS);
+
+        ObjectWriter ow = new ObjectMapper().writer().withDefaultPrettyPrinter();
+        assertEquals(initPayloadStatusResp(), ow.writeValueAsString(payloadStatus));
+        assertEquals(initExecutionPayloadJson(), ow.writeValueAsString(executionPayload));
+        RecordedRequest first = server.takeRequest(1, TimeUnit.SECONDS);
+        RecordedRequest second = server.takeRequest(1, TimeUnit.SECONDS);
+        assertNotNull(first);
+        assertNotNull(second);
+        assertTrue(first.getHeader("Authorization").startsWith("Bearer "));
+        assertEquals(first.getHeader("Authorization"), second.getHeader("Authorization"));
+    }
+
+    @Test
+    void testAsyncCallFailure() {
+        server.enqueue(new MockResponse().setResponseCode(500));
+        EngineApi engineApi = new EngineApi(EngineApi.authUrlFromAddr(AUTH_ADDR, null), SECRET);
+
+        ExecutionException e = assertThrows(
+                ExecutionException.class,
+                () -> engineApi.getPayloadAsync(new BigInteger("123")).get(5, TimeUnit.SECONDS));
+        assertInstanceOf(IOException.class, e.getCause());
+    }
+
     @Test
     @DisplayName("test jwt token")
     void testJwts() {
@@ -0,0 +1,170 @@
+/*
+ * Copyright 2023 281165273grape@gmail.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package io.optimism.l1;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.sun.net.httpserver.HttpServer;
+import io.optimism.utilities.rpc.Web3jProvider;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigInteger;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.web3j.protocol.Web3j;
+import org.web3j.protocol.Web3jService;
+import org.web3j.tuples.generated.Tuple2;
+import org.web3j.utils.Numeric;
+
+/**
+ * Block prefetcher test case.
+ *
+ * @author thinkAfCod
+ * @since 0.2.0
+ */
+class BlockPrefetcherTest {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private static final String BATCH_INBOX = "0xff00000000000000000000000000000000000010";
+
+    private final List<List<Long>> batches = new CopyOnWriteArrayList<>();
+
+    private final Set<Long> failOnce = ConcurrentHashMap.newKeySet();
+
+    private HttpServer server;
+
+    private Tuple2<Web3j, Web3jService> client;
+
+    private ExecutorService executor;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        this.server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        this.server.createContext("/", exchange -> {
+            JsonNode req = MAPPER.readTree(exchange.getRequestBody());
+            List<Long> numbers = new ArrayList<>();
+            ArrayNode res = MAPPER.createArrayNode();
+            for (JsonNode call : req) {
+                long number = Numeric.toBigInt(call.get("params").get(0).asText()).longValue();
+                numbers.add(number);
+                ObjectNode item = res.addObject();
+                item.put("jsonrpc", "2.0");
+                item.set("id", call.get("id"));
+                if (this.failOnce.remove(number)) {
+                    item.putNull("result");
+                } else {
+                    item.set("result", block(number));
+                }
+            }
+            this.batches.add(numbers);
+            byte[] body = MAPPER.writeValueAsBytes(res);
+            exchange.getResponseHeaders().add("Content-Type", "application/json");
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream os = exchange.getResponseBody()) {
+                os.write(body);
+            }
+        });
+        this.server.start();
+        this.client = Web3jProvider.create("http://127.0.0.1:" + this.server.getAddress().getPort());
+        this.executor = Executors.newVirtualThreadPerTaskExecutor();
+    }
+
+    @AfterEach
+    void tearDown() {
+        this.executor.shutdownNow();
+        this.client.component1().shutdown();
+        this.server.stop(0);
+    }
+
+    @Test
+    void testTakesInOrderAcrossRefills() throws ExecutionException, InterruptedException {
+        BlockPrefetcher prefetcher = this.prefetcher();
+        for (long number = 1; number <= 8; number++) {
+            prefetcher.fill(BigInteger.valueOf(number), BigInteger.valueOf(8L));
+            assertEquals(BigInteger.valueOf(number), prefetcher.take(BigInteger.valueOf(number)).number());
+        }
+
+        // the window is refilled once half of it is free
+        assertEquals(List.of(List.of(1L, 2L, 3L, 4L), List.of(5L, 6L), List.of(7L, 8L)), this.batches);
+    }
+
+    @Test
+    void testOutOfOrderTakeFetchesDirectly() throws ExecutionException, InterruptedException {
+        BlockPrefetcher prefetcher = this.prefetcher();
+        prefetcher.fill(BigInteger.ONE, BigInteger.TEN);
+        assertEquals(BigInteger.ONE, prefetcher.take(BigInteger.ONE).number());
+
+        // the window starts at block 2, so it is dropped and block 3 is fetched on its own
+        assertEquals(BigInteger.valueOf(3L), prefetcher.take(BigInteger.valueOf(3L)).number());
+        prefetcher.fill(BigInteger.valueOf(4L), BigInteger.TEN);
+        assertEquals(BigInteger.valueOf(4L), prefetcher.take(BigInteger.valueOf(4L)).number());
+
+        assertEquals(List.of(List.of(1L, 2L, 3L, 4L), List.of(3L), List.of(4L, 5L, 6L, 7L)), this.batches);
+    }
+
+    @Test
+    void testRefetchesAfterFailedBatch() throws ExecutionException, InterruptedException {
+        BlockPrefetcher prefetcher = this.prefetcher();
+        this.failOnce.add(2L);
+        prefetcher.fill(BigInteger.ONE, BigInteger.valueOf(4L));
+
+        // a block missing from the batch fails every block of it
+        assertThrows(ExecutionException.class, () -> prefetcher.take(BigInteger.ONE));
+
+        prefetcher.fill(BigInteger.ONE, BigInteger.valueOf(4L));
+        assertEquals(BigInteger.ONE, prefetcher.take(BigInteger.ONE).number());
+        assertEquals(BigInteger.TWO, prefetcher.take(BigInteger.TWO).number());
+
+        assertEquals(List.of(List.of(1L, 2L, 3L, 4L), List.of(1L, 2L, 3L, 4L)), this.batches);
+    }
+
+    private BlockPrefetcher prefetcher() {
+        return new BlockPrefetcher(this.client.component1(), this.client.component2(), BATCH_INBOX, this.executor, 4);
+    }
+
+    private static ObjectNode block(long number) {
+        ObjectNode block = MAPPER.createObjectNode();
+        block.put("baseFeePerGas", "0x7");
+        block.put("hash", hash(number));
+        block.put("mixHash", "0x" + "ee".repeat(32));
+        block.put("number", Numeric.encodeQuantity(BigInteger.valueOf(number)));
+        block.put("parentHash", hash(number - 1));
+        block.put("timestamp", Numeric.encodeQuantity(BigInteger.valueOf(1_700_000_000L + number)));
+        block.putArray("transactions");
+        return block;
+    }
+
+    private static String hash(long number) {
+        return Numeric.toHexStringWithPrefixZeroPadded(BigInteger.valueOf(number), 64);
+    }
+}
@@ -17,10 +17,23 @@
 package io.optimism.l1;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import io.optimism.TestConstants;
+import io.optimism.common.BlockInfo;
 import io.optimism.config.Config;
+import io.optimism.config.Config.SystemConfig;
+import io.optimism.store.DerivationStore;
+import io.optimism.store.StoredL1Info;
+import java.io.IOException;
 import java.math.BigInteger;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import org.jctools.queues.MessagePassingQueue;
@@ -28,6 +41,7 @@ import org.jctools.queues.MpscGrowableArrayQueue;
 import org.junit.jupiter.api.AfterAll;
 import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 
 /**
  * test case of InnerWatcher.
@@ -84,4 +98,70 @@ public class InnerWatcherTest {
         watcher.tryIngestBlock();
         assertEquals(2, queue.size());
     }
+
+    @Test
+    void testFindCommonAncestor() throws Exception {
+        List<BlockInfo> blocks = List.of(block(10L, 'a'), block(11L, 'a'), block(12L, 'a'), block(13L, 'b'));
+        List<BigInteger> lookups = new ArrayList<>();
+
+        // 12 was reorged out, 11 is still canonical
+        Map<Long, BlockInfo> canonical = Map.of(10L, block(10L, 'a'), 11L, block(11L, 'a'), 12L, block(12L, 'c'));
+        BlockInfo ancestor = InnerWatcher.findCommonAncestor(blocks, number -> {
+            lookups.add(number);
+            return canonical.get(number.longValue()).hash().toUpperCase();
+        });
+
+        assertSame(blocks.get(1), ancestor);
+        assertEquals(List.of(BigInteger.valueOf(12L), BigInteger.valueOf(11L)), lookups);
+    }
+
+    @Test
+    void testFindNoCommonAncestor() throws Exception {
+        List<BlockInfo> blocks = List.of(block(10L, 'a'), block(11L, 'a'), block(12L, 'b'));
+
+        assertNull(InnerWatcher.findCommonAncestor(blocks, number -> block(number.longValue(), 'c').hash()));
+        assertNull(InnerWatcher.findCommonAncestor(List.of(block(10L, 'a')), number -> {
+            throw new AssertionError("no block to look up");
+        }));
+    }
+
+    @Test
+    void testTruncateStoreAboveCommonAncestor(@TempDir Path dir) throws IOException {
+        List<BlockInfo> blocks = List.of(block(3L, 'a'), block(4L, 'a'), block(5L, 'a'));
+        try (DerivationStore store = DerivationStore.open(dir, BigInteger.valueOf(1000L))) {
+            for (long i = 1; i <= 5; i++) {
+                store.putL1Info(l1Info(i));
+            }
+            store.putL1Finalized(BigInteger.valueOf(5L));
+
+            store.truncateL1Infos(InnerWatcher.truncateFrom(blocks, blocks.get(1)));
+            assertTrue(store.finalizedL1Info(BigInteger.valueOf(4L)).isPresent());
+            assertFalse(store.finalizedL1Info(BigInteger.valueOf(5L)).isPresent());
+
+            store.truncateL1Infos(InnerWatcher.truncateFrom(blocks, null));
+            assertTrue(store.finalizedL1Info(BigInteger.TWO).isPresent());
+            assertFalse(store.finalizedL1Info(BigInteger.valueOf(3L)).isPresent());
+        }
+    }
+
+    private static BlockInfo block(long number, char fork) {
+        return new BlockInfo(
+                "0x" + String.valueOf(fork).repeat(8) + String.format("%056x", number),
+                BigInteger.valueOf(number),
+                "0x" + String.valueOf(fork).repeat(8) + String.format("%056x", number - 1),
+                BigInteger.valueOf(12L * number));
+    }
+
+    private static StoredL1Info l1Info(long number) {
+        BlockInfo block = block(number, 'a');
+        SystemConfig systemConfig = new SystemConfig(
+                "0x" + "3".repeat(40), BigInteger.valueOf(30000000L), BigInteger.valueOf(188L), BigInteger.TEN, null);
+        L1Info l1Info = new L1Info(
+                new L1Info.L1BlockInfo(block.number(), block.hash(), block.timestamp(), BigInteger.ONE, block.hash()),
+                systemConfig,
+                List.of(),
+                List.of(),
+                false);
+        return new StoredL1Info(l1Info, block.parentHash());
+    }
 }
@@ -0,0 +1,177 @@
+/*
+ * Copyright 2023 281165273grape@gmail.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+
+package io.optimism.l1;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.sun.net.httpserver.HttpServer;
+import io.optimism.utilities.rpc.BatchRpcClient;
+import io.optimism.utilities.rpc.Web3jProvider;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigInteger;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.web3j.protocol.Web3j;
+import org.web3j.protocol.Web3jService;
+import org.web3j.protocol.core.Request;
+import org.web3j.tuples.generated.Tuple2;
+import org.web3j.utils.Numeric;
+
+/**
+ * L1 block decoder test case.
+ *
+ * @author thinkAfCod
+ * @since 0.2.0
+ */
+class L1BlockDecoderTest {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private static final String BATCH_INBOX = "0xff00000000000000000000000000000000000010";
+
+    private static final String BATCH_SENDER = "0x6887246668a3b87f54deb3b94ba47a6f63f32985";
+
+    @Test
+    void testDecodeKeepsHeaderAndInboxTransactions() throws IOException {
+        String json = MAPPER.writeValueAsString(block(16L));
+        try (JsonParser parser = MAPPER.getFactory().createParser(json)) {
+            parser.nextToken();
+            InboxBlock block = L1BlockDecoder.decode(parser, BATCH_INBOX);
+
+            assertEquals(BigInteger.valueOf(16L), block.number());
+            assertEquals(hash(16L), block.hash());
+            assertEquals(hash(15L), block.parentHash());
+            assertEquals(BigInteger.valueOf(1_700_000_016L), block.timestamp());
+            assertEquals(BigInteger.valueOf(7L), block.baseFeePerGas());
+            assertEquals("0x" + "ee".repeat(32), block.mixHash());
+            assertEquals(2, block.inboxTransactions().size());
+            assertEquals("0x00aa", block.inboxTransactions().get(0).input());
+            assertEquals("0x00bb", block.inboxTransactions().get(1).input());
+            assertEquals(BATCH_SENDER, block.inboxTransactions().get(1).from());
+            assertNull(parser.nextToken());
+        }
+    }
+
+    @Test
+    void testDecodeWithoutInboxKeepsAllTransactions() throws IOException {
+        String json = MAPPER.writeValueAsString(block(3L));
+        try (JsonParser parser = MAPPER.getFactory().createParser(json)) {
+            parser.nextToken();
+            assertEquals(4, L1BlockDecoder.decode(parser, null).inboxTransactions().size());
+        }
+        try (JsonParser parser = MAPPER.getFactory().createParser("null")) {
+            parser.nextToken();
+            assertNull(L1BlockDecoder.decode(parser, BATCH_INBOX));
+        }
+    }
+
+    @Test
+    void testBatchResponseIsStreamedAndMatchedById() throws IOException {
+        HttpServer server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/", exchange -> {
+            JsonNode req = MAPPER.readTree(exchange.getRequestBody());
+            List<JsonNode> calls = new ArrayList<>();
+            req.forEach(calls::add);
+            // answer in reverse order, the results must be decoded for the request with the same id
+            Collections.reverse(calls);
+            ArrayNode res = MAPPER.createArrayNode();
+            for (JsonNode call : calls) {
+                long number = Numeric.toBigInt(call.get("params").get(0).asText()).longValue();
+                ObjectNode item = res.addObject();
+                item.put("jsonrpc", "2.0");
+                item.set("id", call.get("id"));
+                item.set("result", block(number));
+            }
+            byte[] body = MAPPER.writeValueAsBytes(res);
+            exchange.getResponseHeaders().add("Content-Type", "application/json");
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream os = exchange.getResponseBody()) {
+                os.write(body);
+            }
+        });
+        server.start();
+        Tuple2<Web3j, Web3jService> client =
+                Web3jProvider.create("http://127.0.0.1:" + server.getAddress().getPort());
+        try {
+            List<Request<?, InboxBlock.BlockResponse>> requests = new ArrayList<>();
+            for (long i = 1; i <= 5; i++) {
+                requests.add(L1BlockDecoder.request(client.component2(), BigInteger.valueOf(i), BATCH_INBOX));
+            }
+            List<InboxBlock.BlockResponse> responses =
+                    new BatchRpcClient(client.component1()).sendAll(requests);
+
+            for (int i = 0; i < responses.size(); i++) {
+                InboxBlock block = responses.get(i).getBlock();
+                assertEquals(BigInteger.valueOf(i + 1), block.number());
+                assertEquals(2, block.inboxTransactions().size());
+            }
+        } finally {
+            client.component1().shutdown();
+            server.stop(0);
+        }
+    }
+
+    private static ObjectNode block(long number) {
+        ObjectNode block = MAPPER.createObjectNode();
+        block.put("baseFeePerGas", "0x7");
+        block.put("hash", hash(number));
+        block.put("logsBloom", "0x" + "00".repeat(256));
+        block.put("mixHash", "0x" + "ee".repeat(32));
+        block.put("number", Numeric.encodeQuantity(BigInteger.valueOf(number)));
+        block.put("parentHash", hash(number - 1));
+        block.put("timestamp", Numeric.encodeQuantity(BigInteger.valueOf(1_700_000_000L + number)));
+        ArrayNode txs = block.putArray("transactions");
+        // geth order, the input comes before the recipient
+        addTransaction(txs, BATCH_SENDER, "0x00aa", BATCH_INBOX, true);
+        addTransaction(txs, BATCH_SENDER, "0xa9059cbb", "0x" + "12".repeat(20), true);
+        // recipient first, the input is skipped unread
+        addTransaction(txs, "0x" + "34".repeat(20), "0xdeadbeef", "0x" + "56".repeat(20), false);
+        addTransaction(txs, BATCH_SENDER, "0x00bb", BATCH_INBOX, false);
+        block.putArray("withdrawals").addObject().put("index", "0x1");
+        return block;
+    }
+
+    private static void addTransaction(ArrayNode txs, String from, String input, String to, boolean inputFirst) {
+        ObjectNode tx = txs.addObject();
+        tx.put("blockHash", hash(1L));
+        tx.put("from", from);
+        if (inputFirst) {
+            tx.put("input", input);
+            tx.put("to", to);
+        } else {
+            tx.put("to", to);
+            tx.put("input", input);
+        }
+        tx.putArray("accessList").addObject().putArray("storageKeys").add("0x" + "00".repeat(32));
+        tx.put("value", "0x0");
+    }
+
+    private static String hash(long number) {
+        return Numeric.toHexStringWithPrefixZeroPadded(BigInteger.valueOf(number), 64);
+    }
+}
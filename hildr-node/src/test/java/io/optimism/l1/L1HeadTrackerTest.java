@@ -0,0 +1,140 @@
+/*
+ * Copyright 2023 281165273grape@gmail.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+
+package io.optimism.l1;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import io.optimism.common.BlockInfo;
+import java.math.BigInteger;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.jupiter.api.Test;
+
+/**
+ * L1 head tracker test case.
+ *
+ * @author thinkAfCod
+ * @since 0.2.0
+ */
+class L1HeadTrackerTest {
+
+    private final AtomicLong clock = new AtomicLong(1_000L);
+
+    private final AtomicInteger lookups = new AtomicInteger();
+
+    private final L1HeadTracker tracker = new L1HeadTracker(clock::get);
+
+    @Test
+    void testSubscribedHeadMayLowerTheHead() throws Exception {
+        tracker.onNewHead(head(100L));
+        assertEquals(BigInteger.valueOf(100L), tracker.update(BigInteger.valueOf(90L), this::lookup));
+        tracker.onNewHead(head(101L));
+        assertEquals(BigInteger.valueOf(101L), tracker.update(BigInteger.valueOf(91L), this::lookup));
+
+        // a reorg to a shorter chain
+        tracker.onNewHead(head(99L));
+        assertEquals(BigInteger.valueOf(99L), tracker.update(BigInteger.valueOf(92L), this::lookup));
+        assertEquals(0, lookups.get());
+    }
+
+    @Test
+    void testHeadIsLookedUpWhileSubscriptionIsSilent() throws Exception {
+        assertNull(tracker.subscribedHead());
+        assertEquals(BigInteger.valueOf(80L), tracker.update(BigInteger.valueOf(50L), this::lookup));
+        assertEquals(1, lookups.get());
+        // not caught up yet, so no lookup
+        assertEquals(BigInteger.valueOf(80L), tracker.update(BigInteger.valueOf(60L), this::lookup));
+        assertEquals(1, lookups.get());
+
+        tracker.onNewHead(head(120L));
+        assertEquals(BigInteger.valueOf(120L), tracker.update(BigInteger.valueOf(121L), this::lookup));
+        assertEquals(1, lookups.get());
+        assertFalse(tracker.isSubscriptionSilent());
+
+        clock.addAndGet(L1HeadTracker.SLOT_INTERVAL.toNanos() + 1L);
+        assertTrue(tracker.isSubscriptionSilent());
+        // the http lookup replaces the head, also when it is lower
+        assertEquals(BigInteger.valueOf(80L), tracker.update(BigInteger.valueOf(121L), this::lookup));
+        assertEquals(2, lookups.get());
+    }
+
+    @Test
+    void testTagRefreshOncePerSlot() {
+        assertTrue(tracker.isTagRefreshDue());
+        assertFalse(tracker.isTagRefreshDue());
+        clock.addAndGet(L1HeadTracker.SLOT_INTERVAL.toNanos() - 1L);
+        assertFalse(tracker.isTagRefreshDue());
+        clock.addAndGet(1L);
+        assertTrue(tracker.isTagRefreshDue());
+        assertFalse(tracker.isTagRefreshDue());
+    }
+
+    @Test
+    void testNewHeadWakesTheIngestionUp() throws Exception {
+        tracker.onNewHead(head(100L));
+        Thread waiter = new Thread(() -> {
+            try {
+                // drains the permit of the first head, then waits up to a slot for the next one
+                tracker.awaitNewHead();
+                tracker.awaitNewHead();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        final long start = System.nanoTime();
+        waiter.start();
+        Thread.sleep(100L);
+        tracker.onNewHead(head(101L));
+        waiter.join(TimeUnit.SECONDS.toMillis(5L));
+
+        assertFalse(waiter.isAlive());
+        assertTrue(System.nanoTime() - start < L1HeadTracker.SLOT_INTERVAL.toNanos());
+        assertEquals(BigInteger.valueOf(101L), tracker.subscribedHead().number());
+    }
+
+    @Test
+    void testWakeUpWithoutHead() throws Exception {
+        tracker.onNewHead(head(100L));
+        tracker.awaitNewHead();
+        Thread waiter = new Thread(() -> {
+            try {
+                tracker.awaitNewHead();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        waiter.start();
+        tracker.wakeUp();
+        waiter.join(TimeUnit.SECONDS.toMillis(5L));
+
+        assertFalse(waiter.isAlive());
+    }
+
+    private BigInteger lookup() {
+        lookups.incrementAndGet();
+        return BigInteger.valueOf(80L);
+    }
+
+    private static BlockInfo head(long number) {
+        return new BlockInfo("0x" + Long.toHexString(number), BigInteger.valueOf(number), "0x0", BigInteger.ONE);
+    }
+}
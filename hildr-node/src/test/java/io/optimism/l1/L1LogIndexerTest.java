@@ -0,0 +1,172 @@
+/*
+ * Copyright 2023 281165273grape@gmail.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+
+package io.optimism.l1;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.sun.net.httpserver.HttpServer;
+import io.optimism.utilities.rpc.Web3jProvider;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigInteger;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.web3j.protocol.Web3j;
+import org.web3j.utils.Numeric;
+
+/**
+ * L1 log indexer test case.
+ *
+ * @author thinkAfCod
+ * @since 0.2.0
+ */
+class L1LogIndexerTest {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private static final String DEPOSIT_CONTRACT = "0x5b47e1a08ea6d985d6649300584e6722ec4b1383";
+
+    private static final String SYSTEM_CONFIG_CONTRACT = "0x229047fed2591dbec1ef1118d64f7af3db9eb290";
+
+    private static final String BLOCK_HASH = "0x" + "11".repeat(32);
+
+    private static final long MAX_PROVIDER_RANGE = 500L;
+
+    private HttpServer server;
+
+    private Web3j client;
+
+    private ExecutorService executor;
+
+    private final List<long[]> calls = new CopyOnWriteArrayList<>();
+
+    @BeforeEach
+    void setUp() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/", exchange -> {
+            JsonNode req = MAPPER.readTree(exchange.getRequestBody());
+            JsonNode filter = req.get("params").get(0);
+            long from = Numeric.toBigInt(filter.get("fromBlock").asText()).longValue();
+            long to = Numeric.toBigInt(filter.get("toBlock").asText()).longValue();
+            calls.add(new long[] {from, to});
+
+            ObjectNode res = MAPPER.createObjectNode();
+            res.put("jsonrpc", "2.0");
+            res.set("id", req.get("id"));
+            if (to - from + 1 > MAX_PROVIDER_RANGE) {
+                ObjectNode error = res.putObject("error");
+                error.put("code", -32005);
+                error.put("message", "query returned more than 10000 results");
+            } else {
+                ArrayNode logs = res.putArray("result");
+                if (from <= 16L && to >= 16L) {
+                    logs.add(gasUpdateLog(16L, 0, 30_000_000L));
+                    logs.add(gasUpdateLog(16L, 1, 25_000_000L));
+                }
+            }
+            byte[] body = MAPPER.writeValueAsString(res).getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().add("Content-Type", "application/json");
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream os = exchange.getResponseBody()) {
+                os.write(body);
+            }
+        });
+        server.start();
+        client = Web3jProvider.createClient("http://127.0.0.1:" + server.getAddress().getPort());
+        executor = Executors.newVirtualThreadPerTaskExecutor();
+    }
+
+    @AfterEach
+    void tearDown() {
+        client.shutdown();
+        executor.shutdown();
+        server.stop(0);
+    }
+
+    @Test
+    void testTakeIndexesRangeOnceAndShrinksOnProviderLimit() throws Exception {
+        L1LogIndexer indexer = new L1LogIndexer(client, executor, DEPOSIT_CONTRACT, SYSTEM_CONFIG_CONTRACT);
+
+        L1LogIndexer.BlockLogs logs = indexer.take(BigInteger.valueOf(16L), BLOCK_HASH, BigInteger.valueOf(5000L));
+
+        assertEquals(0, logs.deposits().size());
+        assertEquals(2, logs.configUpdates().size());
+        assertEquals(
+                BigInteger.valueOf(30_000_000L), ((SystemConfigUpdate.Gas) logs.configUpdates().get(0)).getGas());
+        assertEquals(
+                BigInteger.valueOf(25_000_000L), ((SystemConfigUpdate.Gas) logs.configUpdates().get(1)).getGas());
+        // the first range was rejected, the halved one was accepted
+        assertEquals(2, calls.size());
+        assertEquals(MAX_PROVIDER_RANGE, calls.get(1)[1] - calls.get(1)[0] + 1);
+
+        // the following blocks of the range are served from the index
+        assertSame(
+                L1LogIndexer.BlockLogs.EMPTY,
+                indexer.take(BigInteger.valueOf(17L), "0x" + "22".repeat(32), BigInteger.valueOf(5000L)));
+        assertSame(
+                L1LogIndexer.BlockLogs.EMPTY, indexer.take(BigInteger.valueOf(515L), null, BigInteger.valueOf(5000L)));
+        assertEquals(2, calls.size());
+
+        // the next range starts after the indexed one
+        indexer.take(BigInteger.valueOf(516L), null, BigInteger.valueOf(5000L));
+        assertEquals(516L, calls.get(calls.size() - 1)[0]);
+    }
+
+    @Test
+    void testTakeRejectsLogsOfAnotherBlock() {
+        L1LogIndexer indexer = new L1LogIndexer(client, executor, DEPOSIT_CONTRACT, SYSTEM_CONFIG_CONTRACT);
+
+        assertThrows(
+                LogQueryException.class,
+                () -> indexer.take(BigInteger.valueOf(16L), "0x" + "22".repeat(32), BigInteger.valueOf(100L)));
+    }
+
+    private static ObjectNode gasUpdateLog(long blockNumber, int logIndex, long gas) {
+        ObjectNode log = MAPPER.createObjectNode();
+        log.put("removed", false);
+        log.put("logIndex", Numeric.toHexStringWithPrefix(BigInteger.valueOf(logIndex)));
+        log.put("transactionIndex", "0x0");
+        log.put("transactionHash", "0x" + "33".repeat(32));
+        log.put("blockHash", BLOCK_HASH);
+        log.put("blockNumber", Numeric.toHexStringWithPrefix(BigInteger.valueOf(blockNumber)));
+        log.put("address", SYSTEM_CONFIG_CONTRACT);
+        log.put(
+                "data",
+                "0x" + Numeric.toHexStringNoPrefixZeroPadded(BigInteger.valueOf(32L), 64)
+                        + Numeric.toHexStringNoPrefixZeroPadded(BigInteger.valueOf(32L), 64)
+                        + Numeric.toHexStringNoPrefixZeroPadded(BigInteger.valueOf(gas), 64));
+        ArrayNode topics = log.putArray("topics");
+        topics.add(L1LogIndexer.CONFIG_UPDATE_TOPIC);
+        topics.add(Numeric.toHexStringWithPrefixZeroPadded(BigInteger.ZERO, 64));
+        topics.add(Numeric.toHexStringWithPrefixZeroPadded(BigInteger.TWO, 64));
+        return log;
+    }
+}
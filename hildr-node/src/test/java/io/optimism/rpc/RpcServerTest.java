@@ -121,8 +121,8 @@ public class RpcServerTest {
 
     @Test
     void testRpcServerRegister() throws IOException, InterruptedException, ExecutionException {
-        RpcServer rpcServer = createRpcServer(
-                new Config(null, null, "http://fakeurl", null, null, null, 9545, false, Config.ChainConfig.optimism()));
+        RpcServer rpcServer = createRpcServer(new Config(
+                null, null, "http://fakeurl", null, null, null, 9545, false, null, Config.ChainConfig.optimism()));
         rpcServer.start();
         HashMap<String, Function> rpcHandler = HashMap.newHashMap(1);
         rpcHandler.put("test_url", unused -> "response data");
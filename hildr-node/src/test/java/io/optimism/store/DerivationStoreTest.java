@@ -0,0 +1,187 @@
+/*
+ * Copyright 2023 281165273grape@gmail.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package io.optimism.store;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import io.optimism.common.BlockInfo;
+import io.optimism.common.Epoch;
+import io.optimism.config.Config.SystemConfig;
+import io.optimism.derive.stages.Attributes.UserDeposited;
+import io.optimism.driver.HeadInfo;
+import io.optimism.l1.L1Info;
+import io.optimism.l1.L1Info.L1BlockInfo;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.math.BigInteger;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * The type DerivationStoreTest.
+ *
+ * @author grapebaba
+ * @since 0.2.0
+ */
+class DerivationStoreTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void shouldReplayFinalizedL1InfosAfterReopen() throws IOException {
+        try (DerivationStore store = DerivationStore.open(dir, BigInteger.valueOf(1000L))) {
+            for (long i = 1; i <= 5; i++) {
+                store.putL1Info(l1Info(i));
+            }
+            store.putL1Finalized(BigInteger.valueOf(3L));
+            store.putFinalizedHead(head(7L));
+            store.putSafeHead(head(9L));
+        }
+
+        try (DerivationStore store = DerivationStore.open(dir, BigInteger.valueOf(1000L))) {
+            assertEquals(BigInteger.valueOf(3L), store.l1Finalized().orElseThrow());
+            assertEquals(head(7L), store.finalizedHead().orElseThrow());
+            assertEquals(head(9L), store.safeHead().orElseThrow());
+
+            StoredL1Info stored = store.finalizedL1Info(BigInteger.TWO).orElseThrow();
+            StoredL1Info expected = l1Info(2L);
+            assertEquals(expected.parentHash(), stored.parentHash());
+            assertEquals(expected.l1Info().blockInfo(), stored.l1Info().blockInfo());
+            assertEquals(expected.l1Info().systemConfig(), stored.l1Info().systemConfig());
+            assertEquals(expected.l1Info().batcherTransactions(), stored.l1Info().batcherTransactions());
+            UserDeposited deposit = stored.l1Info().userDeposits().get(0);
+            assertEquals(expected.l1Info().userDeposits().get(0).from(), deposit.from());
+            assertArrayEquals(expected.l1Info().userDeposits().get(0).data(), deposit.data());
+            assertEquals(expected.l1Info().userDeposits().get(0).logIndex(), deposit.logIndex());
+
+            assertFalse(store.finalizedL1Info(BigInteger.valueOf(4L)).isPresent());
+            assertEquals(
+                    BigInteger.valueOf(3L),
+                    store.lastFinalizedL1Info().orElseThrow().l1Info().blockInfo().number());
+        }
+    }
+
+    @Test
+    void shouldForgetTruncatedL1Infos() throws IOException {
+        try (DerivationStore store = DerivationStore.open(dir, BigInteger.valueOf(1000L))) {
+            for (long i = 1; i <= 5; i++) {
+                store.putL1Info(l1Info(i));
+            }
+            store.putL1Finalized(BigInteger.valueOf(5L));
+            store.truncateL1Infos(BigInteger.valueOf(4L));
+            assertFalse(store.finalizedL1Info(BigInteger.valueOf(4L)).isPresent());
+        }
+
+        try (DerivationStore store = DerivationStore.open(dir, BigInteger.valueOf(1000L))) {
+            assertEquals(BigInteger.valueOf(3L), store.l1Finalized().orElseThrow());
+            assertTrue(store.finalizedL1Info(BigInteger.valueOf(3L)).isPresent());
+            assertFalse(store.finalizedL1Info(BigInteger.valueOf(4L)).isPresent());
+        }
+    }
+
+    @Test
+    void shouldDropTornTailOnOpen() throws IOException {
+        try (DerivationStore store = DerivationStore.open(dir, BigInteger.valueOf(1000L))) {
+            store.putL1Info(l1Info(1L));
+            store.putL1Info(l1Info(2L));
+            store.putL1Finalized(BigInteger.valueOf(2L));
+        }
+        Path segment;
+        try (Stream<Path> files = Files.list(dir)) {
+            segment = files.findFirst().orElseThrow();
+        }
+        // corrupt the payload of the last record, the finalized block number
+        try (RandomAccessFile file = new RandomAccessFile(segment.toFile(), "rw")) {
+            long offset = RecordLog.HEADER_SIZE;
+            for (int i = 0; i < 2; i++) {
+                file.seek(offset);
+                offset += 4 + file.readInt() + 4;
+            }
+            file.seek(offset + 5);
+            file.write(0xff);
+        }
+
+        try (DerivationStore store = DerivationStore.open(dir, BigInteger.valueOf(1000L))) {
+            assertFalse(store.l1Finalized().isPresent());
+            store.putL1Finalized(BigInteger.ONE);
+            assertTrue(store.finalizedL1Info(BigInteger.ONE).isPresent());
+        }
+    }
+
+    @Test
+    void shouldPruneSegmentsBehindFinalizedBlock() throws IOException {
+        try (DerivationStore store = DerivationStore.open(dir, 1024, BigInteger.TEN)) {
+            for (long i = 1; i <= 100; i++) {
+                store.putL1Info(l1Info(i));
+            }
+            store.putFinalizedHead(head(7L));
+            store.putL1Finalized(BigInteger.valueOf(100L));
+
+            assertFalse(store.finalizedL1Info(BigInteger.ONE).isPresent());
+            assertTrue(store.finalizedL1Info(BigInteger.valueOf(95L)).isPresent());
+        }
+
+        try (DerivationStore store = DerivationStore.open(dir, 1024, BigInteger.TEN)) {
+            assertEquals(BigInteger.valueOf(100L), store.l1Finalized().orElseThrow());
+            assertEquals(head(7L), store.finalizedHead().orElseThrow());
+            assertTrue(store.finalizedL1Info(BigInteger.valueOf(95L)).isPresent());
+        }
+    }
+
+    private static StoredL1Info l1Info(long number) {
+        BigInteger num = BigInteger.valueOf(number);
+        UserDeposited deposit = new UserDeposited(
+                "0x" + "1".repeat(40),
+                "0x" + "2".repeat(40),
+                BigInteger.ZERO,
+                BigInteger.TEN,
+                BigInteger.valueOf(100000L),
+                false,
+                new byte[] {1, 2, 3},
+                num,
+                hash(number),
+                BigInteger.ONE);
+        SystemConfig systemConfig = new SystemConfig(
+                "0x" + "3".repeat(40), BigInteger.valueOf(30000000L), BigInteger.valueOf(188L), BigInteger.TEN, null);
+        L1Info l1Info = new L1Info(
+                new L1BlockInfo(num, hash(number), BigInteger.valueOf(12L * number), BigInteger.ONE, hash(0L)),
+                systemConfig,
+                List.of(deposit),
+                List.of("0x00" + "ab".repeat(100)),
+                false);
+        return new StoredL1Info(l1Info, hash(number - 1));
+    }
+
+    private static HeadInfo head(long number) {
+        return new HeadInfo(
+                new BlockInfo(hash(number), BigInteger.valueOf(number), hash(number - 1), BigInteger.TWO),
+                new Epoch(BigInteger.ONE, hash(1L), BigInteger.TEN),
+                BigInteger.ZERO);
+    }
+
+    private static String hash(long number) {
+        return String.format("0x%064x", number);
+    }
+}
@@ -0,0 +1,109 @@
+/*
+ * Copyright 2023 281165273grape@gmail.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package io.optimism.utilities.derive.stages;
+
+import java.io.ByteArrayOutputStream;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.apache.commons.lang3.tuple.ImmutablePair;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Parsing and encoding frames.
+ *
+ * @author grapebaba
+ * @since 0.2.0
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class FrameBenchmark {
+
+    /** The number of frames in the batcher transaction. */
+    @Param({"1", "8"})
+    public int frames;
+
+    /** The frame data size. */
+    @Param({"1000", "16000"})
+    public int frameSize;
+
+    private ByteBuffer txData;
+
+    private Frame frame;
+
+    /** Builds a batcher transaction of frames with random data. */
+    @Setup
+    public void setUp() {
+        Random random = new Random(42L);
+        BigInteger channelId = new BigInteger(1, randomBytes(random, ChannelId.LENGTH));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        out.write(Frame.DERIVATION_VERSION_0);
+        for (int i = 0; i < this.frames; i++) {
+            this.frame =
+                    Frame.create(channelId, i, randomBytes(random, this.frameSize), i == this.frames - 1);
+            out.writeBytes(this.frame.encode());
+        }
+        this.txData = ByteBuffer.wrap(out.toByteArray()).asReadOnlyBuffer();
+    }
+
+    /**
+     * Parses every frame of the transaction.
+     *
+     * @param blackhole the blackhole
+     */
+    @Benchmark
+    public void from(Blackhole blackhole) {
+        int offset = 1;
+        while (offset < this.txData.limit()) {
+            ImmutablePair<Frame, Integer> frameAndOffset = Frame.from(this.txData, offset, BigInteger.ONE);
+            blackhole.consume(frameAndOffset.getLeft());
+            offset = frameAndOffset.getRight();
+        }
+    }
+
+    /**
+     * Encodes a frame.
+     *
+     * @return the encoded frame
+     */
+    @Benchmark
+    public byte[] encode() {
+        return this.frame.encode();
+    }
+
+    private static byte[] randomBytes(Random random, int length) {
+        byte[] bytes = new byte[length];
+        random.nextBytes(bytes);
+        return bytes;
+    }
+}
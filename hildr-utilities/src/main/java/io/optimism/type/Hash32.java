@@ -0,0 +1,248 @@
+/*
+ * Copyright 2023 281165273grape@gmail.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package io.optimism.type;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * A 32 byte hash held as four longs. Equality and ordering work on the longs, and the hash code is
+ * computed once, so a hash can be used as a map key without hex string comparisons. Hex strings are
+ * only produced for RPC and logging, and the result is cached.
+ *
+ * @author grapebaba
+ * @since 0.2.0
+ */
+public final class Hash32 implements Comparable<Hash32> {
+
+    /** The byte length of a hash. */
+    public static final int LENGTH = 32;
+
+    /** The zero hash. */
+    public static final Hash32 ZERO = new Hash32(0L, 0L, 0L, 0L);
+
+    private static final int HEX_LENGTH = LENGTH * 2;
+
+    private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+
+    private final long w0;
+
+    private final long w1;
+
+    private final long w2;
+
+    private final long w3;
+
+    private final int hashCode;
+
+    private String hex;
+
+    private Hash32(long w0, long w1, long w2, long w3) {
+        this.w0 = w0;
+        this.w1 = w1;
+        this.w2 = w2;
+        this.w3 = w3;
+        // the words of a hash are uniformly distributed, folding one of them is enough
+        this.hashCode = (int) (w3 ^ (w3 >>> 32));
+    }
+
+    /**
+     * Creates a hash from its hex string, with or without the 0x prefix.
+     *
+     * @param hex the hex string
+     * @return the hash
+     * @throws IllegalArgumentException thrown if the string is not a 32 byte hex string
+     */
+    public static Hash32 from(String hex) {
+        if (hex == null) {
+            throw new IllegalArgumentException("hash must not be null");
+        }
+        final int offset = hex.startsWith("0x") || hex.startsWith("0X") ? 2 : 0;
+        if (hex.length() - offset != HEX_LENGTH) {
+            throw new IllegalArgumentException("not a 32 byte hex string: " + hex);
+        }
+        final Hash32 hash = new Hash32(
+                parseWord(hex, offset),
+                parseWord(hex, offset + 16),
+                parseWord(hex, offset + 32),
+                parseWord(hex, offset + 48));
+        if (offset == 2 && isLowerCase(hex)) {
+            hash.hex = hex;
+        }
+        return hash;
+    }
+
+    /**
+     * Creates a hash from its bytes.
+     *
+     * @param bytes the 32 bytes
+     * @return the hash
+     */
+    public static Hash32 from(byte[] bytes) {
+        if (bytes.length != LENGTH) {
+            throw new IllegalArgumentException("expected 32 bytes, got " + bytes.length);
+        }
+        return from(ByteBuffer.wrap(bytes), 0);
+    }
+
+    /**
+     * Reads a hash at an absolute index, without moving the buffer position.
+     *
+     * @param buffer the buffer
+     * @param index the index of the first byte
+     * @return the hash
+     */
+    public static Hash32 from(ByteBuffer buffer, int index) {
+        final ByteBuffer bigEndian =
+                buffer.order() == ByteOrder.BIG_ENDIAN ? buffer : buffer.duplicate().order(ByteOrder.BIG_ENDIAN);
+        return new Hash32(
+                bigEndian.getLong(index),
+                bigEndian.getLong(index + 8),
+                bigEndian.getLong(index + 16),
+                bigEndian.getLong(index + 24));
+    }
+
+    /**
+     * Checks whether the given hex string is the hex form of this hash, ignoring case, without
+     * parsing it into a new hash.
+     *
+     * @param other the hex string, with or without the 0x prefix
+     * @return true if the string is the same hash
+     */
+    public boolean matches(String other) {
+        if (other == null) {
+            return false;
+        }
+        final int offset = other.startsWith("0x") || other.startsWith("0X") ? 2 : 0;
+        if (other.length() - offset != HEX_LENGTH) {
+            return false;
+        }
+        for (int i = 0; i < HEX_LENGTH; i++) {
+            final int digit = Character.digit(other.charAt(offset + i), 16);
+            if (digit < 0 || digit != this.nibble(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Gets the bytes of the hash.
+     *
+     * @return a new array of 32 bytes
+     */
+    public byte[] toBytes() {
+        return ByteBuffer.allocate(LENGTH)
+                .putLong(this.w0)
+                .putLong(this.w1)
+                .putLong(this.w2)
+                .putLong(this.w3)
+                .array();
+    }
+
+    /**
+     * Gets the lower case hex string of the hash, with the 0x prefix.
+     *
+     * @return the hex string
+     */
+    public String toHexString() {
+        String result = this.hex;
+        if (result == null) {
+            final char[] chars = new char[HEX_LENGTH + 2];
+            chars[0] = '0';
+            chars[1] = 'x';
+            for (int i = 0; i < HEX_LENGTH; i++) {
+                chars[i + 2] = HEX_DIGITS[this.nibble(i)];
+            }
+            result = new String(chars);
+            this.hex = result;
+        }
+        return result;
+    }
+
+    @Override
+    public int compareTo(Hash32 o) {
+        int result = Long.compareUnsigned(this.w0, o.w0);
+        if (result == 0) {
+            result = Long.compareUnsigned(this.w1, o.w1);
+        }
+        if (result == 0) {
+            result = Long.compareUnsigned(this.w2, o.w2);
+        }
+        if (result == 0) {
+            result = Long.compareUnsigned(this.w3, o.w3);
+        }
+        return result;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof Hash32 that)) {
+            return false;
+        }
+        return this.hashCode == that.hashCode
+                && this.w0 == that.w0
+                && this.w1 == that.w1
+                && this.w2 == that.w2
+                && this.w3 == that.w3;
+    }
+
+    @Override
+    public int hashCode() {
+        return this.hashCode;
+    }
+
+    @Override
+    public String toString() {
+        return this.toHexString();
+    }
+
+    private int nibble(int i) {
+        final long word =
+                switch (i >>> 4) {
+                    case 0 -> this.w0;
+                    case 1 -> this.w1;
+                    case 2 -> this.w2;
+                    default -> this.w3;
+                };
+        return (int) (word >>> ((15 - (i & 15)) << 2)) & 0xf;
+    }
+
+    private static long parseWord(String hex, int offset) {
+        long word = 0L;
+        for (int i = offset; i < offset + 16; i++) {
+            final int digit = Character.digit(hex.charAt(i), 16);
+            if (digit < 0) {
+                throw new IllegalArgumentException("not a 32 byte hex string: " + hex);
+            }
+            word = (word << 4) | digit;
+        }
+        return word;
+    }
+
+    private static boolean isLowerCase(String hex) {
+        for (int i = 2; i < hex.length(); i++) {
+            if (Character.isUpperCase(hex.charAt(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,130 @@
+/*
+ * Copyright 2023 281165273grape@gmail.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package io.optimism.utilities.derive.stages;
+
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import org.web3j.utils.Numeric;
+
+/**
+ * The 16 byte id of a channel, held as two longs so it can be compared and hashed without
+ * allocating a BigInteger for every frame.
+ *
+ * @author grapebaba
+ * @since 0.2.0
+ */
+public final class ChannelId {
+
+    /** The byte length of a channel id. */
+    public static final int LENGTH = 16;
+
+    private final long high;
+
+    private final long low;
+
+    /**
+     * Instantiates a new Channel id.
+     *
+     * @param high the high 8 bytes
+     * @param low the low 8 bytes
+     */
+    public ChannelId(long high, long low) {
+        this.high = high;
+        this.low = low;
+    }
+
+    /**
+     * Reads a channel id at an absolute index, without moving the buffer position.
+     *
+     * @param buffer the buffer
+     * @param index the index of the first byte
+     * @return the channel id
+     */
+    public static ChannelId from(ByteBuffer buffer, int index) {
+        final ByteBuffer bigEndian =
+                buffer.order() == ByteOrder.BIG_ENDIAN ? buffer : buffer.duplicate().order(ByteOrder.BIG_ENDIAN);
+        return new ChannelId(bigEndian.getLong(index), bigEndian.getLong(index + Long.BYTES));
+    }
+
+    /**
+     * Creates a channel id from its integer value.
+     *
+     * @param id the id
+     * @return the channel id
+     */
+    public static ChannelId from(BigInteger id) {
+        return from(ByteBuffer.wrap(Numeric.toBytesPadded(id, LENGTH)), 0);
+    }
+
+    /**
+     * Gets the high 8 bytes.
+     *
+     * @return the high 8 bytes
+     */
+    public long high() {
+        return high;
+    }
+
+    /**
+     * Gets the low 8 bytes.
+     *
+     * @return the low 8 bytes
+     */
+    public long low() {
+        return low;
+    }
+
+    /**
+     * Gets the big endian bytes.
+     *
+     * @return the bytes
+     */
+    public byte[] toBytes() {
+        return ByteBuffer.allocate(LENGTH).putLong(high).putLong(low).array();
+    }
+
+    /**
+     * Gets the unsigned integer value.
+     *
+     * @return the integer value
+     */
+    public BigInteger toBigInteger() {
+        return new BigInteger(1, toBytes());
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof ChannelId that)) {
+            return false;
+        }
+        return high == that.high && low == that.low;
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * Long.hashCode(high) + Long.hashCode(low);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("0x%016x%016x", high, low);
+    }
+}
@@ -16,11 +16,13 @@
 
 package io.optimism.utilities.derive.stages;
 
-import com.google.common.base.Objects;
 import com.google.common.primitives.Ints;
 import com.google.common.primitives.Shorts;
 import java.io.ByteArrayOutputStream;
 import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Objects;
 import org.apache.commons.lang3.ArrayUtils;
 import org.apache.commons.lang3.tuple.ImmutablePair;
 import org.slf4j.Logger;
@@ -30,22 +32,14 @@ import org.web3j.utils.Numeric;
 /**
  * The type Frame.
  *
- * @param channelId the channel id
- * @param frameNumber the frame number
- * @param frameDataLen the frame data len
- * @param frameData the frame data
- * @param isLastFrame the is last frame
- * @param l1InclusionBlock the L1 inclusion block
+ * <p>Frames decoded from a batcher transaction keep a read only view of the transaction bytes
+ * instead of a copy, and their channel id as a {@link ChannelId}. The byte array and BigInteger
+ * accessors are materialized on first use.
+ *
  * @author grapebaba
  * @since 0.1.0
  */
-public record Frame(
-        BigInteger channelId,
-        Integer frameNumber,
-        Integer frameDataLen,
-        byte[] frameData,
-        Boolean isLastFrame,
-        BigInteger l1InclusionBlock) {
+public final class Frame {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(Frame.class);
 
@@ -57,6 +51,149 @@ public record Frame(
      */
     public static final int FRAME_V0_OVER_HEAD_SIZE = 23;
 
+    private static final int FRAME_NUMBER_OFFSET = ChannelId.LENGTH;
+
+    private static final int FRAME_DATA_LEN_OFFSET = FRAME_NUMBER_OFFSET + Short.BYTES;
+
+    private static final int FRAME_DATA_OFFSET = FRAME_DATA_LEN_OFFSET + Integer.BYTES;
+
+    private final ChannelId id;
+
+    private final Integer frameNumber;
+
+    private final Integer frameDataLen;
+
+    private final ByteBuffer frameDataBuffer;
+
+    private final Boolean isLastFrame;
+
+    private final BigInteger l1InclusionBlock;
+
+    private BigInteger channelId;
+
+    private byte[] frameData;
+
+    /**
+     * Instantiates a new Frame.
+     *
+     * @param channelId the channel id
+     * @param frameNumber the frame number
+     * @param frameDataLen the frame data len
+     * @param frameData the frame data
+     * @param isLastFrame the is last frame
+     * @param l1InclusionBlock the L1 inclusion block
+     */
+    public Frame(
+            BigInteger channelId,
+            Integer frameNumber,
+            Integer frameDataLen,
+            byte[] frameData,
+            Boolean isLastFrame,
+            BigInteger l1InclusionBlock) {
+        this.id = channelId == null ? null : ChannelId.from(channelId);
+        this.channelId = channelId;
+        this.frameNumber = frameNumber;
+        this.frameDataLen = frameDataLen;
+        this.frameData = frameData;
+        this.frameDataBuffer = ByteBuffer.wrap(frameData == null ? new byte[0] : frameData).asReadOnlyBuffer();
+        this.isLastFrame = isLastFrame;
+        this.l1InclusionBlock = l1InclusionBlock;
+    }
+
+    private Frame(
+            ChannelId id,
+            int frameNumber,
+            ByteBuffer frameDataBuffer,
+            boolean isLastFrame,
+            BigInteger l1InclusionBlock) {
+        this.id = id;
+        this.frameNumber = frameNumber;
+        this.frameDataLen = frameDataBuffer.remaining();
+        this.frameDataBuffer = frameDataBuffer;
+        this.isLastFrame = isLastFrame;
+        this.l1InclusionBlock = l1InclusionBlock;
+    }
+
+    /**
+     * Gets the channel id.
+     *
+     * @return the channel id
+     */
+    public ChannelId id() {
+        return id;
+    }
+
+    /**
+     * Gets the channel id as an integer.
+     *
+     * @return the channel id
+     */
+    public BigInteger channelId() {
+        if (channelId == null && id != null) {
+            channelId = id.toBigInteger();
+        }
+        return channelId;
+    }
+
+    /**
+     * Gets the frame number.
+     *
+     * @return the frame number
+     */
+    public Integer frameNumber() {
+        return frameNumber;
+    }
+
+    /**
+     * Gets the frame data len.
+     *
+     * @return the frame data len
+     */
+    public Integer frameDataLen() {
+        return frameDataLen;
+    }
+
+    /**
+     * Gets the frame data. Decoded frames copy it out of the transaction on first use.
+     *
+     * @return the frame data
+     */
+    public byte[] frameData() {
+        if (frameData == null) {
+            final byte[] data = new byte[frameDataBuffer.remaining()];
+            frameDataBuffer.get(0, data);
+            frameData = data;
+        }
+        return frameData;
+    }
+
+    /**
+     * Gets a read only view of the frame data, positioned at its first byte.
+     *
+     * @return the frame data view
+     */
+    public ByteBuffer frameDataBuffer() {
+        return frameDataBuffer.duplicate();
+    }
+
+    /**
+     * Gets the is last frame flag.
+     *
+     * @return the is last frame flag
+     */
+    public Boolean isLastFrame() {
+        return isLastFrame;
+    }
+
+    /**
+     * Gets the L1 inclusion block.
+     *
+     * @return the L1 inclusion block
+     */
+    public BigInteger l1InclusionBlock() {
+        return l1InclusionBlock;
+    }
+
     /**
      * Get tx bytes.
      *
@@ -72,7 +209,7 @@ public record Frame(
      * @return unique code.
      */
     public String code() {
-        return String.valueOf(Objects.hashCode(channelId, frameNumber));
+        return String.valueOf(Objects.hash(channelId(), frameNumber));
     }
 
     /**
@@ -96,7 +233,7 @@ public record Frame(
      */
     public byte[] encode() {
         var bos = new ByteArrayOutputStream();
-        bos.writeBytes(Numeric.toBytesPadded(channelId, 16));
+        bos.writeBytes(Numeric.toBytesPadded(channelId(), 16));
         bos.writeBytes(Shorts.toByteArray((short) frameNumber().intValue()));
         bos.writeBytes(Ints.toByteArray(frameData().length));
         bos.writeBytes(frameData());
@@ -113,28 +250,72 @@ public record Frame(
      * @return the immutable pair
      */
     public static ImmutablePair<Frame, Integer> from(byte[] data, int offset, BigInteger l1InclusionBlock) {
-        final byte[] frameDataMessage = ArrayUtils.subarray(data, offset, data.length);
-        if (frameDataMessage.length < 23) {
+        return from(ByteBuffer.wrap(data), offset, l1InclusionBlock);
+    }
+
+    /**
+     * Decodes the frame starting at an absolute offset of the buffer. The header is read with
+     * absolute gets and the frame data is referenced, not copied, so decoding every frame of a
+     * transaction is linear in its size.
+     *
+     * @param data the data
+     * @param offset the offset of the frame
+     * @param l1InclusionBlock the L1 inclusion block
+     * @return the frame and the offset of the next frame
+     */
+    public static ImmutablePair<Frame, Integer> from(ByteBuffer data, int offset, BigInteger l1InclusionBlock) {
+        final ByteBuffer buffer =
+                data.order() == ByteOrder.BIG_ENDIAN ? data : data.duplicate().order(ByteOrder.BIG_ENDIAN);
+        final int available = buffer.limit() - offset;
+        if (available < FRAME_V0_OVER_HEAD_SIZE) {
             throw new InvalidFrameSizeException("invalid frame size");
         }
 
-        final BigInteger channelId = Numeric.toBigInt(ArrayUtils.subarray(frameDataMessage, 0, 16));
-        final int frameNumber =
-                Numeric.toBigInt(ArrayUtils.subarray(frameDataMessage, 16, 18)).intValue();
-        final int frameDataLen =
-                Numeric.toBigInt(ArrayUtils.subarray(frameDataMessage, 18, 22)).intValue();
-        final int frameDataEnd = 22 + frameDataLen;
-
-        if (frameDataMessage.length < frameDataEnd) {
+        final ChannelId channelId = ChannelId.from(buffer, offset);
+        final int frameNumber = Short.toUnsignedInt(buffer.getShort(offset + FRAME_NUMBER_OFFSET));
+        final long frameDataLen = Integer.toUnsignedLong(buffer.getInt(offset + FRAME_DATA_LEN_OFFSET));
+        if (available < FRAME_V0_OVER_HEAD_SIZE + frameDataLen) {
             throw new InvalidFrameSizeException("invalid frame size");
         }
 
-        final byte[] frameData = ArrayUtils.subarray(frameDataMessage, 22, frameDataEnd);
-        final boolean isLastFrame = frameDataMessage[frameDataEnd] != 0;
-        final Frame frame = new Frame(channelId, frameNumber, frameDataLen, frameData, isLastFrame, l1InclusionBlock);
-        LOGGER.debug(String.format(
-                "saw batcher tx: block=%d, number=%d, is_last=%b", l1InclusionBlock, frameNumber, isLastFrame));
+        final int frameDataStart = offset + FRAME_DATA_OFFSET;
+        final int frameDataEnd = frameDataStart + (int) frameDataLen;
+        final ByteBuffer frameData = buffer.slice(frameDataStart, (int) frameDataLen).asReadOnlyBuffer();
+        final boolean isLastFrame = buffer.get(frameDataEnd) != 0;
+        final Frame frame = new Frame(channelId, frameNumber, frameData, isLastFrame, l1InclusionBlock);
+        if (LOGGER.isDebugEnabled()) {
+            LOGGER.debug(String.format(
+                    "saw batcher tx: block=%d, number=%d, is_last=%b", l1InclusionBlock, frameNumber, isLastFrame));
+        }
+
+        return new ImmutablePair<>(frame, frameDataEnd + 1);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof Frame frame)) {
+            return false;
+        }
+        return Objects.equals(id, frame.id)
+                && Objects.equals(frameNumber, frame.frameNumber)
+                && Objects.equals(frameDataLen, frame.frameDataLen)
+                && Objects.equals(frameDataBuffer, frame.frameDataBuffer)
+                && Objects.equals(isLastFrame, frame.isLastFrame)
+                && Objects.equals(l1InclusionBlock, frame.l1InclusionBlock);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(id, frameNumber, frameDataLen, isLastFrame, l1InclusionBlock);
+    }
 
-        return new ImmutablePair<>(frame, offset + frameDataMessage.length);
+    @Override
+    public String toString() {
+        return String.format(
+                "Frame[channelId=%s, frameNumber=%d, frameDataLen=%d, isLastFrame=%b, l1InclusionBlock=%s]",
+                id, frameNumber, frameDataLen, isLastFrame, l1InclusionBlock);
     }
 }
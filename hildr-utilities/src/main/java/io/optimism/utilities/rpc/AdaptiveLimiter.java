@@ -0,0 +1,265 @@
+/*
+ * Copyright 2023 281165273grape@gmail.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+
+package io.optimism.utilities.rpc;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Client side concurrency and rate limit of one RPC endpoint, adapted with AIMD: both limits grow
+ * additively while calls succeed, and are halved when the endpoint reports a rate limit. Repeated
+ * rate limit answers of calls sent before the last decrease do not halve the limits again.
+ *
+ * <p>Calls of the {@link RpcPriority#TIP} lane are admitted first. {@link RpcPriority#BULK} calls wait
+ * while tip calls are waiting, and leave a share of the concurrency limit free for tip calls.
+ *
+ * @author thinkAfCod
+ * @since 0.2.0
+ */
+public class AdaptiveLimiter {
+
+    /** The initial number of concurrent calls. */
+    static final double INITIAL_CONCURRENCY = 16.0;
+
+    /** The initial number of calls per second. */
+    static final double INITIAL_RATE = 200.0;
+
+    private static final double MIN_CONCURRENCY = 1.0;
+
+    /** The max number of calls in flight. */
+    static final double MAX_CONCURRENCY = 256.0;
+
+    private static final double MIN_RATE = 1.0;
+
+    private static final double MAX_RATE = 5000.0;
+
+    /** The growth of the rate limit per second of calls answered at the limit. */
+    private static final double RATE_INCREASE = 10.0;
+
+    private static final double DECREASE_FACTOR = 0.5;
+
+    /** The share of the concurrency limit kept free for tip calls. */
+    private static final double TIP_RESERVE = 0.25;
+
+    /** The burst of calls allowed by the rate limit, in seconds of the current rate. */
+    private static final double BURST_SECONDS = 0.05;
+
+    private final ReentrantLock lock = new ReentrantLock();
+
+    private final Condition changed = this.lock.newCondition();
+
+    private double concurrency;
+
+    private double rate;
+
+    private double tokens;
+
+    private long refilledAt;
+
+    private int inFlight;
+
+    private int tipWaiting;
+
+    private long decreasedAt;
+
+    /** Instantiates a new adaptive limiter with the default initial limits. */
+    public AdaptiveLimiter() {
+        this(INITIAL_CONCURRENCY, INITIAL_RATE);
+    }
+
+    /**
+     * Instantiates a new adaptive limiter.
+     *
+     * @param concurrency the initial number of concurrent calls
+     * @param rate the initial number of calls per second
+     */
+    public AdaptiveLimiter(double concurrency, double rate) {
+        this.concurrency = concurrency;
+        this.rate = rate;
+        this.tokens = 1.0;
+        this.refilledAt = System.nanoTime();
+        this.decreasedAt = this.refilledAt;
+    }
+
+    /**
+     * Waits until a call of the given priority may be sent.
+     *
+     * @param priority the priority
+     * @return the permit, to be released with the outcome of the call
+     * @throws InterruptedException thrown if interrupted while waiting
+     */
+    public Permit acquire(RpcPriority priority) throws InterruptedException {
+        this.lock.lockInterruptibly();
+        try {
+            boolean waited = false;
+            final boolean tip = priority == RpcPriority.TIP;
+            if (tip) {
+                this.tipWaiting++;
+            }
+            try {
+                while (true) {
+                    final long now = System.nanoTime();
+                    this.refill(now);
+                    if (this.inFlight < this.concurrencyFor(priority) && this.tokens >= 1.0) {
+                        this.tokens -= 1.0;
+                        this.inFlight++;
+                        return new Permit(now, waited);
+                    }
+                    waited = true;
+                    if (this.tokens < 1.0) {
+                        this.changed.awaitNanos(this.nanosUntilToken());
+                    } else {
+                        this.changed.await();
+                    }
+                }
+            } finally {
+                if (tip) {
+                    this.tipWaiting--;
+                    // bulk calls may go once no tip call is waiting
+                    this.changed.signalAll();
+                }
+            }
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    /**
+     * Gets the current concurrency limit.
+     *
+     * @return the number of concurrent calls
+     */
+    public double concurrency() {
+        this.lock.lock();
+        try {
+            return this.concurrency;
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    /**
+     * Gets the current rate limit.
+     *
+     * @return the number of calls per second
+     */
+    public double rate() {
+        this.lock.lock();
+        try {
+            return this.rate;
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    private void release(Permit permit, Outcome outcome) {
+        this.lock.lock();
+        try {
+            this.inFlight--;
+            switch (outcome) {
+                case SUCCESS -> {
+                    this.concurrency = Math.min(MAX_CONCURRENCY, this.concurrency + 1.0 / this.concurrency);
+                    this.rate = Math.min(MAX_RATE, this.rate + RATE_INCREASE / this.rate);
+                }
+                case RATE_LIMITED -> {
+                    // calls sent before the last decrease saw the old limits, they must not halve them again
+                    if (permit.acquiredAt - this.decreasedAt > 0) {
+                        this.refill(System.nanoTime());
+                        this.concurrency = Math.max(MIN_CONCURRENCY, this.concurrency * DECREASE_FACTOR);
+                        this.rate = Math.max(MIN_RATE, this.rate * DECREASE_FACTOR);
+                        this.tokens = Math.min(this.tokens, this.burst());
+                        this.decreasedAt = System.nanoTime();
+                    }
+                }
+                default -> {}
+            }
+            this.changed.signalAll();
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    private double concurrencyFor(RpcPriority priority) {
+        final double limit = Math.floor(this.concurrency);
+        if (priority == RpcPriority.TIP) {
+            return limit;
+        }
+        return this.tipWaiting > 0 ? 0 : Math.max(1.0, Math.floor(limit * (1.0 - TIP_RESERVE)));
+    }
+
+    private void refill(long now) {
+        this.tokens = Math.min(this.burst(), this.tokens + (now - this.refilledAt) * this.rate / 1e9);
+        this.refilledAt = now;
+    }
+
+    private double burst() {
+        return Math.max(1.0, this.rate * BURST_SECONDS);
+    }
+
+    private long nanosUntilToken() {
+        return Math.max(TimeUnit.MICROSECONDS.toNanos(100L), (long) ((1.0 - this.tokens) * 1e9 / this.rate));
+    }
+
+    /** The outcome of a call. */
+    public enum Outcome {
+        /** The endpoint answered the call. */
+        SUCCESS,
+        /** The endpoint rejected the call with a rate limit. */
+        RATE_LIMITED,
+        /** The call failed for another reason, the limits are left as they are. */
+        FAILURE
+    }
+
+    /** A permit to send one call. */
+    public final class Permit {
+
+        private final long acquiredAt;
+
+        private final boolean waited;
+
+        private boolean released;
+
+        private Permit(long acquiredAt, boolean waited) {
+            this.acquiredAt = acquiredAt;
+            this.waited = waited;
+        }
+
+        /**
+         * Whether the call had to wait for the limits.
+         *
+         * @return true if the call waited
+         */
+        public boolean waited() {
+            return this.waited;
+        }
+
+        /**
+         * Releases the permit, adapting the limits to the outcome of the call. Releasing twice has no
+         * effect.
+         *
+         * @param outcome the outcome
+         */
+        public void release(Outcome outcome) {
+            if (!this.released) {
+                this.released = true;
+                AdaptiveLimiter.this.release(this, outcome);
+            }
+        }
+    }
+}
@@ -0,0 +1,187 @@
+/*
+ * Copyright 2023 281165273grape@gmail.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package io.optimism.utilities.rpc;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.web3j.protocol.Web3j;
+import org.web3j.protocol.core.BatchRequest;
+import org.web3j.protocol.core.BatchResponse;
+import org.web3j.protocol.core.Request;
+import org.web3j.protocol.core.Response;
+
+/**
+ * JSON-RPC client that sends many calls as JSON-RPC batch arrays. Responses are matched back to
+ * their requests by id, and only the elements that failed with a retryable error are sent again.
+ *
+ * @author thinkAfCod
+ * @since 0.2.0
+ */
+public class BatchRpcClient {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(BatchRpcClient.class);
+
+    /** The default max number of calls in one batch. */
+    public static final int DEFAULT_MAX_BATCH_SIZE = 64;
+
+    /** The default max number of attempts per call. */
+    public static final int DEFAULT_MAX_ATTEMPTS = 10;
+
+    private static final Duration RETRY_WAIT = Duration.ofMillis(100L);
+
+    private final Web3j client;
+
+    private final int maxBatchSize;
+
+    private final int maxAttempts;
+
+    private final RetryPolicy policy;
+
+    /**
+     * Instantiates a new batch rpc client with default batch size and attempts.
+     *
+     * @param client the web3j client
+     */
+    public BatchRpcClient(Web3j client) {
+        this(client, DEFAULT_MAX_BATCH_SIZE, DEFAULT_MAX_ATTEMPTS);
+    }
+
+    /**
+     * Instantiates a new batch rpc client.
+     *
+     * @param client the web3j client
+     * @param maxBatchSize the max number of calls in one batch
+     * @param maxAttempts the max number of attempts per call
+     */
+    public BatchRpcClient(Web3j client, int maxBatchSize, int maxAttempts) {
+        this(client, maxBatchSize, maxAttempts, RetryPolicy.DEFAULT);
+    }
+
+    /**
+     * Instantiates a new batch rpc client.
+     *
+     * @param client the web3j client
+     * @param maxBatchSize the max number of calls in one batch
+     * @param maxAttempts the max number of attempts per call
+     * @param policy the policy deciding which failed calls are sent again
+     */
+    public BatchRpcClient(Web3j client, int maxBatchSize, int maxAttempts, RetryPolicy policy) {
+        if (maxBatchSize <= 0 || maxAttempts <= 0) {
+            throw new IllegalArgumentException("batch size and attempts must be positive");
+        }
+        this.client = client;
+        this.maxBatchSize = maxBatchSize;
+        this.maxAttempts = maxAttempts;
+        this.policy = policy;
+    }
+
+    /**
+     * Sends a single call with the per element retry of this client.
+     *
+     * @param request the request
+     * @param <T> the response type
+     * @return the response
+     * @throws IOException thrown if the call still failed after all attempts
+     */
+    public <T extends Response<?>> T send(Request<?, T> request) throws IOException {
+        return this.sendAll(List.of(request)).get(0);
+    }
+
+    /**
+     * Sends all calls in batches of at most the max batch size. The returned list has the same order
+     * as the given requests. Responses carrying a non retryable JSON-RPC error are returned as is.
+     *
+     * @param requests the requests
+     * @param <T> the response type
+     * @return the responses
+     * @throws IOException thrown if a call still failed after all attempts
+     */
+    public <T extends Response<?>> List<T> sendAll(List<Request<?, T>> requests) throws IOException {
+        final List<T> results = new ArrayList<>(Collections.nCopies(requests.size(), null));
+        List<Integer> pending =
+                IntStream.range(0, requests.size()).boxed().collect(Collectors.toList());
+        for (int attempt = 1; !pending.isEmpty(); attempt++) {
+            final List<Integer> failed = new ArrayList<>();
+            IOException lastError = null;
+            for (int from = 0; from < pending.size(); from += this.maxBatchSize) {
+                List<Integer> chunk = pending.subList(from, Math.min(from + this.maxBatchSize, pending.size()));
+                try {
+                    this.sendChunk(requests, chunk, results, failed);
+                } catch (IOException e) {
+                    LOGGER.warn("batch request of {} calls failed", chunk.size(), e);
+                    failed.addAll(chunk);
+                    lastError = e;
+                }
+            }
+            if (failed.isEmpty()) {
+                break;
+            }
+            if (attempt >= this.maxAttempts) {
+                String method = requests.get(failed.get(0)).getMethod();
+                throw new IOException(
+                        String.format(
+                                "%d batch calls failed after %d attempts, first method: %s",
+                                failed.size(), attempt, method),
+                        lastError);
+            }
+            LOGGER.debug("will retry {} failed batch calls, attempt {}", failed.size(), attempt);
+            pending = failed;
+            try {
+                Thread.sleep(RETRY_WAIT.multipliedBy(attempt));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("interrupted while waiting to retry batch calls", e);
+            }
+        }
+        return results;
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T extends Response<?>> void sendChunk(
+            List<Request<?, T>> requests, List<Integer> chunk, List<T> results, List<Integer> failed)
+            throws IOException {
+        final BatchRequest batch = this.client.newBatch();
+        chunk.forEach(index -> batch.add(requests.get(index)));
+        final BatchResponse batchResponse = batch.send();
+
+        final Map<Long, Response<?>> responses = new HashMap<>(chunk.size() * 2);
+        if (batchResponse.getResponses() != null) {
+            for (Response<?> response : batchResponse.getResponses()) {
+                if (response != null) {
+                    responses.put(response.getId(), response);
+                }
+            }
+        }
+        for (int index : chunk) {
+            Response<?> response = responses.get(requests.get(index).getId());
+            if (response == null || this.policy.isRetryable(response.getError())) {
+                failed.add(index);
+            } else {
+                results.set(index, (T) response);
+            }
+        }
+    }
+}
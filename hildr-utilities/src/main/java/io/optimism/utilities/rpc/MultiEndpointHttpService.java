@@ -0,0 +1,469 @@
+/*
+ * Copyright 2023 281165273grape@gmail.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+
+package io.optimism.utilities.rpc;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import okhttp3.Call;
+import okhttp3.Callback;
+import okhttp3.MediaType;
+import okhttp3.OkHttpClient;
+import okhttp3.RequestBody;
+import okhttp3.ResponseBody;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.web3j.protocol.Service;
+import org.web3j.protocol.core.BatchRequest;
+import org.web3j.protocol.core.BatchResponse;
+import org.web3j.protocol.core.Request;
+import org.web3j.protocol.core.Response;
+
+/**
+ * Web3j service that routes JSON-RPC calls over several http endpoints of the same chain.
+ *
+ * <p>Every endpoint keeps an EWMA of its latency and error rate, and a call goes to the healthy
+ * endpoint with the best score. Idempotent reads are hedged: when the first endpoint has not answered
+ * within its p95 latency, the call is sent to the next endpoint as well and the first answer wins. A
+ * failed call moves on to the next endpoint, and once every endpoint failed it starts over after a
+ * backoff. The http client must not retry on its own, or a failing endpoint holds the call up before
+ * the failover sees it. Endpoints that keep failing are ejected and probed in the background until
+ * they answer again.
+ *
+ * @author thinkAfCod
+ * @since 0.2.0
+ */
+public class MultiEndpointHttpService extends Service {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(MultiEndpointHttpService.class);
+
+    /** Methods that read chain data and may be sent to two endpoints at once. */
+    static final Set<String> HEDGED_METHODS = Set.of(
+            "eth_getBlockByNumber",
+            "eth_getBlockByHash",
+            "eth_getLogs",
+            "eth_getProof",
+            "eth_getTransactionReceipt",
+            "eth_blockNumber",
+            "eth_chainId");
+
+    private static final MediaType JSON_MEDIA_TYPE = MediaType.get("application/json; charset=utf-8");
+
+    private static final Pattern METHOD_PATTERN = Pattern.compile("\"method\"\\s*:\\s*\"([^\"]+)\"");
+
+    private static final String PROBE_PAYLOAD =
+            "{\"jsonrpc\":\"2.0\",\"method\":\"eth_chainId\",\"params\":[],\"id\":0}";
+
+    private static final Duration PROBE_INTERVAL = Duration.ofSeconds(5L);
+
+    /** The max number of rounds over all endpoints per call. */
+    static final int MAX_ROUNDS = 4;
+
+    private static final Duration ROUND_BACKOFF = Duration.ofMillis(100L);
+
+    private final List<Endpoint> endpoints;
+
+    private final OkHttpClient httpClient;
+
+    private final ScheduledExecutorService scheduler;
+
+    /**
+     * Instantiates a new multi endpoint http service.
+     *
+     * @param urls the endpoint urls
+     */
+    public MultiEndpointHttpService(List<String> urls) {
+        this(urls, new OkHttpClient.Builder().build());
+    }
+
+    /**
+     * Instantiates a new multi endpoint http service.
+     *
+     * @param urls the endpoint urls
+     * @param httpClient the http client
+     */
+    public MultiEndpointHttpService(List<String> urls, OkHttpClient httpClient) {
+        super(false);
+        if (urls.isEmpty()) {
+            throw new IllegalArgumentException("at least one endpoint url is required");
+        }
+        this.endpoints = urls.stream().map(Endpoint::new).collect(Collectors.toList());
+        this.httpClient = httpClient;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(Thread.ofVirtual()
+                .name("rpc-endpoint-scheduler")
+                .factory());
+        this.scheduler.scheduleWithFixedDelay(
+                this::probeEjected, PROBE_INTERVAL.toMillis(), PROBE_INTERVAL.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    protected InputStream performIO(String payload) throws IOException {
+        final Exchange exchange = new Exchange(payload, this.rank(), isHedgeable(payload), RpcPriority.current());
+        exchange.start();
+        try {
+            return new ByteArrayInputStream(exchange.result.get());
+        } catch (InterruptedException e) {
+            exchange.cancel();
+            Thread.currentThread().interrupt();
+            throw new IOException("interrupted while waiting for the rpc response", e);
+        } catch (ExecutionException e) {
+            throw e.getCause() instanceof IOException ioException ? ioException : new IOException(e.getCause());
+        }
+    }
+
+    @Override
+    @SuppressWarnings({"rawtypes", "unchecked"})
+    public <T extends Response> T send(Request request, Class<T> responseType) throws IOException {
+        if (!(request instanceof StreamingRequest<?, ?>)) {
+            return super.send(request, responseType);
+        }
+        try (InputStream result = this.performIO(this.objectMapper.writeValueAsString(request))) {
+            return responseType.cast(StreamingResponses.read(this.objectMapper, result, request));
+        }
+    }
+
+    @Override
+    public BatchResponse sendBatch(BatchRequest batchRequest) throws IOException {
+        if (batchRequest.getRequests().isEmpty()) {
+            return super.sendBatch(batchRequest);
+        }
+        try (InputStream result =
+                this.performIO(this.objectMapper.writeValueAsString(batchRequest.getRequests()))) {
+            return StreamingResponses.readBatch(this.objectMapper, result, batchRequest);
+        }
+    }
+
+    @Override
+    public void close() {
+        this.scheduler.shutdownNow();
+    }
+
+    /**
+     * Gets the endpoints in routing order.
+     *
+     * @return the endpoints
+     */
+    List<Endpoint> rank() {
+        final List<Endpoint> ranked = new ArrayList<>(this.endpoints);
+        ranked.sort(Comparator.comparing(Endpoint::isEjected).thenComparingDouble(Endpoint::score));
+        return ranked;
+    }
+
+    /**
+     * Whether all calls of the payload only read chain data.
+     *
+     * @param payload the JSON-RPC request or batch request
+     * @return true if the payload may be sent twice
+     */
+    static boolean isHedgeable(String payload) {
+        final Matcher matcher = METHOD_PATTERN.matcher(payload);
+        boolean found = false;
+        while (matcher.find()) {
+            if (!HEDGED_METHODS.contains(matcher.group(1))) {
+                return false;
+            }
+            found = true;
+        }
+        return found;
+    }
+
+    private void probeEjected() {
+        final long now = System.nanoTime();
+        for (Endpoint endpoint : this.endpoints) {
+            if (!endpoint.isEjected() || !endpoint.isProbeDue(now)) {
+                continue;
+            }
+            final long start = System.nanoTime();
+            this.newCall(endpoint, PROBE_PAYLOAD, RpcPriority.TIP).enqueue(new Callback() {
+                @Override
+                public void onFailure(Call call, IOException e) {
+                    endpoint.recordProbeFailure(System.nanoTime());
+                }
+
+                @Override
+                public void onResponse(Call call, okhttp3.Response response) {
+                    try (response) {
+                        if (response.isSuccessful()) {
+                            LOGGER.info("rpc endpoint {} answered probe, reinstating it", endpoint.url);
+                            endpoint.recordSuccess(System.nanoTime() - start);
+                        } else {
+                            endpoint.recordProbeFailure(System.nanoTime());
+                        }
+                    }
+                }
+            });
+        }
+    }
+
+    private Call newCall(Endpoint endpoint, String payload, RpcPriority priority) {
+        // the call runs on a dispatcher thread, so its priority travels as a tag
+        return this.httpClient.newCall(new okhttp3.Request.Builder()
+                .url(endpoint.url)
+                .tag(RpcPriority.class, priority)
+                .post(RequestBody.create(payload, JSON_MEDIA_TYPE))
+                .build());
+    }
+
+    /** One logical call, sent to one or more endpoints. */
+    private final class Exchange {
+
+        private final String payload;
+
+        private List<Endpoint> candidates;
+
+        private final boolean hedgeable;
+
+        private final RpcPriority priority;
+
+        private final CompletableFuture<byte[]> result = new CompletableFuture<>();
+
+        private final List<Call> calls = new ArrayList<>(2);
+
+        private int next;
+
+        private int inFlight;
+
+        private int round;
+
+        private IOException lastError;
+
+        Exchange(String payload, List<Endpoint> candidates, boolean hedgeable, RpcPriority priority) {
+            this.payload = payload;
+            this.candidates = candidates;
+            this.hedgeable = hedgeable;
+            this.priority = priority;
+        }
+
+        synchronized void start() {
+            final Endpoint first = this.sendNext();
+            if (this.hedgeable && this.next < this.candidates.size()) {
+                MultiEndpointHttpService.this.scheduler.schedule(
+                        this::hedge, first.hedgeDelay().toNanos(), TimeUnit.NANOSECONDS);
+            }
+        }
+
+        synchronized void cancel() {
+            this.result.completeExceptionally(new IOException("rpc call cancelled"));
+            this.calls.forEach(Call::cancel);
+        }
+
+        private synchronized void hedge() {
+            if (!this.result.isDone() && this.next < this.candidates.size()) {
+                LOGGER.debug("rpc call is slow, hedging to {}", this.candidates.get(this.next).url);
+                this.sendNext();
+            }
+        }
+
+        private Endpoint sendNext() {
+            final Endpoint endpoint = this.candidates.get(this.next++);
+            final Call call = MultiEndpointHttpService.this.newCall(endpoint, this.payload, this.priority);
+            final long start = System.nanoTime();
+            this.calls.add(call);
+            this.inFlight++;
+            call.enqueue(new Callback() {
+                @Override
+                public void onFailure(Call call, IOException e) {
+                    Exchange.this.failed(endpoint, call, e);
+                }
+
+                @Override
+                public void onResponse(Call call, okhttp3.Response response) {
+                    try (ResponseBody body = response.body()) {
+                        if (!response.isSuccessful()) {
+                            throw new IOException(
+                                    String.format("rpc endpoint %s answered http %d", endpoint.url, response.code()));
+                        }
+                        final byte[] bytes = body.bytes();
+                        endpoint.recordSuccess(System.nanoTime() - start);
+                        Exchange.this.succeeded(bytes);
+                    } catch (IOException e) {
+                        Exchange.this.failed(endpoint, call, e);
+                    }
+                }
+            });
+            return endpoint;
+        }
+
+        private synchronized void succeeded(byte[] bytes) {
+            if (this.result.complete(bytes)) {
+                // the losing hedge is not needed any more
+                this.calls.forEach(Call::cancel);
+            }
+        }
+
+        private synchronized void failed(Endpoint endpoint, Call call, IOException e) {
+            this.inFlight--;
+            if (this.result.isDone() || call.isCanceled()) {
+                return;
+            }
+            LOGGER.debug("rpc call to {} failed", endpoint.url, e);
+            endpoint.recordFailure(System.nanoTime());
+            this.lastError = e;
+            if (this.next < this.candidates.size()) {
+                this.sendNext();
+            } else if (this.inFlight > 0) {
+                return;
+            } else if (this.round + 1 < MAX_ROUNDS) {
+                final Duration backoff = ROUND_BACKOFF.multipliedBy(1L << this.round);
+                this.round++;
+                LOGGER.debug("rpc call failed on all endpoints, will retry in {}", backoff);
+                MultiEndpointHttpService.this.scheduler.schedule(
+                        this::nextRound, backoff.toNanos(), TimeUnit.NANOSECONDS);
+            } else {
+                this.result.completeExceptionally(this.lastError);
+            }
+        }
+
+        private synchronized void nextRound() {
+            if (this.result.isDone()) {
+                return;
+            }
+            this.candidates = MultiEndpointHttpService.this.rank();
+            this.next = 0;
+            this.sendNext();
+        }
+    }
+
+    /** The routing statistics of one endpoint. */
+    static final class Endpoint {
+
+        /** The weight of the newest sample in the moving averages. */
+        static final double ALPHA = 0.2;
+
+        /** The error rate above which an endpoint is ejected. */
+        static final double EJECT_ERROR_RATE = 0.5;
+
+        /** The number of failures in a row after which an endpoint is ejected. */
+        static final int EJECT_FAILURES = 3;
+
+        private static final int LATENCY_SAMPLES = 64;
+
+        private static final long MIN_HEDGE_DELAY_NANOS = Duration.ofMillis(20L).toNanos();
+
+        private static final long DEFAULT_HEDGE_DELAY_NANOS = Duration.ofMillis(500L).toNanos();
+
+        private static final double ERROR_PENALTY_NANOS = Duration.ofSeconds(1L).toNanos();
+
+        private final String url;
+
+        private final long[] latencies = new long[LATENCY_SAMPLES];
+
+        private int sampleCount;
+
+        private double latencyEwma;
+
+        private double errorRateEwma;
+
+        private int failuresInRow;
+
+        private long ejectedAt = -1L;
+
+        private long nextProbeAt;
+
+        Endpoint(String url) {
+            this.url = url;
+        }
+
+        /**
+         * Gets the url.
+         *
+         * @return the url
+         */
+        String url() {
+            return this.url;
+        }
+
+        synchronized void recordSuccess(long latencyNanos) {
+            this.latencies[this.sampleCount++ % LATENCY_SAMPLES] = latencyNanos;
+            this.latencyEwma = this.sampleCount == 1 ? latencyNanos : ewma(this.latencyEwma, latencyNanos);
+            this.errorRateEwma = ewma(this.errorRateEwma, 0.0);
+            this.failuresInRow = 0;
+            this.ejectedAt = -1L;
+        }
+
+        synchronized void recordFailure(long now) {
+            this.errorRateEwma = ewma(this.errorRateEwma, 1.0);
+            this.failuresInRow++;
+            if (this.ejectedAt < 0
+                    && (this.failuresInRow >= EJECT_FAILURES || this.errorRateEwma > EJECT_ERROR_RATE)) {
+                LOGGER.warn("ejecting rpc endpoint {} after {} failures in a row", this.url, this.failuresInRow);
+                this.ejectedAt = now;
+                this.nextProbeAt = now;
+            }
+        }
+
+        synchronized void recordProbeFailure(long now) {
+            // back off the probes of an endpoint that stays down, up to ten intervals
+            final long down = now - this.ejectedAt;
+            this.nextProbeAt = now + Math.min(Math.max(PROBE_INTERVAL.toNanos(), down), 10 * PROBE_INTERVAL.toNanos());
+        }
+
+        synchronized boolean isEjected() {
+            return this.ejectedAt >= 0;
+        }
+
+        synchronized boolean isProbeDue(long now) {
+            return now - this.nextProbeAt >= 0;
+        }
+
+        /**
+         * Gets the routing score, lower is better. Endpoints without samples score best, so every
+         * endpoint gets measured, unless they failed: the error rate adds a penalty on top of the
+         * latency, so an endpoint that never answered ranks behind one that did.
+         *
+         * @return the score
+         */
+        synchronized double score() {
+            return this.latencyEwma * (1.0 + 10.0 * this.errorRateEwma) + this.errorRateEwma * ERROR_PENALTY_NANOS;
+        }
+
+        /**
+         * Gets the delay after which a call is hedged, the p95 latency of the recent calls.
+         *
+         * @return the hedge delay
+         */
+        synchronized Duration hedgeDelay() {
+            final int count = Math.min(this.sampleCount, LATENCY_SAMPLES);
+            if (count < 10) {
+                return Duration.ofNanos(DEFAULT_HEDGE_DELAY_NANOS);
+            }
+            final long[] sorted = Arrays.copyOf(this.latencies, count);
+            Arrays.sort(sorted);
+            final long p95 = sorted[(int) Math.ceil(count * 0.95) - 1];
+            return Duration.ofNanos(Math.max(MIN_HEDGE_DELAY_NANOS, p95));
+        }
+
+        private static double ewma(double average, double sample) {
+            return ALPHA * sample + (1.0 - ALPHA) * average;
+        }
+    }
+}
@@ -0,0 +1,86 @@
+/*
+ * Copyright 2023 281165273grape@gmail.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+
+package io.optimism.utilities.rpc;
+
+import java.util.List;
+import org.apache.commons.lang3.StringUtils;
+import org.web3j.protocol.core.Response;
+
+/**
+ * Decides whether a JSON-RPC error is transient, so the call may be sent again.
+ *
+ * @author thinkAfCod
+ * @since 0.2.0
+ */
+@FunctionalInterface
+public interface RetryPolicy {
+
+    /** Retries rate limits and unknown headers of lagging nodes, the errors all providers send. */
+    RetryPolicy DEFAULT = Defaults::isRetryable;
+
+    /**
+     * Whether the JSON-RPC error is transient.
+     *
+     * @param code the error code
+     * @param message the error message, may be null
+     * @return true if the call may be sent again
+     */
+    boolean isRetryable(int code, String message);
+
+    /**
+     * Whether the JSON-RPC error is transient.
+     *
+     * @param error the error, may be null
+     * @return true if the call may be sent again
+     */
+    default boolean isRetryable(Response.Error error) {
+        return error != null && this.isRetryable(error.getCode(), error.getMessage());
+    }
+
+    /** The default policy. */
+    final class Defaults {
+
+        private static final int RATE_LIMIT_CODE = 429;
+
+        private static final int LIMIT_EXCEEDED_CODE = -32005;
+
+        private static final int RATE_LIMIT_ERROR_CODE = -32016;
+
+        private static final String RATE_LIMIT_MSG = "rate limit";
+
+        private static final String REQUEST_RATE_MSG = "request rate";
+
+        private static final List<String> RETRYABLE_MESSAGES =
+                List.of("header not found", "daily request count exceeded, request rate limited");
+
+        private Defaults() {}
+
+        private static boolean isRetryable(int code, String message) {
+            final String msg = StringUtils.defaultString(message);
+            if (code == RATE_LIMIT_CODE) {
+                return true;
+            }
+            // -32005 also rejects too large log queries, those are split by the caller instead
+            if (code == LIMIT_EXCEEDED_CODE || code == RATE_LIMIT_ERROR_CODE) {
+                return StringUtils.containsIgnoreCase(msg, RATE_LIMIT_MSG)
+                        || StringUtils.containsIgnoreCase(msg, REQUEST_RATE_MSG);
+            }
+            return RETRYABLE_MESSAGES.stream().anyMatch(retryable -> StringUtils.equalsIgnoreCase(msg, retryable));
+        }
+    }
+}
@@ -16,22 +16,30 @@
 
 package io.optimism.utilities.rpc;
 
-import com.fasterxml.jackson.core.type.TypeReference;
-import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
 import com.github.rholder.retry.RetryException;
 import com.github.rholder.retry.Retryer;
 import com.github.rholder.retry.RetryerBuilder;
 import com.github.rholder.retry.StopStrategies;
 import com.github.rholder.retry.WaitStrategies;
-import com.google.common.util.concurrent.RateLimiter;
 import java.io.IOException;
-import java.time.Duration;
+import java.io.InterruptedIOException;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import okhttp3.HttpUrl;
 import okhttp3.Interceptor;
 import okhttp3.Protocol;
+import okhttp3.Request;
 import okhttp3.Response;
+import okhttp3.ResponseBody;
+import okio.Buffer;
 import org.jetbrains.annotations.NotNull;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -39,6 +47,12 @@ import org.slf4j.LoggerFactory;
 /**
  * Custom retry and rate limit interceptor of OkHttp.
  *
+ * <p>Only a bounded prefix of each response is scanned for a top level JSON-RPC error, and the scan
+ * stops at the result, so successful responses are neither buffered twice nor parsed here.
+ *
+ * <p>Calls are admitted by the {@link AdaptiveLimiter} of their endpoint, in the lane of their
+ * {@link RpcPriority}, taken from the request tag or else from the calling thread.
+ *
  * @author thinkAfCod
  * @since 0.1.0
  */
@@ -47,85 +61,215 @@ public class RetryRateLimitInterceptor implements Interceptor {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(RetryRateLimitInterceptor.class);
 
-    private static final String HEADER_NOT_FOUND = "header not found";
+    /** The max number of response bytes scanned for an error. */
+    static final long PEEK_LIMIT = 4096L;
+
+    private static final int HTTP_TOO_MANY_REQUESTS = 429;
 
-    private static final String RATE_LIMIT_MSG = "rate limit";
+    private static final int MAX_ATTEMPTS = 30;
 
-    private static final String DAILY_REQUEST_COUNT_EXCEEDED_REQUEST_RATE_LIMITED =
-            "daily request count exceeded, request rate limited";
+    /** The JSON-RPC error codes providers use for rate limits, retried calls with them back off. */
+    private static final Set<Integer> RATE_LIMIT_CODES = Set.of(HTTP_TOO_MANY_REQUESTS, -32005, -32016);
 
-    private static final String RPC_CODE = "code";
-    private static final String RPC_MESSAGE = "message";
+    private static final Map<String, AdaptiveLimiter> LIMITERS = new ConcurrentHashMap<>();
 
-    private static final String RPC_ERROR_CODE = "429";
-    private static final String EXCEEDS_BLOCK_GAS_LIMIT = "-32005";
-    private static final String RATE_LIMIT_ERROR_CODE = "-32016";
+    private static final long METHOD_PEEK_LIMIT = 256L;
 
-    private final RateLimiter rateLimiter;
+    private static final Pattern METHOD_PATTERN = Pattern.compile("\"method\"\\s*:\\s*\"([^\"]+)\"");
 
-    private final Retryer<Response> retryer;
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
 
-    private final ObjectMapper mapper = new ObjectMapper();
+    private final Retryer<Attempt> retryer;
+
+    private final RetryPolicy policy;
+
+    private final int maxAttempts;
 
     /** the RetryRateLimitInterceptor constructor. */
     public RetryRateLimitInterceptor() {
-        this.rateLimiter = RateLimiter.create(200, Duration.ofMillis(50L));
-        this.retryer = RetryerBuilder.<Response>newBuilder()
-                .withWaitStrategy(WaitStrategies.randomWait(100, TimeUnit.MILLISECONDS))
-                .withStopStrategy(StopStrategies.stopAfterAttempt(100))
-                .retryIfResult(this::shouldRetry)
-                .retryIfException(e -> e instanceof IOException)
+        this(RetryPolicy.DEFAULT);
+    }
+
+    /**
+     * the RetryRateLimitInterceptor constructor.
+     *
+     * @param policy the policy deciding which JSON-RPC errors are retried
+     */
+    public RetryRateLimitInterceptor(RetryPolicy policy) {
+        this(policy, MAX_ATTEMPTS);
+    }
+
+    /**
+     * the RetryRateLimitInterceptor constructor. With a single attempt the retries are left to the
+     * caller, and a retryable answer is returned as an http 429, so the caller can send the call to
+     * another endpoint instead.
+     *
+     * @param policy the policy deciding which JSON-RPC errors are retried
+     * @param maxAttempts the max number of attempts per call
+     */
+    public RetryRateLimitInterceptor(RetryPolicy policy, int maxAttempts) {
+        if (maxAttempts <= 0) {
+            throw new IllegalArgumentException("attempts must be positive");
+        }
+        this.policy = policy;
+        this.maxAttempts = maxAttempts;
+        this.retryer = RetryerBuilder.<Attempt>newBuilder()
+                .withWaitStrategy(WaitStrategies.exponentialWait(10L, 2L, TimeUnit.SECONDS))
+                .withStopStrategy(StopStrategies.stopAfterAttempt(maxAttempts))
+                .retryIfResult(Attempt::retry)
+                .retryIfException(e -> e instanceof IOException && !(e instanceof InterruptedIOException))
                 .build();
     }
 
     @NotNull @Override
     public Response intercept(@NotNull final Chain chain) throws IOException {
+        final AdaptiveLimiter limiter = limiterFor(chain.request().url());
+        final RpcPriority tagged = chain.request().tag(RpcPriority.class);
+        final RpcPriority priority = tagged != null ? tagged : RpcPriority.current();
+        if (this.maxAttempts == 1) {
+            final Attempt attempt = this.attempt(chain, limiter, priority);
+            return attempt.retry() ? tooManyRequests(chain.request(), "retryable rpc error") : attempt.response();
+        }
         try {
-            return this.retryer.call(() -> {
-                if (!this.rateLimiter.tryAcquire()) {
-                    LOGGER.warn("there has reached rate limit, but will retry again later");
-                    return new Response.Builder()
-                            .request(chain.request())
-                            .protocol(Protocol.HTTP_1_1)
-                            .code(429)
-                            .message("there has reached rate limit, but will retry")
-                            .build();
-                }
-                return chain.proceed(chain.request());
-            });
+            return this.retryer
+                    .call(() -> this.attempt(chain, limiter, priority))
+                    .response();
         } catch (ExecutionException | RetryException e) {
             LOGGER.error("request failed", e);
-            return new Response.Builder().request(chain.request()).code(-1).build();
+            if (e.getCause() instanceof IOException ioException) {
+                throw ioException;
+            }
+            return tooManyRequests(chain.request(), "request still failed after all retries");
         }
     }
 
-    private boolean shouldRetry(Response res) {
-        var httpCode = res.code();
-        if (httpCode == 429) {
-            return true;
-        }
+    private static Response tooManyRequests(Request request, String message) {
+        return new Response.Builder()
+                .request(request)
+                .protocol(Protocol.HTTP_1_1)
+                .code(HTTP_TOO_MANY_REQUESTS)
+                .message(message)
+                .body(ResponseBody.create(new byte[0], null))
+                .build();
+    }
 
+    /**
+     * Gets the limiter of an endpoint. Limiters are shared by all clients of the process, since the
+     * limits of a provider apply to all of them.
+     *
+     * @param url the endpoint url
+     * @return the limiter
+     */
+    static AdaptiveLimiter limiterFor(HttpUrl url) {
+        // keyed by host only, the path of provider urls often carries an api key
+        final String endpoint = url.host() + ":" + url.port();
+        return LIMITERS.computeIfAbsent(endpoint, key -> {
+            final AdaptiveLimiter limiter = new AdaptiveLimiter();
+            RpcMetrics.limiter(key, limiter);
+            return limiter;
+        });
+    }
+
+    private Attempt attempt(Chain chain, AdaptiveLimiter limiter, RpcPriority priority) throws IOException {
+        final AdaptiveLimiter.Permit permit;
+        try {
+            permit = limiter.acquire(priority);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("interrupted while waiting for the rate limit");
+        }
+        if (permit.waited()) {
+            RpcMetrics.rateLimitWait(methodOf(chain.request()));
+        }
+        final Response res;
         try {
-            if (res.body() == null) {
-                return false;
+            res = chain.proceed(chain.request());
+        } catch (IOException e) {
+            permit.release(AdaptiveLimiter.Outcome.FAILURE);
+            throw e;
+        }
+        final JsonRpcError error = res.code() == HTTP_TOO_MANY_REQUESTS ? null : scanError(res);
+        final boolean retry = res.code() == HTTP_TOO_MANY_REQUESTS
+                || (error != null && this.policy.isRetryable(error.code(), error.message()));
+        if (retry && (error == null || RATE_LIMIT_CODES.contains(error.code()))) {
+            permit.release(AdaptiveLimiter.Outcome.RATE_LIMITED);
+        } else {
+            permit.release(res.isSuccessful() ? AdaptiveLimiter.Outcome.SUCCESS : AdaptiveLimiter.Outcome.FAILURE);
+        }
+        if (retry) {
+            RpcMetrics.retry(methodOf(res.request()));
+            // the retried response is dropped, release its connection
+            res.close();
+        }
+        return new Attempt(res, retry);
+    }
+
+    private static JsonRpcError scanError(Response res) {
+        if (res.body() == null) {
+            return null;
+        }
+        try (JsonParser parser = JSON_FACTORY.createParser(res.peekBody(PEEK_LIMIT).bytes())) {
+            // batch responses are json arrays, their elements are retried by BatchRpcClient
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                return null;
             }
-            String jsonRpcRes = res.peekBody(Long.MAX_VALUE).string();
-            Map<String, Object> rpcRes = mapper.readValue(jsonRpcRes, new TypeReference<>() {});
-            String rpcCode = (String) rpcRes.get(RPC_CODE);
-            String rpcMsg = (String) rpcRes.getOrDefault(RPC_MESSAGE, "");
-            if (RPC_ERROR_CODE.equals(rpcCode)
-                    || EXCEEDS_BLOCK_GAS_LIMIT.equals(rpcCode)
-                    || (RATE_LIMIT_ERROR_CODE.equals(rpcCode) && RATE_LIMIT_MSG.contains(rpcMsg))) {
-                return true;
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                final String name = parser.currentName();
+                final JsonToken value = parser.nextToken();
+                if ("result".equals(name)) {
+                    return null;
+                }
+                if ("error".equals(name) && value == JsonToken.START_OBJECT) {
+                    return readError(parser);
+                }
+                parser.skipChildren();
             }
-            if (HEADER_NOT_FOUND.equals(rpcMsg) || DAILY_REQUEST_COUNT_EXCEEDED_REQUEST_RATE_LIMITED.equals(rpcMsg)) {
-                return true;
+            return null;
+        } catch (IOException e) {
+            // not JSON, or cut off by the peek limit before an error was found
+            return null;
+        }
+    }
+
+    private static JsonRpcError readError(JsonParser parser) throws IOException {
+        int code = 0;
+        String message = null;
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            final String name = parser.currentName();
+            parser.nextToken();
+            switch (name) {
+                case "code" -> code = parser.getValueAsInt();
+                case "message" -> message = parser.getValueAsString();
+                default -> parser.skipChildren();
             }
+        }
+        return new JsonRpcError(code, message);
+    }
 
+    /**
+     * Gets the JSON-RPC method of a request, read from the start of its body.
+     *
+     * @param request the http request
+     * @return the method, "batch" for a batch request
+     */
+    static String methodOf(Request request) {
+        if (request.body() == null || request.body().isOneShot()) {
+            return "unknown";
+        }
+        try (Buffer buffer = new Buffer()) {
+            request.body().writeTo(buffer);
+            final String prefix = buffer.readUtf8(Math.min(buffer.size(), METHOD_PEEK_LIMIT));
+            if (prefix.stripLeading().startsWith("[")) {
+                return "batch";
+            }
+            final Matcher matcher = METHOD_PATTERN.matcher(prefix);
+            return matcher.find() ? matcher.group(1) : "unknown";
         } catch (IOException e) {
-            throw new RuntimeException(e);
+            return "unknown";
         }
-
-        return false;
     }
+
+    private record JsonRpcError(int code, String message) {}
+
+    private record Attempt(Response response, boolean retry) {}
 }
@@ -0,0 +1,85 @@
+/*
+ * Copyright 2023 281165273grape@gmail.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+
+package io.optimism.utilities.rpc;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.Metrics;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Counters of JSON-RPC retries and rate limit waits per method, and the adaptive limits per endpoint.
+ * They are registered in the global registry, which includes the registry of the metrics server once
+ * it has been started.
+ *
+ * @author thinkAfCod
+ * @since 0.2.0
+ */
+final class RpcMetrics {
+
+    private static final Map<String, Counter> RETRIES = new ConcurrentHashMap<>();
+
+    private static final Map<String, Counter> RATE_LIMIT_WAITS = new ConcurrentHashMap<>();
+
+    private RpcMetrics() {}
+
+    /**
+     * Registers the current limits of an endpoint limiter.
+     *
+     * @param endpoint the endpoint host and port
+     * @param limiter the limiter
+     */
+    static void limiter(String endpoint, AdaptiveLimiter limiter) {
+        Gauge.builder("rpc_concurrency_limit", limiter, AdaptiveLimiter::concurrency)
+                .description("adaptive concurrency limit of the rpc endpoint")
+                .tag("endpoint", endpoint)
+                .register(Metrics.globalRegistry);
+        Gauge.builder("rpc_rate_limit", limiter, AdaptiveLimiter::rate)
+                .description("adaptive rate limit of the rpc endpoint, calls per second")
+                .tag("endpoint", endpoint)
+                .register(Metrics.globalRegistry);
+    }
+
+    /**
+     * Records a retried call.
+     *
+     * @param method the JSON-RPC method
+     */
+    static void retry(String method) {
+        RETRIES.computeIfAbsent(method, m -> Counter.builder("rpc_retries")
+                        .description("retried rpc calls")
+                        .tag("method", m)
+                        .register(Metrics.globalRegistry))
+                .increment();
+    }
+
+    /**
+     * Records a call that had to wait for the client side rate limiter.
+     *
+     * @param method the JSON-RPC method
+     */
+    static void rateLimitWait(String method) {
+        RATE_LIMIT_WAITS
+                .computeIfAbsent(method, m -> Counter.builder("rpc_rate_limit_waits")
+                        .description("rpc calls delayed by the client side rate limiter")
+                        .tag("method", m)
+                        .register(Metrics.globalRegistry))
+                .increment();
+    }
+}
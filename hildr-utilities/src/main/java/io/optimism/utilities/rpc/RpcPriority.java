@@ -0,0 +1,66 @@
+/*
+ * Copyright 2023 281165273grape@gmail.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+
+package io.optimism.utilities.rpc;
+
+import java.util.concurrent.Callable;
+
+/**
+ * Priority lane of an RPC call. Calls following the chain tip are sent first, bulk calls of a
+ * historical backfill only use the capacity that is left.
+ *
+ * <p>The priority of synchronous calls is bound to the calling thread with {@link #call}. Services
+ * that send calls from other threads carry it as a tag of the http request.
+ *
+ * @author thinkAfCod
+ * @since 0.2.0
+ */
+public enum RpcPriority {
+    /** Calls following the chain tip, the default. */
+    TIP,
+    /** Bulk calls of a historical backfill. */
+    BULK;
+
+    private static final ThreadLocal<RpcPriority> CURRENT = ThreadLocal.withInitial(() -> TIP);
+
+    /**
+     * Gets the priority bound to the current thread.
+     *
+     * @return the priority
+     */
+    public static RpcPriority current() {
+        return CURRENT.get();
+    }
+
+    /**
+     * Runs the task with this priority bound to the current thread.
+     *
+     * @param task the task sending rpc calls
+     * @param <T> the result type
+     * @return the task result
+     * @throws Exception thrown by the task
+     */
+    public <T> T call(Callable<T> task) throws Exception {
+        final RpcPriority previous = CURRENT.get();
+        CURRENT.set(this);
+        try {
+            return task.call();
+        } finally {
+            CURRENT.set(previous);
+        }
+    }
+}
@@ -0,0 +1,71 @@
+/*
+ * Copyright 2023 281165273grape@gmail.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+
+package io.optimism.utilities.rpc;
+
+import java.io.IOException;
+import java.io.InputStream;
+import okhttp3.OkHttpClient;
+import org.web3j.protocol.core.BatchRequest;
+import org.web3j.protocol.core.BatchResponse;
+import org.web3j.protocol.core.Request;
+import org.web3j.protocol.core.Response;
+import org.web3j.protocol.http.HttpService;
+
+/**
+ * Http service that reads batch responses element by element, and decodes the results of
+ * {@link StreamingRequest}s straight from the response stream.
+ *
+ * @author thinkAfCod
+ * @since 0.2.0
+ */
+public class StreamingHttpService extends HttpService {
+
+    /**
+     * Instantiates a new streaming http service.
+     *
+     * @param url the url
+     * @param httpClient the http client
+     */
+    public StreamingHttpService(String url, OkHttpClient httpClient) {
+        super(url, httpClient);
+    }
+
+    @Override
+    @SuppressWarnings({"rawtypes", "unchecked"})
+    public <T extends Response> T send(Request request, Class<T> responseType) throws IOException {
+        if (!(request instanceof StreamingRequest<?, ?>)) {
+            return super.send(request, responseType);
+        }
+        try (InputStream result = this.performIO(this.objectMapper.writeValueAsString(request))) {
+            return result == null
+                    ? null
+                    : responseType.cast(StreamingResponses.read(this.objectMapper, result, request));
+        }
+    }
+
+    @Override
+    public BatchResponse sendBatch(BatchRequest batchRequest) throws IOException {
+        if (batchRequest.getRequests().isEmpty()) {
+            return super.sendBatch(batchRequest);
+        }
+        try (InputStream result =
+                this.performIO(this.objectMapper.writeValueAsString(batchRequest.getRequests()))) {
+            return result == null ? null : StreamingResponses.readBatch(this.objectMapper, result, batchRequest);
+        }
+    }
+}
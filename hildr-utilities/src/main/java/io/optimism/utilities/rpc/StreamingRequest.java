@@ -0,0 +1,87 @@
+/*
+ * Copyright 2023 281165273grape@gmail.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+
+package io.optimism.utilities.rpc;
+
+import com.fasterxml.jackson.core.JsonParser;
+import java.io.IOException;
+import java.util.List;
+import org.web3j.protocol.Web3jService;
+import org.web3j.protocol.core.Request;
+import org.web3j.protocol.core.Response;
+
+/**
+ * JSON-RPC request whose result is decoded straight from the response stream by its own decoder,
+ * instead of being mapped by web3j. Large results can so keep only the parts the caller needs.
+ *
+ * <p>Only the http services built by {@link Web3jProvider} stream results, both for single calls and
+ * for batches. Other services map the result with the Jackson annotations of the response type.
+ *
+ * @param <S> the param type
+ * @param <T> the response type
+ * @author thinkAfCod
+ * @since 0.2.0
+ */
+public class StreamingRequest<S, T extends Response<?>> extends Request<S, T> {
+
+    private final ResultDecoder<?> resultDecoder;
+
+    /**
+     * Instantiates a new streaming request.
+     *
+     * @param method the JSON-RPC method
+     * @param params the params
+     * @param web3jService the web3j service
+     * @param type the response type
+     * @param resultDecoder the decoder of the result value
+     */
+    public StreamingRequest(
+            String method, List<S> params, Web3jService web3jService, Class<T> type, ResultDecoder<?> resultDecoder) {
+        super(method, params, web3jService, type);
+        this.resultDecoder = resultDecoder;
+    }
+
+    /**
+     * Decodes the result value the parser is positioned at.
+     *
+     * @param parser the parser, positioned at the first token of the result value
+     * @return the decoded result
+     * @throws IOException thrown if the result could not be decoded
+     */
+    Object decodeResult(JsonParser parser) throws IOException {
+        return this.resultDecoder.decode(parser);
+    }
+
+    /**
+     * Decoder of a JSON-RPC result value.
+     *
+     * @param <R> the result type
+     */
+    @FunctionalInterface
+    public interface ResultDecoder<R> {
+
+        /**
+         * Decodes the result value the parser is positioned at. The parser must be left at the last
+         * token of the value.
+         *
+         * @param parser the parser
+         * @return the result
+         * @throws IOException thrown if the result could not be decoded
+         */
+        R decode(JsonParser parser) throws IOException;
+    }
+}
@@ -0,0 +1,144 @@
+/*
+ * Copyright 2023 281165273grape@gmail.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+
+package io.optimism.utilities.rpc;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.InvocationTargetException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.web3j.protocol.core.BatchRequest;
+import org.web3j.protocol.core.BatchResponse;
+import org.web3j.protocol.core.Request;
+import org.web3j.protocol.core.Response;
+
+/**
+ * Reads JSON-RPC responses from the response stream one element at a time. Web3j reads a batch
+ * response into a tree first, which holds the whole response in memory twice.
+ *
+ * @author thinkAfCod
+ * @since 0.2.0
+ */
+final class StreamingResponses {
+
+    private StreamingResponses() {}
+
+    /**
+     * Reads the response of a single call.
+     *
+     * @param mapper the object mapper
+     * @param in the response stream
+     * @param request the request
+     * @param <T> the response type
+     * @return the response
+     * @throws IOException thrown if the response could not be read
+     */
+    static <T extends Response<?>> T read(ObjectMapper mapper, InputStream in, Request<?, T> request)
+            throws IOException {
+        try (JsonParser parser = mapper.getFactory().createParser(in)) {
+            parser.nextToken();
+            return readResponse(mapper, parser, request, null);
+        }
+    }
+
+    /**
+     * Reads the response of a batch. Responses are returned in the order they were received, streamed
+     * results are decoded by the request with the same id.
+     *
+     * @param mapper the object mapper
+     * @param in the response stream
+     * @param batch the batch request
+     * @return the batch response
+     * @throws IOException thrown if the response could not be read, or the server rejected the batch
+     */
+    static BatchResponse readBatch(ObjectMapper mapper, InputStream in, BatchRequest batch) throws IOException {
+        final List<Request<?, ? extends Response<?>>> requests = batch.getRequests();
+        final Map<Long, Request<?, ?>> byId = new HashMap<>(requests.size() * 2);
+        requests.forEach(request -> byId.put(request.getId(), request));
+        try (JsonParser parser = mapper.getFactory().createParser(in)) {
+            final JsonToken first = parser.nextToken();
+            if (first == JsonToken.START_OBJECT) {
+                // a server that rejects the whole batch answers with a single error object
+                final Response<?> response = mapper.readValue(parser, Response.class);
+                final String message =
+                        response.getError() == null ? "no error" : response.getError().getMessage();
+                throw new IOException("batch request rejected: " + message);
+            }
+            if (first != JsonToken.START_ARRAY) {
+                throw new IOException("unexpected batch response token: " + first);
+            }
+            final List<Response<?>> responses = new ArrayList<>(requests.size());
+            int index = 0;
+            while (parser.nextToken() == JsonToken.START_OBJECT) {
+                if (index >= requests.size()) {
+                    throw new IOException("batch response has more elements than the request");
+                }
+                responses.add(readResponse(mapper, parser, requests.get(index++), byId));
+            }
+            return new BatchResponse(requests, responses);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T extends Response<?>> T readResponse(
+            ObjectMapper mapper, JsonParser parser, Request<?, T> request, Map<Long, Request<?, ?>> byId)
+            throws IOException {
+        if (!(request instanceof StreamingRequest<?, ?>)) {
+            return mapper.readValue(parser, request.getResponseType());
+        }
+        if (parser.currentToken() != JsonToken.START_OBJECT) {
+            throw new IOException("unexpected response token: " + parser.currentToken());
+        }
+        final Response<Object> response = (Response<Object>) newResponse(request.getResponseType());
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            final String name = parser.currentName();
+            parser.nextToken();
+            switch (name) {
+                case "jsonrpc" -> response.setJsonrpc(parser.getValueAsString());
+                case "id" -> response.setId(parser.getValueAsLong());
+                case "error" -> response.setError(mapper.readValue(parser, Response.Error.class));
+                case "result" -> {
+                    final Request<?, ?> owner = byId == null ? request : byId.getOrDefault(response.getId(), request);
+                    if (parser.currentToken() != JsonToken.VALUE_NULL && owner instanceof StreamingRequest<?, ?> s) {
+                        response.setResult(s.decodeResult(parser));
+                    } else {
+                        parser.skipChildren();
+                    }
+                }
+                default -> parser.skipChildren();
+            }
+        }
+        return (T) response;
+    }
+
+    private static Response<?> newResponse(Class<? extends Response<?>> type) throws IOException {
+        try {
+            return type.getDeclaredConstructor().newInstance();
+        } catch (NoSuchMethodException
+                | InstantiationException
+                | IllegalAccessException
+                | InvocationTargetException e) {
+            throw new IOException("can not create response of type " + type.getName(), e);
+        }
+    }
+}
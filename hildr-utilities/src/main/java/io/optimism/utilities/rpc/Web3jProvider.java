@@ -17,13 +17,17 @@
 package io.optimism.utilities.rpc;
 
 import java.net.ConnectException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Executors;
 import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import okhttp3.Dispatcher;
 import okhttp3.OkHttpClient;
 import org.apache.commons.lang3.StringUtils;
 import org.java_websocket.exceptions.WebsocketNotConnectedException;
 import org.web3j.protocol.Web3j;
 import org.web3j.protocol.Web3jService;
-import org.web3j.protocol.http.HttpService;
 import org.web3j.protocol.websocket.WebSocketService;
 import org.web3j.tuples.generated.Tuple2;
 
@@ -50,17 +54,36 @@ public class Web3jProvider {
     /**
      * Create web3j client, and return Web3jService.
      * There are more custom operations that can be performed using a Web3jService instance.
+     * Several comma separated http urls of the same chain are served by a {@link MultiEndpointHttpService}.
      *
      * @param url ethereum/optimism client node url
      * @return web3j client and web3j service
      */
     public static Tuple2<Web3j, Web3jService> create(String url) {
         Web3jService web3Srv = null;
-        if (Web3jProvider.isHttp(url)) {
+        if (url.contains(",")) {
+            final List<String> urls = Arrays.stream(url.split(","))
+                    .map(String::trim)
+                    .filter(StringUtils::isNotEmpty)
+                    .collect(Collectors.toList());
+            if (!urls.stream().allMatch(Web3jProvider::isHttp)) {
+                throw new IllegalArgumentException("multiple endpoints must all be http urls:" + url);
+            }
+            // the limiter blocks inside the interceptor, so the dispatcher must let every permit through
+            final Dispatcher dispatcher = new Dispatcher(Executors.newVirtualThreadPerTaskExecutor());
+            dispatcher.setMaxRequestsPerHost((int) AdaptiveLimiter.MAX_CONCURRENCY);
+            dispatcher.setMaxRequests((int) AdaptiveLimiter.MAX_CONCURRENCY * urls.size());
+            // one attempt per endpoint, the service fails over and backs off across the endpoints
+            OkHttpClient okHttpClient = new OkHttpClient.Builder()
+                    .dispatcher(dispatcher)
+                    .addInterceptor(new RetryRateLimitInterceptor(RetryPolicy.DEFAULT, 1))
+                    .build();
+            web3Srv = new MultiEndpointHttpService(urls, okHttpClient);
+        } else if (Web3jProvider.isHttp(url)) {
             OkHttpClient okHttpClient = new OkHttpClient.Builder()
                     .addInterceptor(new RetryRateLimitInterceptor())
                     .build();
-            web3Srv = new HttpService(url, okHttpClient);
+            web3Srv = new StreamingHttpService(url, okHttpClient);
         } else if (Web3jProvider.isWs(url)) {
             final var web3finalSrv = new WebSocketService(url, true);
             wsConnect(web3finalSrv);
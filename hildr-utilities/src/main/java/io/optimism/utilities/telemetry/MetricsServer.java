@@ -18,6 +18,7 @@ package io.optimism.utilities.telemetry;
 
 import com.sun.net.httpserver.HttpServer;
 import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
 import io.micrometer.prometheus.PrometheusConfig;
 import io.micrometer.prometheus.PrometheusMeterRegistry;
 import java.io.IOException;
@@ -70,6 +71,8 @@ public class MetricsServer {
                 throw new MetricsServerException("metrics server has been already started");
             }
             MetricsServer.registry = (PrometheusMeterRegistry) registry;
+            // meters of shared components, such as the rpc clients, are registered globally
+            Metrics.addRegistry(registry);
             httpServer = HttpServer.create(new InetSocketAddress(port), 2);
             httpServer.setExecutor(Executors.newVirtualThreadPerTaskExecutor());
             httpServer.createContext("/metrics", httpExchange -> {
@@ -109,6 +112,7 @@ public class MetricsServer {
             }
             serverFuture = null;
             httpServer = null;
+            Metrics.removeRegistry(registry);
         } catch (InterruptedException e) {
             Thread.currentThread().interrupt();
             throw new MetricsServerException("can not acquire metrics server resource", e);
@@ -0,0 +1,76 @@
+/*
+ * Copyright 2023 281165273grape@gmail.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package io.optimism.type;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Hash32 test case.
+ *
+ * @author grapebaba
+ * @since 0.2.0
+ */
+class Hash32Test {
+
+    private static final String HEX = "0x9a6d7cf81309515caed98e08edffe9a467a71a707910474b5fde43e2a6fc6454";
+
+    @Test
+    void testHexRoundTrip() {
+        Hash32 hash = Hash32.from(HEX);
+        assertEquals(HEX, hash.toHexString());
+        assertEquals(HEX, Hash32.from(HEX.toUpperCase().replace("0X", "0x")).toHexString());
+        assertEquals(hash, Hash32.from(HEX.substring(2)));
+        assertEquals(hash, Hash32.from(hash.toBytes()));
+        assertArrayEquals(hash.toBytes(), Hash32.from(hash.toBytes()).toBytes());
+    }
+
+    @Test
+    void testEqualityAndOrder() {
+        Hash32 hash = Hash32.from(HEX);
+        Hash32 same = Hash32.from(HEX.toUpperCase().replace("0X", "0x"));
+        Hash32 other = Hash32.from("0x" + "f".repeat(64));
+        assertEquals(hash, same);
+        assertEquals(hash.hashCode(), same.hashCode());
+        assertNotEquals(hash, other);
+        assertTrue(hash.compareTo(other) < 0);
+        assertTrue(Hash32.ZERO.compareTo(hash) < 0);
+    }
+
+    @Test
+    void testMatches() {
+        Hash32 hash = Hash32.from(HEX);
+        assertTrue(hash.matches(HEX));
+        assertTrue(hash.matches(HEX.toUpperCase()));
+        assertFalse(hash.matches(HEX.substring(0, 64)));
+        assertFalse(hash.matches("0x" + "0".repeat(64)));
+        assertFalse(hash.matches(null));
+    }
+
+    @Test
+    void testInvalidHex() {
+        assertThrows(IllegalArgumentException.class, () -> Hash32.from("0x1234"));
+        assertThrows(IllegalArgumentException.class, () -> Hash32.from("0x" + "g".repeat(64)));
+        assertThrows(IllegalArgumentException.class, () -> Hash32.from(new byte[31]));
+    }
+}
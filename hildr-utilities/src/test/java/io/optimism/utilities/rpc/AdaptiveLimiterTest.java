@@ -0,0 +1,103 @@
+/*
+ * Copyright 2023 281165273grape@gmail.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+
+package io.optimism.utilities.rpc;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Adaptive limiter test case.
+ *
+ * @author thinkAfCod
+ * @since 0.2.0
+ */
+class AdaptiveLimiterTest {
+
+    @Test
+    void testIncreasesAdditivelyAndDecreasesOncePerWindow() throws InterruptedException {
+        var limiter = new AdaptiveLimiter(4.0, 1000.0);
+        for (int i = 0; i < 8; i++) {
+            limiter.acquire(RpcPriority.TIP).release(AdaptiveLimiter.Outcome.SUCCESS);
+        }
+        // about one per window of the current limit, so a bit less than two for eight calls
+        assertEquals(5.69, limiter.concurrency(), 0.01);
+
+        var first = limiter.acquire(RpcPriority.TIP);
+        var second = limiter.acquire(RpcPriority.TIP);
+        first.release(AdaptiveLimiter.Outcome.RATE_LIMITED);
+        double halved = limiter.concurrency();
+        assertTrue(halved < 3.1);
+        // sent before the decrease, it must not halve the limits again
+        second.release(AdaptiveLimiter.Outcome.RATE_LIMITED);
+        assertEquals(halved, limiter.concurrency());
+
+        limiter.acquire(RpcPriority.TIP).release(AdaptiveLimiter.Outcome.RATE_LIMITED);
+        assertTrue(limiter.concurrency() < halved);
+        assertTrue(limiter.rate() < 300.0);
+    }
+
+    @Test
+    void testRateLimitSpacesCalls() throws InterruptedException {
+        var limiter = new AdaptiveLimiter(16.0, 10.0);
+        long start = System.nanoTime();
+        for (int i = 0; i < 5; i++) {
+            limiter.acquire(RpcPriority.TIP).release(AdaptiveLimiter.Outcome.FAILURE);
+        }
+        assertTrue(Duration.ofNanos(System.nanoTime() - start).toMillis() >= 300L);
+    }
+
+    @Test
+    void testTipCallsGoBeforeBulkCalls() throws InterruptedException {
+        var limiter = new AdaptiveLimiter(2.0, 1000.0);
+        var bulk = limiter.acquire(RpcPriority.BULK);
+        List<String> admitted = new CopyOnWriteArrayList<>();
+
+        // the share kept for tip calls is full for bulk calls, but still free for tip calls
+        Thread waitingBulk = Thread.ofVirtual().start(() -> acquire(limiter, RpcPriority.BULK, "bulk", admitted));
+        Thread.sleep(50L);
+        assertTrue(admitted.isEmpty());
+        var tip = limiter.acquire(RpcPriority.TIP);
+        assertFalse(tip.waited());
+
+        // with the limit in use, a waiting tip call is admitted before the waiting bulk call
+        Thread waitingTip = Thread.ofVirtual().start(() -> acquire(limiter, RpcPriority.TIP, "tip", admitted));
+        Thread.sleep(50L);
+        bulk.release(AdaptiveLimiter.Outcome.FAILURE);
+        waitingTip.join(1000L);
+        assertEquals(List.of("tip"), admitted);
+
+        tip.release(AdaptiveLimiter.Outcome.FAILURE);
+        waitingBulk.join(1000L);
+        assertEquals(List.of("tip", "bulk"), admitted);
+    }
+
+    private static void acquire(AdaptiveLimiter limiter, RpcPriority priority, String name, List<String> admitted) {
+        try {
+            limiter.acquire(priority).release(AdaptiveLimiter.Outcome.FAILURE);
+            admitted.add(name);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,126 @@
+/*
+ * Copyright 2023 281165273grape@gmail.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package io.optimism.utilities.rpc;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.sun.net.httpserver.HttpServer;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigInteger;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.web3j.protocol.Web3j;
+import org.web3j.protocol.core.DefaultBlockParameter;
+import org.web3j.protocol.core.Request;
+import org.web3j.protocol.core.methods.response.EthBlock;
+
+/**
+ * Batch rpc client test case.
+ *
+ * @author thinkAfCod
+ * @since 0.2.0
+ */
+class BatchRpcClientTest {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private HttpServer server;
+
+    private Web3j client;
+
+    private final AtomicInteger batchCount = new AtomicInteger();
+
+    private final AtomicInteger rateLimitedOnce = new AtomicInteger();
+
+    @BeforeEach
+    void setUp() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/", exchange -> {
+            JsonNode req = MAPPER.readTree(exchange.getRequestBody());
+            batchCount.incrementAndGet();
+            ArrayNode res = MAPPER.createArrayNode();
+            List<JsonNode> calls = new ArrayList<>();
+            req.forEach(calls::add);
+            // answer in reverse order, the client must match responses by id
+            Collections.reverse(calls);
+            for (JsonNode call : calls) {
+                String number = call.get("params").get(0).asText();
+                ObjectNode item = res.addObject();
+                item.put("jsonrpc", "2.0");
+                item.set("id", call.get("id"));
+                if ("0x3".equals(number) && rateLimitedOnce.getAndIncrement() == 0) {
+                    ObjectNode error = item.putObject("error");
+                    error.put("code", 429);
+                    error.put("message", "rate limit");
+                } else {
+                    ObjectNode block = item.putObject("result");
+                    block.put("number", number);
+                    block.put("hash", "0x" + number.substring(2).repeat(64).substring(0, 64));
+                }
+            }
+            byte[] body = MAPPER.writeValueAsString(res).getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().add("Content-Type", "application/json");
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream os = exchange.getResponseBody()) {
+                os.write(body);
+            }
+        });
+        server.start();
+        client = Web3jProvider.createClient(
+                "http://127.0.0.1:" + server.getAddress().getPort());
+    }
+
+    @AfterEach
+    void tearDown() {
+        client.shutdown();
+        server.stop(0);
+    }
+
+    @Test
+    void testSendAllKeepsRequestOrderAndRetriesFailedElements() throws IOException {
+        var batchClient = new BatchRpcClient(client, 4, 3);
+        List<Request<?, EthBlock>> requests = new ArrayList<>();
+        for (long i = 1; i <= 6; i++) {
+            requests.add(client.ethGetBlockByNumber(DefaultBlockParameter.valueOf(BigInteger.valueOf(i)), false));
+        }
+
+        List<EthBlock> responses = batchClient.sendAll(requests);
+
+        assertEquals(6, responses.size());
+        for (int i = 0; i < responses.size(); i++) {
+            assertFalse(responses.get(i).hasError());
+            assertEquals(BigInteger.valueOf(i + 1), responses.get(i).getBlock().getNumber());
+        }
+        // two chunks, then one retry batch for the rate limited element
+        assertEquals(3, batchCount.get());
+        assertTrue(rateLimitedOnce.get() >= 2);
+    }
+}
@@ -0,0 +1,296 @@
+/*
+ * Copyright 2023 281165273grape@gmail.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+
+package io.optimism.utilities.rpc;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.sun.net.httpserver.HttpServer;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigInteger;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import okhttp3.OkHttpClient;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.web3j.protocol.Web3j;
+import org.web3j.protocol.core.DefaultBlockParameter;
+import org.web3j.protocol.core.methods.response.EthBlock;
+
+/**
+ * Multi endpoint http service test case.
+ *
+ * @author thinkAfCod
+ * @since 0.2.0
+ */
+class MultiEndpointHttpServiceTest {
+
+    private final List<HttpServer> servers = new ArrayList<>();
+
+    private MultiEndpointHttpService service;
+
+    @AfterEach
+    void tearDown() {
+        if (service != null) {
+            service.close();
+        }
+        servers.forEach(server -> server.stop(0));
+    }
+
+    @Test
+    void testHedgesSlowEndpoint() throws IOException {
+        var slowCalls = new AtomicInteger();
+        var fastCalls = new AtomicInteger();
+        String slow = stub(slowCalls, 200, Duration.ofSeconds(3L));
+        String fast = stub(fastCalls, 200, Duration.ZERO);
+        service = new MultiEndpointHttpService(List.of(slow, fast), new OkHttpClient());
+        Web3j client = Web3j.build(service);
+
+        long start = System.nanoTime();
+        EthBlock block = client.ethGetBlockByNumber(DefaultBlockParameter.valueOf(BigInteger.TEN), false)
+                .send();
+
+        assertEquals(BigInteger.TEN, block.getBlock().getNumber());
+        assertEquals(1, slowCalls.get());
+        assertEquals(1, fastCalls.get());
+        // answered by the hedge after the default delay, long before the slow endpoint
+        assertTrue(Duration.ofNanos(System.nanoTime() - start).compareTo(Duration.ofSeconds(2L)) < 0);
+    }
+
+    @Test
+    void testDoesNotHedgeWrites() throws IOException {
+        var slowCalls = new AtomicInteger();
+        var fastCalls = new AtomicInteger();
+        String slow = stub(slowCalls, 200, Duration.ofMillis(800L));
+        String fast = stub(fastCalls, 200, Duration.ZERO);
+        service = new MultiEndpointHttpService(List.of(slow, fast), new OkHttpClient());
+        Web3j client = Web3j.build(service);
+
+        client.ethSendRawTransaction("0x01").send();
+
+        assertEquals(1, slowCalls.get());
+        assertEquals(0, fastCalls.get());
+        assertFalse(MultiEndpointHttpService.isHedgeable(
+                "[{\"method\":\"eth_getLogs\"},{\"method\":\"eth_sendRawTransaction\"}]"));
+        assertTrue(MultiEndpointHttpService.isHedgeable(
+                "[{\"method\":\"eth_getLogs\"},{\"method\": \"eth_getBlockByNumber\"}]"));
+    }
+
+    @Test
+    void testFailsOverAndEjectsFailingEndpoint() throws IOException {
+        var failingCalls = new AtomicInteger();
+        var healthyCalls = new AtomicInteger();
+        String failing = stub(failingCalls, 503, Duration.ZERO);
+        String healthy = stub(healthyCalls, 200, Duration.ofMillis(5L));
+        service = new MultiEndpointHttpService(List.of(failing, healthy), new OkHttpClient());
+        Web3j client = Web3j.build(service);
+
+        for (int i = 0; i < 10; i++) {
+            EthBlock block = client.ethGetBlockByNumber(DefaultBlockParameter.valueOf(BigInteger.ONE), false)
+                    .send();
+            assertEquals(BigInteger.ONE, block.getBlock().getNumber());
+        }
+
+        assertEquals(10, healthyCalls.get());
+        // ejected after a few failures, then only the background probe may reach it
+        assertTrue(failingCalls.get() <= MultiEndpointHttpService.Endpoint.EJECT_FAILURES);
+        assertEquals(failing, service.rank().get(1).url());
+    }
+
+    @Test
+    void testFailsWhenAllEndpointsFail() throws IOException {
+        String first = stub(new AtomicInteger(), 500, Duration.ZERO);
+        String second = stub(new AtomicInteger(), 502, Duration.ZERO);
+        service = new MultiEndpointHttpService(List.of(first, second), new OkHttpClient());
+        Web3j client = Web3j.build(service);
+
+        assertThrows(IOException.class, () -> client.ethGetBlockByNumber(
+                        DefaultBlockParameter.valueOf(BigInteger.ONE), false)
+                .send());
+    }
+
+    @Test
+    void testProviderFailsOverThrottledEndpoint() throws IOException {
+        var throttledCalls = new AtomicInteger();
+        var healthyCalls = new AtomicInteger();
+        String throttled = stub(throttledCalls, 429, Duration.ZERO);
+        String healthy = stub(healthyCalls, 200, Duration.ofMillis(5L));
+        var provider = Web3jProvider.create(throttled + "," + healthy);
+        service = (MultiEndpointHttpService) provider.component2();
+
+        long start = System.nanoTime();
+        for (int i = 0; i < 10; i++) {
+            EthBlock block = provider.component1()
+                    .ethGetBlockByNumber(DefaultBlockParameter.valueOf(BigInteger.ONE), false)
+                    .send();
+            assertEquals(BigInteger.ONE, block.getBlock().getNumber());
+        }
+
+        // no retries against the throttled endpoint, the calls go to the healthy one instead
+        assertTrue(Duration.ofNanos(System.nanoTime() - start).compareTo(Duration.ofSeconds(2L)) < 0);
+        assertEquals(10, healthyCalls.get());
+        assertTrue(throttledCalls.get() <= MultiEndpointHttpService.Endpoint.EJECT_FAILURES);
+    }
+
+    @Test
+    void testProviderFailsOverDeadEndpoint() throws IOException {
+        var healthyCalls = new AtomicInteger();
+        String dead = stub(new AtomicInteger(), 200, Duration.ZERO);
+        servers.removeLast().stop(0);
+        String healthy = stub(healthyCalls, 200, Duration.ZERO);
+        var provider = Web3jProvider.create(dead + "," + healthy);
+        service = (MultiEndpointHttpService) provider.component2();
+
+        long start = System.nanoTime();
+        for (int i = 0; i < 10; i++) {
+            EthBlock block = provider.component1()
+                    .ethGetBlockByNumber(DefaultBlockParameter.valueOf(BigInteger.ONE), false)
+                    .send();
+            assertEquals(BigInteger.ONE, block.getBlock().getNumber());
+        }
+
+        assertTrue(Duration.ofNanos(System.nanoTime() - start).compareTo(Duration.ofSeconds(2L)) < 0);
+        assertEquals(10, healthyCalls.get());
+        assertEquals(dead, service.rank().get(1).url());
+    }
+
+    @Test
+    void testProviderSendsConcurrentCallsToOneEndpoint() throws Exception {
+        var inFlight = new AtomicInteger();
+        var peak = new AtomicInteger();
+        HttpServer server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.setExecutor(Executors.newVirtualThreadPerTaskExecutor());
+        server.createContext("/", exchange -> {
+            String request = new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8);
+            peak.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+            try {
+                // below the default hedge delay, so the calls stay on this endpoint
+                Thread.sleep(Duration.ofMillis(300L));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            inFlight.decrementAndGet();
+            byte[] body = ("{\"jsonrpc\":\"2.0\",\"id\":" + idOf(request) + ",\"result\":" + blockOf(request) + "}")
+                    .getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().add("Content-Type", "application/json");
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream os = exchange.getResponseBody()) {
+                os.write(body);
+            }
+        });
+        server.start();
+        servers.add(server);
+        String first = "http://127.0.0.1:" + server.getAddress().getPort();
+        String second = stub(new AtomicInteger(), 200, Duration.ofSeconds(1L));
+        var provider = Web3jProvider.create(first + "," + second);
+        service = (MultiEndpointHttpService) provider.component2();
+
+        try (var executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            List<Future<EthBlock>> blocks = new ArrayList<>();
+            for (int i = 0; i < 12; i++) {
+                blocks.add(executor.submit(() -> provider.component1()
+                        .ethGetBlockByNumber(DefaultBlockParameter.valueOf(BigInteger.ONE), false)
+                        .send()));
+            }
+            for (Future<EthBlock> block : blocks) {
+                assertEquals(BigInteger.ONE, block.get().getBlock().getNumber());
+            }
+        }
+
+        // the default okhttp dispatcher would hold all but 5 calls per host back
+        assertTrue(peak.get() > 5);
+    }
+
+    @Test
+    void testHedgeDelayFollowsLatency() {
+        var endpoint = new MultiEndpointHttpService.Endpoint("http://127.0.0.1");
+        assertEquals(Duration.ofMillis(500L), endpoint.hedgeDelay());
+        for (int i = 1; i <= 100; i++) {
+            endpoint.recordSuccess(Duration.ofMillis(i).toNanos());
+        }
+        // the last 64 samples are 37..100 ms
+        assertEquals(Duration.ofMillis(97L), endpoint.hedgeDelay());
+        endpoint.recordFailure(System.nanoTime());
+        assertFalse(endpoint.isEjected());
+        endpoint.recordFailure(System.nanoTime());
+        endpoint.recordFailure(System.nanoTime());
+        assertTrue(endpoint.isEjected());
+        endpoint.recordSuccess(Duration.ofMillis(1L).toNanos());
+        assertFalse(endpoint.isEjected());
+    }
+
+    @Test
+    void testFailedEndpointWithoutSamplesRanksLast() {
+        var failing = new MultiEndpointHttpService.Endpoint("http://127.0.0.1:1");
+        var healthy = new MultiEndpointHttpService.Endpoint("http://127.0.0.1:2");
+        assertEquals(0.0, failing.score());
+        failing.recordFailure(System.nanoTime());
+        healthy.recordSuccess(Duration.ofMillis(50L).toNanos());
+        assertTrue(failing.score() > healthy.score());
+    }
+
+    private String stub(AtomicInteger calls, int status, Duration delay) throws IOException {
+        HttpServer server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.setExecutor(Executors.newVirtualThreadPerTaskExecutor());
+        server.createContext("/", exchange -> {
+            String request = new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8);
+            if (request.contains("eth_chainId")) {
+                exchange.sendResponseHeaders(status, -1);
+                exchange.close();
+                return;
+            }
+            calls.incrementAndGet();
+            try {
+                Thread.sleep(delay);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            byte[] body = ("{\"jsonrpc\":\"2.0\",\"id\":" + idOf(request) + ",\"result\":"
+                            + (request.contains("eth_sendRawTransaction") ? "\"0x1\"" : blockOf(request)) + "}")
+                    .getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().add("Content-Type", "application/json");
+            exchange.sendResponseHeaders(status, body.length);
+            try (OutputStream os = exchange.getResponseBody()) {
+                os.write(body);
+            } catch (IOException e) {
+                // the client cancelled the losing hedge
+            }
+        });
+        server.start();
+        servers.add(server);
+        return "http://127.0.0.1:" + server.getAddress().getPort();
+    }
+
+    private static String idOf(String request) {
+        return request.replaceAll(".*\"id\"\\s*:\\s*(\\d+).*", "$1");
+    }
+
+    private static String blockOf(String request) {
+        String number = request.replaceAll(".*\"params\"\\s*:\\s*\\[\\s*\"(0x[0-9a-f]+)\".*", "$1");
+        return "{\"number\":\"" + number + "\",\"hash\":\"0x" + "ab".repeat(32) + "\"}";
+    }
+}
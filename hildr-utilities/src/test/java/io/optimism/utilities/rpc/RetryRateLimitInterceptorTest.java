@@ -0,0 +1,153 @@
+/*
+ * Copyright 2023 281165273grape@gmail.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+
+package io.optimism.utilities.rpc;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.sun.net.httpserver.HttpServer;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.atomic.AtomicInteger;
+import okhttp3.MediaType;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.RequestBody;
+import okhttp3.Response;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Retry rate limit interceptor test case.
+ *
+ * @author thinkAfCod
+ * @since 0.2.0
+ */
+class RetryRateLimitInterceptorTest {
+
+    private static final String PAYLOAD = "{\"jsonrpc\":\"2.0\",\"method\":\"eth_getLogs\",\"params\":[],\"id\":1}";
+
+    private HttpServer server;
+
+    private OkHttpClient client;
+
+    private SimpleMeterRegistry registry;
+
+    private final Deque<String> answers = new ArrayDeque<>();
+
+    private final AtomicInteger calls = new AtomicInteger();
+
+    @BeforeEach
+    void setUp() throws IOException {
+        registry = new SimpleMeterRegistry();
+        Metrics.addRegistry(registry);
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/", exchange -> {
+            exchange.getRequestBody().readAllBytes();
+            calls.incrementAndGet();
+            String answer;
+            synchronized (answers) {
+                answer = answers.size() > 1 ? answers.poll() : answers.peek();
+            }
+            byte[] body = answer.getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().add("Content-Type", "application/json");
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream os = exchange.getResponseBody()) {
+                os.write(body);
+            }
+        });
+        server.start();
+        client = new OkHttpClient.Builder()
+                .addInterceptor(new RetryRateLimitInterceptor())
+                .build();
+    }
+
+    @AfterEach
+    void tearDown() {
+        server.stop(0);
+        Metrics.removeRegistry(registry);
+    }
+
+    @Test
+    void testRetriesRateLimitErrorAndCountsRetries() throws IOException {
+        String error = "{\"jsonrpc\":\"2.0\",\"id\":1,\"error\":{\"code\":-32016,\"message\":\"rate limit exceeded\"}}";
+        String result = "{\"jsonrpc\":\"2.0\",\"id\":1,\"result\":[\"" + "ab".repeat(1 << 20) + "\"]}";
+        answers.add(error);
+        answers.add(error);
+        answers.add(result);
+
+        String body = call();
+
+        assertEquals(result, body);
+        assertEquals(3, calls.get());
+        assertEquals(2.0, registry.get("rpc_retries").tag("method", "eth_getLogs").counter().count());
+    }
+
+    @Test
+    void testDoesNotRetryPermanentErrors() throws IOException {
+        String error = "{\"jsonrpc\":\"2.0\",\"id\":1,\"error\":{\"code\":-32005,"
+                + "\"message\":\"query returned more than 10000 results\"}}";
+        answers.add(error);
+
+        assertEquals(error, call());
+        assertEquals(1, calls.get());
+    }
+
+    @Test
+    void testResultIsNotScannedForErrors() throws IOException {
+        // an error like object inside the result must not be taken for a JSON-RPC error
+        String result =
+                "{\"id\":1,\"result\":{\"error\":{\"code\":429,\"message\":\"rate limit\"}},\"jsonrpc\":\"2.0\"}";
+        answers.add(result);
+
+        assertEquals(result, call());
+        assertEquals(1, calls.get());
+    }
+
+    @Test
+    void testDefaultPolicy() {
+        assertTrue(RetryPolicy.DEFAULT.isRetryable(429, null));
+        assertTrue(RetryPolicy.DEFAULT.isRetryable(-32000, "header not found"));
+        assertTrue(RetryPolicy.DEFAULT.isRetryable(-32005, "project ID request rate exceeded"));
+        assertFalse(RetryPolicy.DEFAULT.isRetryable(-32005, "query returned more than 10000 results"));
+        assertFalse(RetryPolicy.DEFAULT.isRetryable(-32000, "execution reverted"));
+        assertEquals("batch", RetryRateLimitInterceptor.methodOf(request("[" + PAYLOAD + "]")));
+        assertEquals("eth_getLogs", RetryRateLimitInterceptor.methodOf(request(PAYLOAD)));
+    }
+
+    private String call() throws IOException {
+        try (Response response = client.newCall(request(PAYLOAD)).execute()) {
+            return response.body().string();
+        }
+    }
+
+    private Request request(String payload) {
+        return new Request.Builder()
+                .url("http://127.0.0.1:" + server.getAddress().getPort())
+                .post(RequestBody.create(payload, MediaType.get("application/json")))
+                .build();
+    }
+}